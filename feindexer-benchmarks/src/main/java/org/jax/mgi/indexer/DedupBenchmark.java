@@ -0,0 +1,86 @@
+package org.jax.mgi.indexer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jax.mgi.shr.DistinctSolrInputDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The duplicate-suppression structures:  MPCorrelationMatrixIndexerSQL.AnnotationLog
+ * (one seenIt() call per annotation row, with a share of repeats) and
+ * DistinctSolrInputDocument.addDistinctField() (building one document from
+ * values that are often repeated).  Keys come from a fixed seed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dfeindexer.config=benchmark.properties")
+public class DedupBenchmark {
+
+	@Param({ "100000" })
+	public int annotationCount;
+
+	@Param({ "2000" })
+	public int fieldValueCount;
+
+	private MPCorrelationMatrixIndexerSQL matrixIndexer;
+	private int[][] annotations;
+	private String[] qualifiers;
+	private String[] fieldValues;
+
+	@Setup
+	public void setup() {
+		matrixIndexer = new MPCorrelationMatrixIndexerSQL();
+
+		Random random = new Random(42);
+		annotations = new int[annotationCount][];
+		qualifiers = new String[annotationCount];
+		for (int i = 0; i < annotationCount; i++) {
+			// marker, genotype, MP term, structure, reference
+			annotations[i] = new int[] { random.nextInt(2000), random.nextInt(5000), random.nextInt(3000),
+				random.nextInt(1500), random.nextInt(200) };
+			qualifiers[i] = random.nextInt(10) == 0 ? "normal" : null;
+		}
+
+		fieldValues = new String[fieldValueCount];
+		for (int i = 0; i < fieldValueCount; i++) {
+			fieldValues[i] = "MP:" + (1000000 + random.nextInt(fieldValueCount / 4));
+		}
+	}
+
+	@Benchmark
+	public int annotationLogSeenIt() {
+		MPCorrelationMatrixIndexerSQL.AnnotationLog log = matrixIndexer.new AnnotationLog();
+		int seen = 0;
+		for (int i = 0; i < annotationCount; i++) {
+			int[] a = annotations[i];
+			if (log.seenIt(a[0], a[1], a[2], a[3], qualifiers[i], a[4])) {
+				seen++;
+			}
+		}
+		return seen;
+	}
+
+	@Benchmark
+	public DistinctSolrInputDocument addDistinctField() {
+		DistinctSolrInputDocument doc = new DistinctSolrInputDocument();
+		for (String value : fieldValues) {
+			doc.addDistinctField("mpID", value);
+			doc.addDistinctField("mpTerm", value.substring(3));
+		}
+		return doc;
+	}
+}
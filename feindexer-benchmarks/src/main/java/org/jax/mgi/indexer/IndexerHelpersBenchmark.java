@@ -0,0 +1,97 @@
+package org.jax.mgi.indexer;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jax.mgi.shr.SQLExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Indexer.populateLookup() and Indexer.makeHash(), the helpers nearly every
+ * indexer uses to load its one-to-many lookups, fed from an in-memory ResultSet.
+ * The rows are the same for every run (fixed seed), with about 'valuesPerKey'
+ * values per key drawn from a pool of 'distinctValues', as in a typical
+ * marker-to-term lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dfeindexer.config=benchmark.properties")
+public class IndexerHelpersBenchmark {
+
+	private static final String[] COLUMNS = { "unique_key", "value" };
+
+	@Param({ "200000" })
+	public int rowCount;
+
+	@Param({ "5" })
+	public int valuesPerKey;
+
+	@Param({ "20000" })
+	public int distinctValues;
+
+	private List<String[]> rows;
+	private BenchIndexer indexer;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		rows = new ArrayList<String[]>(rowCount);
+		for (int i = 0; i < rowCount; i++) {
+			rows.add(new String[] { "" + (i / valuesPerKey), "value" + random.nextInt(distinctValues) });
+		}
+		indexer = new BenchIndexer(rows);
+	}
+
+	@Benchmark
+	public Map<String, Set<String>> populateLookup() throws Exception {
+		return indexer.populateLookup("synthetic", "unique_key", "value", "benchmark lookup", new HashMap<String, Set<String>>());
+	}
+
+	@Benchmark
+	public HashMap<String, HashSet<String>> makeHash() {
+		return indexer.makeHash("synthetic", "unique_key", "value");
+	}
+
+	/* an indexer whose queries all return the synthetic rows
+	 */
+	static class BenchIndexer extends Indexer {
+		BenchIndexer(final List<String[]> rows) {
+			super("benchmark");
+			ex = new SQLExecutor() {
+				@Override
+				public ResultSet executeProto(String query) {
+					return SyntheticResultSet.create(COLUMNS, rows);
+				}
+
+				@Override
+				public ResultSet executeProto(String query, int cursorLimit) {
+					return SyntheticResultSet.create(COLUMNS, rows);
+				}
+			};
+		}
+
+		@Override
+		void index() throws Exception {
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package org.jax.mgi.indexer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory ResultSet over rows of strings, so the lookup helpers can be
+ * benchmarked without a database.  Supports next(), getString() and getInt() (by
+ * column name or 1-based index), wasNull() and close(); anything else throws.
+ */
+public class SyntheticResultSet implements InvocationHandler {
+
+	private Map<String,Integer> columns = new HashMap<String,Integer>();
+	private List<String[]> rows;
+	private int current = -1;
+	private boolean lastWasNull = false;
+
+	private SyntheticResultSet(String[] columnNames, List<String[]> rows) {
+		for (int i = 0; i < columnNames.length; i++) {
+			columns.put(columnNames[i], i);
+		}
+		this.rows = rows;
+	}
+
+	/* a fresh ResultSet (positioned before the first row) over 'rows'
+	 */
+	public static ResultSet create(String[] columnNames, List<String[]> rows) {
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+			new Class<?>[] { ResultSet.class }, new SyntheticResultSet(columnNames, rows));
+	}
+
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		switch (method.getName()) {
+			case "next":
+				current++;
+				return current < rows.size();
+			case "getString":
+				return value(args[0]);
+			case "getInt":
+				String s = value(args[0]);
+				return (s == null) ? 0 : Integer.parseInt(s);
+			case "wasNull":
+				return lastWasNull;
+			case "close":
+				return null;
+			default:
+				throw new UnsupportedOperationException("SyntheticResultSet does not support " + method.getName());
+		}
+	}
+
+	private String value(Object column) {
+		int index = (column instanceof Integer) ? ((Integer) column) - 1 : columns.get(column);
+		String value = rows.get(current)[index];
+		lastWasNull = (value == null);
+		return value;
+	}
+}
@@ -0,0 +1,85 @@
+package org.jax.mgi.indexer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.jax.mgi.shr.fe.sort.SmartAlphaComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * String-handling helpers run once per name, synonym or author:
+ * QSStrainBucketIndexerSQL.splitIntoIndexablePieces(), RefIndexerSQL.addAuthorPermutations()
+ * and sorting with SmartAlphaComparator (as the vocabulary and sequence indexers
+ * do).  Inputs are generated from a fixed seed in shapes taken from real data, e.g.
+ * strain names with nested angle brackets and parentheses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dfeindexer.config=benchmark.properties")
+public class TextHelpersBenchmark {
+
+	private static final int COUNT = 1000;
+
+	private QSStrainBucketIndexerSQL strainIndexer;
+	private RefIndexerSQL refIndexer;
+
+	private List<String> strainNames = new ArrayList<String>();
+	private List<String> authors = new ArrayList<String>();
+	private List<String> symbols = new ArrayList<String>();
+
+	@Setup
+	public void setup() {
+		strainIndexer = new QSStrainBucketIndexerSQL();
+		refIndexer = new RefIndexerSQL();
+
+		Random random = new Random(42);
+		for (int i = 0; i < COUNT; i++) {
+			// e.g. B6.Cg-Pax6<Sey-1Neu> Tg(Ins2-cre)25Mgn/J
+			strainNames.add("B6.Cg-Gene" + random.nextInt(500) + "<tm" + random.nextInt(9) + "(cre)Lab>"
+				+ " Tg(Ins" + random.nextInt(5) + "-cre)" + random.nextInt(100) + "Mgn/J");
+			// e.g. Smith-Jones J, O'Brien AB
+			authors.add("Smith" + random.nextInt(300) + "-Jones J, O'Brien" + random.nextInt(300) + " AB");
+			symbols.add("Gene" + random.nextInt(20000) + (random.nextBoolean() ? "a" : "") + "-ps" + random.nextInt(12));
+		}
+	}
+
+	@Benchmark
+	public void splitIntoIndexablePieces(Blackhole bh) {
+		for (String name : strainNames) {
+			bh.consume(strainIndexer.splitIntoIndexablePieces(name));
+		}
+	}
+
+	@Benchmark
+	public SolrInputDocument addAuthorPermutations() {
+		SolrInputDocument doc = new SolrInputDocument();
+		for (String author : authors) {
+			refIndexer.addAuthorPermutations(doc, "author", author);
+		}
+		return doc;
+	}
+
+	@Benchmark
+	public List<String> smartAlphaSort() {
+		List<String> toSort = new ArrayList<String>(symbols);
+		Collections.sort(toSort, new SmartAlphaComparator());
+		return toSort;
+	}
+}
@@ -0,0 +1,334 @@
+package org.jax.mgi.indexer;
+
+import java.io.File;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.jax.mgi.reporting.IndexerMetrics;
+import org.jax.mgi.reporting.MetricsRegistry;
+
+/**
+ * ThroughputHarness
+ *
+ * Runs indexers end to end against stand-ins for production:  a local Postgres
+ * holding a copy of the fe schema (any size, even a small sample) and embedded Solr
+ * cores (see EmbeddedCores), then reports documents per second, peak heap and the
+ * phase timings from the metrics registry.  Next to the documents built it reports
+ * how many the core actually holds, which is lower if documents shared a unique key.
+ *
+ * To see how an indexer scales as MGI grows, the harness can first multiply the
+ * local data:  scale=N makes N disjoint copies of every row in the schema, each copy
+ * with all of its integer *_key columns shifted by a fixed offset, so the copies
+ * keep their joins to each other but never to another copy.  Text ID and symbol
+ * columns (primary_id, acc_id, symbol, ...) get a "-c<copy>" suffix the same way,
+ * so the indexers that key documents or lookups by ID see distinct copies rather
+ * than merging them; jnum_id is left alone, as J: numbers are parsed for sorting.
+ * (Marker, allele and sequence counts, and everything hanging off them, grow by N;
+ * vocabularies grow too.)
+ * The base data is remembered, so the database can be moved between scales (1, 5,
+ * 10, ...) in either direction.  Scaling modifies the database, so never point the
+ * harness at a shared one.
+ *
+ * Usage, with a properties file (in the config.properties format) that names the
+ * local database, passed explicitly so neither copy bundled in the jar is used:
+ * 	java -Dfeindexer.config=harness.properties -cp target/benchmarks.jar \
+ * 		org.jax.mgi.indexer.ThroughputHarness solrHome=/path/to/solr scale=5 hdpGrid creAssayResult
+ * Indexer names are those from Main (java -jar feindexer.jar list).  The Solr home
+ * needs a <core>/conf directory for each index, copied from production.  The
+ * metrics report is written to metricsDir= (default harness-metrics).
+ */
+public class ThroughputHarness {
+
+	// remembers the offset between copies and the current scale of the local database
+	private static final String SCALE_TABLE = "harness_scale";
+
+	// text ID columns kept as they are in every copy (J: numbers are parsed as integers)
+	private static final List<String> FIXED_ID_COLUMNS = Arrays.asList("jnum_id");
+
+	public static void main(String[] args) throws Exception {
+		// (checked before Main's indexers, and their SQLExecutors, are created)
+		if (System.getProperty(Indexer.CONFIG_PROPERTY) == null) {
+			System.err.println("name the harness configuration with -D" + Indexer.CONFIG_PROPERTY + "=<file>");
+			System.exit(1);
+		}
+		String solrHome = null;
+		String metricsDir = "harness-metrics";
+		int scale = 0;
+		List<String> indexerNames = new ArrayList<String>();
+		for (String arg : args) {
+			if (arg.startsWith("solrHome=")) {
+				solrHome = arg.replace("solrHome=", "");
+			} else if (arg.startsWith("scale=")) {
+				scale = Integer.parseInt(arg.replace("scale=", ""));
+			} else if (arg.startsWith("metricsDir=")) {
+				metricsDir = arg.replace("metricsDir=", "");
+			} else if (Main.indexerMap.containsKey(arg)) {
+				indexerNames.add(arg);
+			} else {
+				throw new IllegalArgumentException("Unknown argument or indexer: " + arg);
+			}
+		}
+		if ((solrHome == null) || indexerNames.isEmpty()) {
+			System.err.println("usage: ThroughputHarness solrHome=<dir> [scale=<n>] [metricsDir=<dir>] <indexer> ...");
+			System.exit(1);
+		}
+
+		if (scale > 0) {
+			try (Connection con = connect()) {
+				scaleDatabase(con, scale);
+			}
+		}
+
+		EmbeddedCores.setSolrHome(solrHome);
+		Map<String,String> results = new LinkedHashMap<String,String>();
+		boolean allPassed = true;
+		try {
+			// one at a time, so heap peaks and timings belong to a single indexer
+			for (String name : indexerNames) {
+				results.put(name, runOne(name, Main.indexerMap.get(name)));
+				allPassed = allPassed && Main.indexerMap.get(name).indexPassed;
+			}
+		} finally {
+			EmbeddedCores.shutdown();
+		}
+
+		MetricsRegistry.writeReports(new File(metricsDir));
+		System.out.println();
+		System.out.println(String.format("%-22s %10s %10s %10s %10s %12s  %s", "indexer", "docs", "core docs", "seconds", "docs/sec", "peak heap MB", "phases (s)"));
+		for (String line : results.values()) {
+			System.out.println(line);
+		}
+		System.exit(allPassed ? 0 : 1);
+	}
+
+	/* run one indexer, returning its line of the summary
+	 */
+	private static String runOne(String name, Indexer indexer) throws Exception {
+		HeapSampler sampler = new HeapSampler();
+		sampler.start();
+		long startMillis = System.currentTimeMillis();
+		indexer.run();
+		double seconds = (System.currentTimeMillis() - startMillis) / 1e3;
+		sampler.finish();
+
+		long docs = 0;
+		StringBuilder phases = new StringBuilder();
+		for (IndexerMetrics.Phase phase : indexer.metrics.getPhases()) {
+			docs += phase.docsBuilt.sum();
+			phases.append(phase.name).append("=").append(String.format("%.1f", phase.getElapsedMillis() / 1e3)).append(" ");
+		}
+		return String.format("%-22s %10d %10d %10.1f %10.0f %12d  %s%s", name, docs, coreDocCount(indexer), seconds,
+			docs / Math.max(seconds, 0.001), sampler.getPeakBytes() / (1024 * 1024), phases.toString().trim(),
+			indexer.indexPassed ? "" : "  (FAILED)");
+	}
+
+	/* number of documents in the indexer's core once it is done, or -1 if it cannot be read
+	 */
+	private static long coreDocCount(Indexer indexer) {
+		try {
+			SolrQuery query = new SolrQuery("*:*");
+			query.setRows(0);
+			return EmbeddedCores.getClient(indexer.getIndexName()).query(query).getResults().getNumFound();
+		} catch (Exception e) {
+			System.err.println("Cannot count the documents in " + indexer.getIndexName() + ": " + e);
+			return -1;
+		}
+	}
+
+	/* connect to the database named in the configuration, as the indexers will
+	 */
+	private static Connection connect() throws Exception {
+		Properties props = new Properties();
+		try (InputStream in = Indexer.openConfig()) {
+			props.load(in);
+		}
+		Class.forName(props.getProperty("database.JDBC.driver"));
+		Connection con = DriverManager.getConnection(props.getProperty("mgd.JDBC.url"),
+			props.getProperty("mgd.user"), props.getProperty("mgd.password"));
+		con.setAutoCommit(false);
+		return con;
+	}
+
+	/*
+	 * Bring the local database to 'scale' copies of its base data.  The first time,
+	 * the data present is taken as the base (copy 0) and the offset between copies is
+	 * set just above its largest key.  Copy k of a row has every *_key column shifted by
+	 * k * offset and "-c<k>" added to its text ID columns; going down in scale deletes the
+	 * copies above the new scale.
+	 */
+	static void scaleDatabase(Connection con, int scale) throws SQLException {
+		Map<String,List<String>> keyColumns = getKeyColumns(con);
+		long offset;
+		int current;
+		try (Statement stmt = con.createStatement()) {
+			stmt.execute("create table if not exists " + SCALE_TABLE + " (key_offset bigint, scale int)");
+			try (ResultSet rs = stmt.executeQuery("select key_offset, scale from " + SCALE_TABLE)) {
+				if (rs.next()) {
+					offset = rs.getLong(1);
+					current = rs.getInt(2);
+				} else {
+					offset = maxKey(con, keyColumns) + 1;
+					current = 1;
+					stmt.execute("insert into " + SCALE_TABLE + " values (" + offset + ", 1)");
+				}
+			}
+		}
+		if ((long) scale * offset > Integer.MAX_VALUE) {
+			throw new SQLException("Scale " + scale + " would push keys (offset " + offset + ") past the integer range");
+		}
+		System.out.println("Scaling database from " + current + "x to " + scale + "x (key offset " + offset + ")");
+
+		try (Statement stmt = con.createStatement()) {
+			for (Map.Entry<String,List<String>> table : keyColumns.entrySet()) {
+				String name = table.getKey();
+				List<String> keys = table.getValue();
+				if (scale < current) {
+					// a row belongs to copy (its first key / offset)
+					stmt.executeUpdate("delete from " + name + " where " + keys.get(0) + " >= " + ((long) scale * offset));
+				}
+				for (int copy = current; copy < scale; copy++) {
+					stmt.executeUpdate(copySql(con, name, keys, copy, offset));
+				}
+				stmt.execute("analyze " + name);
+			}
+			stmt.executeUpdate("update " + SCALE_TABLE + " set scale = " + scale);
+		}
+		con.commit();
+	}
+
+	/* insert into 'table' copy number 'copy' of its base rows (first key below 'offset'):  every key
+	 * column shifted by copy * offset, and every text ID column suffixed (see isIdColumn)
+	 */
+	private static String copySql(Connection con, String table, List<String> keys, int copy, long offset) throws SQLException {
+		long shift = copy * offset;
+		String suffix = "-c" + copy;
+		// (the columns come from the table itself, not getColumns(), whose table name is a
+		// LIKE pattern in which the '_' of MGI table names matches any character)
+		List<String> select = new ArrayList<String>();
+		try (Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery("select * from " + table + " limit 0")) {
+			ResultSetMetaData columns = rs.getMetaData();
+			for (int i = 1; i <= columns.getColumnCount(); i++) {
+				String column = columns.getColumnName(i);
+				if (keys.contains(column)) {
+					select.add(column + " + " + shift);
+				} else if (isIdColumn(column, columns.getColumnType(i))) {
+					// in a bounded column, give up the end of the ID rather than the suffix
+					int width = columns.getPrecision(i);
+					if ((width > suffix.length()) && (width < Integer.MAX_VALUE)) {
+						select.add("left(" + column + ", " + (width - suffix.length()) + ") || '" + suffix + "'");
+					} else {
+						select.add(column + " || '" + suffix + "'");
+					}
+				} else {
+					select.add(column);
+				}
+			}
+		}
+		return "insert into " + table + " select " + String.join(", ", select) + " from " + table
+			+ " where " + keys.get(0) + " < " + offset;
+	}
+
+	/* true if 'column' (of JDBC type 'type') holds text IDs or symbols that the indexers may
+	 * use to key documents or lookups, and so must differ between copies
+	 */
+	private static boolean isIdColumn(String column, int type) {
+		if ((type != Types.VARCHAR) && (type != Types.CHAR) && (type != Types.LONGVARCHAR)) {
+			return false;
+		}
+		if (FIXED_ID_COLUMNS.contains(column)) {
+			return false;
+		}
+		return column.equals("id") || column.endsWith("_id") || column.equals("symbol") || column.endsWith("_symbol");
+	}
+
+	/* the integer *_key columns of each table in the current schema (tables without any are left alone),
+	 * NOT NULL ones first.  The first is the one that says which copy a row belongs to, so a table
+	 * whose *_key columns may all be NULL has its rows with a NULL first key neither copied nor
+	 * deleted when scaling; they stay as they are, in the base data.
+	 */
+	private static Map<String,List<String>> getKeyColumns(Connection con) throws SQLException {
+		Map<String,List<String>> keyColumns = new LinkedHashMap<String,List<String>>();
+		String sql = "select c.table_name, c.column_name "
+			+ "from information_schema.columns c, information_schema.tables t "
+			+ "where c.table_schema = current_schema() "
+			+ "and t.table_schema = c.table_schema "
+			+ "and t.table_name = c.table_name "
+			+ "and t.table_type = 'BASE TABLE' "
+			+ "and c.table_name != '" + SCALE_TABLE + "' "
+			+ "and c.column_name like '%\\_key' "
+			+ "and c.data_type in ('integer', 'bigint') "
+			+ "order by c.table_name, (c.is_nullable = 'YES'), c.ordinal_position";
+		try (Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+			while (rs.next()) {
+				String table = rs.getString(1);
+				if (!keyColumns.containsKey(table)) {
+					keyColumns.put(table, new ArrayList<String>());
+				}
+				keyColumns.get(table).add(rs.getString(2));
+			}
+		}
+		return keyColumns;
+	}
+
+	private static long maxKey(Connection con, Map<String,List<String>> keyColumns) throws SQLException {
+		long max = 0;
+		try (Statement stmt = con.createStatement()) {
+			for (Map.Entry<String,List<String>> table : keyColumns.entrySet()) {
+				for (String column : table.getValue()) {
+					try (ResultSet rs = stmt.executeQuery("select max(" + column + ") from " + table.getKey())) {
+						if (rs.next()) {
+							max = Math.max(max, rs.getLong(1));
+						}
+					}
+				}
+			}
+		}
+		return max;
+	}
+
+	/* samples heap use every 50 ms; the peak is more honest than summing the pools' own
+	 * peaks, which may have happened at different times
+	 */
+	private static class HeapSampler extends Thread {
+		private volatile boolean running = true;
+		private volatile long peakBytes = 0;
+
+		HeapSampler() {
+			setDaemon(true);
+		}
+
+		public void run() {
+			Runtime runtime = Runtime.getRuntime();
+			while (running) {
+				peakBytes = Math.max(peakBytes, runtime.totalMemory() - runtime.freeMemory());
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+
+		void finish() throws InterruptedException {
+			running = false;
+			join();
+		}
+
+		long getPeakBytes() {
+			return peakBytes;
+		}
+	}
+}
@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -38,35 +39,34 @@ public class AlleleIndexerSQL extends Indexer {
 	 */
 
 	public void index() throws Exception {
-		tempTables();
-
 		initSorts();
 
 		// Parse the results, again this is a very large query, but fairly
 		// flat and straightforward. 
-		ResultSet rs = ex.executeProto("select max(allele_key) as max_allele_key from allele");
-		rs.next();
-
-		Integer start = 0;
-		Integer end = rs.getInt("max_allele_key");
 		int chunkSize = 50000;
-
-		int modValue = end.intValue() / chunkSize;
-		// Perform the chunking
+		List<int[]> chunks = planKeyRanges("select allele_key from allele", adaptiveSize(chunkSize), KeyBounds.END_INCLUSIVE);
 
 		logger.info("Getting all disease and MP annotations");
 
-		for (int i = 0; i <= modValue; i++) {
-			start = i * chunkSize;
-			end = start + chunkSize;
-
-			processAlleles(start,end);
-		}
+		processKeyRanges(chunks, (start, end) -> processAlleles(start, end));
 
 		// clean up class variables
 		diseaseSorts=null;
 	}
 
+	@Override
+	protected void setupChunkWorker() throws Exception {
+		tempTables();
+	}
+
+	/* Each worker builds the full set of allele temp tables before its first chunk, so
+	 * more than two would spend longer on that than they save on the chunks.
+	 */
+	@Override
+	protected int maxChunkWorkers() {
+		return 2;
+	}
+
 	private void initSorts() throws Exception {
 		ResultSet rs = ex.executeProto("select distinct disease from disease ");
 		Set<String> unorderedDiseases = new HashSet<String>();
@@ -139,9 +139,9 @@ public class AlleleIndexerSQL extends Indexer {
 				"marker_to_allele mta on a.allele_key=mta.allele_key left join " +
 				"marker m on m.marker_key=mta.marker_key join " +
 				"allele_sequence_num asn on asn.allele_key=a.allele_key "+
-				"where a.allele_key > "+startKey+" and a.allele_key <= "+endKey+" ";
+				"where a.allele_key > ? and a.allele_key <= ? ";
                 logger.info(query);
-		ResultSet rs = ex.executeProto(query);
+		ResultSet rs = ex.executePrepared(query, startKey, endKey);
 
 		Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
 		while (rs.next()) {
@@ -263,10 +263,10 @@ public class AlleleIndexerSQL extends Indexer {
 		String mutationInvolvesSQL = "select allele_key, related_marker_id "
 				+ "from allele_related_marker "
 				+ "where relationship_category = 'mutation_involves' "
-				+ "  and allele_key > " + start
-				+ "  and allele_key <= " + end;
+				+ "  and allele_key > ?"
+				+ "  and allele_key <= ?";
 
-		return populateLookup(mutationInvolvesSQL, "allele_key", "related_marker_id", "allele_key->mutation involves markers");
+		return populateLookup(ex.executePrepared(mutationInvolvesSQL, start, end), "allele_key", "related_marker_id", "allele_key->mutation involves markers");
 	}
 
 	/* maps from allele key to a set of marker IDs, where they are related
@@ -276,38 +276,38 @@ public class AlleleIndexerSQL extends Indexer {
 		String expressesComponentSQL = "select allele_key, related_marker_id "
 				+ "from allele_related_marker "
 				+ "where relationship_category = 'expresses_component' "
-				+ "  and allele_key > " + start
-				+ "  and allele_key <= " + end;
+				+ "  and allele_key > ?"
+				+ "  and allele_key <= ?";
 
-		return populateLookup(expressesComponentSQL, "allele_key", "related_marker_id", "allele_key->expresses component markers");
+		return populateLookup(ex.executePrepared(expressesComponentSQL, start, end), "allele_key", "related_marker_id", "allele_key->expresses component markers");
 	}
 
 	public Map<String,Set<String>> getAlleleNotesMap(int start,int end) throws Exception {
 		// get all phenotype notes for alleles
-		String phenoNotesSQL="select allele_key, note\r\n from tmp_allele_note where allele_key > "+start+" and allele_key <= "+end+" ";
-		return populateLookup(phenoNotesSQL,"allele_key","note","allele_key->annotation notes");
+		String phenoNotesSQL="select allele_key, note\r\n from tmp_allele_note where allele_key > ? and allele_key <= ? ";
+		return populateLookup(ex.executePrepared(phenoNotesSQL, start, end),"allele_key","note","allele_key->annotation notes");
 	}
 
 	public Map<String,Set<String>> getAlleleTermIdsMap(int start,int end) throws Exception {
 		// get the direct MP ID associations
-		String mpIdsSQL="select mpt.allele_key, mpt.term_id from tmp_allele_mp_term mpt where mpt.allele_key > "+start+" and mpt.allele_key <= "+end+" ";
-		Map<String,Set<String>> allelePhenoIdMap = populateLookup(mpIdsSQL,"allele_key","term_id","allele_key->MP Ids");
+		String mpIdsSQL="select mpt.allele_key, mpt.term_id from tmp_allele_mp_term mpt where mpt.allele_key > ? and mpt.allele_key <= ? ";
+		Map<String,Set<String>> allelePhenoIdMap = populateLookup(ex.executePrepared(mpIdsSQL, start, end),"allele_key","term_id","allele_key->MP Ids");
 
 		// add the parent IDs
 		String mpAncIdsSQL="select mpt.allele_key, tas.ancestor_primary_id " + 
 				"from tmp_allele_mp_term mpt join " +
 				"	term t on t.primary_id=mpt.term_id join " + 
 				"	term_ancestor tas on tas.term_key=t.term_key "+
-				"where mpt.allele_key > "+start+" and mpt.allele_key <= "+end+" ";
-		allelePhenoIdMap = populateLookup(mpAncIdsSQL,"allele_key","ancestor_primary_id","allele_key->ancestor IDs",allelePhenoIdMap);
+				"where mpt.allele_key > ? and mpt.allele_key <= ? ";
+		allelePhenoIdMap = populateLookup(ex.executePrepared(mpAncIdsSQL, start, end),"allele_key","ancestor_primary_id","allele_key->ancestor IDs",allelePhenoIdMap);
 
 		// add the parent IDs
 		String doIdSql="select aot.allele_key,tas.ancestor_primary_id "
 				+ "from tmp_allele_do_term aot "
 				+ "join term t on t.primary_id=aot.term_id "
 				+ "join term_ancestor tas on tas.term_key=t.term_key "
-				+ "where aot.allele_key > "+start+" and aot.allele_key <= "+end+" ";
-		allelePhenoIdMap = populateLookup(doIdSql,"allele_key","ancestor_primary_id","allele_key->DO IDs",allelePhenoIdMap);
+				+ "where aot.allele_key > ? and aot.allele_key <= ? ";
+		allelePhenoIdMap = populateLookup(ex.executePrepared(doIdSql, start, end),"allele_key","ancestor_primary_id","allele_key->DO IDs",allelePhenoIdMap);
 
 		// add the alt IDs for all parents and MP and DO terms
 		String altIdSQL="select at.allele_key, ti.acc_id " + 
@@ -315,39 +315,39 @@ public class AlleleIndexerSQL extends Indexer {
 				"	term_ancestor tas on tas.term_key=at.term_key join " + 
 				"	term anc_t on anc_t.primary_id=tas.ancestor_primary_id join " + 
 				"	term_id ti on ti.term_key=anc_t.term_key " + 
-				"where at.allele_key > "+start+" and at.allele_key <= "+end+" "+
+				"where at.allele_key > ? and at.allele_key <= ? "+
 				"UNION " + 
 				"select at.allele_key,ti.acc_id " + 
 				"from tmp_allele_term at join " + 
 				"	term_id ti on ti.term_key=at.term_key "+
-				"where at.allele_key > "+start+" and at.allele_key <= "+end+" ";
-		allelePhenoIdMap = populateLookup(altIdSQL,"allele_key","acc_id","allele_key->alt IDs",allelePhenoIdMap);
+				"where at.allele_key > ? and at.allele_key <= ? ";
+		allelePhenoIdMap = populateLookup(ex.executePrepared(altIdSQL, start, end, start, end),"allele_key","acc_id","allele_key->alt IDs",allelePhenoIdMap);
 
 		return allelePhenoIdMap;
 	}
 
 	public Map<String,Set<String>> getAlleleTermsMap(int start,int end) throws Exception {
 		// get the direct MP Term associations
-		String mpTermsSQL="select mpt.allele_key, mpt.term\r\n from tmp_allele_mp_term mpt where mpt.allele_key > "+start+" and mpt.allele_key <= "+end+" ";
-		Map<String,Set<String>> allelePhenoTermMap = populateLookup(mpTermsSQL,"allele_key","term","allele_key->MP terms");
+		String mpTermsSQL="select mpt.allele_key, mpt.term\r\n from tmp_allele_mp_term mpt where mpt.allele_key > ? and mpt.allele_key <= ? ";
+		Map<String,Set<String>> allelePhenoTermMap = populateLookup(ex.executePrepared(mpTermsSQL, start, end),"allele_key","term","allele_key->MP terms");
 
 		// add the parent DO Terms
 		String doIdSql="select aot.allele_key, tas.ancestor_term as term "
 				+ "from tmp_allele_do_term aot "
 				+ "join term t on t.primary_id=aot.term_id "
 				+ "join term_ancestor tas on tas.term_key=t.term_key "
-				+ "where aot.allele_key > "+start+" and aot.allele_key <= "+end+" " +
+				+ "where aot.allele_key > ? and aot.allele_key <= ? " +
 				"UNION " + 
-				"select aot.allele_key,aot.term from tmp_allele_do_term aot where aot.allele_key > "+start+" and aot.allele_key <= "+end+" ";
-		allelePhenoTermMap = populateLookup(doIdSql,"allele_key","term","allele_key->DO IDs",allelePhenoTermMap);
+				"select aot.allele_key,aot.term from tmp_allele_do_term aot where aot.allele_key > ? and aot.allele_key <= ? ";
+		allelePhenoTermMap = populateLookup(ex.executePrepared(doIdSql, start, end, start, end),"allele_key","term","allele_key->DO IDs",allelePhenoTermMap);
 
 		// add the parent MP terms
 		String mpAncTermsSQL="select mpt.allele_key, tas.ancestor_term\r\n" + 
 				"from tmp_allele_mp_term mpt join "+
 				"	term t on t.primary_id=mpt.term_id join " + 
 				"	term_ancestor tas on tas.term_key=t.term_key "+
-				"where mpt.allele_key > "+start+" and mpt.allele_key <= "+end+" ";
-		allelePhenoTermMap = populateLookup(mpAncTermsSQL,"allele_key","ancestor_term","allele_key->ancestor IDs",allelePhenoTermMap);
+				"where mpt.allele_key > ? and mpt.allele_key <= ? ";
+		allelePhenoTermMap = populateLookup(ex.executePrepared(mpAncTermsSQL, start, end),"allele_key","ancestor_term","allele_key->ancestor IDs",allelePhenoTermMap);
 
 		// add the synonyms for all parents and MP and DO terms
 		String mpSynonymSQL="select at.allele_key, ti.synonym " + 
@@ -355,26 +355,26 @@ public class AlleleIndexerSQL extends Indexer {
 				"	term_ancestor tas on tas.term_key=at.term_key join " + 
 				"	term anc_t on anc_t.primary_id=tas.ancestor_primary_id join " + 
 				"	term_synonym ti on ti.term_key=anc_t.term_key " + 
-				"where at.allele_key > "+start+" and at.allele_key <= "+end+" "+
+				"where at.allele_key > ? and at.allele_key <= ? "+
 				"UNION " + 
 				"select at.allele_key,ti.synonym " + 
 				"from tmp_allele_term at join " + 
 				"	term_synonym ti on ti.term_key=at.term_key "+
-				"where at.allele_key > "+start+" and at.allele_key <= "+end+" ";
-		allelePhenoTermMap = populateLookup(mpSynonymSQL,"allele_key","synonym","allele_key->alt IDs",allelePhenoTermMap);
+				"where at.allele_key > ? and at.allele_key <= ? ";
+		allelePhenoTermMap = populateLookup(ex.executePrepared(mpSynonymSQL, start, end, start, end),"allele_key","synonym","allele_key->alt IDs",allelePhenoTermMap);
 
 		return allelePhenoTermMap;
 	}
 
 	public Map<String,Set<String>> getMutationMap(int start,int end) throws Exception {
-		String mutationSQL = "select allele_key, mutation from allele_mutation where allele_key > "+start+" and allele_key <= "+end+" ";
-		Map<String,Set<String>> mutationMap = populateLookup(mutationSQL, "allele_key", "mutation","allele_keys -> mutations");
+		String mutationSQL = "select allele_key, mutation from allele_mutation where allele_key > ? and allele_key <= ? ";
+		Map<String,Set<String>> mutationMap = populateLookup(ex.executePrepared(mutationSQL, start, end), "allele_key", "mutation","allele_keys -> mutations");
 		return mutationMap;
 	}
 
 	public Map<String,Set<String>> getAlleleIdsMap(int start,int end) throws Exception {
-		String allToIDSQL = "select allele_key, acc_id from allele_id where allele_key > "+start+" and allele_key <= "+end+" ";
-		Map<String,Set<String>> allIdMap = populateLookup(allToIDSQL, "allele_key", "acc_id","allele_keys -> allele accession IDs");
+		String allToIDSQL = "select allele_key, acc_id from allele_id where allele_key > ? and allele_key <= ? ";
+		Map<String,Set<String>> allIdMap = populateLookup(ex.executePrepared(allToIDSQL, start, end), "allele_key", "acc_id","allele_keys -> allele accession IDs");
 		return allIdMap;
 	}
 
@@ -382,19 +382,19 @@ public class AlleleIndexerSQL extends Indexer {
 		String mrkNomenQuery = "WITH " +
 				"allele_markers AS (select distinct marker_key " +
 				"from marker_to_allele mta " +
-				"where allele_key > "+start+" and allele_key <= "+end+" ) "+
+				"where allele_key > ? and allele_key <= ? ) "+
 				"select msn.marker_key, msn.term nomen " +
 				"from marker_searchable_nomenclature msn join " +
 				"allele_markers am on am.marker_key=msn.marker_key " +
 				"where msn.term_type in ('human name','human synonym','human symbol'," +
 				"'current symbol','current name','old symbol','synonym','related synonym','old name' ) ";
-		Map<String,Set<String>> mrkNomenMap = populateLookup(mrkNomenQuery,"marker_key","nomen","marker_keys -> marker nomenclature");
+		Map<String,Set<String>> mrkNomenMap = populateLookup(ex.executePrepared(mrkNomenQuery, start, end),"marker_key","nomen","marker_keys -> marker nomenclature");
 		return mrkNomenMap;
 	}
 
 	public Map<String,Set<String>> getAlleleNomenMap(int start, int end) throws Exception {
-		String nomenQuery = "select allele_key, nomen from tmp_allele_nomen where allele_key > "+start+" and allele_key <= "+end+" ";
-		Map<String,Set<String>> nomenMap = populateLookup(nomenQuery,"allele_key","nomen","allele_keys -> allele nomenclature");
+		String nomenQuery = "select allele_key, nomen from tmp_allele_nomen where allele_key > ? and allele_key <= ? ";
+		Map<String,Set<String>> nomenMap = populateLookup(ex.executePrepared(nomenQuery, start, end),"allele_key","nomen","allele_keys -> allele nomenclature");
 		return nomenMap;
 	}
 
@@ -403,11 +403,11 @@ public class AlleleIndexerSQL extends Indexer {
 		String locationQuery="select allele_key,ml.* " +
 				"from marker_to_allele mta join " +
 				"marker_location ml on ml.marker_key=mta.marker_key " +
-				"where mta.allele_key > "+start+" and mta.allele_key <= "+end+" " +
+				"where mta.allele_key > ? and mta.allele_key <= ? " +
 				"order by sequence_num ";
 
 		Map<Integer,AlleleLocation> locationMap = new HashMap<Integer,AlleleLocation>();
-		ResultSet rs = ex.executeProto(locationQuery);
+		ResultSet rs = ex.executePrepared(locationQuery, start, end);
 		while(rs.next()) {
 			Integer allKey = rs.getInt("allele_key");
 			String chromosome = rs.getString("chromosome");
@@ -441,8 +441,8 @@ public class AlleleIndexerSQL extends Indexer {
 	}
 
 	public Map<String,Set<String>> getRefKeys(int start, int end) throws Exception {
-		String refQuery="select allele_key,reference_key from allele_to_reference where allele_key > "+start+" and allele_key <= "+end+" ";
-		Map<String,Set<String>> refKeyMap = populateLookup(refQuery,"allele_key","reference_key","allele_keys -> reference keys");
+		String refQuery="select allele_key,reference_key from allele_to_reference where allele_key > ? and allele_key <= ? ";
+		Map<String,Set<String>> refKeyMap = populateLookup(ex.executePrepared(refQuery, start, end),"allele_key","reference_key","allele_keys -> reference keys");
 		return refKeyMap;
 	}
 
@@ -450,16 +450,16 @@ public class AlleleIndexerSQL extends Indexer {
 		String refQuery="select allele_key,jnum_id " +
 				"from allele_to_reference atr join " +
 				"reference r on r.reference_key=atr.reference_key "+
-				"where allele_key > "+start+" and allele_key <= "+end+" ";
-		Map<String,Set<String>> jnumMap = populateLookup(refQuery,"allele_key","jnum_id","allele_keys -> jnum IDs");
+				"where allele_key > ? and allele_key <= ? ";
+		Map<String,Set<String>> jnumMap = populateLookup(ex.executePrepared(refQuery, start, end),"allele_key","jnum_id","allele_keys -> jnum IDs");
 		return jnumMap;
 	}
 
 	public Set<Integer> getAllelesWithDO(int start, int end) throws Exception {
 		String doAllelesQuery="select allele_key from diseasetable_disease dtd where exists (select 1 from diseasetable_disease_cell dtdc " +
-				"where dtdc.diseasetable_disease_key=dtd.diseasetable_disease_key) and allele_key > "+start+" and allele_key <= "+end+" ";
+				"where dtdc.diseasetable_disease_key=dtd.diseasetable_disease_key) and allele_key > ? and allele_key <= ? ";
 		Set<Integer> alleleKeys = new HashSet<Integer>();
-		ResultSet rs = ex.executeProto(doAllelesQuery);
+		ResultSet rs = ex.executePrepared(doAllelesQuery, start, end);
 		while(rs.next()) {
 			alleleKeys.add(rs.getInt("allele_key"));
 		}
@@ -467,8 +467,8 @@ public class AlleleIndexerSQL extends Indexer {
 	}
 
 	public Map<Integer,Integer> getAlleleDiseaseSortMap(int start, int end) throws Exception {
-		String alleleDiseaseQuery="select asd.allele_key,asd.disease from allele_summary_disease asd where allele_key > "+start+" and allele_key <= "+end+" ";
-		ResultSet rs = ex.executeProto(alleleDiseaseQuery);
+		String alleleDiseaseQuery="select asd.allele_key,asd.disease from allele_summary_disease asd where allele_key > ? and allele_key <= ? ";
+		ResultSet rs = ex.executePrepared(alleleDiseaseQuery, start, end);
 		Map<Integer,Integer> alleleDiseaseSortMap = new HashMap<Integer,Integer>();
 		while(rs.next()) {
 			int allKey = rs.getInt("allele_key");
@@ -12,12 +12,11 @@ import java.util.Locale;
 import java.util.Map;
 
 import org.apache.solr.common.SolrInputDocument;
+import org.jax.mgi.shr.JsonEncoder;
 import org.jax.mgi.shr.fe.IndexConstants;
 import org.jax.mgi.shr.fe.sort.SmartAlphaComparator;
 import org.jax.mgi.shr.jsonmodel.AntibodyJ;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /* Is: an indexer that builds the index supporting the antibody summary page (reachable from the
  * 		marker detail page and the reference summary/detail page).  Each document in the index represents
  * 		data for a single antibody, and each antibody represented in only one document.
@@ -37,7 +36,7 @@ public class AntibodyIndexerSQL extends Indexer {
 	private Map<Integer,List<String>> searchableMarkers = null;	// searchable marker IDs per antibody key
 	private Map<Integer,List<String>> searchableReferences = null;	// searchable reference IDs per antibody key
 
-	private ObjectMapper mapper = new ObjectMapper();		// converts objects to JSON
+	private JsonEncoder json = new JsonEncoder();		// converts objects to JSON
 
 	/*--------------------*/
 	/*--- constructors ---*/
@@ -209,7 +208,7 @@ public class AntibodyIndexerSQL extends Indexer {
 				refCount = searchableReferenceIDs.size();
 			}
 
-			doc.addField(IndexConstants.ANTIBODY_JSON, mapper.writeValueAsString(antibody));
+			doc.addField(IndexConstants.ANTIBODY_JSON, json.toJson(antibody));
 			
 			// Add this doc to the batch we're collecting.  If the stack hits our
 			// threshold, send it to the server and reset it.
@@ -235,8 +234,10 @@ public class AntibodyIndexerSQL extends Indexer {
 	@Override
 	public void index() throws Exception {
 		// collect various mappings needed for data lookup
-		cacheMarkers();
-		cacheReferences();
+		cacheWarmer()
+			.add("markers", this::cacheMarkers)
+			.add("references", this::cacheReferences)
+			.run();
 		processAntibodies();
 	}
 }
@@ -0,0 +1,178 @@
+package org.jax.mgi.indexer;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jax.mgi.shr.SQLExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/* Is: the start-up cache loading of one indexer -- the row of cache*() calls that each fill a
+ * 	lookup before the main query -- run in parallel instead of one after another.
+ * Has: the caches the indexer declared with add(), each with the names of any caches it
+ * 	builds on.
+ * Does: run() loads each cache as soon as those it builds on are loaded, up to 'threads' at
+ * 	once, each on a database connection leased from the indexer's SQLExecutor.  (A loader
+ * 	that cannot lease one in time waits its turn for the indexer's own connection.)  Logs
+ * 	how long each cache took and how much memory its loading allocated.  If a loader fails,
+ * 	those that build on it are skipped and run() rethrows the first failure.
+ */
+class CacheWarmer {
+	private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+	/* one of an indexer's cache*() methods */
+	interface Loader {
+		void load() throws Exception;
+	}
+
+	private static class Cache {
+		String name;
+		Loader loader;
+		String[] after;			// names of the caches this one builds on
+		long millis;
+		long bytes = -1;		// allocated while loading; -1 if the JVM cannot tell
+
+		Cache(String name, Loader loader, String[] after) {
+			this.name = name;
+			this.loader = loader;
+			this.after = after;
+		}
+	}
+
+	private SQLExecutor ex;
+	private int threads;
+	private long leaseWaitMs;
+	private Map<String,Cache> caches = new LinkedHashMap<String,Cache>();
+
+	// held while a loader uses the indexer's own connection, so only one does at a time
+	private Object sharedConnection = new Object();
+
+	CacheWarmer(SQLExecutor ex, int threads, long leaseWaitMs) {
+		this.ex = ex;
+		this.threads = Math.max(1, threads);
+		this.leaseWaitMs = leaseWaitMs;
+	}
+
+	/* declare a cache called 'name', filled by 'loader' once the caches named in 'after' are */
+	CacheWarmer add(String name, Loader loader, String... after) {
+		if (caches.containsKey(name)) {
+			throw new IllegalArgumentException("Cache " + name + " declared twice");
+		}
+		caches.put(name, new Cache(name, loader, after));
+		return this;
+	}
+
+	/* load all the declared caches, returning once they are loaded (or one has failed) */
+	void run() throws Exception {
+		checkOrder();
+		logger.info("Loading " + caches.size() + " caches with up to " + threads + " thread(s)");
+		long start = System.currentTimeMillis();
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, caches.size())));
+		Map<String,CompletableFuture<Void>> loaded = new LinkedHashMap<String,CompletableFuture<Void>>();
+		try {
+			// checkOrder() put each cache after those it builds on, so their futures exist already
+			for (final Cache cache : caches.values()) {
+				List<CompletableFuture<Void>> before = new ArrayList<CompletableFuture<Void>>();
+				for (String name : cache.after) {
+					before.add(loaded.get(name));
+				}
+				CompletableFuture<Void> ready = CompletableFuture.allOf(before.toArray(new CompletableFuture<?>[0]));
+				loaded.put(cache.name, ready.thenRunAsync(() -> load(cache), pool));
+			}
+			CompletableFuture.allOf(loaded.values().toArray(new CompletableFuture<?>[0])).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		} finally {
+			pool.shutdown();
+		}
+
+		long serialMillis = 0;
+		for (Cache cache : caches.values()) {
+			serialMillis = serialMillis + cache.millis;
+		}
+		logger.info("Loaded " + caches.size() + " caches in " + (System.currentTimeMillis() - start)
+			+ " ms (" + serialMillis + " ms one after another)");
+	}
+
+	/* load one cache on a connection of its own, recording its time and allocations */
+	private void load(Cache cache) {
+		long startBytes = allocatedBytes();
+		long start = System.currentTimeMillis();
+		try {
+			SQLExecutor.Lease lease = ex.tryLease(leaseWaitMs);
+			if (lease != null) {
+				try {
+					cache.loader.load();
+				} finally {
+					lease.close();
+				}
+			} else {
+				synchronized (sharedConnection) {
+					cache.loader.load();
+				}
+			}
+		} catch (Exception e) {
+			throw new CompletionException(e);
+		}
+		cache.millis = System.currentTimeMillis() - start;
+		long endBytes = allocatedBytes();
+		if ((startBytes >= 0) && (endBytes >= 0)) {
+			cache.bytes = endBytes - startBytes;
+		}
+		logger.info("  - cache " + cache.name + " loaded in " + cache.millis + " ms"
+			+ ((cache.bytes >= 0) ? " (" + (cache.bytes / (1024 * 1024)) + " MB allocated)" : ""));
+	}
+
+	/* reorder the caches so each comes after those it builds on; fails on unknown names and cycles */
+	private void checkOrder() {
+		Map<String,Cache> ordered = new LinkedHashMap<String,Cache>();
+		Set<String> visiting = new HashSet<String>();
+		for (Cache cache : caches.values()) {
+			visit(cache, ordered, visiting);
+		}
+		caches = ordered;
+	}
+
+	private void visit(Cache cache, Map<String,Cache> ordered, Set<String> visiting) {
+		if (ordered.containsKey(cache.name)) {
+			return;
+		}
+		if (!visiting.add(cache.name)) {
+			throw new IllegalStateException("Cache " + cache.name + " depends on itself");
+		}
+		for (String name : cache.after) {
+			Cache before = caches.get(name);
+			if (before == null) {
+				throw new IllegalArgumentException("Cache " + cache.name + " builds on unknown cache " + name);
+			}
+			visit(before, ordered, visiting);
+		}
+		visiting.remove(cache.name);
+		ordered.put(cache.name, cache);
+	}
+
+	/* bytes allocated so far by the current thread, or -1 if the JVM does not say */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getCurrentThreadAllocatedBytes();
+			}
+		}
+		return -1;
+	}
+}
@@ -9,13 +9,12 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.solr.common.SolrInputDocument;
+import org.jax.mgi.shr.JsonEncoder;
 import org.jax.mgi.shr.fe.IndexConstants;
 import org.jax.mgi.shr.fe.sort.SmartAlphaComparator;
 import org.jax.mgi.shr.jsonmodel.Clone;
 import org.jax.mgi.shr.jsonmodel.CloneMarker;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /* Is: an indexer that builds the index supporting the cDNA summary page (reachable from the
  * 		marker detail page).  Each document in the index represents data for a single cDNA clone,
  * 		and each clone is represented in only one document.
@@ -35,7 +34,7 @@ public class CdnaIndexerSQL extends Indexer {
 	private Map<Integer,List<String>> searchableMarkers = null;	// searchable marker IDs per clone key
 	private Map<Integer,List<String>> collectionCache = null;	// collections per clone key
 
-	private ObjectMapper mapper = new ObjectMapper();			// converts objects to JSON
+	private JsonEncoder json = new JsonEncoder();			// converts objects to JSON
 
 	/*--------------------*/
 	/*--- constructors ---*/
@@ -223,7 +222,7 @@ public class CdnaIndexerSQL extends Indexer {
 				clone.setCollections(collections);
 			}
 
-			doc.addField(IndexConstants.CDNA_CLONE, mapper.writeValueAsString(clone));
+			doc.addField(IndexConstants.CDNA_CLONE, json.toJson(clone));
 			
 			// Add this doc to the batch we're collecting.  If the stack hits our
 			// threshold, send it to the server and reset it.
@@ -0,0 +1,72 @@
+package org.jax.mgi.indexer;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * CommitCoordinator
+ *
+ * Shared by every indexer in the JVM, so the commits of indexers running side by
+ * side against the same Solr are spread out instead of arriving together.  At most
+ * maxConcurrent commits run at once, and an intermediate commit is only started if
+ * minSpacingMs has passed since the last one began.  An indexer whose intermediate
+ * commit is turned away simply keeps sending documents and asks again later; final
+ * commits wait their turn but are never turned away.
+ */
+public class CommitCoordinator {
+
+	private static CommitCoordinator coordinator = null;
+
+	private int maxConcurrent;
+	private long minSpacingMs;
+	private Semaphore slots;
+	private long lastStart = 0;
+
+	private CommitCoordinator(int maxConcurrent, long minSpacingMs) {
+		this.maxConcurrent = Math.max(1, maxConcurrent);
+		this.minSpacingMs = minSpacingMs;
+		this.slots = new Semaphore(this.maxConcurrent, true);
+	}
+
+	/* returns the JVM-wide coordinator, creating it with these settings on the first call
+	 */
+	public static synchronized CommitCoordinator getCoordinator(int maxConcurrent, long minSpacingMs) {
+		if (coordinator == null) {
+			coordinator = new CommitCoordinator(maxConcurrent, minSpacingMs);
+		}
+		return coordinator;
+	}
+
+	/* start an intermediate commit if it is our turn; returns false (without waiting) if not.
+	 * A true result must be followed by end().
+	 */
+	public synchronized boolean tryBegin() {
+		long now = System.currentTimeMillis();
+		if (now - lastStart < minSpacingMs) {
+			return false;
+		}
+		if (!slots.tryAcquire()) {
+			return false;
+		}
+		lastStart = now;
+		return true;
+	}
+
+	/* start a commit that has to happen, waiting for a free slot.  Must be followed by end().
+	 */
+	public void begin() throws InterruptedException {
+		slots.acquire();
+		synchronized (this) {
+			lastStart = System.currentTimeMillis();
+		}
+	}
+
+	public void end() {
+		slots.release();
+	}
+
+	@Override
+	public String toString() {
+		return "CommitCoordinator[maxConcurrent=" + maxConcurrent + ",minSpacingMs=" + minSpacingMs
+			+ ",running=" + (maxConcurrent - slots.availablePermits()) + "]";
+	}
+}
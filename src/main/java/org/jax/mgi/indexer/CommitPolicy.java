@@ -0,0 +1,82 @@
+package org.jax.mgi.indexer;
+
+import java.util.Properties;
+
+/**
+ * CommitPolicy
+ *
+ * How an indexer commits to Solr while it builds, read from config.properties:
+ * 	commit.mode - hard (default; a hard commit every commit.interval documents, as
+ * 		we always have), soft (soft commits instead, which open a searcher without
+ * 		flushing segments to disk) or within (no commits during the build; each batch
+ * 		is sent with commitWithin=commit.withinMs and Solr schedules the commits)
+ * 	commit.interval - documents between commits in hard or soft mode
+ * 	commit.optimize - merge the index down to commit.maxSegments after the final commit
+ * Whatever the mode, an indexer finishes with one hard commit that waits for the new
+ * searcher, so a completed build is always on disk and visible.
+ *
+ * Intermediate commits also go through the JVM-wide CommitCoordinator, which keeps
+ * concurrently running indexers from committing all at once (commit.maxConcurrent,
+ * commit.minSpacingMs).
+ */
+public class CommitPolicy {
+
+	public static final String HARD = "hard";
+	public static final String SOFT = "soft";
+	public static final String WITHIN = "within";
+
+	private String mode;
+	private int interval;
+	private int withinMs;
+	private boolean optimize;
+	private int maxSegments;
+
+	public CommitPolicy(Properties props) {
+		this.mode = props.getProperty("commit.mode", HARD).trim().toLowerCase();
+		if (!SOFT.equals(mode) && !WITHIN.equals(mode)) {
+			this.mode = HARD;
+		}
+		this.interval = Integer.parseInt(props.getProperty("commit.interval", "100000").trim());
+		this.withinMs = Integer.parseInt(props.getProperty("commit.withinMs", "60000").trim());
+		this.optimize = Boolean.parseBoolean(props.getProperty("commit.optimize", "false").trim());
+		this.maxSegments = Integer.parseInt(props.getProperty("commit.maxSegments", "1").trim());
+	}
+
+	public String getMode() {
+		return mode;
+	}
+
+	/* true if the indexer itself should commit while it builds (otherwise commitWithin does it)
+	 */
+	public boolean commitsDuringBuild() {
+		return !WITHIN.equals(mode);
+	}
+
+	public boolean isSoft() {
+		return SOFT.equals(mode);
+	}
+
+	public int getInterval() {
+		return interval;
+	}
+
+	/* commitWithin (in ms) to send with each batch of documents, or -1 for none
+	 */
+	public int getCommitWithinMs() {
+		return WITHIN.equals(mode) ? withinMs : -1;
+	}
+
+	public boolean isOptimize() {
+		return optimize;
+	}
+
+	public int getMaxSegments() {
+		return maxSegments;
+	}
+
+	@Override
+	public String toString() {
+		return "CommitPolicy[mode=" + mode + ",interval=" + interval + ",withinMs=" + withinMs
+			+ ",optimize=" + optimize + "]";
+	}
+}
@@ -406,20 +406,16 @@ public class CreAssayResultIndexerSQL extends Indexer {
 		this.startResultKey = 0;
 		this.maxResultKey = rs.getInt("max_result_key");
 
-		// While it appears that modValue could be one iteration too low (due
-		// to rounding down), this is accounted for by using <= in the loop.
-
-		int modValue = this.maxResultKey / this.BATCH_SIZE;
-
-		// Perform the chunking
+		// Perform the chunking, BATCH_SIZE results at a time
 
 		logger.info("Getting all assay results and related search criteria");
-		logger.info("Max result_key: " + endResultKey + ", chunks: " + (modValue + 1));
+		List<int[]> chunks = planKeyRanges("select result_key from recombinase_assay_result", this.BATCH_SIZE, KeyBounds.END_INCLUSIVE);
+		logger.info("Max result_key: " + maxResultKey + ", chunks: " + chunks.size());
 
-		for (int i = 0; i <= modValue; i++) {
+		for (int[] chunk : chunks) {
 
-			this.startResultKey = i * this.BATCH_SIZE;
-			this.endResultKey = this.startResultKey + this.BATCH_SIZE;
+			this.startResultKey = chunk[0];
+			this.endResultKey = chunk[1];
 
 			logger.info("Processing cre assay result_key > " + startResultKey + " and <= " + endResultKey);
 			String assayResultQuery = 
@@ -0,0 +1,170 @@
+package org.jax.mgi.indexer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.solr.common.SolrInputDocument;
+
+/**
+ * DeltaManifest
+ *
+ * Supports delta indexing (index.delta=true in config.properties).  The manifest is a
+ * local file holding, for each document of an index's last successful build, its
+ * unique key and a 64-bit hash of its contents.  During a delta build the indexer
+ * still builds every document, but only sends Solr the ones whose hash differs from
+ * the manifest (or that are new), then deletes the keys that were not built at all.
+ * Once loaded, the manifest file is removed:  the core changes from the first commit
+ * of the build, so the old manifest no longer describes it.  The new manifest is saved
+ * only after the final commit, and a failed run leaves none, so the next run is a full
+ * rebuild.
+ *
+ * File format (gzipped):  an int format version (VERSION), an int count, then for each
+ * document its key (as UTF) and its hash (as a long).  A file with any other version is
+ * ignored, as if there were none.
+ */
+public class DeltaManifest {
+
+	private static final int VERSION = 1;
+
+	private File file;
+
+	// hashes from the previous build (read-only once loaded) and from this one
+	private Map<String,Long> previous = new HashMap<String,Long>();
+	private Map<String,Long> current = new ConcurrentHashMap<String,Long>();
+
+	public DeltaManifest(File file) {
+		this.file = file;
+	}
+
+	/* read the previous build's manifest; returns false if there is none
+	 */
+	public boolean load() throws IOException {
+		if (!file.exists()) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new GZIPInputStream(new FileInputStream(file))))) {
+			if (in.readInt() != VERSION) {
+				return false;
+			}
+			int count = in.readInt();
+			previous = new HashMap<String,Long>(count * 2);
+			for (int i = 0; i < count; i++) {
+				String key = in.readUTF();
+				previous.put(key, in.readLong());
+			}
+		}
+		return true;
+	}
+
+	/* remove the manifest file (keeping what load() read); the next build will be a full
+	 * one unless save() is called
+	 */
+	public void discard() throws IOException {
+		Files.deleteIfExists(file.toPath());
+	}
+
+	public int getPreviousCount() {
+		return previous.size();
+	}
+
+	/* record 'doc' under 'key' for this build; returns true if it is new or differs
+	 * from the previous build (so it must be sent to Solr).  Safe to call from several threads.
+	 */
+	public boolean isChanged(String key, SolrInputDocument doc) {
+		long hash = hash(doc);
+		current.put(key, hash);
+		Long before = previous.get(key);
+		return (before == null) || (before.longValue() != hash);
+	}
+
+	/* keys in the previous build that were not seen in this one
+	 */
+	public List<String> getVanishedKeys() {
+		List<String> vanished = new ArrayList<String>();
+		for (String key : previous.keySet()) {
+			if (!current.containsKey(key)) {
+				vanished.add(key);
+			}
+		}
+		return vanished;
+	}
+
+	/* write this build's manifest, replacing the previous one in a single rename
+	 */
+	public void save() throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new GZIPOutputStream(new FileOutputStream(temp))))) {
+			out.writeInt(VERSION);
+			out.writeInt(current.size());
+			for (Map.Entry<String,Long> entry : current.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeLong(entry.getValue());
+			}
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/* a hash of the document's fields and values that does not depend on the order
+	 * the fields were added in (values within a field keep their order, which matters to Solr)
+	 */
+	public static long hash(SolrInputDocument doc) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		for (String name : new TreeSet<String>(doc.getFieldNames())) {
+			md.update(name.getBytes(StandardCharsets.UTF_8));
+			md.update((byte) 0);
+			Collection<Object> values = doc.getFieldValues(name);
+			if (values != null) {
+				for (Object value : values) {
+					md.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+					md.update((byte) 1);
+				}
+			}
+			md.update((byte) 2);
+		}
+		if (doc.hasChildDocuments()) {
+			for (SolrInputDocument child : doc.getChildDocuments()) {
+				long childHash = hash(child);
+				for (int i = 0; i < 8; i++) {
+					md.update((byte) (childHash >>> (8 * i)));
+				}
+			}
+		}
+		byte[] digest = md.digest();
+		long hash = 0;
+		for (int i = 0; i < 8; i++) {
+			hash = (hash << 8) | (digest[i] & 0xff);
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,418 @@
+package org.jax.mgi.indexer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.jax.mgi.reporting.IndexerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * DocumentExport
+ *
+ * Supports the export mode (Main argument exportDir=<dir>), in which indexers write
+ * their documents to compressed files instead of sending them to Solr, and the import
+ * mode (Main argument importDir=<dir>), in which indexers send Solr the documents from
+ * those files instead of querying the database.  The slow database extraction can then
+ * run on its own schedule, and its output be loaded later into one or more Solr hosts
+ * (one import run per index.url), or kept to rebuild or benchmark an index from exactly
+ * the same documents.
+ *
+ * Each index gets a directory <dir>/<index> of segments, part-00000.javabin.gz and so on
+ * (export.format=javabin) or part-00000.jsonl.gz (export.format=jsonl).  A new segment
+ * is started once the current one holds export.segmentDocs documents or roughly
+ * export.segmentBytes bytes of them.  In a javabin segment, each batch from writeDocs()
+ * is one record:  its length (4 bytes), then the batch as a javabin list of documents.
+ * A JSONL segment has one document per line, each field a value or an array of values,
+ * as Solr's /update/json/docs takes them.  Segments are written under a .tmp name and
+ * renamed once complete, and the manifest naming them is written last; an index without
+ * a manifest is not imported.
+ */
+public class DocumentExport implements DocumentSink {
+
+	private static Logger logger = LoggerFactory.getLogger(DocumentExport.class);
+
+	public static final String JAVABIN = "javabin";
+	public static final String JSONL = "jsonl";
+
+	private static final String MANIFEST = "manifest";
+
+	// documents per writeDocs() call when importing JSONL (javabin keeps the exported batches)
+	private static final int IMPORT_BATCH_SIZE = 1000;
+
+	// where this run exports to or imports from; null when that mode is off
+	private static String exportDir = null;
+	private static String importDir = null;
+
+	private static JsonFactory jsonFactory = new JsonFactory();
+
+	public static void setExportDir(String dir) {
+		exportDir = dir;
+	}
+
+	/* true if this run writes its documents to files instead of Solr
+	 */
+	public static boolean isExporting() {
+		return exportDir != null;
+	}
+
+	public static void setImportDir(String dir) {
+		importDir = dir;
+	}
+
+	/* true if this run reads its documents from an export instead of the database
+	 */
+	public static boolean isImporting() {
+		return importDir != null;
+	}
+
+	private String name;
+	private File dir;
+	private String format;
+	private long segmentDocs;
+	private long segmentBytes;
+	private IndexerMetrics metrics;
+
+	// the segment being written, if any, and what is in it (all guarded by 'this')
+	private File segmentFile = null;
+	private DataOutputStream out = null;
+	private JsonGenerator json = null;
+	private long docsInSegment = 0;
+	private long bytesInSegment = 0;
+
+	private List<String> segments = new ArrayList<String>();
+	private long docCount = 0;
+	private boolean closed = false;
+
+	/* an export of the index 'name' (under the exportDir), replacing any earlier one
+	 */
+	public DocumentExport(String name, Properties props, IndexerMetrics metrics) throws IOException {
+		this.name = name;
+		this.metrics = metrics;
+		this.dir = new File(exportDir, name);
+		this.format = props.getProperty("export.format", JAVABIN).trim().toLowerCase();
+		this.segmentDocs = Long.parseLong(props.getProperty("export.segmentDocs", "500000").trim());
+		this.segmentBytes = Long.parseLong(props.getProperty("export.segmentBytes", "" + (256L * 1024 * 1024)).trim());
+		if (!JAVABIN.equals(format) && !JSONL.equals(format)) {
+			throw new IOException("Unknown export.format: " + format);
+		}
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Cannot create export directory " + dir);
+		}
+
+		// the manifest goes first, so a half-cleared directory is never taken for an export
+		Files.deleteIfExists(new File(dir, MANIFEST).toPath());
+		for (File file : dir.listFiles()) {
+			if (file.getName().startsWith("part-")) {
+				Files.delete(file.toPath());
+			}
+		}
+	}
+
+	public File getDirectory() {
+		return dir;
+	}
+
+	@Override
+	public synchronized void add(Collection<SolrInputDocument> docs, int commitWithinMs) throws IOException {
+		if (closed) {
+			throw new IOException("Export of " + name + " is already closed");
+		}
+		if (docs.isEmpty()) {
+			return;
+		}
+		long startNanos = System.nanoTime();
+		long bytes = SolrWriter.approximateBytes(docs);
+		if (out == null) {
+			startSegment();
+		}
+		if (json != null) {
+			for (SolrInputDocument doc : docs) {
+				writeJson(doc);
+			}
+		} else {
+			ByteArrayOutputStream record = new ByteArrayOutputStream();
+			new JavaBinCodec().marshal(new ArrayList<SolrInputDocument>(docs), record);
+			out.writeInt(record.size());
+			record.writeTo(out);
+		}
+		docsInSegment = docsInSegment + docs.size();
+		bytesInSegment = bytesInSegment + bytes;
+		docCount = docCount + docs.size();
+		metrics.solrAdd(docs.size(), bytes, System.nanoTime() - startNanos);
+
+		if ((docsInSegment >= segmentDocs) || (bytesInSegment >= segmentBytes)) {
+			endSegment();
+		}
+	}
+
+	/* an export holds whole builds only, so there is nothing to delete from
+	 */
+	@Override
+	public void delete(List<String> ids) throws IOException {
+		throw new IOException("Deletes cannot be exported (" + name + ")");
+	}
+
+	/* nothing to wait for; add() has written each batch by the time it returns
+	 */
+	@Override
+	public void flush() throws IOException {
+	}
+
+	/* finishes the last segment and writes the manifest
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		endSegment();
+		Properties manifest = new Properties();
+		manifest.setProperty("index", name);
+		manifest.setProperty("format", format);
+		manifest.setProperty("documents", "" + docCount);
+		manifest.setProperty("segments", StringUtils.join(segments, ","));
+		File tmp = new File(dir, MANIFEST + ".tmp");
+		try (OutputStream manifestOut = new FileOutputStream(tmp)) {
+			manifest.store(manifestOut, "export of " + name + ", " + new Date());
+		}
+		Files.move(tmp.toPath(), new File(dir, MANIFEST).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		closed = true;
+		logger.info("Exported " + docCount + " documents of " + name + " in " + segments.size() + " segment(s) to " + dir);
+	}
+
+	/* drops the segment in progress, leaving the export without a manifest
+	 */
+	@Override
+	public synchronized void shutdown() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (out != null) {
+			try {
+				out.close();
+			} catch (IOException e) {
+				logger.info("Failed to close " + segmentFile + ": " + e.getMessage());
+			}
+			segmentFile.delete();
+			out = null;
+			json = null;
+		}
+	}
+
+	private void startSegment() throws IOException {
+		segmentFile = new File(dir, segmentName(segments.size()) + ".tmp");
+		out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(segmentFile), 1 << 16));
+		if (JSONL.equals(format)) {
+			json = jsonFactory.createGenerator((OutputStream) out, JsonEncoding.UTF8);
+			json.setRootValueSeparator(null);
+		}
+		docsInSegment = 0;
+		bytesInSegment = 0;
+	}
+
+	private void endSegment() throws IOException {
+		if (out == null) {
+			return;
+		}
+		if (json != null) {
+			json.close();		// closes 'out' too
+			json = null;
+		} else {
+			out.close();
+		}
+		out = null;
+		String segment = segmentName(segments.size());
+		Files.move(segmentFile.toPath(), new File(dir, segment).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		segments.add(segment);
+		logger.info("Exported " + name + " segment " + segment + " (" + docsInSegment + " documents)");
+	}
+
+	private String segmentName(int segment) {
+		return String.format("part-%05d.%s.gz", segment, format);
+	}
+
+	/* one line of JSONL:  {"field":value, "multiValuedField":[value, ...], ...}
+	 */
+	private void writeJson(SolrInputDocument doc) throws IOException {
+		json.writeStartObject();
+		for (SolrInputField field : doc) {
+			Object value = field.getValue();
+			if (value == null) {
+				continue;
+			}
+			json.writeFieldName(field.getName());
+			if (value instanceof Collection) {
+				json.writeStartArray();
+				for (Object item : (Collection<?>) value) {
+					writeJsonValue(item);
+				}
+				json.writeEndArray();
+			} else {
+				writeJsonValue(value);
+			}
+		}
+		json.writeEndObject();
+		json.writeRaw('\n');
+	}
+
+	private void writeJsonValue(Object value) throws IOException {
+		if (value == null) {
+			json.writeNull();
+		} else if (value instanceof Boolean) {
+			json.writeBoolean((Boolean) value);
+		} else if ((value instanceof Integer) || (value instanceof Long) || (value instanceof Short)) {
+			json.writeNumber(((Number) value).longValue());
+		} else if (value instanceof Number) {
+			json.writeNumber(((Number) value).doubleValue());
+		} else if (value instanceof Date) {
+			json.writeString(((Date) value).toInstant().toString());
+		} else {
+			json.writeString(value.toString());
+		}
+	}
+
+	/*
+	 * Import mode:  passes the documents exported for the index 'name' to 'writer' (an
+	 * indexer's writeDocs), in batches, segment by segment.  Returns the number of
+	 * documents read.  Fails if the export of 'name' is missing or was never finished.
+	 */
+	public static long importDocs(String name, Consumer<Collection<SolrInputDocument>> writer) throws IOException {
+		File dir = new File(importDir, name);
+		File manifestFile = new File(dir, MANIFEST);
+		if (!manifestFile.isFile()) {
+			throw new IOException("No finished export of " + name + " in " + dir);
+		}
+		Properties manifest = new Properties();
+		try (InputStream manifestIn = new FileInputStream(manifestFile)) {
+			manifest.load(manifestIn);
+		}
+		String format = manifest.getProperty("format", JAVABIN);
+		String segmentList = manifest.getProperty("segments", "").trim();
+		logger.info("Importing " + manifest.getProperty("documents") + " documents of " + name + " from " + dir);
+
+		long docCount = 0;
+		for (String segment : segmentList.isEmpty() ? new String[0] : segmentList.split(",")) {
+			try (InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(new File(dir, segment))), 1 << 16)) {
+				if (JSONL.equals(format)) {
+					docCount = docCount + importJson(in, writer);
+				} else {
+					docCount = docCount + importJavabin(in, writer);
+				}
+			}
+		}
+		return docCount;
+	}
+
+	private static long importJavabin(InputStream in, Consumer<Collection<SolrInputDocument>> writer) throws IOException {
+		DataInputStream records = new DataInputStream(in);
+		long docCount = 0;
+		while (true) {
+			int length;
+			try {
+				length = records.readInt();
+			} catch (EOFException e) {
+				return docCount;
+			}
+			byte[] record = new byte[length];
+			records.readFully(record);
+
+			List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
+			for (Object doc : (List<?>) new JavaBinCodec().unmarshal(new ByteArrayInputStream(record))) {
+				docs.add((SolrInputDocument) doc);
+			}
+			writer.accept(docs);
+			docCount = docCount + docs.size();
+		}
+	}
+
+	private static long importJson(InputStream in, Consumer<Collection<SolrInputDocument>> writer) throws IOException {
+		long docCount = 0;
+		List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
+		try (JsonParser parser = jsonFactory.createParser(in)) {
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				docs.add(readJson(parser));
+				if (docs.size() >= IMPORT_BATCH_SIZE) {
+					writer.accept(docs);
+					docCount = docCount + docs.size();
+					docs = new ArrayList<SolrInputDocument>();
+				}
+			}
+		}
+		if (!docs.isEmpty()) {
+			writer.accept(docs);
+			docCount = docCount + docs.size();
+		}
+		return docCount;
+	}
+
+	/* the document whose START_OBJECT the parser is on
+	 */
+	private static SolrInputDocument readJson(JsonParser parser) throws IOException {
+		SolrInputDocument doc = new SolrInputDocument();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			if (parser.nextToken() == JsonToken.START_ARRAY) {
+				while (parser.nextToken() != JsonToken.END_ARRAY) {
+					addJsonValue(doc, field, parser);
+				}
+			} else {
+				addJsonValue(doc, field, parser);
+			}
+		}
+		return doc;
+	}
+
+	private static void addJsonValue(SolrInputDocument doc, String field, JsonParser parser) throws IOException {
+		switch (parser.currentToken()) {
+		case VALUE_STRING:
+			doc.addField(field, parser.getText());
+			break;
+		case VALUE_NUMBER_INT:
+			doc.addField(field, parser.getNumberValue());
+			break;
+		case VALUE_NUMBER_FLOAT:
+			doc.addField(field, parser.getDoubleValue());
+			break;
+		case VALUE_TRUE:
+		case VALUE_FALSE:
+			doc.addField(field, parser.getBooleanValue());
+			break;
+		case VALUE_NULL:
+			break;
+		default:
+			throw new IOException("Unexpected " + parser.currentToken() + " in field " + field + " of an exported document");
+		}
+	}
+}
@@ -0,0 +1,252 @@
+package org.jax.mgi.indexer;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DocumentPipeline
+ *
+ * Runs an indexer's main query as three overlapping stages, so the database,
+ * the document-building work and Solr are all kept busy at once:
+ * 	1. read - the calling thread streams rows from the query (through the
+ * 		indexer's SQLExecutor) and copies each one into a row object
+ * 	2. transform - a pool of threads turns row objects into SolrInputDocuments
+ * 	3. write - one thread collects the documents and passes them to
+ * 		Indexer.sendDocs() in batches
+ * Bounded queues sit between the stages, so a slow stage makes the earlier
+ * ones wait rather than letting rows or documents pile up in memory.
+ *
+ * An indexer moves to the pipeline by splitting its loop over the ResultSet
+ * into a RowReader (pull the needed fields out of the current row) and a
+ * Transformer (build the document from them).  The Transformer runs on several
+ * threads at once, so it may only read the indexer's shared lookups.
+ * ImageIndexerSQL is the first to have moved; the other batch-loop indexers still
+ * build their documents in their own loops.
+ */
+public class DocumentPipeline<R> {
+
+	/* pulls the fields needed for one document out of the current row; runs on the reading thread.
+	 * Return null to skip the row.
+	 */
+	public interface RowReader<R> {
+		public R read(ResultSet rs) throws Exception;
+	}
+
+	/* builds the document for one row object; runs on the transformer threads.  Return null
+	 * to skip the row.
+	 */
+	public interface Transformer<R> {
+		public SolrInputDocument transform(R row) throws Exception;
+	}
+
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private Indexer indexer;
+	private int transformerThreads;
+	private int writeBatchSize;
+
+	private int readBatchSize = 500;		// rows handed to a transformer at a time
+	private int queueCapacity = 32;			// batches waiting between two stages
+	private int cursorLimit = 10000;		// rows fetched from the database at a time
+
+	// end-of-stream markers (compared by identity)
+	private final List<R> endOfRows = new ArrayList<R>();
+	private final List<SolrInputDocument> endOfDocs = new ArrayList<SolrInputDocument>();
+
+	// first failure in any stage (Errors included, so an OutOfMemoryError in a transformer
+	// cannot leave the other stages waiting on it); once set, every stage stops
+	private AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	/* 'transformerThreads' threads build documents, which are sent to 'indexer' in
+	 * batches of 'writeBatchSize'
+	 */
+	public DocumentPipeline(Indexer indexer, int transformerThreads, int writeBatchSize) {
+		this.indexer = indexer;
+		this.transformerThreads = Math.max(1, transformerThreads);
+		this.writeBatchSize = writeBatchSize;
+	}
+
+	public void setReadBatchSize(int readBatchSize) {
+		this.readBatchSize = readBatchSize;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public void setCursorLimit(int cursorLimit) {
+		this.cursorLimit = cursorLimit;
+	}
+
+	/* run 'query' through the three stages, returning the number of documents written.
+	 * Throws the first exception (or Error) from any stage, after all of the stages have
+	 * stopped.
+	 */
+	public int run(String query, RowReader<R> reader, final Transformer<R> transformer) throws Exception {
+		failure.set(null);
+		final BlockingQueue<List<R>> rows = new ArrayBlockingQueue<List<R>>(queueCapacity);
+		final BlockingQueue<List<SolrInputDocument>> docs = new ArrayBlockingQueue<List<SolrInputDocument>>(queueCapacity);
+		final AtomicInteger docsWritten = new AtomicInteger(0);
+
+		// stage 3: write
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				write(docs, docsWritten);
+			}
+		}, Thread.currentThread().getName() + "-writer");
+		writer.start();
+
+		// stage 2: transform
+		ExecutorService transformers = Executors.newFixedThreadPool(transformerThreads);
+		for (int i = 0; i < transformerThreads; i++) {
+			transformers.submit(new Runnable() {
+				public void run() {
+					transform(rows, docs, transformer);
+				}
+			});
+		}
+		transformers.shutdown();
+
+		// stage 1: read (on this thread, so the query uses this thread's connection)
+		int rowCount = 0;
+		// (closed however the read ends, so a failure elsewhere doesn't leave the cursor open
+		// on a pooled connection)
+		try (ResultSet rs = indexer.ex.executeProto(query, cursorLimit)) {
+			// (SQLExecutor records the rows read and the time spent fetching them)
+			List<R> batch = new ArrayList<R>(readBatchSize);
+			while ((failure.get() == null) && rs.next()) {
+				R row = reader.read(rs);
+				if (row != null) {
+					batch.add(row);
+					rowCount++;
+				}
+				if (batch.size() >= readBatchSize) {
+					put(rows, batch);
+					batch = new ArrayList<R>(readBatchSize);
+				}
+			}
+			if (!batch.isEmpty()) {
+				put(rows, batch);
+			}
+		} catch (Throwable e) {
+			fail(e);
+		} finally {
+			for (int i = 0; i < transformerThreads; i++) {
+				put(rows, endOfRows);
+			}
+		}
+
+		transformers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		while (writer.isAlive() && !docs.offer(endOfDocs, 1, TimeUnit.SECONDS)) {
+			// the writer keeps draining until it sees the end marker
+		}
+		writer.join();
+
+		Throwable e = failure.get();
+		if (e instanceof Exception) {
+			throw (Exception) e;
+		} else if (e instanceof Error) {
+			throw (Error) e;
+		} else if (e != null) {
+			throw new Exception(e);
+		}
+		logger.info("Pipeline read " + rowCount + " rows and wrote " + docsWritten.get() + " documents");
+		return docsWritten.get();
+	}
+
+	/* transformer thread:  take batches of rows until the end marker arrives (or a stage fails)
+	 */
+	private void transform(BlockingQueue<List<R>> rows, BlockingQueue<List<SolrInputDocument>> docs, Transformer<R> transformer) {
+		try {
+			while (failure.get() == null) {
+				List<R> batch = rows.poll(1, TimeUnit.SECONDS);
+				if (batch == null) {
+					continue;
+				}
+				if (batch == endOfRows) {
+					return;
+				}
+				List<SolrInputDocument> built = new ArrayList<SolrInputDocument>(batch.size());
+				long startNanos = System.nanoTime();
+				for (R row : batch) {
+					SolrInputDocument doc = transformer.transform(row);
+					if (doc != null) {
+						built.add(doc);
+					}
+				}
+				indexer.metrics.docsBuilt(built.size(), System.nanoTime() - startNanos);
+				put(docs, built);
+			}
+		} catch (Throwable e) {
+			fail(e);
+		}
+	}
+
+	/* writer thread:  gather documents into batches for the indexer until the end marker arrives
+	 */
+	private void write(BlockingQueue<List<SolrInputDocument>> docs, AtomicInteger docsWritten) {
+		List<SolrInputDocument> pending = new ArrayList<SolrInputDocument>();
+		try {
+			while (true) {
+				List<SolrInputDocument> batch = docs.poll(1, TimeUnit.SECONDS);
+				if (batch == null) {
+					continue;
+				}
+				if (batch == endOfDocs) {
+					break;
+				}
+				if (failure.get() != null) {
+					continue;		// keep draining so the transformers can finish
+				}
+				pending.addAll(batch);
+				if (pending.size() >= writeBatchSize) {
+					indexer.sendDocs(pending);
+					docsWritten.addAndGet(pending.size());
+					pending = new ArrayList<SolrInputDocument>();
+				}
+			}
+			if (failure.get() == null) {
+				indexer.sendDocs(pending);
+				docsWritten.addAndGet(pending.size());
+			}
+		} catch (Throwable e) {
+			fail(e);
+		}
+	}
+
+	/* add 'item' to 'queue', waiting for space; gives up (returning false) once any stage
+	 * has failed, as the stages downstream may no longer be taking items
+	 */
+	private <T> boolean put(BlockingQueue<List<T>> queue, List<T> item) {
+		try {
+			while (!queue.offer(item, 1, TimeUnit.SECONDS)) {
+				if (failure.get() != null) {
+					return false;
+				}
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			fail(e);
+			return false;
+		}
+	}
+
+	private void fail(Throwable e) {
+		if (failure.compareAndSet(null, e)) {
+			logger.error("Document pipeline failed", e);
+		}
+	}
+}
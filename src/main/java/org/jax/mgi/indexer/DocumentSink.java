@@ -0,0 +1,40 @@
+package org.jax.mgi.indexer;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.solr.common.SolrInputDocument;
+
+/**
+ * DocumentSink
+ *
+ * Where Indexer.writeDocs() puts an indexer's documents:  a Solr core (SolrWriter),
+ * or files to be loaded into Solr later (DocumentExport).  A sink is used by all of
+ * an indexer's chunk workers at once.
+ */
+public interface DocumentSink {
+
+	/* take 'docs' (with commitWithin 'commitWithinMs', if > 0 and the sink commits);
+	 * throws if this or an earlier batch could not be written
+	 */
+	public void add(Collection<SolrInputDocument> docs, int commitWithinMs) throws IOException;
+
+	/* delete the documents with these unique keys (delta mode); throws like add()
+	 */
+	public void delete(List<String> ids) throws IOException;
+
+	/* wait until everything added before this call is written (not what other threads add
+	 * meanwhile); throws if any of it failed
+	 */
+	public void flush() throws IOException;
+
+	/* flush, then release the sink's threads and files
+	 */
+	public void close() throws IOException;
+
+	/* release the sink's threads and files without flushing (for when the indexer has
+	 * failed); safe to call more than once, and after close()
+	 */
+	public void shutdown();
+}
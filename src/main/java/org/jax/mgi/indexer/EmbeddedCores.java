@@ -0,0 +1,73 @@
+package org.jax.mgi.indexer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import org.apache.solr.core.CoreContainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * EmbeddedCores
+ *
+ * Supports the offline build mode (Main argument embeddedSolrHome=<dir>), in which
+ * indexers write through an EmbeddedSolrServer straight into local core directories
+ * instead of sending documents over HTTP.  The Solr home must hold one directory per
+ * index with a conf/ copied from production (solrconfig.xml and the schema), e.g.
+ * <dir>/marker/conf.  Cores without a core.properties are created on first use.
+ * The finished segment files under each core's data/ directory can then be shipped
+ * to the serving hosts.
+ *
+ * All indexers in the JVM share one CoreContainer, which Main shuts down at the end.
+ */
+public class EmbeddedCores {
+
+	private static Logger logger = LoggerFactory.getLogger(EmbeddedCores.class);
+
+	// Solr home for the offline build; null means we send documents to Solr over HTTP
+	private static String solrHome = null;
+
+	private static CoreContainer container = null;
+
+	public static void setSolrHome(String dir) {
+		solrHome = dir;
+	}
+
+	/* true if this run builds its indexes offline
+	 */
+	public static boolean isEnabled() {
+		return solrHome != null;
+	}
+
+	/* get a client that writes directly into the local core for 'coreName'
+	 */
+	public static synchronized SolrClient getClient(String coreName) throws Exception {
+		if (container == null) {
+			logger.info("Loading embedded Solr cores from " + solrHome);
+			container = CoreContainer.createAndLoad(Paths.get(solrHome));
+		}
+		if (!container.getAllCoreNames().contains(coreName)) {
+			Path instanceDir = Paths.get(solrHome, coreName);
+			if (!Files.isDirectory(instanceDir.resolve("conf"))) {
+				throw new Exception("No Solr config for embedded core " + coreName + " at " + instanceDir.resolve("conf"));
+			}
+			logger.info("Creating embedded core " + coreName + " in " + instanceDir);
+			container.create(coreName, instanceDir, Collections.<String,String>emptyMap(), false);
+		}
+		return new EmbeddedSolrServer(container, coreName);
+	}
+
+	/* close all of the local cores (flushing their files); call once every indexer is done
+	 */
+	public static synchronized void shutdown() {
+		if (container != null) {
+			logger.info("Shutting down embedded Solr cores in " + solrHome);
+			container.shutdown();
+			container = null;
+		}
+	}
+}
@@ -355,15 +355,17 @@ public class GXDHtSampleIndexerSQL extends Indexer {
 	public void index() throws Exception {
 		logger.info("Beginning index() method");
 		
-		cacheReferenceIDs();	
-		cacheNotes();
-		cacheMethods();
-		cacheExperimentData();
-		cacheGenotypeData();
-		cacheMarkerData();
-		cacheAlleleData();
-		cacheEmapaData();
-		cacheCellTypeData();
+		cacheWarmer()
+			.add("reference IDs", this::cacheReferenceIDs)
+			.add("notes", this::cacheNotes)
+			.add("methods", this::cacheMethods)
+			.add("experiments", this::cacheExperimentData)
+			.add("genotypes", this::cacheGenotypeData)
+			.add("markers", this::cacheMarkerData)
+			.add("alleles", this::cacheAlleleData)
+			.add("EMAPA terms", this::cacheEmapaData)
+			.add("cell types", this::cacheCellTypeData)
+			.run();
 		
 		// main query for sample data
 		String cmd = "select s.sample_key, s.emapa_key, s.rnaseqType, s.theiler_stage, s.celltype_key, s.genotype_key, s.age, s.sex, "
@@ -37,6 +37,11 @@ public class HdpCoordIndexerSQL extends Indexer {
 		super("diseasePortalCoords");
 	}
 
+	@Override
+	protected boolean hasStableKeys() {
+		return false;		// documents are numbered as they are built
+	}
+
 	/*-----------------------*/
 	/*--- private methods ---*/
 	/*-----------------------*/
@@ -0,0 +1,1299 @@
+package org.jax.mgi.indexer;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.jax.mgi.shr.IntIntMap;
+import org.jax.mgi.shr.IntSetMap;
+import org.jax.mgi.shr.JsonEncoder;
+import org.jax.mgi.shr.LongIntMap;
+import org.jax.mgi.shr.SQLExecutor;
+import org.jax.mgi.shr.SortedIntSet;
+import org.jax.mgi.shr.fe.sort.SmartAlphaComparator;
+import org.jax.mgi.shr.jsonmodel.GridMarker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/* Is: the reference data shared by the HMDC indexers (HdpDisease, HdpGene, HdpGrid, and
+ * 	HdpGridAnnotation) -- markers, terms, orthologs, annotations, BSUs, and such.
+ * Has: one set of maps, loaded from the database by the first HMDC indexer to need them and
+ * 	then read by all of them.  The loaders run in parallel (hdp.snapshotLoaders of them, each
+ * 	with its own database connection if one is free, otherwise on the building indexer's).
+ * 	Nothing changes once the snapshot is built:  the maps, and the sets and lists in them,
+ * 	are all read-only.
+ * Does: stays in memory while any HMDC indexer is running.  Each one holds the snapshot
+ * 	(acquire) for the length of its run() and lets go of it (release) when done; the last
+ * 	to let go drops it.  (The scheduler starts an HMDC indexer as soon as another one is
+ * 	running, so the group normally shares a single snapshot.)
+ */
+class HdpDataSnapshot {
+	/*------------------------*/
+	/*--- shared instances ---*/
+	/*------------------------*/
+
+	// the snapshot, once someone has started building it
+	private static Future<HdpDataSnapshot> snapshot = null;
+	private static int holders = 0;
+
+	private static Logger logger = LoggerFactory.getLogger(HdpDataSnapshot.class);
+
+	/*-----------------------------------------------------*/
+	/*--- the data (see HdpIndexerSQL for descriptions) ---*/
+	/*-----------------------------------------------------*/
+
+	IntIntMap genotypeToGenocluster;
+	IntSetMap childToParents;
+	IntSetMap ancestors;
+	Map<Integer,Set<String>> markerFeatureTypes;
+	Map<String,Set<String>> termAlternateIds;
+	Map<String,Set<String>> termSynonymMap;
+	Map<String,Set<String>> markerSynonymMap;
+	Map<Integer,Integer> dagTermSortMap;
+	Map<String,Integer> termSortMap;
+	int maxTermSeqNum;
+	Map<String,Set<String>> markerAllIdMap;
+	IntIntMap homologyMap;
+	IntSetMap genoclusterToGridcluster;
+	Map<String,Set<String>> featureTypeMap;
+	Map<String,Set<String>> markersPerDisease;
+	Map<String,Set<String>> headersPerTerm;
+	Map<Integer,List<String>> markerToMutationInvolves;
+	Map<Integer,List<String>> markerToExpressesComponent;
+	Map<String,Integer> refCountPerDisease;
+	IntSetMap markerOrthologs;
+	Map<String,Integer> modelCountPerDisease;
+	Map<Integer,String> markerSymbolMap;
+	Map<Integer,String> markerNameMap;
+	Map<Integer,String> markerIdMap;
+	SortedIntSet mouseMarkers;
+	SortedIntSet humanMarkers;
+	SortedIntSet diseaseTerms;
+	SortedIntSet mpTerms;
+	SortedIntSet hpoTerms;
+	Map<Integer,String> terms;
+	Map<Integer,String> termIds;
+	Map<Integer,String> mpHeaderText;
+	IntIntMap annotationTermKeys;
+	SortedIntSet notAnnotations;
+	IntSetMap relatedAnnotations;
+	IntIntMap markerToHomologyCluster;
+	Map<Integer,String> allelePairs;
+	SortedIntSet conditionalGenoclusters;
+	Map<Integer,List<Integer>> diseaseToHpo;
+	Map<Integer,Set<Integer>> hpoHeaderToMp;
+	IntSetMap expressedComponents;
+	Map<Integer,String> gcToHumanMarkers;
+	Map<Integer,String> gcToMouseMarkers;
+	HdpIndexerSQL.BSU[] bsus;				// indexed by BSU key
+	LongIntMap humanBsuMap;					// packed (marker key, term key) -> BSU key
+	LongIntMap mouseBsuMap;					// packed (genocluster key, gridcluster key) -> BSU key
+
+	// the indexer whose database connection (and lookup helpers) the loaders use
+	private HdpIndexerSQL loader;
+	private int cursorLimit;
+
+	/*----------------------*/
+	/*--- static methods ---*/
+	/*----------------------*/
+
+	/* get the snapshot, building it (with 'loader') first if no one has yet.  Other HMDC
+	 * indexers asking while it is built wait for it, without holding the class lock.  If the
+	 * build fails, each of them gets the failure, and the next to ask tries again.
+	 */
+	static HdpDataSnapshot getSnapshot(final HdpIndexerSQL loader) throws Exception {
+		FutureTask<HdpDataSnapshot> build = null;
+		Future<HdpDataSnapshot> future;
+		synchronized (HdpDataSnapshot.class) {
+			if (snapshot == null) {
+				build = new FutureTask<HdpDataSnapshot>(() -> new HdpDataSnapshot(loader));
+				snapshot = build;
+			}
+			future = snapshot;
+		}
+		if (build != null) {
+			build.run();
+		}
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			synchronized (HdpDataSnapshot.class) {
+				if (snapshot == future) {
+					snapshot = null;
+				}
+			}
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/* hold the snapshot (so it is kept, once built, until a matching release)
+	 */
+	static synchronized void acquire() {
+		holders++;
+	}
+
+	/* give up one hold on the snapshot; the last one lets go of it.  (Extra calls do nothing.)
+	 */
+	static synchronized void release() {
+		holders = Math.max(0, holders - 1);
+		if ((holders == 0) && (snapshot != null)) {
+			logger.info("Releasing HMDC data snapshot");
+			snapshot = null;
+		}
+	}
+
+	/*--------------------*/
+	/*--- constructors ---*/
+	/*--------------------*/
+
+	private HdpDataSnapshot(HdpIndexerSQL loader) throws Exception {
+		this.loader = loader;
+		this.cursorLimit = loader.cursorLimit;
+		int threads = Integer.parseInt(loader.ex.props.getProperty("hdp.snapshotLoaders", "4").trim());
+
+		logger.info("Building HMDC data snapshot with " + threads + " loaders");
+		long start = System.currentTimeMillis();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+			// first the data that stands on its own...
+			List<Loader> independent = new ArrayList<Loader>();
+			independent.add(this::loadGenotypeToGenocluster);
+			independent.add(this::loadTermRelationships);
+			independent.add(this::loadMarkerFeatureTypes);
+			independent.add(this::loadAlternateTermIds);
+			independent.add(this::loadTermSynonyms);
+			independent.add(this::loadMarkerSynonyms);
+			independent.add(this::loadDagTermOrdering);
+			independent.add(this::loadTermSortMap);
+			independent.add(this::loadMarkerAllIds);
+			independent.add(this::loadHomologyMap);
+			independent.add(this::loadGridClusterKeys);
+			independent.add(this::loadFeatureTypeMap);
+			independent.add(this::loadMarkersPerDisease);
+			independent.add(this::loadHeadersPerTerm);
+			independent.add(this::loadMutationInvolves);
+			independent.add(this::loadDiseaseReferenceCounts);
+			independent.add(this::loadMarkerOrthologs);
+			independent.add(this::loadDiseaseModelCounts);
+			independent.add(this::loadBasicMarkerData);
+			independent.add(this::loadMarkerOrganismData);
+			independent.add(this::loadBasicTermData);
+			independent.add(this::loadBasicAnnotationData);
+			independent.add(this::loadAnnotationRelationships);
+			independent.add(this::loadHomologyClusterKeys);
+			independent.add(this::loadAllelePairs);
+			independent.add(this::loadHpoMaps);
+			independent.add(this::loadExpressedComponentTooltips);
+			runAll(pool, independent);
+
+			// ...then the data built on top of it
+			List<Loader> dependent = new ArrayList<Loader>();
+			dependent.add(this::loadExpressedComponents);		// orthologs, organisms
+			dependent.add(this::loadGridClusterMarkers);		// homology clusters, mutation involves, tooltips
+			dependent.add(this::loadBsus);						// conditional genoclusters
+			runAll(pool, dependent);
+		} finally {
+			pool.shutdown();
+		}
+		freeze();
+		this.loader = null;
+		logger.info("Finished HMDC data snapshot" + since(start));
+	}
+
+	/*-----------------------*/
+	/*--- private methods ---*/
+	/*-----------------------*/
+
+	private interface Loader {
+		void load() throws Exception;
+	}
+
+	/* run the given loaders on 'pool', each on a database connection of its own, and wait for them.
+	 * A loader that cannot get a connection within the loading indexer's chunkLeaseWaitMs is run
+	 * afterwards on this thread and its connection instead:  the other HMDC indexers may be holding
+	 * pooled connections while they wait for this snapshot.
+	 */
+	private void runAll(ExecutorService pool, List<Loader> loaders) throws Exception {
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+		for (final Loader l : loaders) {
+			futures.add(pool.submit(() -> {
+				SQLExecutor.Lease lease = loader.ex.tryLease(loader.chunkLeaseWaitMs);
+				if (lease == null) {
+					return false;
+				}
+				try {
+					l.load();
+				} finally {
+					lease.close();
+				}
+				return true;
+			}));
+		}
+		try {
+			for (int i = 0; i < loaders.size(); i++) {
+				if (!futures.get(i).get()) {
+					loaders.get(i).load();
+				}
+			}
+		} catch (ExecutionException e) {
+			for (Future<Boolean> future : futures) {
+				future.cancel(true);
+			}
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		} catch (Exception e) {
+			// (a loader run here failed)
+			for (Future<Boolean> future : futures) {
+				future.cancel(true);
+			}
+			throw e;
+		}
+	}
+
+	private static String since(long start) {
+		return " in " + (System.currentTimeMillis() - start) + " ms";
+	}
+
+	/* add 'value' to the set for 'key' in 'map', creating the set if needed
+	 */
+	private static <K,V> void addToSet(Map<K,Set<V>> map, K key, V value) {
+		Set<V> values = map.get(key);
+		if (values == null) {
+			values = new HashSet<V>();
+			map.put(key, values);
+		}
+		values.add(value);
+	}
+
+	/* wrap each map, and each set and list in them, so the indexers cannot change them by
+	 * accident (the primitive ones are read-only already)
+	 */
+	private void freeze() {
+		markerFeatureTypes = freezeSets(markerFeatureTypes);
+		termAlternateIds = freezeSets(termAlternateIds);
+		termSynonymMap = freezeSets(termSynonymMap);
+		markerSynonymMap = freezeSets(markerSynonymMap);
+		dagTermSortMap = Collections.unmodifiableMap(dagTermSortMap);
+		termSortMap = Collections.unmodifiableMap(termSortMap);
+		markerAllIdMap = freezeSets(markerAllIdMap);
+		featureTypeMap = freezeSets(featureTypeMap);
+		markersPerDisease = freezeSets(markersPerDisease);
+		headersPerTerm = freezeSets(headersPerTerm);
+		markerToMutationInvolves = freezeLists(markerToMutationInvolves);
+		markerToExpressesComponent = freezeLists(markerToExpressesComponent);
+		refCountPerDisease = Collections.unmodifiableMap(refCountPerDisease);
+		modelCountPerDisease = Collections.unmodifiableMap(modelCountPerDisease);
+		markerSymbolMap = Collections.unmodifiableMap(markerSymbolMap);
+		markerNameMap = Collections.unmodifiableMap(markerNameMap);
+		markerIdMap = Collections.unmodifiableMap(markerIdMap);
+		terms = Collections.unmodifiableMap(terms);
+		termIds = Collections.unmodifiableMap(termIds);
+		mpHeaderText = Collections.unmodifiableMap(mpHeaderText);
+		allelePairs = Collections.unmodifiableMap(allelePairs);
+		diseaseToHpo = freezeLists(diseaseToHpo);
+		hpoHeaderToMp = freezeSets(hpoHeaderToMp);
+		gcToHumanMarkers = Collections.unmodifiableMap(gcToHumanMarkers);
+		gcToMouseMarkers = Collections.unmodifiableMap(gcToMouseMarkers);
+	}
+
+	/* 'map', read-only, with each of its sets made read-only as well
+	 */
+	private static <K,V> Map<K,Set<V>> freezeSets(Map<K,Set<V>> map) {
+		for (Map.Entry<K,Set<V>> entry : map.entrySet()) {
+			entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	/* 'map', read-only, with each of its lists made read-only as well
+	 */
+	private static <K,V> Map<K,List<V>> freezeLists(Map<K,List<V>> map) {
+		for (Map.Entry<K,List<V>> entry : map.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	/*---------------*/
+	/*--- loaders ---*/
+	/*---------------*/
+
+	/* the mapping between genotypes and genoclusters (we assume each genotype is part of
+	 * only one genocluster)
+	 */
+	private void loadGenotypeToGenocluster() throws Exception {
+		long start = System.currentTimeMillis();
+		IntIntMap map = new IntIntMap();
+
+		String genotypeQuery = "select genotype_key, hdp_genocluster_key "
+			+ "from hdp_genocluster_genotype";
+
+		ResultSet rs = loader.ex.executeProto(genotypeQuery, cursorLimit);
+		while (rs.next()) {
+			map.put(rs.getInt("genotype_key"), rs.getInt("hdp_genocluster_key"));
+		}
+		rs.close();
+
+		genotypeToGenocluster = map;
+		logger.info("finished retrieving genoclusters for " + map.size() + " genotypes" + since(start));
+	}
+
+	/* parent/child relationships of disease and phenotype terms, and from them the full set
+	 * of ancestors for each term that has any
+	 */
+	private void loadTermRelationships() throws Exception {
+		long start = System.currentTimeMillis();
+
+		String parentQuery = "select ta.term_key as parent_key, "
+				+ "  ta.child_term_key as child_key "
+				+ "from term_child ta "
+				+ "where exists (select 1 from term t "
+				+ "  where t.vocab_name in ('Disease Ontology', 'Mammalian Phenotype', 'Human Phenotype Ontology') "
+				+ "    and t.term_key = ta.term_key)";
+
+		Map<Integer,Set<Integer>> parents = new HashMap<Integer,Set<Integer>>();
+
+		ResultSet rs = loader.ex.executeProto(parentQuery);
+		while (rs.next()) {
+			addToSet(parents, rs.getInt("child_key"), rs.getInt("parent_key"));
+		}
+		rs.close();
+
+		Map<Integer,Set<Integer>> closure = new HashMap<Integer,Set<Integer>>();
+		for (Integer termKey : parents.keySet()) {
+			collectAncestors(termKey, parents, closure);
+		}
+
+		childToParents = IntSetMap.of(parents);
+		ancestors = IntSetMap.of(closure);
+		logger.info("finished retrieving parent/child relationships for " + parents.size() + " child terms" + since(start));
+	}
+
+	/* compute (and remember in 'closure') the ancestors of 'termKey'; null for a root
+	 */
+	private static Set<Integer> collectAncestors(Integer termKey, Map<Integer,Set<Integer>> parents,
+			Map<Integer,Set<Integer>> closure) {
+		if (closure.containsKey(termKey)) { return closure.get(termKey); }
+		if (!parents.containsKey(termKey)) { return null; }
+
+		Set<Integer> myAncestors = new HashSet<Integer>();
+		for (Integer parent : parents.get(termKey)) {
+			myAncestors.add(parent);
+			Set<Integer> parentsAncestors = collectAncestors(parent, parents, closure);
+			if (parentsAncestors != null) {
+				myAncestors.addAll(parentsAncestors);
+			}
+		}
+		closure.put(termKey, myAncestors);
+		return myAncestors;
+	}
+
+	/* feature types for each marker that has them
+	 */
+	private void loadMarkerFeatureTypes() throws Exception {
+		long start = System.currentTimeMillis();
+
+		String featureTypeQuery = "select marker_key, marker_subtype "
+				+ "from marker "
+				+ "where marker_subtype is not null";
+
+		Map<Integer,Set<String>> map = new HashMap<Integer,Set<String>>();
+
+		ResultSet rs = loader.ex.executeProto(featureTypeQuery, cursorLimit);
+		while (rs.next()) {
+			addToSet(map, rs.getInt("marker_key"), rs.getString("marker_subtype"));
+		}
+		rs.close();
+
+		markerFeatureTypes = map;
+		logger.info("finished retrieving feature types for " + map.size() + " markers" + since(start));
+	}
+
+	/* alternate IDs for each phenotype and disease ID (plus the bare number of OMIM IDs, for searching)
+	 */
+	private void loadAlternateTermIds() throws Exception {
+		String termIdQuery = "select t.primary_id as term_id, ti.acc_id as alt_id "
+				+ "from term t, term_id ti "
+				+ "where t.term_key = ti.term_key "
+				+ "  and t.vocab_name in ('Mammalian Phenotype', 'Disease Ontology', 'Human Phenotype Ontology') ";
+
+		Map<String,Set<String>> map = loader.populateLookup(termIdQuery, "term_id", "alt_id", "alternate IDs to term IDs");
+		loader.populateOMIMNumberPartsForIds(map);
+		termAlternateIds = map;
+	}
+
+	/* synonyms for each disease and phenotype ID
+	 */
+	private void loadTermSynonyms() throws Exception {
+		String termSynonymQuery = "select t.primary_id term_id,ts.synonym " +
+				"from term t,term_synonym ts " +
+				"where t.term_key=ts.term_key " +
+				"and t.vocab_name in ('Disease Ontology','Mammalian Phenotype', 'Human Phenotype Ontology') ";
+		termSynonymMap = loader.populateLookup(termSynonymQuery, "term_id", "synonym", "disease + MP synonyms to term IDs");
+	}
+
+	/* synonyms for each (String) marker key
+	 */
+	private void loadMarkerSynonyms() throws Exception {
+		String markerSynonymQuery = "select distinct msn.marker_key, msn.term synonym " +
+				"from marker_searchable_nomenclature msn " +
+				"where msn.term_type in ('old symbol','old name','synonym') " +
+				"UNION " +
+				"select distinct ms.marker_key, ms.synonym " +
+				"from marker_synonym ms ";
+		markerSynonymMap = loader.populateLookup(markerSynonymQuery, "marker_key", "synonym", "marker keys to synonyms");
+	}
+
+	/* a sequence number for each disease and phenotype term key, in order of a DAG-based
+	 * traversal (to group terms together that are similar biologically)
+	 */
+	private void loadDagTermOrdering() throws Exception {
+		long start = System.currentTimeMillis();
+		Map<Integer,Integer> map = new HashMap<Integer,Integer>();
+
+		String query = "select distinct t.term_key, s.by_dfs "
+			+ "from term t, term_sequence_num s "
+			+ "where t.vocab_name in ('Disease Ontology','Mammalian Phenotype', 'Human Phenotype Ontology') "
+			+ "  and t.term_key = s.term_key";
+		ResultSet rs = loader.ex.executeProto(query, cursorLimit);
+		while (rs.next()) {
+			map.put(rs.getInt("term_key"), rs.getInt("by_dfs"));
+		}
+		rs.close();
+
+		dagTermSortMap = map;
+		logger.info("finished getting DAG sequence numbers for " + map.size() + " diseases and phenotypes" + since(start));
+	}
+
+	/* a smart-alpha sequence number for each disease and phenotype term
+	 */
+	private void loadTermSortMap() throws Exception {
+		long start = System.currentTimeMillis();
+
+		List<String> termsToSort = new ArrayList<String>();
+		String query = "select distinct term " +
+				"from term " +
+				"where vocab_name in ('Disease Ontology','Mammalian Phenotype', 'Human Phenotype Ontology') ";
+		ResultSet rs = loader.ex.executeProto(query, cursorLimit);
+		while (rs.next()) {
+			termsToSort.add(rs.getString("term"));
+		}
+		rs.close();
+
+		Collections.sort(termsToSort, new SmartAlphaComparator());
+
+		Map<String,Integer> map = new HashMap<String,Integer>();
+		for (int i = 0; i < termsToSort.size(); i++) {
+			map.put(termsToSort.get(i), i);
+		}
+		termSortMap = map;
+		maxTermSeqNum = map.size() + 1;
+		logger.info("finished calculating sequence numbers for " + map.size() + " diseases and phenotypes" + since(start));
+	}
+
+	/* searchable IDs for each (String) marker key, for every organism (plus the bare number
+	 * of OMIM IDs, for searching)
+	 */
+	private void loadMarkerAllIds() throws Exception {
+		String markerIdQuery = "select marker_key, acc_id "
+				+ "from marker_id "
+				+ "where logical_db not in ('ABA','Download data from the QTL Archive','FuncBase','GENSAT','GEO','HomoloGene','RIKEN Cluster','UniGene') ";
+		Map<String,Set<String>> map = loader.populateLookup(markerIdQuery, "marker_key", "acc_id", "marker keys to IDs");
+		loader.populateOMIMNumberPartsForIds(map);
+		markerAllIdMap = map;
+	}
+
+	/* the gridcluster key for each marker (from the Alliance Clustered homology)
+	 */
+	private void loadHomologyMap() throws Exception {
+		long start = System.currentTimeMillis();
+		IntIntMap map = new IntIntMap();
+
+		String homologyQuery = "select gcm.marker_key, gcm.hdp_gridcluster_key "
+			+ "from hdp_gridcluster_marker gcm";
+
+		ResultSet rs = loader.ex.executeProto(homologyQuery, cursorLimit);
+		while (rs.next()) {
+			map.put(rs.getInt("marker_key"), rs.getInt("hdp_gridcluster_key"));
+		}
+		rs.close();
+
+		homologyMap = map;
+		logger.info("Finished retrieving homologyMap data (" + map.size() + " markers)" + since(start));
+	}
+
+	/* the gridcluster keys for each genocluster
+	 */
+	private void loadGridClusterKeys() throws Exception {
+		long start = System.currentTimeMillis();
+		IntSetMap.Builder builder = new IntSetMap.Builder();
+
+		String gcQuery = "select distinct gc.hdp_genocluster_key, gcm.hdp_gridcluster_key "
+			+ "from hdp_genocluster_marker gc, "
+			+ "  hdp_gridcluster_marker gcm "
+			+ "where gc.marker_key = gcm.marker_key";
+
+		ResultSet rs = loader.ex.executeProto(gcQuery, cursorLimit);
+		while (rs.next()) {
+			builder.add(rs.getInt("hdp_genocluster_key"), rs.getInt("hdp_gridcluster_key"));
+		}
+		rs.close();
+
+		IntSetMap map = builder.build();
+		genoclusterToGridcluster = map;
+		logger.info("Finished retrieving gridclusters for (" + map.size() + " genoclusters)" + since(start));
+	}
+
+	/* feature types of the mouse markers in each (String) gridcluster key, including mouse markers
+	 * that are not part of a homology cluster
+	 */
+	private void loadFeatureTypeMap() throws Exception {
+		String featureTypeQuery =
+				"select distinct gc.hdp_gridcluster_key, "
+						+ "  m.marker_subtype as feature_type "
+						+ "from hdp_gridcluster_marker gc, "
+						+ "  homology_cluster_organism_to_marker sm, "
+						+ "  homology_cluster_organism so, "
+						+ "  homology_cluster_organism oo, "
+						+ "  homology_cluster_organism_to_marker om, "
+						+ "  marker m "
+						+ "where gc.marker_key = sm.marker_key "
+						+ "  and sm.cluster_organism_key = so.cluster_organism_key "
+						+ "  and so.cluster_key = oo.cluster_key "
+						+ "  and oo.cluster_organism_key = om.cluster_organism_key "
+						+ "  and oo.organism = 'mouse' "
+						+ "  and om.marker_key = m.marker_key "
+						+ "  and m.marker_subtype is not null "
+						+ "union "
+						+ "select distinct gc.hdp_gridcluster_key, "
+						+ "  m.marker_subtype as feature_type "
+						+ "from hdp_gridcluster_marker gc, "
+						+ "  marker m "
+						+ "where gc.marker_key = m.marker_key "
+						+ "  and not exists (select 1 from "
+						+ "    homology_cluster_organism_to_marker sm "
+						+ "    where gc.marker_key = sm.marker_key) "
+						+ "  and m.marker_subtype is not null";
+
+		featureTypeMap = loader.populateLookupOrdered(featureTypeQuery,
+				"hdp_gridcluster_key", "feature_type", "gridcluster keys to feature types");
+	}
+
+	/* (String) marker keys positively associated with each disease ID (no annotations with a
+	 * NOT qualifier), considering the DAG relationships of diseases
+	 */
+	private void loadMarkersPerDisease() throws Exception {
+		String markerQuery =
+				"with closure as ( "
+					+ "select ha.term_key, ha.term_id, s.ancestor_primary_id "
+					+ "from hdp_annotation ha, term_ancestor s "
+					+ "where ha.term_key = s.term_key "
+					+ "  and ha.vocab_name = 'Disease Ontology' "
+					+ "union "
+					+ "select ha.term_key, ha.term_id, ha.term_id "
+					+ "from hdp_annotation ha "
+					+ "where ha.vocab_name = 'Disease Ontology' "
+					+ ") "
+				+ "select distinct c.ancestor_primary_id as term_id, h.marker_key, m.symbol "
+				+ "from hdp_annotation h, marker m, closure c "
+				+ "where h.vocab_name='Disease Ontology' "
+				+ " and h.organism_key in (1, 2) "
+				+ " and h.term_id = c.term_id "
+				+ " and h.marker_key = m.marker_key "
+				+ " and h.qualifier_type is null "
+				+ " and (h.genotype_type!='complex' or h.genotype_type is null) "
+				+ "order by 1, 3";
+
+		markersPerDisease = loader.populateLookupOrdered(markerQuery, "term_id", "marker_key", "diseases to markers");
+	}
+
+	/* header terms for each disease ID
+	 */
+	private void loadHeadersPerTerm() throws Exception {
+		String headerQuery = "select distinct term_id, header "
+				+ "from hdp_annotation "
+				+ "order by term_id, header";
+		headersPerTerm = loader.populateLookupOrdered(headerQuery, "term_id", "header", "terms to headers");
+	}
+
+	/* symbols of the "mutation involves" genes for each cytogenetic marker
+	 */
+	private void loadMutationInvolves() throws Exception {
+		long start = System.currentTimeMillis();
+		Map<Integer,List<String>> map = new HashMap<Integer,List<String>>();
+
+		String query = "select distinct m.marker_key, arm.related_marker_symbol "
+			+ "from  marker m, allele a, marker_to_allele ma, allele_related_marker arm "
+			+ "where m.marker_key = ma.marker_key "
+			+ "and ma.allele_key = a.allele_key "
+			+ "and m.marker_type = 'Cytogenetic Marker' "
+			+ "and m.marker_subtype != 'unclassified cytogenetic marker' "
+			+ "and a.is_wild_type = 0 "
+			+ "and a.allele_key = arm.allele_key "
+			+ "order by m.marker_key, arm.related_marker_symbol ";
+		ResultSet rs = loader.ex.executeProto(query, cursorLimit);
+		while (rs.next()) {
+			Integer markerKey = rs.getInt("marker_key");
+			if (!map.containsKey(markerKey)) {
+				map.put(markerKey, new ArrayList<String>());
+			}
+			map.get(markerKey).add(rs.getString("related_marker_symbol"));
+		}
+		rs.close();
+
+		markerToMutationInvolves = map;
+		logger.info("cached " + map.size() + " mutation involves entries" + since(start));
+	}
+
+	/* count of disease-relevant references for each disease ID, including those of descendant terms
+	 */
+	private void loadDiseaseReferenceCounts() throws Exception {
+		long start = System.currentTimeMillis();
+		Map<String,Integer> map = new HashMap<String,Integer>();
+
+		String diseaseRefCountQuery =
+			"with closure as ( "
+				+ "select ha.term_key, ha.primary_id, s.ancestor_primary_id "
+				+ "from term ha, term_ancestor s "
+				+ "where ha.term_key = s.term_key "
+				+ "  and ha.vocab_name = 'Disease Ontology' "
+				+ "union "
+				+ "select ha.term_key, ha.primary_id, ha.primary_id "
+				+ "from term ha "
+				+ "where ha.vocab_name = 'Disease Ontology' "
+				+ ") "
+			+ "select c.ancestor_primary_id as disease_id, count(distinct trt.reference_key) as ref_count "
+			+ "from hdp_term_to_reference trt, term ha, closure c "
+			+ "where ha.term_key = trt.term_key "
+			+ " and ha.term_key = c.term_key "
+			+ " and ha.vocab_name='Disease Ontology' "
+			+ "group by 1";
+
+		ResultSet rs = loader.ex.executeProto(diseaseRefCountQuery, cursorLimit);
+		while (rs.next()) {
+			map.put(rs.getString("disease_id"), rs.getInt("ref_count"));
+		}
+		rs.close();
+
+		refCountPerDisease = map;
+		logger.info("done building ref counts for " + map.size() + " diseases" + since(start));
+	}
+
+	/* orthologous marker keys for each marker:  the 'Alliance Clustered' set for mouse/human,
+	 * augmented with the non-mouse/non-human orthologs from the 'Alliance Direct' set (which the
+	 * clustered set does not have)
+	 */
+	private void loadMarkerOrthologs() throws Exception {
+		long start = System.currentTimeMillis();
+		Map<Integer,Set<Integer>> map = new HashMap<Integer,Set<Integer>>();
+
+		String orthologQuery = "select distinct otm.marker_key as marker_key, "
+				+ "  other_otm.marker_key as other_marker_key "
+				+ "from homology_cluster_organism o, "
+				+ "  homology_cluster_organism_to_marker otm, "
+				+ "  homology_cluster_organism other_o, "
+				+ "  homology_cluster_organism_to_marker other_otm, "
+				+ "  homology_cluster hc "
+				+ "where other_o.cluster_key=o.cluster_key "
+				+ "  and o.cluster_organism_key=otm.cluster_organism_key "
+				+ "  and other_o.cluster_organism_key=other_otm.cluster_organism_key "
+				+ "  and o.cluster_key = hc.cluster_key "
+				+ "  and hc.source = '<SOURCE>' "
+				+ "  and otm.marker_key!=other_otm.marker_key";
+
+		ResultSet rs = loader.ex.executeProto(orthologQuery.replace("<SOURCE>", "Alliance Clustered"), cursorLimit);
+		while (rs.next()) {
+			addToSet(map, rs.getInt("marker_key"), rs.getInt("other_marker_key"));
+		}
+		rs.close();
+
+		ResultSet rs2 = loader.ex.executeProto(orthologQuery.replace("<SOURCE>", "Alliance Direct"), cursorLimit);
+		while (rs2.next()) {
+			Integer markerKey = rs2.getInt("marker_key");
+			Integer otherKey = rs2.getInt("other_marker_key");
+			if (map.containsKey(markerKey)) {
+				// add other_marker_key to everything in the cluster
+				for (Integer clusterMemberKey : new HashSet<Integer>(map.get(markerKey))) {
+					if (map.containsKey(clusterMemberKey)) {
+						map.get(clusterMemberKey).add(otherKey);
+					}
+				}
+			}
+		}
+		rs2.close();
+
+		markerOrthologs = IntSetMap.of(map);
+		logger.info("done collecting orthologs for " + map.size() + " markers" + since(start));
+	}
+
+	/* count of disease models for each disease ID, including those of descendant terms
+	 */
+	private void loadDiseaseModelCounts() throws Exception {
+		long start = System.currentTimeMillis();
+		Map<String,Integer> map = new HashMap<String,Integer>();
+
+		String diseaseModelQuery =
+			"with closure as ( "
+				+ "select ha.term_key, ha.primary_id, s.ancestor_primary_id "
+				+ "from term ha, term_ancestor s "
+				+ "where ha.term_key = s.term_key "
+				+ " and ha.vocab_name = 'Disease Ontology' "
+				+ "union "
+				+ "select ha.term_key, ha.primary_id, ha.primary_id "
+				+ "from term ha "
+				+ "where ha.vocab_name = 'Disease Ontology' "
+				+ ") "
+			+ "select c.ancestor_primary_id as disease_id, "
+			+ " count(distinct dm.disease_model_key) as diseaseModelCount "
+			+ "from disease_model dm, closure c "
+			+ "where dm.is_not_model=0 "
+			+ " and dm.disease_id = c.primary_id "
+			+ "group by 1";
+
+		ResultSet rs = loader.ex.executeProto(diseaseModelQuery, cursorLimit);
+		while (rs.next()) {
+			map.put(rs.getString("disease_id"), rs.getInt("diseaseModelCount"));
+		}
+		rs.close();
+
+		modelCountPerDisease = map;
+		logger.info("done building model counts for " + map.size() + " diseases" + since(start));
+	}
+
+	/* symbols, names, and primary IDs of all current markers
+	 */
+	private void loadBasicMarkerData() throws Exception {
+		long start = System.currentTimeMillis();
+		Map<Integer,String> symbols = new HashMap<Integer,String>();
+		Map<Integer,String> names = new HashMap<Integer,String>();
+		Map<Integer,String> ids = new HashMap<Integer,String>();
+
+		String markerQuery = "select marker_key, symbol, name, primary_id "
+				+ "from marker "
+				+ "where status != 'withdrawn' ";
+
+		ResultSet rs = loader.ex.executeProto(markerQuery, cursorLimit);
+		while (rs.next()) {
+			symbols.put(rs.getInt("marker_key"), rs.getString("symbol"));
+			names.put(rs.getInt("marker_key"), rs.getString("name"));
+			ids.put(rs.getInt("marker_key"), rs.getString("primary_id"));
+		}
+		rs.close();
+
+		markerSymbolMap = symbols;
+		markerNameMap = names;
+		markerIdMap = ids;
+		logger.info("Finished retrieving basic marker data (" + ids.size() + " markers)" + since(start));
+	}
+
+	/* the sets of current mouse and human marker keys
+	 */
+	private void loadMarkerOrganismData() throws Exception {
+		long start = System.currentTimeMillis();
+		SortedIntSet.Builder mouse = new SortedIntSet.Builder();
+		SortedIntSet.Builder human = new SortedIntSet.Builder();
+
+		String organismQuery = "select marker_key, organism "
+				+ "from marker "
+				+ "where status != 'withdrawn' "
+				+ "  and organism in ('human', 'mouse') ";
+
+		ResultSet rs = loader.ex.executeProto(organismQuery, cursorLimit);
+		while (rs.next()) {
+			if ("human".equals(rs.getString("organism"))) {
+				human.add(rs.getInt("marker_key"));
+			} else {
+				mouse.add(rs.getInt("marker_key"));
+			}
+		}
+		rs.close();
+
+		mouseMarkers = mouse.build();
+		humanMarkers = human.build();
+		logger.info("Identified " + mouseMarkers.size() + " mouse and " + humanMarkers.size() + " human markers" + since(start));
+	}
+
+	/* terms, primary IDs, and vocabularies of disease and phenotype terms, plus the display
+	 * strings for MP headers
+	 */
+	private void loadBasicTermData() throws Exception {
+		long start = System.currentTimeMillis();
+		SortedIntSet.Builder diseases = new SortedIntSet.Builder();
+		SortedIntSet.Builder mps = new SortedIntSet.Builder();
+		SortedIntSet.Builder hpos = new SortedIntSet.Builder();
+		Map<Integer,String> termMap = new HashMap<Integer,String>();
+		Map<Integer,String> idMap = new HashMap<Integer,String>();
+
+		String termQuery = "select term_key, term, primary_id, vocab_name "
+				+ "from term "
+				+ "where vocab_name in ('Disease Ontology', 'Mammalian Phenotype', 'Human Phenotype Ontology')";
+
+		ResultSet rs = loader.ex.executeProto(termQuery, cursorLimit);
+		while (rs.next()) {
+			Integer termKey = rs.getInt("term_key");
+			termMap.put(termKey, rs.getString("term"));
+			idMap.put(termKey, rs.getString("primary_id"));
+
+			if (loader.disease.equals(rs.getString("vocab_name"))) { diseases.add(termKey); }
+			else if (loader.hpo.equals(rs.getString("vocab_name"))) { hpos.add(termKey); }
+			else { mps.add(termKey); }
+		}
+		rs.close();
+		logger.info("Finished retrieving basic term data (" + termMap.size() + " terms)" + since(start));
+
+		Map<Integer,String> headers = new HashMap<Integer,String>();
+
+		String headerQuery = "select t.term_key, s.synonym "
+			+ "from term t, term_synonym s "
+			+ "where t.vocab_name = 'Mammalian Phenotype' "
+			+ "  and t.term_key = s.term_key "
+			+ "  and s.synonym_type = 'Synonym Type 1'";
+
+		rs = loader.ex.executeProto(headerQuery);
+		while (rs.next()) {
+			headers.put(rs.getInt("term_key"), rs.getString("synonym"));
+		}
+		rs.close();
+
+		diseaseTerms = diseases.build();
+		mpTerms = mps.build();
+		hpoTerms = hpos.build();
+		terms = termMap;
+		termIds = idMap;
+		mpHeaderText = headers;
+		logger.info("Finished retrieving MP header display strings" + since(start));
+	}
+
+	/* the annotated term key for each annotation, and the set of annotations with a NOT qualifier
+	 */
+	private void loadBasicAnnotationData() throws Exception {
+		long start = System.currentTimeMillis();
+		IntIntMap termKeys = new IntIntMap();
+		SortedIntSet.Builder nots = new SortedIntSet.Builder();
+
+		String annotQuery = "select hdp_annotation_key, term_key, qualifier_type "
+				+ "from hdp_annotation";
+
+		ResultSet rs = loader.ex.executeProto(annotQuery, cursorLimit);
+		while (rs.next()) {
+			int hdpAnnotationKey = rs.getInt("hdp_annotation_key");
+			String qualifier = rs.getString("qualifier_type");
+
+			termKeys.put(hdpAnnotationKey, rs.getInt("term_key"));
+			if ((qualifier != null) && "NOT".equals(qualifier)) {
+				nots.add(hdpAnnotationKey);
+			}
+		}
+		rs.close();
+
+		annotationTermKeys = termKeys;
+		notAnnotations = nots.build();
+		logger.info("Finished retrieving basic annotation data (" + termKeys.size() + " annotations)" + since(start));
+	}
+
+	/* which annotations are related to which other annotations, by being for the same genocluster
+	 */
+	private void loadAnnotationRelationships() throws Exception {
+		long start = System.currentTimeMillis();
+		IntSetMap.Builder builder = new IntSetMap.Builder();
+
+		String mouseQuery = "with genoclusters as ( "
+				+ "  select distinct on (ha.hdp_annotation_key) ha.hdp_annotation_key, "
+				+ "    gg.hdp_genocluster_key "
+				+ "  from hdp_annotation ha, "
+				+ "    hdp_genocluster_genotype gg "
+				+ "  where ha.genotype_key = gg.genotype_key) "
+				+ "select h1.hdp_annotation_key as annotKey1, "
+				+ "  g2.hdp_annotation_key as annotKey2 "
+				+ "from hdp_annotation h1, genoclusters g1, genoclusters g2 "
+				+ "where h1.hdp_annotation_key = g1.hdp_annotation_key "
+				+ "  and g1.hdp_genocluster_key = g2.hdp_genocluster_key "
+				+ "  and g1.hdp_annotation_key != g2.hdp_annotation_key";
+
+		ResultSet rs = loader.ex.executeProto(mouseQuery, cursorLimit);
+		while (rs.next()) {
+			builder.add(rs.getInt("annotKey1"), rs.getInt("annotKey2"));
+		}
+		rs.close();
+
+		IntSetMap map = builder.build();
+		relatedAnnotations = map;
+		logger.info("Got relationships for " + map.size() + " mouse annotations" + since(start));
+	}
+
+	/* the Alliance Clustered homology cluster key for each human and mouse marker in a cluster
+	 */
+	private void loadHomologyClusterKeys() throws Exception {
+		long start = System.currentTimeMillis();
+		IntIntMap map = new IntIntMap();
+
+		String homologyQuery = "select distinct otm.marker_key, hc.cluster_key "
+			+ "  from homology_cluster_organism_to_marker otm, "
+			+ "    homology_cluster_organism hco, homology_cluster hc "
+			+ "  where otm.cluster_organism_key = hco.cluster_organism_key "
+			+ "    and hco.organism in ('human', 'mouse') "
+			+ "    and hco.cluster_key = hc.cluster_key "
+			+ "    and hc.source = 'Alliance Clustered' ";
+
+		ResultSet rs = loader.ex.executeProto(homologyQuery, cursorLimit);
+		while (rs.next()) {
+			map.put(rs.getInt("marker_key"), rs.getInt("cluster_key"));
+		}
+		rs.close();
+
+		markerToHomologyCluster = map;
+		logger.info("  - retrieved homology clusters for " + map.size() + " markers" + since(start));
+	}
+
+	/* the allele pairs (formatted for display) of the first genotype in each genocluster, and
+	 * which genoclusters are conditional
+	 */
+	private void loadAllelePairs() throws Exception {
+		long start = System.currentTimeMillis();
+		Map<Integer,String> pairs = new HashMap<Integer,String>();
+		SortedIntSet.Builder conditional = new SortedIntSet.Builder();
+
+		String allelePairQuery = "select distinct on (gc1.hdp_genocluster_key) "
+				+ "  gc1.hdp_genocluster_key, g1.combination_3, g1.is_conditional "
+				+ "from hdp_genocluster_genotype gc1, "
+				+ "  genotype g1 "
+				+ "where gc1.genotype_key = g1.genotype_key";
+
+		ResultSet rs = loader.ex.executeProto(allelePairQuery, cursorLimit);
+		while (rs.next()) {
+			pairs.put(rs.getInt("hdp_genocluster_key"), loader.formatAllelePairsForDisplay(rs.getString("combination_3")));
+			if (rs.getInt("is_conditional") == 1) {
+				conditional.add(rs.getInt("hdp_genocluster_key"));
+			}
+		}
+		rs.close();
+
+		allelePairs = pairs;
+		conditionalGenoclusters = conditional.build();
+		logger.info("finished retrieving allele pairs for " + pairs.size() + " genoclusters ("
+			+ conditionalGenoclusters.size() + " conditional)" + since(start));
+	}
+
+	/* HPO term keys for each DO term key, and MP header keys for each HPO high-level term key
+	 */
+	private void loadHpoMaps() throws Exception {
+		long start = System.currentTimeMillis();
+
+		// do not make this distinct, as duplicates are intentional and important
+		String diseaseToHpoQuery = "select term_key_1 as do_key, term_key_2 as hpo_key "
+			+ "from term_to_term tt "
+			+ "where tt.relationship_type = 'DO to HPO'";
+
+		Map<Integer,List<Integer>> toHpo = new HashMap<Integer,List<Integer>>();
+
+		ResultSet rs = loader.ex.executeProto(diseaseToHpoQuery, cursorLimit);
+		while (rs.next()) {
+			Integer doKey = rs.getInt("do_key");
+			if (!toHpo.containsKey(doKey)) {
+				toHpo.put(doKey, new ArrayList<Integer>());
+			}
+			toHpo.get(doKey).add(rs.getInt("hpo_key"));
+		}
+		rs.close();
+
+		String hpoHeaderToMpQuery = "select term_key_1 as mp_key, term_key_2 as hpo_key "
+			+ "from term_to_term tt "
+			+ "where tt.relationship_type = 'MP header to HPO high-level'";
+
+		Map<Integer,Set<Integer>> toMp = new HashMap<Integer,Set<Integer>>();
+
+		ResultSet rs2 = loader.ex.executeProto(hpoHeaderToMpQuery, cursorLimit);
+		while (rs2.next()) {
+			addToSet(toMp, rs2.getInt("hpo_key"), rs2.getInt("mp_key"));
+		}
+		rs2.close();
+
+		diseaseToHpo = toHpo;
+		hpoHeaderToMp = toMp;
+		logger.info("finished retrieving HPO mappings for " + toHpo.size() + " DO terms and "
+			+ toMp.size() + " HPO terms" + since(start));
+	}
+
+	/* symbols (with organism) of the expressed components of each transgene, for the tooltips
+	 * on the grid tab
+	 */
+	private void loadExpressedComponentTooltips() throws Exception {
+		long start = System.currentTimeMillis();
+		Map<Integer,List<String>> map = new HashMap<Integer,List<String>>();
+
+		String ecTooltipQuery = "select m.marker_key, arm.related_marker_symbol, rm.organism "
+			+ "from marker m, marker_to_allele ma, allele a, allele_related_marker arm, marker rm "
+			+ "where m.marker_type = 'Transgene' "
+			+ "and m.marker_key = ma.marker_key "
+			+ "and ma.allele_key = a.allele_key "
+			+ "and a.allele_key = arm.allele_key "
+			+ "and arm.relationship_category = 'expresses_component' "
+			+ "and arm.related_marker_key = rm.marker_key "
+			+ "order by m.marker_key, arm.arm_key ";
+		ResultSet rs = loader.ex.executeProto(ecTooltipQuery, cursorLimit);
+		while (rs.next()) {
+			Integer markerKey = rs.getInt("marker_key");
+			if (!map.containsKey(markerKey)) {
+				map.put(markerKey, new ArrayList<String>());
+			}
+			map.get(markerKey).add(rs.getString("related_marker_symbol") + " (" + rs.getString("organism") + ")");
+		}
+		rs.close();
+
+		markerToExpressesComponent = map;
+		logger.info("Cached expressed component tooltip data for " + map.size() + " transgenes" + since(start));
+	}
+
+	/* the 'expressed component' markers of each transgene (both 'expresses' and 'expresses
+	 * ortholog of'), plus their human and mouse orthologs.  Needs the orthologs and organisms.
+	 */
+	private void loadExpressedComponents() throws Exception {
+		long start = System.currentTimeMillis();
+
+		String ecQuery =
+				// alleles having exactly one expressed component marker
+
+				"with ec_count as ( " +
+					"select allele_key, count(1) as ec_ct " +
+					"from allele_related_marker " +
+					"where relationship_category = 'expresses_component' " +
+					"group by 1 " +
+					"having count(1) = 1" +
+				"), " +
+
+				// alleles whose annotations have been rolled-up to a marker (passed roll-up rules)
+
+				"rolled_up as ( " +
+					"select distinct al.allele_key " +
+					"from marker m " +
+					"inner join marker_to_annotation mta on (m.marker_key = mta.marker_key) " +
+					"inner join annotation a on (mta.annotation_key = a.annotation_key and a.annotation_type in ('Mammalian Phenotype/Marker', 'DO/Marker', 'DO/Human Marker') ) " +
+					"inner join annotation_source src on (a.annotation_key = src.annotation_key) " +
+					"inner join annotation sa on (src.source_annotation_key = sa.annotation_key) " +
+					"inner join genotype_to_annotation gta on (sa.annotation_key = gta.annotation_key) " +
+					"inner join genotype g on (gta.genotype_key = g.genotype_key) " +
+					"inner join allele_to_genotype atg on (g.genotype_key = atg.genotype_key) " +
+					"inner join allele al on (atg.allele_key = al.allele_key) " +
+					"inner join marker_to_allele ma on (al.allele_key = ma.allele_key) " +
+					"inner join marker sm on (ma.marker_key = sm.marker_key) " +
+				") " +
+
+				// transgene markers where the corresponding allele has expressed components that are mouse markers
+				// (exclude docking site markers by key)
+
+				"select m.marker_key, arm.related_marker_key " +
+				"from allele_related_marker arm, allele a, marker_to_allele mta, marker m, ec_count one, rolled_up ru, marker rm " +
+				"where arm.relationship_category = 'expresses_component' " +
+				"and arm.related_marker_key = rm.marker_key " +
+				"and rm.organism in ('mouse','human') " +
+				"and arm.allele_key = a.allele_key " +
+				"and a.allele_key = ru.allele_key " +
+				"and a.allele_key = mta.allele_key " +
+				"and mta.marker_key = m.marker_key " +
+				"and m.organism = 'mouse' " +
+				"and m.marker_type = 'Transgene' " +
+				"and m.marker_key not in (1092, 37270, 9936) " +
+				"and a.allele_key = one.allele_key ";
+
+		Map<Integer,Set<Integer>> map = new HashMap<Integer,Set<Integer>>();
+
+		ResultSet rs = loader.ex.executeProto(ecQuery, cursorLimit);
+		while (rs.next()) {
+			addToSet(map, rs.getInt("marker_key"), rs.getInt("related_marker_key"));
+		}
+		rs.close();
+
+		// now add any missing human/mouse orthologs for the expressed components
+		for (Set<Integer> expressed : map.values()) {
+			Set<Integer> orthologs = new HashSet<Integer>();
+			for (Integer expressedMarkerKey : expressed) {
+				int[] others = markerOrthologs.get(expressedMarkerKey);
+				if (others != null) {
+					for (int otherKey : others) {
+						if (mouseMarkers.contains(otherKey) || humanMarkers.contains(otherKey)) {
+							orthologs.add(otherKey);
+						}
+					}
+				}
+			}
+			expressed.addAll(orthologs);
+		}
+
+		expressedComponents = IntSetMap.of(map);
+		logger.info("finished expressed components (with orthologs) for " + map.size() + " transgenes" + since(start));
+	}
+
+	/* the human and mouse marker data (as JSON) for each gridcluster.  Needs the homology
+	 * clusters, mutation involves data, and expressed component tooltips.
+	 */
+	private void loadGridClusterMarkers() throws Exception {
+		long start = System.currentTimeMillis();
+		JsonEncoder json = new JsonEncoder();
+		Map<Integer,String> humans = new HashMap<Integer,String>();
+		Map<Integer,String> mice = new HashMap<Integer,String>();
+
+		String markerQuery = "select gcm.hdp_gridcluster_key, m.organism, m.symbol, m.marker_key, "
+				+ "  m.primary_id, mi.acc_id as hgnc_id, ms.by_symbol, m.marker_type, m.marker_subtype, m.name "
+				+ "from hdp_gridcluster_marker gcm, "
+				+ "  marker m left join marker_id mi "
+				+ "    on m.marker_key = mi.marker_key and mi.logical_db = 'HGNC', "
+				+ "  marker_sequence_num ms "
+				+ "where gcm.marker_key = m.marker_key "
+				+ "  and m.marker_key = ms.marker_key "
+				+ "order by gcm.hdp_gridcluster_key, m.organism, ms.by_symbol";
+
+		ResultSet rs = loader.ex.executeProto(markerQuery, cursorLimit);
+
+		List<GridMarker> humanGM = null;
+		List<GridMarker> mouseGM = null;
+		int lastGcKey = -1;
+
+		while (rs.next()) {
+			Integer gcKey = rs.getInt("hdp_gridcluster_key");
+			String organism = rs.getString("organism");
+			String symbol = rs.getString("symbol");
+			String name = rs.getString("name");
+			Integer markerKey = rs.getInt("marker_key");
+			String title = "Name: " + name;
+
+			// beginning to collect for a new gridcluster; save the old one's data, if any
+			if (lastGcKey != gcKey.intValue()) {
+				if (lastGcKey >= 0) {
+					if (humanGM.size() > 0) { humans.put(lastGcKey, json.toJson(humanGM)); }
+					if (mouseGM.size() > 0) { mice.put(lastGcKey, json.toJson(mouseGM)); }
+				}
+				humanGM = new ArrayList<GridMarker>();
+				mouseGM = new ArrayList<GridMarker>();
+				lastGcKey = gcKey.intValue();
+			}
+
+			if ("human".equals(organism)) {
+				humanGM.add(new GridMarker(symbol, rs.getString("hgnc_id"), name, rs.getString("marker_type"),
+					markerToHomologyCluster.get(markerKey), title));
+			} else {
+				String markerSubType = rs.getString("marker_subtype");
+				title += "\nFeature type: " + markerSubType;
+				title += tooltipList("Mutation involves", markerToMutationInvolves.get(markerKey));
+				title += tooltipList("Transgene expresses", markerToExpressesComponent.get(markerKey));
+				mouseGM.add(new GridMarker(symbol, rs.getString("primary_id"), name, markerSubType,
+					markerToHomologyCluster.get(markerKey), title));
+			}
+		}
+		rs.close();
+
+		// add the last ones found
+		if (lastGcKey >= 0) {
+			if (humanGM.size() > 0) { humans.put(lastGcKey, json.toJson(humanGM)); }
+			if (mouseGM.size() > 0) { mice.put(lastGcKey, json.toJson(mouseGM)); }
+		}
+
+		gcToHumanMarkers = humans;
+		gcToMouseMarkers = mice;
+		logger.info("  - retrieved marker data for gridclusters" + since(start));
+	}
+
+	/* a line for a mouse marker's tooltip, e.g. "Mutation involves 2 genes: A, B"; empty if no 'symbols'
+	 */
+	private static String tooltipList(String label, List<String> symbols) {
+		if (symbols == null) { return ""; }
+		int sz = symbols.size();
+		return "\n" + label + " " + sz + " gene" + (sz > 1 ? "s" : "") + ": "
+			+ (sz <= 5 ? String.join(", ", symbols) : "see allele page for details");
+	}
+
+	/* the basic search units (BSUs) for the grid, each with a new integer key.  Each BSU's
+	 * uniqueness is defined by:
+	 *		1. marker/disease pair for human data
+	 *		2. genocluster/gridcluster pair for mouse data
+	 * Needs the conditional genoclusters.
+	 */
+	private void loadBsus() throws Exception {
+		long start = System.currentTimeMillis();
+		int bsuKey = 0;
+		List<HdpIndexerSQL.BSU> bsuList = new ArrayList<HdpIndexerSQL.BSU>();
+		bsuList.add(null);			// BSU keys start at 1
+		LongIntMap human = new LongIntMap();
+		LongIntMap mouse = new LongIntMap();
+
+		/* Of note:
+		 *   1. No genoclusters have human markers.
+		 *   2. Many genoclusters have multiple mouse markers.
+		 *   3. No markers are in more than one gridcluster.
+		 *   4. A small number of markers are not in a homology cluster.
+		 *   5. It is possible for a genocluster to have more than one gridcluster,
+		 *   	happening often for transgenes.  (in 900+ genoclusters currently)
+		 */
+
+		// human marker/disease data, plus homology cluster key
+		String humanQuery = "select gcm.hdp_gridcluster_key, gcm.marker_key, "
+				+ "  ha.term_key, hc.cluster_key "
+				+ "from hdp_gridcluster_marker gcm "
+				+ "inner join hdp_annotation ha on ( "
+				+ "  gcm.marker_key = ha.marker_key "
+				+ "  and ha.organism_key = 2 "
+				+ "  and ha.annotation_type = 1022) "
+				+ "left outer join homology_cluster hc on ( "
+				+ "  gcm.hdp_gridcluster_key = hc.cluster_key) "
+				+ "order by gcm.marker_key, ha.term_key";
+
+		ResultSet rs = loader.ex.executeProto(humanQuery, cursorLimit);
+		while (rs.next()) {
+			bsuKey++;
+			HdpIndexerSQL.BSU bsu = new HdpIndexerSQL.BSU(bsuKey);
+
+			int markerKey = rs.getInt("marker_key");
+			int termKey = rs.getInt("term_key");
+
+			bsu.setHumanData(rs.getInt("hdp_gridcluster_key"), markerKey, termKey, rs.getInt("cluster_key"));
+			bsuList.add(bsu);
+
+			long pair = LongIntMap.pack(markerKey, termKey);
+			if (!human.containsKey(pair)) {
+				human.put(pair, bsuKey);
+			}
+		}
+		rs.close();
+		int humanCount = bsuKey;
+
+		// mouse genocluster data
+		String mouseQuery = "select distinct gg.hdp_genocluster_key, gcm.hdp_gridcluster_key "
+			+ "from hdp_genocluster_genotype gg "
+			+ "left outer join hdp_genocluster_marker gc on (gg.hdp_genocluster_key = gc.hdp_genocluster_key) "
+			+ "left outer join hdp_gridcluster_marker gcm on (gc.marker_key = gcm.marker_key) "
+			+ "order by gg.hdp_genocluster_key, gcm.hdp_gridcluster_key";
+
+		ResultSet rs2 = loader.ex.executeProto(mouseQuery, cursorLimit);
+		while (rs2.next()) {
+			int genoclusterKey = rs2.getInt("hdp_genocluster_key");
+			int gridclusterKey = rs2.getInt("hdp_gridcluster_key");
+
+			bsuKey++;
+			HdpIndexerSQL.BSU bsu = new HdpIndexerSQL.BSU(bsuKey);
+			bsu.setMouseData(gridclusterKey, genoclusterKey, conditionalGenoclusters.contains(genoclusterKey));
+			bsuList.add(bsu);
+			mouse.put(LongIntMap.pack(genoclusterKey, gridclusterKey), bsuKey);
+		}
+		rs2.close();
+
+		bsus = bsuList.toArray(new HdpIndexerSQL.BSU[bsuList.size()]);
+		humanBsuMap = human;
+		mouseBsuMap = mouse;
+		logger.info("Cached " + humanCount + " human marker/disease and " + (bsuKey - humanCount)
+			+ " mouse genocluster BSUs" + since(start));
+	}
+}
@@ -97,14 +97,14 @@ public class HdpDiseaseIndexerSQL extends HdpIndexerSQL {
 			doc.addField(DiseasePortalFields.BY_TERM_NAME, termSort);
 
 			// add any synonyms for this disease term and any alternate IDs
-			addAllFromLookup(doc,DiseasePortalFields.TERM_SYNONYM, termId, termSynonymMap);
+			addAllFromLookup(doc,DiseasePortalFields.TERM_SYNONYM, termId, getTermSynonymMap());
 			addAll(doc, DiseasePortalFields.TERM_ALT_ID, getAlternateTermIds(termId));
 			doc.addAllDistinct(DiseasePortalFields.DO_ID, getDiseaseDoIds(termId));
 			doc.addAllDistinct(DiseasePortalFields.OMIM_ID, getDiseaseOmimIds(termId));
 
 			// add term headers for the disease
-			if (headersPerTerm.containsKey(termId)) {
-				addAllFromLookup(doc, DiseasePortalFields.TERM_HEADER, termId, headersPerTerm);
+			if (getHeadersPerTerm(termId) != null) {
+				addAllFromLookup(doc, DiseasePortalFields.TERM_HEADER, termId, cacheHeadersPerTerm());
 			} else {
 				doc.addField(DiseasePortalFields.TERM_HEADER, term);
 			}
@@ -150,8 +150,8 @@ public class HdpDiseaseIndexerSQL extends HdpIndexerSQL {
 				addIfNotNull(doc, DiseasePortalFields.MARKER_NAME, getMarkerName(markerKey));
 				addIfNotNull(doc, DiseasePortalFields.MARKER_MGI_ID, getMarkerID(markerKey));
 
-				if (markerSynonymMap.containsKey(markerKey.toString())) {
-					markerSynonyms.addAll(markerSynonymMap.get(markerKey.toString()));
+				if (getMarkerSynonyms(markerKey) != null) {
+					markerSynonyms.addAll(getMarkerSynonyms(markerKey));
 				}
 				addAll(doc, DiseasePortalFields.MARKER_ID, getMarkerIds(markerKey));
 
@@ -159,8 +159,8 @@ public class HdpDiseaseIndexerSQL extends HdpIndexerSQL {
 				if (gridClusterKey != null) {
 					String gckString = gridClusterKey.toString();
 					doc.addField(DiseasePortalFields.GRID_CLUSTER_KEY, gckString);
-					if (featureTypeMap.containsKey(gckString)) {
-						featureTypes.addAll(featureTypeMap.get(gckString));
+					if (getFeatureTypes(gridClusterKey) != null) {
+						featureTypes.addAll(getFeatureTypes(gridClusterKey));
 					}
 				} else {
 					// add feature types for markers not in grid clusters
@@ -186,9 +186,9 @@ public class HdpDiseaseIndexerSQL extends HdpIndexerSQL {
 				}
 
 				// collect nomen and ID data for orthologs of this marker
-				Set<Integer> orthologousMarkerKeys = getMarkerOrthologs(markerKey);
+				int[] orthologousMarkerKeys = getMarkerOrthologs(markerKey);
 				if (orthologousMarkerKeys != null) {
-					for (Integer orthoMarkerKey : orthologousMarkerKeys) {
+					for (int orthoMarkerKey : orthologousMarkerKeys) {
 						String orthoSymbol = getMarkerSymbol(orthoMarkerKey);
 						String orthoName = getMarkerName(orthoMarkerKey);
 						Set<String> orthoIds = getMarkerIds(orthoMarkerKey);
@@ -228,7 +228,7 @@ public class HdpDiseaseIndexerSQL extends HdpIndexerSQL {
 			// Add this doc to the batch we're collecting.  If the stack hits our
 			// threshold, send it to the server and reset it.
 			docs.add(doc);
-			if (docs.size() >= solrBatchSize)  {
+			if (docs.size() >= adaptiveSize(solrBatchSize))  {
 				writeDocs(docs);
 				docs = new ArrayList<SolrInputDocument>();
 			}
@@ -248,12 +248,8 @@ public class HdpDiseaseIndexerSQL extends HdpIndexerSQL {
 
 	@Override
 	public void index() throws Exception {
-		// collect various mappings needed for data lookup
-		getFeatureTypeMap();		// gridcluster keys to feature types
-		getTermSynonymMap();		// term IDs to term synonyms
-		getMarkerSynonymMap();		// marker keys to marker synonyms
-		cacheHeadersPerTerm();		// disease IDs to term headers
-		getMarkerAllIdMap();		// marker key to searchable marker IDs
+		// collect (or share) the mappings needed for data lookup
+		getSnapshot();
 
 		processDiseases();
 	}
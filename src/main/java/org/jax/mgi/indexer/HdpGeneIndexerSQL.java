@@ -154,7 +154,7 @@ public class HdpGeneIndexerSQL extends HdpIndexerSQL {
 	protected void addTermFields (DistinctSolrInputDocument doc, int termKey, boolean isHumanMarker) throws Exception {
 		String termId = getTermId(termKey);
 		doc.addDistinctField(DiseasePortalFields.TERM, getTerm(termKey));
-		addAllFromLookup(doc,DiseasePortalFields.TERM_SYNONYM, termId, termSynonymMap);
+		addAllFromLookup(doc,DiseasePortalFields.TERM_SYNONYM, termId, getTermSynonymMap());
 
 		doc.addDistinctField(DiseasePortalFields.TERM_ID, termId);
 		addAll(doc, DiseasePortalFields.TERM_ALT_ID, getAlternateTermIds(termKey));
@@ -324,8 +324,8 @@ public class HdpGeneIndexerSQL extends HdpIndexerSQL {
 
 			// synonyms, if any exist
 
-			if (markerSynonymMap.containsKey(markerKey.toString())) {
-				doc.addAllDistinct(DiseasePortalFields.MARKER_SYNONYM, markerSynonymMap.get(markerKey.toString()));
+			if (getMarkerSynonyms(markerKey) != null) {
+				doc.addAllDistinct(DiseasePortalFields.MARKER_SYNONYM, getMarkerSynonyms(markerKey));
 				doc.addAllDistinct(DiseasePortalFields.MARKER_SYNONYM_SINGLE_TOKEN, getMarkerSingleTokenSynonyms(markerKey, true));
 			}
 
@@ -341,9 +341,9 @@ public class HdpGeneIndexerSQL extends HdpIndexerSQL {
 			Set<String> orthologSynonyms = new HashSet<String>();
 			Set<String> orthologIds = new HashSet<String>();
 
-			Set<Integer> orthologousMarkerKeys = getMarkerOrthologs(markerKey);
+			int[] orthologousMarkerKeys = getMarkerOrthologs(markerKey);
 			if (orthologousMarkerKeys != null) {
-				for (Integer orthoMarkerKey : orthologousMarkerKeys) {
+				for (int orthoMarkerKey : orthologousMarkerKeys) {
 					String orthoSymbol = getMarkerSymbol(orthoMarkerKey);
 					String orthoName = getMarkerName(orthoMarkerKey);
 					Set<String> orthoIds = getMarkerIds(orthoMarkerKey);
@@ -461,7 +461,7 @@ public class HdpGeneIndexerSQL extends HdpIndexerSQL {
 			// Add this doc to the batch we're collecting.  If the stack hits our
 			// threshold, send it to the server and reset it.
 			docs.add(doc);
-			if (docs.size() >= solrBatchSize)  {
+			if (docs.size() >= adaptiveSize(solrBatchSize))  {
 				writeDocs(docs);
 				docs = new ArrayList<SolrInputDocument>();
 			}
@@ -482,11 +482,8 @@ public class HdpGeneIndexerSQL extends HdpIndexerSQL {
 	@Override
 	public void index() throws Exception {
 		try {
-		// collect various mappings needed for data lookup
-		getTermSynonymMap();		// term IDs to term synonyms
-		getMarkerSynonymMap();		// marker keys to marker synonyms
-		cacheHeadersPerTerm();		// disease IDs to term headers
-		getMarkerAllIdMap();		// marker key to searchable marker IDs
+		// collect (or share) the mappings needed for data lookup
+		getSnapshot();
 
 		processGenes();
 		} catch (Throwable t) {
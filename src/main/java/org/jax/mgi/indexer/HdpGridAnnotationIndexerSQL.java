@@ -151,7 +151,7 @@ public class HdpGridAnnotationIndexerSQL extends HdpIndexerSQL {
 		for(int i=0;i<termsToSort.size();i++) {
 			headerSequenceNum.put(termsToSort.get(i), i);
 		}
-		logger.info("finished collecting  " + (maxTermSeqNum - 1) + " headers " + Timer.getElapsedMessage());
+		logger.info("finished collecting  " + headerSequenceNum.size() + " headers " + Timer.getElapsedMessage());
 	}
 
 	/* get the sequence number for the given header
@@ -248,7 +248,7 @@ public class HdpGridAnnotationIndexerSQL extends HdpIndexerSQL {
 				}
 			}
 
-			if (docs.size() >= solrBatchSize) {
+			if (docs.size() >= adaptiveSize(solrBatchSize)) {
 				writeDocs(docs);
 				docs = new ArrayList<SolrInputDocument>();
 			}
@@ -308,7 +308,7 @@ public class HdpGridAnnotationIndexerSQL extends HdpIndexerSQL {
 					rs.getString("qualifier_type"), null, null, rs.getInt("has_backgroundnote")));
 			}
 
-			if (docs.size() >= solrBatchSize) {
+			if (docs.size() >= adaptiveSize(solrBatchSize)) {
 				writeDocs(docs);
 				docs = new ArrayList<SolrInputDocument>();
 			}
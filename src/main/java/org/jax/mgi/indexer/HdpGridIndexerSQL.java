@@ -11,12 +11,11 @@ import java.util.Set;
 import org.apache.solr.common.SolrInputDocument;
 import org.jax.mgi.reporting.Timer;
 import org.jax.mgi.shr.DistinctSolrInputDocument;
+import org.jax.mgi.shr.JsonEncoder;
 import org.jax.mgi.shr.fe.indexconstants.DiseasePortalFields;
 import org.jax.mgi.shr.jsonmodel.GridGenocluster;
 import org.jax.mgi.shr.jsonmodel.GridGenoclusterAllele;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /* Is: an indexer that builds the index supporting the Grid tab of the HMDC summary
  *		page.  Each document in the index represents a basic unit of HMDC searching:
  *			* a genocluster, for mouse data, or
@@ -101,9 +100,9 @@ public class HdpGridIndexerSQL extends HdpIndexerSQL {
 	 */
 	protected void addOrthologyData(DistinctSolrInputDocument doc, int markerKey) throws Exception {
 		// add data for orthologs of this marker
-		Set<Integer> orthologousMarkerKeys = getMarkerOrthologs(markerKey);
+		int[] orthologousMarkerKeys = getMarkerOrthologs(markerKey);
 		if (orthologousMarkerKeys != null) {
-			for (Integer orthoMarkerKey : orthologousMarkerKeys) {
+			for (int orthoMarkerKey : orthologousMarkerKeys) {
 				doc.addDistinctField(DiseasePortalFields.ORTHOLOG_SYMBOL, getMarkerSymbol(orthoMarkerKey));
 				doc.addDistinctField(DiseasePortalFields.ORTHOLOG_NOMEN, getMarkerName(orthoMarkerKey));
 				doc.addAllDistinct(DiseasePortalFields.ORTHOLOG_SYNONYM, getMarkerSynonyms(orthoMarkerKey));
@@ -175,7 +174,7 @@ public class HdpGridIndexerSQL extends HdpIndexerSQL {
 					if (doc.containsKey(DiseasePortalFields.GRID_CLUSTER_KEY)) {
 						// save this document and write to the server if our queue is big enough
 						docs.add(doc);
-						if (docs.size() >= solrBatchSize) {
+						if (docs.size() >= adaptiveSize(solrBatchSize)) {
 							writeDocs(docs);
 							docs = new ArrayList<SolrInputDocument>();
 						}
@@ -281,14 +280,14 @@ public class HdpGridIndexerSQL extends HdpIndexerSQL {
 		List<GridGenoclusterAllele> alleles = null;
 		int lastGenoclusterKey = -1;
 
-		ObjectMapper mapper = new ObjectMapper();		// converts objects to JSON
+		JsonEncoder json = new JsonEncoder();		// converts objects to JSON
 
 		// only keep one genocluster's alleles in memory at a time to save memory
 		while (rs.next()) {
 			int genoclusterKey = rs.getInt("hdp_genocluster_key");
 			if (genoclusterKey != lastGenoclusterKey) {
 				if ((alleles != null) && (alleles.size() > 0)) {
-					imsrAlleles.put(lastGenoclusterKey, mapper.writeValueAsString(new GridGenocluster(lastGenoclusterKey, alleles)));
+					imsrAlleles.put(lastGenoclusterKey, json.toJson(new GridGenocluster(lastGenoclusterKey, alleles)));
 				}
 				alleles = new ArrayList<GridGenoclusterAllele>();
 				lastGenoclusterKey = genoclusterKey;
@@ -299,7 +298,7 @@ public class HdpGridIndexerSQL extends HdpIndexerSQL {
 		rs.close();
 		
 		if ((alleles != null) && (alleles.size() > 0)) {
-			imsrAlleles.put(lastGenoclusterKey, mapper.writeValueAsString(new GridGenocluster(lastGenoclusterKey, alleles)));
+			imsrAlleles.put(lastGenoclusterKey, json.toJson(new GridGenocluster(lastGenoclusterKey, alleles)));
 		}
 
 		logger.info("finished retrieving IMSR allele data for " + imsrAlleles.size() + " genoclusters " + Timer.getElapsedMessage());
@@ -377,7 +376,7 @@ public class HdpGridIndexerSQL extends HdpIndexerSQL {
 				if (lastBsuKey >= 0) {
 					// save this document and write to the server if our queue is big enough
 					docs.add(doc);
-					if (docs.size() >= solrBatchSize) {
+					if (docs.size() >= adaptiveSize(solrBatchSize)) {
 						writeDocs(docs);
 						docs = new ArrayList<SolrInputDocument>();
 					}
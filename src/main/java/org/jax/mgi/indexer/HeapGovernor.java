@@ -0,0 +1,220 @@
+package org.jax.mgi.indexer;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.management.NotificationEmitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HeapGovernor
+ *
+ * Shared by every indexer in the JVM (they share one heap), this scales chunk and
+ * batch sizes to the memory actually free, instead of each indexer using sizes
+ * tuned by hand for the worst case.  Indexers ask for size(base) wherever they
+ * would have used a fixed size 'base', and get base times the current scale.
+ *
+ * The scale is halved (down to minScale) when the heap is under pressure:  when the
+ * JVM reports that a collection left an old-generation pool above highWater (a usage
+ * threshold notification), or when the live heap after the last collection is above
+ * highWater, or when more than a tenth of the last few seconds went to GC pauses.  It
+ * grows by 0.125 (up to maxScale) after three samples in a row with the live heap
+ * below lowWater and little time in GC, so one quiet moment doesn't undo the backing
+ * off.  Usage is sampled at most every couple of seconds, or right away after a
+ * threshold notification.  The live heap is only ever taken from the old-generation
+ * pools' usage after a collection; while there is no such figure, only GC time can
+ * shrink the scale and nothing grows it.  (Heap in use right now includes garbage not
+ * yet collected, so it would look like pressure during ordinary allocation.)
+ *
+ * It is also the one judge of memory pressure for the indexers' own warnings
+ * (isUnderPressure), so they agree with the sizes they are given.
+ *
+ * Configured by heap.adaptive, heap.highWater, heap.lowWater, heap.minScale and
+ * heap.maxScale in config.properties.  With heap.adaptive=false, size(base) is base.
+ */
+public class HeapGovernor {
+	private static final Logger logger = LoggerFactory.getLogger(HeapGovernor.class);
+
+	private static final long SAMPLE_NANOS = 2000L * 1000 * 1000;
+
+	// the scale grows by GROW_STEP after QUIET_SAMPLES quiet samples in a row
+	private static final double GROW_STEP = 0.125;
+	private static final int QUIET_SAMPLES = 3;
+
+	private static HeapGovernor governor = null;
+
+	private boolean adaptive;
+	private double highWater;
+	private double lowWater;
+	private double minScale;
+	private double maxScale;
+
+	private volatile double scale = 1.0;
+	private volatile boolean thresholdExceeded = false;
+	private volatile boolean underPressure = false;
+	private volatile long nextSample = 0;
+
+	// the old-generation heap pools, which report their usage after each collection
+	private List<MemoryPoolMXBean> pools = new ArrayList<MemoryPoolMXBean>();
+	private long lastGcMillis = 0;
+	private long lastSampleMillis = System.currentTimeMillis();
+	private int quietSamples = 0;
+
+	private HeapGovernor(Properties props) {
+		this.adaptive = Boolean.parseBoolean(props.getProperty("heap.adaptive", "true").trim());
+		this.highWater = Double.parseDouble(props.getProperty("heap.highWater", "0.75").trim());
+		this.lowWater = Double.parseDouble(props.getProperty("heap.lowWater", "0.5").trim());
+		this.minScale = Double.parseDouble(props.getProperty("heap.minScale", "0.125").trim());
+		this.maxScale = Double.parseDouble(props.getProperty("heap.maxScale", "2").trim());
+		findPools();
+		if (adaptive) {
+			watchPools();
+			lastGcMillis = gcMillis();
+		}
+	}
+
+	/* returns the JVM-wide governor, creating it with these settings on the first call
+	 */
+	public static synchronized HeapGovernor getGovernor(Properties props) {
+		if (governor == null) {
+			governor = new HeapGovernor(props);
+			logger.info("Sizing chunks and batches with " + governor);
+		}
+		return governor;
+	}
+
+	/* the size to use now, in place of the fixed size 'base' (at least 1)
+	 */
+	public int size(int base) {
+		if (!adaptive) {
+			return base;
+		}
+		if (thresholdExceeded || (System.nanoTime() - nextSample > 0)) {
+			sample();
+		}
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.round(base * scale)));
+	}
+
+	/* true if the heap was under pressure at the last sample (by the same tests that halve
+	 * the scale); with heap.adaptive=false, if the heap in use is above highWater now
+	 */
+	public boolean isUnderPressure() {
+		if (!adaptive) {
+			return liveFraction() > highWater;
+		}
+		if (thresholdExceeded || (System.nanoTime() - nextSample > 0)) {
+			sample();
+		}
+		return underPressure;
+	}
+
+	/* find the old-generation heap pools.  (Only those support plain usage thresholds; the
+	 * young pools do not, and would look full after every young collection anyway.)
+	 */
+	private void findPools() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if ((pool.getType() == MemoryType.HEAP) && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported()) {
+				if (pool.getUsage().getMax() > 0) {
+					pools.add(pool);
+				}
+			}
+		}
+	}
+
+	/* ask for a notification when a collection leaves an old-generation pool above highWater
+	 */
+	private void watchPools() {
+		for (MemoryPoolMXBean pool : pools) {
+			pool.setCollectionUsageThreshold((long) (pool.getUsage().getMax() * highWater));
+		}
+		if (ManagementFactory.getMemoryMXBean() instanceof NotificationEmitter) {
+			((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener((notification, handback) -> {
+				if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+					thresholdExceeded = true;
+				}
+			}, null, null);
+		}
+	}
+
+	/* re-evaluate the scale from the live heap and recent GC time
+	 */
+	private synchronized void sample() {
+		long nowNanos = System.nanoTime();
+		if (!thresholdExceeded && (nowNanos - nextSample <= 0)) {
+			return;		// another thread just sampled
+		}
+		boolean exceeded = thresholdExceeded;
+		thresholdExceeded = false;
+		nextSample = nowNanos + SAMPLE_NANOS;
+
+		double live = liveFraction();
+		long now = System.currentTimeMillis();
+		long gc = gcMillis();
+		double gcFraction = (double) (gc - lastGcMillis) / Math.max(1, now - lastSampleMillis);
+		lastGcMillis = gc;
+		lastSampleMillis = now;
+
+		double oldScale = scale;
+		// (live is negative if unknown, and then only GC time counts)
+		underPressure = exceeded || (live > highWater) || (gcFraction > 0.10);
+		if (underPressure) {
+			quietSamples = 0;
+			scale = Math.max(minScale, scale / 2);
+		} else if ((live >= 0) && (live < lowWater) && (gcFraction < 0.02)) {
+			quietSamples++;
+			if (quietSamples >= QUIET_SAMPLES) {
+				quietSamples = 0;
+				scale = Math.min(maxScale, scale + GROW_STEP);
+			}
+		} else {
+			quietSamples = 0;
+		}
+		if (scale != oldScale) {
+			logger.info("Heap " + ((live < 0) ? "?" : "" + Math.round(live * 100)) + "% live, " + Math.round(gcFraction * 100)
+				+ "% in GC" + (exceeded ? " (over threshold)" : "") + ": scaling chunk and batch sizes by "
+				+ String.format("%.2f", scale));
+		}
+	}
+
+	/* fraction of the old generation still in use after the last collection, or -1 if
+	 * the pools do not say (eg. before their first collection)
+	 */
+	private double liveFraction() {
+		double live = -1;
+		for (MemoryPoolMXBean pool : pools) {
+			MemoryUsage usage = pool.getCollectionUsage();
+			if ((usage != null) && (usage.getMax() > 0)) {
+				live = Math.max(live, (double) usage.getUsed() / usage.getMax());
+			}
+		}
+		return live;
+	}
+
+	/* total time spent in collections so far, in ms
+	 */
+	private static long gcMillis() {
+		long total = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total = total + Math.max(0, collector.getCollectionTime());
+		}
+		return total;
+	}
+
+	@Override
+	public String toString() {
+		if (!adaptive) {
+			return "HeapGovernor[fixed sizes]";
+		}
+		return "HeapGovernor[highWater=" + highWater + ", lowWater=" + lowWater + ", scale "
+			+ minScale + " to " + maxScale + ", " + pools.size() + " pool(s) watched]";
+	}
+}
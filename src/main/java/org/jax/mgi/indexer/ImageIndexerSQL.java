@@ -1,8 +1,6 @@
 package org.jax.mgi.indexer;
 
 import java.sql.ResultSet;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 
@@ -15,6 +13,8 @@ import org.jax.mgi.shr.fe.IndexConstants;
  * Copy this code to create a new indexer, and then just change the appropriate sections.
  * 
  * If you need chunking go and take the code from the sequence indexer.
+ * The main query runs through a DocumentPipeline, so rows are read, turned into
+ * documents and sent to Solr concurrently.
  * 
  * Note: Refactored during 5.x development
  */
@@ -47,45 +47,53 @@ public class ImageIndexerSQL extends Indexer {
 		logger.info ("Got alleles for " + imagesToAlleles.size() + " images");
 
 		logger.info("Getting all images");
-		ResultSet rs_overall = ex.executeProto("select i.mgi_id, i.image_key, isn.by_default, i.is_thumbnail, i.image_class " +   
+		String imageSQL = "select i.mgi_id, i.image_key, isn.by_default, i.is_thumbnail, i.image_class " +   
 				"from image i, image_sequence_num isn " + 
-				"where isn.image_key = i.image_key");
+				"where isn.image_key = i.image_key";
 
-		Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
-
-		while (rs_overall.next()) {
+		// read rows, build documents and send them to Solr concurrently
+		DocumentPipeline<ImageRow> pipeline = new DocumentPipeline<ImageRow>(this, 4, 10000);
+		pipeline.run(imageSQL, rs -> new ImageRow(rs), row -> {
 			SolrInputDocument doc = new SolrInputDocument();
-			doc.addField(IndexConstants.IMAGE_KEY, rs_overall.getString("image_key"));
-			doc.addField(IndexConstants.IMAGE_ID, rs_overall.getString("mgi_id"));
-			doc.addField(IndexConstants.BY_DEFAULT, rs_overall.getString("by_default"));
-			doc.addField(IndexConstants.IS_THUMB, rs_overall.getString("is_thumbnail"));
-			doc.addField(IndexConstants.IMAGE_CLASS, rs_overall.getString("image_class"));
+			doc.addField(IndexConstants.IMAGE_KEY, row.imageKey);
+			doc.addField(IndexConstants.IMAGE_ID, row.mgiId);
+			doc.addField(IndexConstants.BY_DEFAULT, row.byDefault);
+			doc.addField(IndexConstants.IS_THUMB, row.isThumbnail);
+			doc.addField(IndexConstants.IMAGE_CLASS, row.imageClass);
 
 			// markers for a phenotype image
-			if (imagesToMarkers.containsKey(rs_overall.getString("image_key"))) {
-				for (String markerKey: imagesToMarkers.get(rs_overall.getString("image_key"))) {
+			if (imagesToMarkers.containsKey(row.imageKey)) {
+				for (String markerKey: imagesToMarkers.get(row.imageKey)) {
 					doc.addField(IndexConstants.MRK_KEY, markerKey);
 				}
 			}
 
 			// alleles for a phenotype image
-			if (imagesToAlleles.containsKey(rs_overall.getString("image_key"))) {
-				for (String alleleKey: imagesToAlleles.get(rs_overall.getString("image_key"))) {
+			if (imagesToAlleles.containsKey(row.imageKey)) {
+				for (String alleleKey: imagesToAlleles.get(row.imageKey)) {
 					doc.addField(IndexConstants.ALL_KEY, alleleKey);
 				}
-			}                  
-
-			docs.add(doc);
-
-			if (docs.size() > 10000) {
-				logger.info("Adding a stack of the documents to Solr");
-				writeDocs(docs);
-				docs = new ArrayList<SolrInputDocument>();
-				logger.info("Done adding to solr, Moving on");
 			}
-		}
-		writeDocs(docs);
+			return doc;
+		});
 		commit();
 
 	}
+
+	// one row of the image query, as handed from the pipeline's reader to its transformers
+	private static class ImageRow {
+		String imageKey;
+		String mgiId;
+		String byDefault;
+		String isThumbnail;
+		String imageClass;
+
+		ImageRow(ResultSet rs) throws Exception {
+			imageKey = rs.getString("image_key");
+			mgiId = rs.getString("mgi_id");
+			byDefault = rs.getString("by_default");
+			isThumbnail = rs.getString("is_thumbnail");
+			imageClass = rs.getString("image_class");
+		}
+	}
 }
@@ -0,0 +1,180 @@
+package org.jax.mgi.indexer;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.request.CoreAdminRequest;
+import org.apache.solr.common.params.CoreAdminParams;
+import org.apache.solr.common.util.NamedList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * IndexPublisher
+ *
+ * Decides which Solr core (or collection) an indexer writes into, and makes the
+ * finished build live.  Chosen by index.publish in config.properties:
+ * 	direct - (default) write straight into the live core, as we always have
+ * 	swap - write into a staging core (the live name plus index.staging.suffix, which
+ * 		must already exist with the same configuration) and then swap it with the
+ * 		live core using the CoreAdmin SWAP command
+ * 	alias - write into whichever of the collections <name>_a and <name>_b is not
+ * 		currently behind the alias <name>, then point the alias at it
+ * With swap or alias, the live index keeps serving queries untouched for the whole
+ * build, a failed build is never published, and the previous build stays on the
+ * other core or collection until the next run.  That run starts by emptying it the
+ * cheap way:  the staging core is unloaded with its index and data directory and
+ * created again on the same instanceDir (whose conf/ stays), and the inactive
+ * collection is deleted and created again with the same configset, shards and
+ * replicas.  (Deleting every document instead would leave Solr to merge away the
+ * whole previous build.)
+ */
+public class IndexPublisher {
+
+	public static final String DIRECT = "direct";
+	public static final String SWAP = "swap";
+	public static final String ALIAS = "alias";
+
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private String baseUrl;
+	private String liveName;
+	private String mode;
+	private String stagingSuffix;
+	private String buildTarget = null;
+
+	public IndexPublisher(Properties props, String liveName) {
+		this.baseUrl = props.getProperty("index.url");
+		this.liveName = liveName;
+		this.mode = props.getProperty("index.publish", DIRECT).trim().toLowerCase();
+		this.stagingSuffix = props.getProperty("index.staging.suffix", "_staging").trim();
+	}
+
+	/* figure out (and check) the core or collection to build into, and empty it unless it
+	 * is the live one; returns its name
+	 */
+	public String prepare() throws Exception {
+		if (SWAP.equals(mode)) {
+			buildTarget = liveName + stagingSuffix;
+			try (SolrClient admin = adminClient()) {
+				NamedList<Object> status = CoreAdminRequest.getStatus(buildTarget, admin).getCoreStatus(buildTarget);
+				if ((status == null) || (status.get("instanceDir") == null)) {
+					throw new Exception("Staging core " + buildTarget + " does not exist; create it with the same configuration as " + liveName);
+				}
+				recreateCore(admin, status);
+			}
+		} else if (ALIAS.equals(mode)) {
+			String current = null;
+			try (SolrClient admin = adminClient()) {
+				Map<String,String> aliases = CollectionAdminRequest.listAliases().process(admin).getAliases();
+				if (aliases != null) {
+					current = aliases.get(liveName);
+				}
+				if ((liveName + "_a").equals(current)) {
+					buildTarget = liveName + "_b";
+				} else {
+					buildTarget = liveName + "_a";
+				}
+				logger.info("Alias " + liveName + " currently points to " + current);
+				recreateCollection(admin);
+			}
+		} else {
+			buildTarget = liveName;
+		}
+		logger.info("Building " + liveName + " in " + buildTarget + " (index.publish=" + mode + ")");
+		return buildTarget;
+	}
+
+	/* true if we build directly into the live core, so it still holds the previous build
+	 */
+	public boolean buildsInPlace() {
+		return !SWAP.equals(mode) && !ALIAS.equals(mode);
+	}
+
+	/* make the finished build live (a no-op when building directly into the live core)
+	 */
+	public void publish() throws Exception {
+		if (SWAP.equals(mode)) {
+			try (SolrClient admin = adminClient()) {
+				CoreAdminRequest swap = new CoreAdminRequest();
+				swap.setAction(CoreAdminParams.CoreAdminAction.SWAP);
+				swap.setCoreName(liveName);
+				swap.setOtherCoreName(buildTarget);
+				swap.process(admin);
+			}
+			logger.info("Swapped " + buildTarget + " in as " + liveName);
+		} else if (ALIAS.equals(mode)) {
+			try (SolrClient admin = adminClient()) {
+				CollectionAdminRequest.createAlias(liveName, buildTarget).process(admin);
+			}
+			logger.info("Pointed alias " + liveName + " at " + buildTarget);
+		}
+	}
+
+	/* empty the staging core:  unload it, deleting its index and data directory, and create
+	 * it again on the same instanceDir (and so the same conf/)
+	 */
+	private void recreateCore(SolrClient admin, NamedList<Object> status) throws Exception {
+		CoreAdminRequest.Unload unload = new CoreAdminRequest.Unload(true);
+		unload.setCoreName(buildTarget);
+		unload.setDeleteDataDir(true);
+		unload.setDeleteInstanceDir(false);
+		unload.process(admin);
+
+		CoreAdminRequest.Create create = new CoreAdminRequest.Create();
+		create.setCoreName(buildTarget);
+		create.setInstanceDir(status.get("instanceDir").toString());
+		if (status.get("config") != null) {
+			create.setConfigName(status.get("config").toString());
+		}
+		if (status.get("schema") != null) {
+			create.setSchemaName(status.get("schema").toString());
+		}
+		create.process(admin);
+		logger.info("Recreated empty staging core " + buildTarget + " in " + status.get("instanceDir"));
+	}
+
+	/* empty the inactive collection:  delete it and create it again with the same configset,
+	 * number of shards and replicas per shard (if it does not exist yet, it must be created
+	 * by hand first, like the staging core)
+	 */
+	private void recreateCollection(SolrClient admin) throws Exception {
+		NamedList<Object> response = CollectionAdminRequest.getClusterStatus().setCollectionName(buildTarget).process(admin).getResponse();
+		Object collection = lookup(lookup(lookup(response, "cluster"), "collections"), buildTarget);
+		Object configName = lookup(collection, "configName");
+		Object shards = lookup(collection, "shards");
+		Object replicas = lookup(collection, "replicationFactor");
+		if ((configName == null) || !(shards instanceof Map)) {
+			throw new Exception("Collection " + buildTarget + " does not exist; create it with the same configuration as " + liveName);
+		}
+		int shardCount = ((Map<?,?>) shards).size();
+		int replicaCount = (replicas == null) ? 1 : Integer.parseInt(replicas.toString());
+
+		CollectionAdminRequest.deleteCollection(buildTarget).process(admin);
+		CollectionAdminRequest.createCollection(buildTarget, configName.toString(), shardCount, replicaCount).process(admin);
+		logger.info("Recreated empty collection " + buildTarget + " (" + configName + ", " + shardCount
+			+ " shard(s) x " + replicaCount + " replica(s))");
+	}
+
+	/* the value for 'key' in a cluster status response, which nests NamedLists and Maps
+	 */
+	private static Object lookup(Object container, String key) {
+		if (container instanceof NamedList) {
+			return ((NamedList<?>) container).get(key);
+		}
+		if (container instanceof Map) {
+			return ((Map<?,?>) container).get(key);
+		}
+		return null;
+	}
+
+	private SolrClient adminClient() {
+		return new HttpSolrClient.Builder(baseUrl)
+			.withConnectionTimeout(60000)
+			.withSocketTimeout(3 * 60000)
+			.build();
+	}
+}
@@ -1,10 +1,15 @@
 package org.jax.mgi.indexer;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -13,11 +18,24 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
-import org.apache.solr.client.solrj.impl.ConcurrentUpdateSolrClient;
+import org.apache.solr.client.solrj.request.schema.SchemaRequest;
 import org.apache.solr.common.SolrInputDocument;
+import org.jax.mgi.reporting.IndexerMetrics;
+import org.jax.mgi.reporting.MetricsRegistry;
 import org.jax.mgi.shr.SQLExecutor;
+import org.jax.mgi.shr.VocabTermCache;
+import org.jax.mgi.shr.VocabTermCacheRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,17 +51,57 @@ import org.slf4j.LoggerFactory;
 
 public abstract class Indexer implements Runnable {
 
-	private ConcurrentUpdateSolrClient client = null;
+	private SolrClient client = null;
+	private DocumentSink sink = null;		// where writeDocs() puts documents:  through 'client', or to files
 	public SQLExecutor ex = new SQLExecutor();
 
 	public Logger logger = LoggerFactory.getLogger(this.getClass());
 	private String solrIndexName = "";
+	private IndexPublisher publisher = null;
 	protected DecimalFormat df = new DecimalFormat("#.00");
 	protected Runtime runtime = Runtime.getRuntime();
 	public boolean indexPassed = true;
 
+	// counters and timings for this indexer, by phase (reported by Main at the end of the run);
+	// registered when run() starts, so only indexers that actually run are reported
+	protected IndexerMetrics metrics;
+
+	// system property naming the configuration to use instead of config.properties
+	public static final String CONFIG_PROPERTY = "feindexer.config";
+
+	// vocabularies this indexer holds in the shared VocabTermCacheRegistry
+	private Set<String> heldVocabs = new HashSet<String>();
+
 	private int docsSinceCommit = 0; // number of documents since the last commit
-	private int docsSinceCommitThreshold = 100000; // once we have this many uncommitted docs, do a commit
+
+	// when and how we commit (see CommitPolicy), and the JVM-wide turn-taking for commits
+	private CommitPolicy commitPolicy = null;
+	private CommitCoordinator commitCoordinator = null;
+
+	// in delta mode (index.delta), the document hashes of the previous build and this one,
+	// and the Solr field that identifies a document; null when not tracking documents
+	private DeltaManifest delta = null;
+	private String uniqueKeyField = null;
+	private AtomicInteger docsUnchanged = new AtomicInteger(0);
+	private AtomicBoolean docsWithoutKey = new AtomicBoolean(false);
+
+	// number of key-range chunks that processKeyRanges() works on at once (each with its
+	// own database connection); configurable via indexer.chunkWorkers in config.properties
+	protected int chunkWorkers = 4;
+
+	// most chunk workers any indexer may use, so that maxThreads indexers at once stay
+	// within db.pool.size (set by Main; see limitChunkWorkers)
+	private static volatile int chunkWorkerLimit = Integer.MAX_VALUE;
+
+	// how long (in ms) a chunk worker waits for a pooled database connection before giving up
+	protected long chunkLeaseWaitMs = 10000;
+
+	// number of caches a CacheWarmer loads at once (each with its own database connection);
+	// configurable via indexer.cacheLoaders in config.properties
+	protected int cacheLoaders = 4;
+
+	// scales chunk and batch sizes to the free heap (see adaptiveSize)
+	private HeapGovernor heapGovernor = null;
 
 	// Variables for handling threads
 	private List<Thread> currentThreads = new ArrayList<Thread>();
@@ -60,13 +118,36 @@ public abstract class Indexer implements Runnable {
 		System.setProperty("solr.cloud.client.stallTime", "119999");
 	}
 
+	/* let no indexer use more than 'workers' chunk workers, whatever indexer.chunkWorkers says
+	 */
+	public static void limitChunkWorkers(int workers) {
+		chunkWorkerLimit = Math.max(1, workers);
+	}
+
+	/* open the configuration:  by default config.properties on the classpath, or the
+	 * file (or else classpath resource) named by -Dfeindexer.config, so a jar that
+	 * bundles feindexer (eg. the benchmarks) can say which configuration it means;
+	 * returns null if there is none
+	 */
+	public static InputStream openConfig() throws IOException {
+		String name = System.getProperty(CONFIG_PROPERTY);
+		if (name == null) {
+			return Indexer.class.getClassLoader().getResourceAsStream("config.properties");
+		}
+		File file = new File(name);
+		if (file.isFile()) {
+			return new FileInputStream(file);
+		}
+		return Indexer.class.getClassLoader().getResourceAsStream(name);
+	}
+
 	public void setupConnection() throws Exception {
 		logger.info("Setting up the properties");
 
-		InputStream in = Indexer.class.getClassLoader().getResourceAsStream("config.properties");
+		InputStream in = openConfig();
 		Properties props = new Properties();
 		if (in == null) {
-			logger.info("resource config.properties not found");
+			logger.info("resource " + System.getProperty(CONFIG_PROPERTY, "config.properties") + " not found");
 		}
 		try {
 			props.load(in);
@@ -76,16 +157,45 @@ public abstract class Indexer implements Runnable {
 		}
 		logger.info("db connection info: " + ex);
 
-		String solrUrl = props.getProperty("index.url") + "/" + solrIndexName;
+		chunkWorkers = Integer.parseInt(props.getProperty("indexer.chunkWorkers", "" + chunkWorkers).trim());
+		cacheLoaders = Integer.parseInt(props.getProperty("indexer.cacheLoaders", "" + cacheLoaders).trim());
+		heapGovernor = HeapGovernor.getGovernor(props);
+
+		commitPolicy = new CommitPolicy(props);
+		commitCoordinator = CommitCoordinator.getCoordinator(
+			Integer.parseInt(props.getProperty("commit.maxConcurrent", "1").trim()),
+			Long.parseLong(props.getProperty("commit.minSpacingMs", "30000").trim()));
+		logger.info("Committing with " + commitPolicy + " via " + commitCoordinator);
+
+		// export mode:  no Solr at all, just files to be imported later
+		if (DocumentExport.isExporting()) {
+			DocumentExport export = new DocumentExport(solrIndexName, props, metrics);
+			sink = export;
+			logger.info("Exporting documents to " + export.getDirectory());
+			logger.info("Done with setupConnection()");
+			return;
+		}
+
+		// the core we write into (the live one, unless building in a staging core),
+		// or a local core when building offline
+		String buildTarget = solrIndexName;
+		String solrUrl;
+		if (EmbeddedCores.isEnabled()) {
+			solrUrl = "embedded core " + solrIndexName;
+		} else {
+			publisher = new IndexPublisher(props, solrIndexName);
+			buildTarget = publisher.prepare();
+			solrUrl = props.getProperty("index.url") + "/" + buildTarget;
+		}
 
 		logger.info("Setting up index: " + solrUrl);
 		try {
-			client = new ConcurrentUpdateSolrClient.Builder(solrUrl)
-				.withQueueSize(160)
-				.withThreadCount(4)
-				.withConnectionTimeout(3 * 60000)
-				.withSocketTimeout(3 * 60000)
-				.build();
+			if (EmbeddedCores.isEnabled()) {
+				client = EmbeddedCores.getClient(solrIndexName);
+			} else {
+				client = SolrTransport.getUpdateClient(props, solrUrl);
+			}
+			sink = new SolrWriter(solrIndexName, client, props, metrics);
 		} catch (Throwable e) {
 			logger.info("Failed to set up solr client:");
 			e.printStackTrace();
@@ -94,39 +204,174 @@ public abstract class Indexer implements Runnable {
 
 		logger.info("Working with index: " + solrUrl);
 
+		if (Boolean.parseBoolean(props.getProperty("index.delta", "false").trim()) && setupDelta(props)) {
+			logger.info("Delta build of " + buildTarget + " against " + delta.getPreviousCount() + " documents from the last build");
+			logger.info("Done with setupConnection()");
+			return;
+		}
+
+		// a staging core or collection was emptied by recreating it (see IndexPublisher),
+		// so there is nothing to delete and no need to commit before building
+		if ((publisher != null) && !publisher.buildsInPlace()) {
+			logger.info("Done with setupConnection()");
+			return;
+		}
+
 		try {
-			logger.info("Deleting current index: " + solrIndexName);
+			logger.info("Deleting current index: " + buildTarget);
 			client.deleteByQuery("*:*");
 			logger.info("After delete statement");
-			commit();
+			// (one of the two commits that wait for a turn; the other is finalCommit)
+			checkMemory();
+			intermediateCommit(true, true);
 			logger.info("After commit statement");
 		} catch (Throwable e) {
-			logger.info("Failed to delete documents from: " + solrIndexName);
+			logger.info("Failed to delete documents from: " + buildTarget);
 			e.printStackTrace();
 			throw e;
 		}
 		logger.info("Done with setupConnection()");
 	}
 
+	/*
+	 * Sets up delta mode.  Returns true if the previous build's manifest was loaded,
+	 * so only changed documents need sending; false means a full rebuild (which still
+	 * records a manifest for next time, when we can tell documents apart).  Delta
+	 * builds need a core that still holds the previous build, i.e. index.publish=direct,
+	 * and documents whose keys stay the same from one build to the next.  Either way,
+	 * the old manifest is removed before the core changes (see DeltaManifest).
+	 */
+	private boolean setupDelta(Properties props) throws Exception {
+		DeltaManifest manifest = new DeltaManifest(new File(props.getProperty("index.delta.dir", "manifests"), solrIndexName + ".manifest"));
+		if ((publisher != null) && !publisher.buildsInPlace()) {
+			logger.info("Delta mode needs index.publish=direct; doing a full rebuild of " + solrIndexName);
+			manifest.discard();
+			return false;
+		}
+		if (!hasStableKeys()) {
+			logger.info("Documents in " + solrIndexName + " have no stable keys; doing a full rebuild without a delta manifest");
+			manifest.discard();
+			return false;
+		}
+		uniqueKeyField = new SchemaRequest.UniqueKey().process(client).getUniqueKey();
+		if (uniqueKeyField == null) {
+			logger.info("No unique key in the schema for " + solrIndexName + "; doing a full rebuild");
+			manifest.discard();
+			return false;
+		}
+		delta = manifest;
+		boolean loaded = delta.load();
+		delta.discard();
+		if (!loaded) {
+			logger.info("No delta manifest for " + solrIndexName + "; doing a full rebuild");
+			return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Whether each document keeps the same unique key from one build to the next, as
+	 * delta mode needs.  Indexers that number their documents as they build them
+	 * return false, and are always fully rebuilt.
+	 */
+	protected boolean hasStableKeys() {
+		return true;
+	}
+
 	/*
 	 * Code for loading a solr index must be implemented here
 	 */
 	abstract void index() throws Exception;
 
+	/* name of the Solr index (core) this indexer builds
+	 */
+	String getIndexName() {
+		return solrIndexName;
+	}
+
 	public void run() {
+		// (the "setup" phase starts now, not while this indexer waits for its turn)
+		metrics = MetricsRegistry.forIndexer(solrIndexName);
+		ex.setMetrics(metrics);
 		try {
 			setupConnection();
-			index();
+			startPhase("index");
+			if (DocumentExport.isImporting()) {
+				long docs = DocumentExport.importDocs(solrIndexName, this::writeDocs);
+				logger.info("Imported " + docs + " documents into " + solrIndexName);
+			} else {
+				index();
+			}
+			startPhase("finish");
 			closeConnection();
 			logger.info("Completed run of " + getClass());
 		} catch (Exception e) {
 			indexPassed = false;
 			logger.error("Indexer: " + getClass() + " failed.", e);
+		} finally {
+			// give the database connection back (to the pool, if pooled)
+			try {
+				ex.cleanup();
+			} catch (Exception e) {
+				logger.info("Failed to clean up database connection: " + e.getMessage());
+			}
+			releaseVocabCaches();
+			if (sink != null) {
+				sink.shutdown();
+			}
+			metrics.finish();
 		}
 	}
 
-	// closes down the connection and makes sure a last commit is run
-	public void closeConnection() {
+	/*
+	 * Returns the term cache for 'vocabName', shared with any other indexer in this run
+	 * that uses the same vocabulary.  It is held until releaseVocabCache() or the end of
+	 * run(); treat it as read-only.
+	 */
+	protected VocabTermCache getVocabCache(String vocabName) throws SQLException {
+		synchronized (heldVocabs) {
+			VocabTermCache cache = VocabTermCacheRegistry.acquire(vocabName, ex);
+			if (!heldVocabs.add(vocabName)) {
+				// already held; keep just the one hold
+				VocabTermCacheRegistry.release(vocabName);
+			}
+			return cache;
+		}
+	}
+
+	/*
+	 * Lets go of the term cache for 'vocabName' before the end of the run, for
+	 * vocabularies this indexer is done with.
+	 */
+	protected void releaseVocabCache(String vocabName) {
+		synchronized (heldVocabs) {
+			if (heldVocabs.remove(vocabName)) {
+				VocabTermCacheRegistry.release(vocabName);
+			}
+		}
+	}
+
+	private void releaseVocabCaches() {
+		synchronized (heldVocabs) {
+			for (String vocabName : heldVocabs) {
+				VocabTermCacheRegistry.release(vocabName);
+			}
+			heldVocabs.clear();
+		}
+	}
+
+	/*
+	 * Starts a new phase in this indexer's metrics; whatever is recorded from now on
+	 * (rows read, documents sent, ...) is reported under 'name'.  run() already marks
+	 * the setup, index and finish phases; indexers can split up index() further.
+	 */
+	protected void startPhase(String name) {
+		metrics.startPhase(name);
+	}
+
+	// closes down the connection and makes sure a last commit is run, then publishes
+	// the build (if it was made in a staging core or collection)
+	public void closeConnection() throws Exception {
 
 		logger.info("Indexer: Waiting for " + currentThreads.size() + " Threads to finish, RAM used: " + memoryUsed());
 
@@ -139,32 +384,140 @@ public abstract class Indexer implements Runnable {
 			}
 		}
 
-		commit(true);
+		if (delta != null) {
+			deleteVanished();
+		}
+		finalCommit();
 		logger.info("Solr Documents are flushed to the server shuting down: " + solrIndexName);
-		client.close();
+		sink.close();
+		if (client != null) {
+			client.close();
+		}
+
+		if (publisher != null) {
+			publisher.publish();
+		}
+
+		// only now is this build safe to compare the next one against
+		if (delta != null) {
+			// (a rejected document's hash is in the manifest, but the document is not in the core)
+			int rejected = (sink instanceof SolrWriter) ? ((SolrWriter) sink).getRejectedDocs() : 0;
+			if (docsWithoutKey.get()) {
+				logger.info("Some documents had no " + uniqueKeyField + "; not saving a delta manifest for " + solrIndexName);
+			} else if (rejected > 0) {
+				logger.info("Solr rejected " + rejected + " document(s); not saving a delta manifest for " + solrIndexName
+					+ ", so the next build is a full one");
+			} else {
+				delta.save();
+				logger.info("Saved delta manifest for " + solrIndexName + " (" + docsUnchanged.get() + " documents unchanged)");
+			}
+		}
+	}
+
+	/* delta mode:  delete the documents from the last build that this one did not produce
+	 */
+	private void deleteVanished() throws Exception {
+		List<String> vanished = delta.getVanishedKeys();
+		logger.info("Deleting " + vanished.size() + " documents no longer in " + solrIndexName);
+		for (int i = 0; i < vanished.size(); i += 1000) {
+			sink.delete(vanished.subList(i, Math.min(i + 1000, vanished.size())));
+		}
 	}
 
 	public void commit() {
 		commit(true);
 	}
 
+	/*
+	 * Asks for an intermediate commit, which the commit policy turns into a hard
+	 * commit (waiting for the new searcher if 'wait'), a soft commit, or nothing at all
+	 * in commitWithin mode.  Like the automatic commits in writeDocs(), it is skipped
+	 * if another indexer is committing or has just committed; the commit policy and the
+	 * final commit cover the documents either way, so no indexer stalls on the
+	 * CommitCoordinator in the middle of a build.
+	 */
 	public void commit(boolean wait) {
+		checkMemory();
+		intermediateCommit(wait, false);
+	}
+
+	/* returns true if a commit was made; 'force' waits for a turn rather than skipping
+	 */
+	private boolean intermediateCommit(boolean wait, boolean force) {
+		if ((client == null) || !commitPolicy.commitsDuringBuild()) {
+			return false;
+		}
+		// the commit has to cover what writeDocs() has handed over so far; wait for that
+		// before taking a commit slot, so other indexers' commits are not held up meanwhile
+		try {
+			sink.flush();
+		} catch (IOException e) {
+			logger.info("Exception in commit");
+			e.printStackTrace();
+			return false;
+		}
+		try {
+			if (force) {
+				commitCoordinator.begin();
+			} else if (!commitCoordinator.tryBegin()) {
+				logger.info("Deferring Solr commit; another commit is running or just ran");
+				return false;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		long startNanos = System.nanoTime();
 		try {
 			logger.info("Waiting for Solr Commit");
-			checkMemory();
-			if (wait) {
+			if (commitPolicy.isSoft()) {
+				client.commit(wait, wait, true);
+			} else if (wait) {
 				client.commit(wait, wait);
 			} else {
 				client.commit();
 			}
+			metrics.solrCommit(System.nanoTime() - startNanos);
+			return true;
 		} catch (SolrServerException | IOException e) {
 			logger.info("Exception in commit");
 			e.printStackTrace();
+			return false;
+		} finally {
+			commitCoordinator.end();
+		}
+	}
+
+	/*
+	 * The one hard commit every build ends with (whatever the commit policy), waiting
+	 * for the new searcher, then an optimize if the policy asks for one.  Failures are
+	 * thrown, as the build is not usable without this commit.
+	 */
+	private void finalCommit() throws Exception {
+		checkMemory();
+		sink.flush();
+		if (client == null) {
+			return;		// exporting; nothing to commit
+		}
+		commitCoordinator.begin();
+		try {
+			logger.info("Waiting for final Solr Commit");
+			long startNanos = System.nanoTime();
+			client.commit(true, true);
+			metrics.solrCommit(System.nanoTime() - startNanos);
+			if (commitPolicy.isOptimize()) {
+				logger.info("Optimizing " + solrIndexName + " to " + commitPolicy.getMaxSegments() + " segment(s)");
+				client.optimize(true, true, commitPolicy.getMaxSegments());
+			}
+		} finally {
+			commitCoordinator.end();
 		}
 	}
 
+	/* log the heap usage if the HeapGovernor finds the heap under pressure
+	 */
 	private void checkMemory() {
-		if (memoryPercent() > 0.95) {
+		if ((heapGovernor != null) && heapGovernor.isUnderPressure()) {
 			logger.info("Memory usage is HIGH!!!: " + memoryUsed());
 			printMemory();
 		}
@@ -230,25 +583,289 @@ public abstract class Indexer implements Runnable {
 	/*
 	 * writes documents to solr. Best practice is to write small batches of
 	 * documents to Solr and to commit less frequently. (TIP: this method will
-	 * commit documents automatically using commitWithin) Here we also spawn a new
-	 * process for each batch of documents.
+	 * commit documents automatically, every commit.interval documents or through
+	 * commitWithin, depending on the commit policy)  The documents are sent in the
+	 * background (see SolrWriter), or written to files in export mode (see
+	 * DocumentExport); if that has failed for good, this throws an UncheckedIOException,
+	 * so the indexer stops rather than building an incomplete index.
+	 * The time the calling thread spent since its last batch, outside the database, is
+	 * recorded as the time spent building these documents.
 	 */
 
 	public void writeDocs(Collection<SolrInputDocument> docs) {
 		if (docs == null || docs.size() == 0)
 			return;
 
+		metrics.batchBuilt(docs.size());
+		sendDocs(docs);
+		// (waiting on Solr is not building documents)
+		metrics.resetThreadClock();
+	}
+
+	/* writeDocs() for documents whose building has been recorded already (DocumentPipeline)
+	 */
+	void sendDocs(Collection<SolrInputDocument> docs) {
+		if (docs == null || docs.size() == 0)
+			return;
+
+		if (delta != null) {
+			docs = changedDocs(docs);
+			if (docs.isEmpty()) {
+				return;
+			}
+		}
+
 		try {
-			client.add(docs);
-			docsSinceCommit = docsSinceCommit + docs.size();
+			sink.add(docs, commitPolicy.getCommitWithinMs());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 
-			if (docsSinceCommit >= docsSinceCommitThreshold) {
-				commit();
+		// chunk workers share this client, so keep the commit bookkeeping consistent
+		int pending = 0;
+		synchronized (this) {
+			docsSinceCommit = docsSinceCommit + docs.size();
+			if (commitPolicy.commitsDuringBuild() && (docsSinceCommit >= commitPolicy.getInterval())) {
+				pending = docsSinceCommit;
 				docsSinceCommit = 0;
 			}
-		} catch (SolrServerException | IOException e) {
-			logger.info("Exception in writeDocs");
-			e.printStackTrace();
+		}
+		// once commits have been put off for two intervals, wait for a turn
+		if ((pending > 0) && !intermediateCommit(true, pending >= 2 * commitPolicy.getInterval())) {
+			synchronized (this) {
+				docsSinceCommit = docsSinceCommit + pending;
+			}
+		}
+	}
+
+	/* delta mode:  record each document in the manifest and keep only those that are new or changed
+	 */
+	private Collection<SolrInputDocument> changedDocs(Collection<SolrInputDocument> docs) {
+		List<SolrInputDocument> changed = new ArrayList<SolrInputDocument>();
+		for (SolrInputDocument doc : docs) {
+			Object key = doc.getFieldValue(uniqueKeyField);
+			if (key == null) {
+				docsWithoutKey.set(true);
+				changed.add(doc);
+			} else if (delta.isChanged(key.toString(), doc)) {
+				changed.add(doc);
+			} else {
+				docsUnchanged.incrementAndGet();
+			}
+		}
+		return changed;
+	}
+
+	/*
+	 * Returns the chunk or batch size to use now in place of the fixed size 'base':
+	 * smaller while the heap is under pressure, larger while it has room to spare
+	 * (see HeapGovernor).  Cheap enough to call once per document.
+	 */
+	protected int adaptiveSize(int base) {
+		if (heapGovernor == null) {
+			return base;
+		}
+		return heapGovernor.size(base);
+	}
+
+	/*
+	 * Returns a CacheWarmer for loading this indexer's start-up caches in parallel:
+	 * declare each cache*() method with add(), then run() them all.
+	 */
+	protected CacheWarmer cacheWarmer() {
+		return new CacheWarmer(ex, cacheLoaders, chunkLeaseWaitMs);
+	}
+
+	/*
+	 * One chunk of work for processKeyRanges(), covering the keys from startKey to
+	 * endKey.  Whether each end is inclusive is up to the implementation, so indexers
+	 * can keep the conditions their queries already use.
+	 */
+	protected interface KeyRangeTask {
+		public void process(int startKey, int endKey) throws Exception;
+	}
+
+	/*
+	 * Called once on each chunk worker (with that worker's database connection
+	 * active) before it processes its first chunk.  Override to rebuild any
+	 * connection-specific state the chunks rely on, such as temp tables.
+	 */
+	protected void setupChunkWorker() throws Exception {
+	}
+
+	/*
+	 * Most chunk workers this indexer can make good use of, whatever indexer.chunkWorkers
+	 * says (no limit by default).  Override for indexers whose setupChunkWorker() is
+	 * costly enough that more workers would not pay for it.
+	 */
+	protected int maxChunkWorkers() {
+		return Integer.MAX_VALUE;
+	}
+
+	/*
+	 * How the queries of a KeyRangeTask bound their keys, for planKeyRanges().
+	 * START_INCLUSIVE:  key >= startKey and key < endKey
+	 * END_INCLUSIVE:  key > startKey and key <= endKey
+	 */
+	protected enum KeyBounds { START_INCLUSIVE, END_INCLUSIVE }
+
+	/*
+	 * Plans chunks holding about rowsPerChunk rows each, rather than a fixed span of
+	 * keys, so sparse or skewed key spaces give neither empty chunks nor huge ones.
+	 * 'keyQuery' returns the key of each row to be processed, in its first column (in
+	 * any order); a key may repeat, once per row it stands for -- to weight each marker
+	 * by its annotations, say.  The chunk boundaries fall at those rows' quantiles, and
+	 * never split the rows of one key between chunks.  Each chunk is returned as
+	 * { startKey, endKey }, bounded as 'bounds' says, ready for processKeyRanges().
+	 */
+	protected List<int[]> planKeyRanges(String keyQuery, int rowsPerChunk, KeyBounds bounds) throws SQLException {
+		int[] keys = new int[1 << 16];
+		int count = 0;
+		ResultSet rs = ex.executeProto(keyQuery, 100000);
+		while (rs.next()) {
+			if (count == keys.length) {
+				keys = Arrays.copyOf(keys, count * 2);
+			}
+			keys[count++] = rs.getInt(1);
+		}
+		rs.close();
+		Arrays.sort(keys, 0, count);
+
+		List<int[]> chunks = new ArrayList<int[]>();
+		int first = 0;
+		while (first < count) {
+			int next = Math.min(first + rowsPerChunk, count);
+			while ((next < count) && (keys[next] == keys[next - 1])) {
+				next++;
+			}
+			if (bounds == KeyBounds.START_INCLUSIVE) {
+				chunks.add(new int[] { keys[first], keys[next - 1] + 1 });
+			} else {
+				chunks.add(new int[] { keys[first] - 1, keys[next - 1] });
+			}
+			first = next;
+		}
+		logger.info("Planned " + chunks.size() + " chunks of up to " + rowsPerChunk + " rows (" + count + " rows in all)");
+		return chunks;
+	}
+
+	/*
+	 * Splits the keys from firstKey through lastKey into chunks of chunkSize keys,
+	 * (firstKey to firstKey + chunkSize, then onward) and processes them as below.
+	 */
+	protected void processKeyRanges(int firstKey, int lastKey, int chunkSize, final KeyRangeTask task) throws Exception {
+		List<int[]> chunks = new ArrayList<int[]>();
+		for (int startKey = firstKey; startKey <= lastKey; startKey = startKey + chunkSize) {
+			chunks.add(new int[] { startKey, startKey + chunkSize });
+		}
+		logger.info("Split keys " + firstKey + " to " + lastKey + " into chunks of " + chunkSize + " keys");
+		processKeyRanges(chunks, task);
+	}
+
+	/*
+	 * Passes each of the given { startKey, endKey } chunks (from planKeyRanges(), say)
+	 * to 'task'.  Up to 'chunkWorkers' chunks (but no more than maxChunkWorkers(), nor
+	 * the limit set by Main) are processed at once:  the current thread
+	 * works through chunks on its usual connection, while helper threads each lease a
+	 * connection of their own from 'ex' (see SQLExecutor.lease).  All of them send
+	 * documents through writeDocs() to this indexer's single Solr client.  A helper
+	 * that cannot get a connection within chunkLeaseWaitMs just stays out, so a busy
+	 * connection pool only reduces parallelism.  If any chunk fails, no further chunks
+	 * are started and the first failure is rethrown.
+	 */
+	protected void processKeyRanges(List<int[]> chunkList, final KeyRangeTask task) throws Exception {
+		final ConcurrentLinkedQueue<int[]> chunks = new ConcurrentLinkedQueue<int[]>(chunkList);
+
+		final int chunkCount = chunks.size();
+		final AtomicBoolean failed = new AtomicBoolean(false);
+		final AtomicInteger chunksDone = new AtomicInteger(0);
+
+		int workers = Math.min(Math.min(chunkWorkers, chunkWorkerLimit), maxChunkWorkers());
+		int helpers = Math.min(workers, chunkCount) - 1;
+		logger.info("Processing " + chunkCount + " chunks with up to " + (helpers + 1) + " worker(s)");
+
+		ExecutorService helperPool = null;
+		List<Future<Void>> results = new ArrayList<Future<Void>>();
+		if (helpers > 0) {
+			helperPool = Executors.newFixedThreadPool(helpers);
+			for (int i = 0; i < helpers; i++) {
+				results.add(helperPool.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						SQLExecutor.Lease lease = ex.tryLease(chunkLeaseWaitMs);
+						if (lease == null) {
+							logger.info("No database connection free; chunk worker not started");
+							return null;
+						}
+						try {
+							runChunkWorker(chunks, task, failed, chunksDone, chunkCount);
+						} finally {
+							lease.close();
+						}
+						return null;
+					}
+				}));
+			}
+			helperPool.shutdown();
+		}
+
+		Exception firstFailure = null;
+		try {
+			runChunkWorker(chunks, task, failed, chunksDone, chunkCount);
+		} catch (Exception e) {
+			firstFailure = e;
+		}
+
+		for (Future<Void> result : results) {
+			try {
+				result.get();
+			} catch (ExecutionException e) {
+				if (firstFailure == null) {
+					if (e.getCause() instanceof Exception) {
+						firstFailure = (Exception) e.getCause();
+					} else {
+						firstFailure = e;
+					}
+				}
+			}
+		}
+		if (firstFailure != null) {
+			throw firstFailure;
+		}
+	}
+
+	/* one worker's share of processKeyRanges(): set up, then take chunks until none are left
+	 */
+	private void runChunkWorker(ConcurrentLinkedQueue<int[]> chunks, KeyRangeTask task, AtomicBoolean failed, AtomicInteger chunksDone, int chunkCount) throws Exception {
+		try {
+			setupChunkWorker();
+			int[] chunk;
+			while (!failed.get() && ((chunk = chunks.poll()) != null)) {
+				metrics.resetThreadClock();
+				processChunk(task, chunk[0], chunk[1]);
+				logger.info("Finished chunk " + chunk[0] + " to " + chunk[1] + " (" + chunksDone.incrementAndGet() + " of " + chunkCount + ")");
+			}
+		} catch (Exception e) {
+			failed.set(true);
+			throw e;
+		} finally {
+			resetDupTracking();
+		}
+	}
+
+	/* pass one chunk to 'task' -- in smaller pieces if the heap is under pressure.  (Pieces
+	 * meet where one ends and the next starts, so either KeyBounds convention still covers
+	 * every key exactly once.)
+	 */
+	private void processChunk(KeyRangeTask task, int startKey, int endKey) throws Exception {
+		int span = endKey - startKey;
+		int pieceSpan = Math.min(span, adaptiveSize(span));
+		if (pieceSpan >= span) {
+			task.process(startKey, endKey);
+			return;
+		}
+		logger.info("Splitting chunk " + startKey + " to " + endKey + " into pieces of " + pieceSpan + " keys");
+		for (int pieceStart = startKey; pieceStart < endKey; pieceStart = pieceStart + pieceSpan) {
+			task.process(pieceStart, Math.min(pieceStart + pieceSpan, endKey));
 		}
 	}
 
@@ -302,15 +919,30 @@ public abstract class Indexer implements Runnable {
 		return populateLookup(query, uniqueFieldName, secondFieldName, logText, lookupRef, LinkedHashSet.class);
 	}
 
-	@SuppressWarnings("unchecked")
 	protected Map<String, Set<String>> populateLookup(String query, String uniqueFieldName, String secondFieldName, String logText, Map<String, ? extends Set<String>> lookupRef, @SuppressWarnings("rawtypes") Class<? extends Set> setClass) throws Exception {
+		logger.info("populating map of " + logText);
+		return populateLookup(ex.executeProto(query), uniqueFieldName, secondFieldName, logText, lookupRef, setClass);
+	}
+
+	/*
+	 * As above, but from the results of a query already run (eg. with executePrepared(),
+	 * so a query repeated for each chunk of keys is planned only once).  Closes 'rs'.
+	 */
+	protected Map<String, Set<String>> populateLookup(ResultSet rs, String uniqueFieldName, String secondFieldName, String logText) throws Exception {
+		return populateLookup(rs, uniqueFieldName, secondFieldName, logText, new HashMap<String, Set<String>>(), HashSet.class);
+	}
+
+	protected Map<String, Set<String>> populateLookup(ResultSet rs, String uniqueFieldName, String secondFieldName, String logText, Map<String, ? extends Set<String>> lookupRef) throws Exception {
+		return populateLookup(rs, uniqueFieldName, secondFieldName, logText, lookupRef, HashSet.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected Map<String, Set<String>> populateLookup(ResultSet rs, String uniqueFieldName, String secondFieldName, String logText, Map<String, ? extends Set<String>> lookupRef, @SuppressWarnings("rawtypes") Class<? extends Set> setClass) throws Exception {
 		// do some type-casting magic in order to create a new instance of "? extends
 		// Set"
 		Map<String, Set<String>> returnLookup = (Map<String, Set<String>>) lookupRef;
 
-		logger.info("populating map of " + logText);
 		long start = runtime.freeMemory();
-		ResultSet rs = ex.executeProto(query);
 
 		int rows = 0;
 		while (rs.next()) {
@@ -381,7 +1013,12 @@ public abstract class Indexer implements Runnable {
 		}
 	}
 
-	private Map<String, Set<String>> dupTracker = new HashMap<String, Set<String>>();
+	// tracked per thread, so chunk workers building documents at once don't share it
+	private ThreadLocal<Map<String, Set<String>>> dupTracker = new ThreadLocal<Map<String, Set<String>>>() {
+		protected Map<String, Set<String>> initialValue() {
+			return new HashMap<String, Set<String>>();
+		}
+	};
 
 	protected void addAllFromLookupNoDups(SolrInputDocument solrDoc, String solrField, String lookupId, Map<String, Set<String>> lookupRef) {
 		Set<String> uniqueList = getNoDupList(solrField);
@@ -398,12 +1035,13 @@ public abstract class Indexer implements Runnable {
 	}
 
 	private Set<String> getNoDupList(String solrField) {
+		Map<String, Set<String>> tracker = dupTracker.get();
 		Set<String> uniqueList;
-		if (!dupTracker.containsKey(solrField)) {
+		if (!tracker.containsKey(solrField)) {
 			uniqueList = new HashSet<String>();
-			dupTracker.put(solrField, uniqueList);
+			tracker.put(solrField, uniqueList);
 		} else
-			uniqueList = dupTracker.get(solrField);
+			uniqueList = tracker.get(solrField);
 		return uniqueList;
 	}
 
@@ -416,7 +1054,7 @@ public abstract class Indexer implements Runnable {
 	}
 
 	protected void resetDupTracking() {
-		dupTracker = new HashMap<String, Set<String>>();
+		dupTracker.set(new HashMap<String, Set<String>>());
 	}
 
 	// fill rows into a temp table using the given 'cmd'. (may also create the
@@ -427,13 +1065,13 @@ public abstract class Indexer implements Runnable {
 		logger.debug("  - populated table in " + ex.getTimestamp());
 	}
 
-	private int indexCounter = 0; // counter of indexes created so far (for unique naming)
+	private AtomicInteger indexCounter = new AtomicInteger(0); // counter of indexes created so far (for unique naming)
 
 	// create an index on the given column in the given table
 	protected void createTempIndex(String tableName, String column) {
-		indexCounter += 1;
-		this.ex.executeVoid("create index tmp_idx" + indexCounter + " on " + tableName + " (" + column + ")");
-		logger.debug("  - created index tmp_idx" + indexCounter + " in " + ex.getTimestamp());
+		int indexNumber = indexCounter.incrementAndGet();
+		this.ex.executeVoid("create index tmp_idx" + indexNumber + " on " + tableName + " (" + column + ")");
+		logger.debug("  - created index tmp_idx" + indexNumber + " in " + ex.getTimestamp());
 	}
 
 	// run 'analyze' on the given table
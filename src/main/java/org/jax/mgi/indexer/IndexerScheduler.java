@@ -0,0 +1,428 @@
+package org.jax.mgi.indexer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * IndexerScheduler
+ *
+ * Decides the order Main runs indexers in, taking over the adaptive scheduling that
+ * bin/buildIndexes does with its /tmp/feindexer.*.timing files.  After each run it
+ * records, in a history file, every indexer's runtime and heap footprint; on the next
+ * run it uses them to:
+ * 	- start the longest-running indexers first (LPT), so the short ones fill in at the
+ * 		end; indexers with no history count as longest, as in buildIndexes
+ * 	- only start an indexer once everything it depends on has finished and passed (and
+ * 		skip it, as failed, if one of those failed); dependencies not in this run are
+ * 		taken as already in place
+ * 	- keep the members of a group (hdp, qs, gxd, gxdht) together:  once one of them
+ * 		has started, the rest go ahead of other indexers, so the data they share is
+ * 		loaded once and let go of soon
+ * 	- only start an indexer if its footprint fits in what is left of the heap budget
+ * 		(smaller ones may go first if the next in line does not fit); when nothing is
+ * 		running, the next one starts regardless
+ * Footprints are the peak growth in the live heap while an indexer ran.  The live heap
+ * is the old generation's usage after its last collection, as HeapGovernor measures it
+ * (heap in use right now includes garbage not yet collected).  Growth seen while
+ * several indexers run is split evenly between them, rather than each being charged
+ * with all of it.  Only passed runs that saw at least one collection update an
+ * indexer's footprint, and each such figure is averaged with the previous one.
+ */
+public class IndexerScheduler {
+
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private int maxThreads;
+	private long heapBudget;
+	private File historyFile;
+
+	// from the history file:  name.seconds and name.heapMB for each indexer
+	private Properties history = new Properties();
+
+	// indexers running now, with the live heap growth charged to each so far
+	private Map<String,Footprint> running = new HashMap<String,Footprint>();
+	private Map<String,Long> runningStart = new HashMap<String,Long>();
+
+	// the old-generation heap pools, which report their usage after each collection
+	private List<MemoryPoolMXBean> pools = new ArrayList<MemoryPoolMXBean>();
+
+	// live heap at the last sample, or -1 if not known yet
+	private long lastLive = -1;
+
+	public IndexerScheduler(int maxThreads, long heapBudget, File historyFile) {
+		this.maxThreads = Math.max(1, maxThreads);
+		this.heapBudget = heapBudget;
+		this.historyFile = historyFile;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			// (only the old-generation pools support plain usage thresholds, as HeapGovernor finds them)
+			if ((pool.getType() == MemoryType.HEAP) && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported()) {
+				pools.add(pool);
+			}
+		}
+	}
+
+	/*
+	 * Run the indexers named in 'names' (from 'indexers'), at most maxThreads at a time.
+	 * 'dependencies' maps an indexer to those that must finish (and pass) before it starts;
+	 * 'groups' maps each group name to its members.  Returns once all have finished.
+	 * Throws an IllegalArgumentException, before starting anything, if a name, a
+	 * dependency or a group member is not one of 'indexers', or if the dependencies
+	 * form a cycle.
+	 */
+	public void run(Collection<String> names, Map<String,Indexer> indexers,
+			Map<String,List<String>> dependencies, Map<String,List<String>> groups) throws InterruptedException {
+		for (Map.Entry<String,List<String>> needs : dependencies.entrySet()) {
+			if (!indexers.containsKey(needs.getKey())) {
+				throw new IllegalArgumentException("Dependencies given for an unknown indexer: " + needs.getKey());
+			}
+			for (String need : needs.getValue()) {
+				if (!indexers.containsKey(need)) {
+					throw new IllegalArgumentException(needs.getKey() + " depends on an unknown indexer: " + need);
+				}
+			}
+		}
+		checkForCycles(dependencies);
+
+		Map<String,String> groupOf = new HashMap<String,String>();
+		for (Map.Entry<String,List<String>> group : groups.entrySet()) {
+			for (String member : group.getValue()) {
+				if (!indexers.containsKey(member)) {
+					throw new IllegalArgumentException("Group " + group.getKey() + " names an unknown indexer: " + member);
+				}
+				groupOf.put(member, group.getKey());
+			}
+		}
+		for (String name : names) {
+			if (!indexers.containsKey(name)) {
+				throw new IllegalArgumentException("Unknown indexer: " + name);
+			}
+		}
+
+		loadHistory();
+
+		Set<String> waiting = new LinkedHashSet<String>(names);
+		Set<String> inRun = new HashSet<String>(waiting);
+		Set<String> passed = new HashSet<String>();
+		Set<String> failed = new HashSet<String>();
+		Set<String> startedGroups = new HashSet<String>();
+
+		ExecutorService pool = Executors.newFixedThreadPool(maxThreads);
+		ExecutorCompletionService<String> done = new ExecutorCompletionService<String>(pool);
+		Thread sampler = startHeapSampler();
+		try {
+			while (!waiting.isEmpty() || !running.isEmpty()) {
+				// skip anything whose dependencies failed (and, in turn, what depends on those)
+				boolean skipped = true;
+				while (skipped) {
+					skipped = false;
+					for (String name : new ArrayList<String>(waiting)) {
+						if (!Collections.disjoint(dependenciesOf(name, dependencies), failed)) {
+							logger.info("Skipping " + name + ": an indexer it depends on failed");
+							indexers.get(name).indexPassed = false;
+							waiting.remove(name);
+							failed.add(name);
+							skipped = true;
+						}
+					}
+				}
+
+				// start whatever is ready, in order, while there are threads and heap to spare
+				boolean started = true;
+				while (started && (running.size() < maxThreads)) {
+					started = false;
+					for (String name : ready(waiting, inRun, passed, dependencies, groupOf, startedGroups)) {
+						if (fits(name)) {
+							start(name, indexers.get(name), done);
+							waiting.remove(name);
+							if (groupOf.containsKey(name)) {
+								startedGroups.add(groupOf.get(name));
+							}
+							started = true;
+							break;
+						}
+					}
+				}
+
+				if (running.isEmpty()) {
+					if (!waiting.isEmpty()) {
+						// (cycles are rejected up front, so this should not happen)
+						throw new IllegalStateException("Cannot schedule " + waiting);
+					}
+					continue;
+				}
+
+				// wait for the next indexer to finish
+				String name;
+				try {
+					name = done.take().get();
+				} catch (ExecutionException e) {
+					// run() catches its own exceptions, so this should not happen
+					throw new IllegalStateException(e);
+				}
+				finish(name, indexers.get(name).indexPassed);
+				if (indexers.get(name).indexPassed) {
+					passed.add(name);
+				} else {
+					failed.add(name);
+				}
+			}
+		} finally {
+			// (only if we stopped early, eg. interrupted)
+			for (String name : waiting) {
+				logger.info("Not starting " + name);
+				indexers.get(name).indexPassed = false;
+			}
+			sampler.interrupt();
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/* the indexers that could start now, best first
+	 */
+	private List<String> ready(Set<String> waiting, Set<String> inRun, Set<String> passed,
+			Map<String,List<String>> dependencies, final Map<String,String> groupOf, final Set<String> startedGroups) {
+		List<String> ready = new ArrayList<String>();
+		for (String name : waiting) {
+			// (dependencies not being built in this run are taken as already in place)
+			Set<String> needs = new HashSet<String>(dependenciesOf(name, dependencies));
+			needs.retainAll(inRun);
+			if (passed.containsAll(needs)) {
+				ready.add(name);
+			}
+		}
+		Collections.sort(ready, (a, b) -> {
+			boolean aGroup = startedGroups.contains(groupOf.get(a));
+			boolean bGroup = startedGroups.contains(groupOf.get(b));
+			if (aGroup != bGroup) {
+				return aGroup ? -1 : 1;
+			}
+			return Double.compare(estimatedSeconds(b), estimatedSeconds(a));
+		});
+		return ready;
+	}
+
+	private static List<String> dependenciesOf(String name, Map<String,List<String>> dependencies) {
+		List<String> needs = dependencies.get(name);
+		return (needs == null) ? Collections.<String>emptyList() : needs;
+	}
+
+	/* throw an IllegalArgumentException naming the first cycle found in 'dependencies'
+	 */
+	private static void checkForCycles(Map<String,List<String>> dependencies) {
+		Set<String> checked = new HashSet<String>();
+		for (String name : dependencies.keySet()) {
+			checkForCycles(name, dependencies, new ArrayList<String>(), checked);
+		}
+	}
+
+	/* depth-first from 'name'; 'path' holds the indexers leading to it
+	 */
+	private static void checkForCycles(String name, Map<String,List<String>> dependencies,
+			List<String> path, Set<String> checked) {
+		if (path.contains(name)) {
+			List<String> cycle = new ArrayList<String>(path.subList(path.indexOf(name), path.size()));
+			cycle.add(name);
+			throw new IllegalArgumentException("Circular dependency: " + String.join(" -> ", cycle));
+		}
+		if (checked.contains(name)) {
+			return;
+		}
+		path.add(name);
+		for (String need : dependenciesOf(name, dependencies)) {
+			checkForCycles(need, dependencies, path, checked);
+		}
+		path.remove(path.size() - 1);
+		checked.add(name);
+	}
+
+	/* true if 'name' fits in the heap left over by the indexers already running
+	 */
+	private synchronized boolean fits(String name) {
+		if (running.isEmpty()) {
+			return true;
+		}
+		long committed = 0;
+		for (String other : running.keySet()) {
+			committed += estimatedHeap(other);
+		}
+		return committed + estimatedHeap(name) <= heapBudget;
+	}
+
+	private void start(final String name, final Indexer indexer, ExecutorCompletionService<String> done) {
+		synchronized (this) {
+			running.put(name, new Footprint());
+			runningStart.put(name, System.currentTimeMillis());
+		}
+		logger.info("Starting " + name + " (expected " + (long) estimatedSeconds(name) + " s, "
+			+ (estimatedHeap(name) / (1024 * 1024)) + " MB); running: " + running.keySet());
+		done.submit(() -> {
+			indexer.run();
+			return name;
+		});
+	}
+
+	/* note that 'name' has finished, and update its history
+	 */
+	private void finish(String name, boolean passed) {
+		Footprint heap;
+		long seconds;
+		synchronized (this) {
+			heap = running.remove(name);
+			seconds = (System.currentTimeMillis() - runningStart.remove(name)) / 1000;
+		}
+		long footprintMB = heap.peak / (1024 * 1024);
+		logger.info("Finished " + name + (passed ? "" : " (FAILED)") + " in " + seconds + " s, live heap growth "
+			+ (heap.measured ? footprintMB + " MB" : "unknown"));
+
+		// like buildIndexes, only successful runs update the history (a failed run may
+		// have stopped early, and used less time and heap than a full one)
+		if (!passed) {
+			return;
+		}
+		history.setProperty(name + ".seconds", "" + seconds);
+		if (heap.measured) {
+			String previousMB = history.getProperty(name + ".heapMB");
+			if (previousMB != null) {
+				footprintMB = (footprintMB + Long.parseLong(previousMB)) / 2;
+			}
+			history.setProperty(name + ".heapMB", "" + footprintMB);
+		}
+		saveHistory();
+	}
+
+	/* runtime from the history file, or from the timing files bin/buildIndexes leaves in
+	 * /tmp; with neither, the indexer counts as the longest
+	 */
+	private double estimatedSeconds(String name) {
+		String seconds = history.getProperty(name + ".seconds");
+		if (seconds == null) {
+			File timing = new File("/tmp/feindexer." + name + ".timing");
+			if (timing.canRead()) {
+				try {
+					seconds = new String(Files.readAllBytes(timing.toPath()), StandardCharsets.UTF_8).trim();
+				} catch (IOException e) {
+					seconds = null;
+				}
+			}
+		}
+		try {
+			return (seconds == null) ? Double.MAX_VALUE : Double.parseDouble(seconds);
+		} catch (NumberFormatException e) {
+			return Double.MAX_VALUE;
+		}
+	}
+
+	/* heap footprint from the history file; with none, an even share of the budget
+	 */
+	private long estimatedHeap(String name) {
+		String mb = history.getProperty(name + ".heapMB");
+		return (mb == null) ? heapBudget / maxThreads : Long.parseLong(mb) * 1024 * 1024;
+	}
+
+	/* a daemon thread sharing out the growth in the live heap between the indexers
+	 * running while it happened
+	 */
+	private Thread startHeapSampler() {
+		Thread sampler = new Thread(() -> {
+			while (!Thread.currentThread().isInterrupted()) {
+				long live = liveHeap();
+				synchronized (this) {
+					// (the live heap only changes when a collection measures it again)
+					if ((live >= 0) && (lastLive >= 0) && (live != lastLive) && !running.isEmpty()) {
+						long share = (live - lastLive) / running.size();
+						for (Footprint heap : running.values()) {
+							heap.grow(share);
+						}
+					}
+					if (live >= 0) {
+						lastLive = live;
+					}
+				}
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}, "heap-sampler");
+		sampler.setDaemon(true);
+		sampler.start();
+		return sampler;
+	}
+
+	/* old-generation heap in use after the last collection, or -1 if the pools do not say
+	 * (eg. before their first collection)
+	 */
+	private long liveHeap() {
+		long live = -1;
+		for (MemoryPoolMXBean pool : pools) {
+			MemoryUsage usage = pool.getCollectionUsage();
+			if (usage != null) {
+				live = Math.max(live, 0) + usage.getUsed();
+			}
+		}
+		return live;
+	}
+
+	/* the live heap growth charged to one running indexer:  its running total, the most
+	 * it has reached, and whether any was measured at all
+	 */
+	private static class Footprint {
+		long charged = 0;
+		long peak = 0;
+		boolean measured = false;
+
+		void grow(long bytes) {
+			charged += bytes;
+			peak = Math.max(peak, charged);
+			measured = true;
+		}
+	}
+
+	private void loadHistory() {
+		if (historyFile.canRead()) {
+			try (InputStream in = new FileInputStream(historyFile)) {
+				history.load(in);
+			} catch (IOException e) {
+				logger.info("Could not read indexer history " + historyFile + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private void saveHistory() {
+		try (OutputStream out = new FileOutputStream(historyFile)) {
+			history.store(out, "feindexer runtimes (seconds) and heap footprints (MB)");
+		} catch (IOException e) {
+			logger.info("Could not write indexer history " + historyFile + ": " + e.getMessage());
+		}
+	}
+}
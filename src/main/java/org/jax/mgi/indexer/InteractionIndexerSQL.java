@@ -25,21 +25,14 @@ public class InteractionIndexerSQL extends Indexer {
 	}
 
 	public void index() throws Exception {
-		// get maximum mi_key for use in stepping through chunks
-
-		ResultSet rs_tmp = ex.executeProto( "select max(mi_key) as maxRegKey " + "from marker_interaction");
-		rs_tmp.next();
-
-		int maxKey = rs_tmp.getInt("maxRegKey");
-
 		// SQL to gather the properties we need to recognize for
 		// 'interacts_with' relationships:  score, mature transcript, and
 		// notes.
 
 		String propSQL = "select name, mi_key, value, sequence_num "
 				+ "from marker_interaction_property "
-				+ "where mi_key > <START_KEY> "
-				+ "  and mi_key <= <END_KEY> "
+				+ "where mi_key > ? "
+				+ "  and mi_key <= ? "
 				+ "order by sequence_num";
 
 		// SQL to gather basic information about interacting markers
@@ -60,208 +53,209 @@ public class InteractionIndexerSQL extends Indexer {
 				+ "inner join marker org on (mrm.marker_key = org.marker_key) "
 				+ "inner join marker_sequence_num osn on (mrm.marker_key = osn.marker_key) "
 				+ "inner join marker_sequence_num psn on (mrm.interacting_marker_key = psn.marker_key) "
-				+ "where mrm.mi_key > <START_KEY> "
+				+ "where mrm.mi_key > ? "
 				+ " and mrm.is_reversed = 0 "
-				+ " and mrm.mi_key <= <END_KEY> ";
-
-		// collection of Solr documents, waiting to be sent to Solr
-		Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
+				+ " and mrm.mi_key <= ? ";
 
-		// iterate through chunks
+		// iterate through chunks of (non-reversed) interactions, several at once
 
 		int chunkSize = 250000;
-		int startKey = 0;
-		int endKey = startKey + chunkSize;
-
-		while (startKey < maxKey) {
-			logger.info ("Processing mi keys " + startKey + " to " + endKey);
-
-			// gather our sets of optional properties for this chunk
-			
-			HashMap<String, HashMap<String, List<String>>> allHashes = makeHashes(propSQL.replace("<START_KEY>", Integer.toString(startKey)).replace("<END_KEY>", Integer.toString(endKey)), "name", "mi_key", "value");
-
-			HashMap<String, List<String>> miToScore =                getHash(allHashes, "score");
-			HashMap<String, List<String>> miToSource =               getHash(allHashes, "data_source");
-			HashMap<String, List<String>> miToValidation =           getHash(allHashes, "validation");
-			HashMap<String, List<String>> miToTranscript =           getHash(allHashes, "mature_transcript");
-			HashMap<String, List<String>> miToNotes =                getHash(allHashes, "note");
-
-			HashMap<String, List<String>> miToAlgorithm =            getHash(allHashes, "algorithm");
-			HashMap<String, List<String>> miToParticipantProductID = getHash(allHashes, "participant_product_ID");
-			HashMap<String, List<String>> miToOrganizerProductID =   getHash(allHashes, "organizer_product_ID");
-			HashMap<String, List<String>> miToOtherReferences =      getHash(allHashes, "other_refs");
-
-			// gather our basic interacts_with relationships for this chunk
-			ResultSet rs = ex.executeProto (basicSQL.replace("<START_KEY>", Integer.toString(startKey)).replace("<END_KEY>", Integer.toString(endKey)) );
+		List<int[]> chunks = planKeyRanges("select mi_key from marker_interaction where is_reversed = 0", chunkSize, KeyBounds.END_INCLUSIVE);
+		processKeyRanges(chunks, (startKey, endKey) -> processInteractions(propSQL, basicSQL, startKey, endKey));
 
-			// walk through our relationships for this chunk
-
-			while (rs.next()) {
+		commit();
+		logger.info("Done");
+	}
 
-				// extract basic data fields from the current row
-
-				String miKey = rs.getString("mi_key");
-				String oMarkerID = rs.getString("organizingMarkerID");
-				String pMarkerID = rs.getString("participantMarkerID");
-				String oMarkerSymbol = rs.getString("organizerSymbol");
-				String pMarkerSymbol = rs.getString("participantMarkerSymbol");
-				String term = rs.getString("relationship_term");
-				String qualifier = rs.getString("qualifier");
-				String evidenceCode = rs.getString("evidence_code");
-				String jnumID = rs.getString("jnum_id");
-				int seqNum = rs.getInt("sequence_num");
-				int oSeqNum = rs.getInt("organizerSeqNum");
-				int pSeqNum = rs.getInt("participantSeqNum");
-
-				// convert the J: number to just its numeric portion, to
-				// use in sorting
-
-				int jnum = 0;
-				if (jnumID != null) {
-					jnum = Integer.parseInt(jnumID.substring(2));
-				}
+	/* build and send the documents for mi keys > startKey and <= endKey, binding them
+	 * as the two parameters of the given SQL (which is prepared once and reused per chunk)
+	 */
+	private void processInteractions(String propSQL, String basicSQL, int startKey, int endKey) throws Exception {
+		logger.info ("Processing mi keys " + startKey + " to " + endKey);
 
-				// build a new Solr doc & add it to the collection of docs
-
-				SolrInputDocument doc = new SolrInputDocument();
-
-				doc.addField(IndexConstants.REG_KEY, miKey);
-				doc.addField(IndexConstants.ORGANIZER_ID, oMarkerID);
-				doc.addField(IndexConstants.ORGANIZER_SYMBOL, oMarkerSymbol);
-				doc.addField(IndexConstants.PARTICIPANT_ID, pMarkerID);
-				doc.addField(IndexConstants.PARTICIPANT_SYMBOL, pMarkerSymbol);
-				doc.addField(IndexConstants.RELATIONSHIP_TERM, term);
-				doc.addField(IndexConstants.VOC_QUALIFIER, qualifier);
-				doc.addField(IndexConstants.EVIDENCE_CODE, evidenceCode);
-				doc.addField(IndexConstants.JNUM_ID, jnumID);
-				doc.addField(IndexConstants.BY_JNUM_ID, jnum);
-				doc.addField(IndexConstants.BY_MARKER_SYMBOL, seqNum);
-				doc.addField(IndexConstants.BY_ORGANIZER_SYMBOL, oSeqNum);
-				doc.addField(IndexConstants.BY_PARTICIPANT_SYMBOL, pSeqNum);
-
-				String scoreToFilter = null;
-				String scoreToSort = null;
-				String validationToSort = null;
-
-				if (miToScore.containsKey(miKey)) {
-					for (String s : miToScore.get(miKey)) {
-						doc.addField(IndexConstants.SCORE_VALUE, s);
-						scoreToFilter = s;		// keep the last one
-					}
-				}
+		// collection of Solr documents, waiting to be sent to Solr
+		Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
 
-				if (miToSource.containsKey(miKey)) {
-					for (String s : miToSource.get(miKey)) {
-						doc.addField(IndexConstants.SCORE_SOURCE, s);
-					}
-				}
+		// gather our sets of optional properties for this chunk
+		
+		HashMap<String, HashMap<String, List<String>>> allHashes = makeHashes(ex.executePrepared(propSQL, startKey, endKey), "name", "mi_key", "value");
+
+		HashMap<String, List<String>> miToScore =                getHash(allHashes, "score");
+		HashMap<String, List<String>> miToSource =               getHash(allHashes, "data_source");
+		HashMap<String, List<String>> miToValidation =           getHash(allHashes, "validation");
+		HashMap<String, List<String>> miToTranscript =           getHash(allHashes, "mature_transcript");
+		HashMap<String, List<String>> miToNotes =                getHash(allHashes, "note");
+
+		HashMap<String, List<String>> miToAlgorithm =            getHash(allHashes, "algorithm");
+		HashMap<String, List<String>> miToParticipantProductID = getHash(allHashes, "participant_product_ID");
+		HashMap<String, List<String>> miToOrganizerProductID =   getHash(allHashes, "organizer_product_ID");
+		HashMap<String, List<String>> miToOtherReferences =      getHash(allHashes, "other_refs");
+
+		// gather our basic interacts_with relationships for this chunk
+		ResultSet rs = ex.executePrepared(basicSQL, startKey, endKey);
+
+		// walk through our relationships for this chunk
+
+		while (rs.next()) {
+
+			// extract basic data fields from the current row
+
+			String miKey = rs.getString("mi_key");
+			String oMarkerID = rs.getString("organizingMarkerID");
+			String pMarkerID = rs.getString("participantMarkerID");
+			String oMarkerSymbol = rs.getString("organizerSymbol");
+			String pMarkerSymbol = rs.getString("participantMarkerSymbol");
+			String term = rs.getString("relationship_term");
+			String qualifier = rs.getString("qualifier");
+			String evidenceCode = rs.getString("evidence_code");
+			String jnumID = rs.getString("jnum_id");
+			int seqNum = rs.getInt("sequence_num");
+			int oSeqNum = rs.getInt("organizerSeqNum");
+			int pSeqNum = rs.getInt("participantSeqNum");
+
+			// convert the J: number to just its numeric portion, to
+			// use in sorting
+
+			int jnum = 0;
+			if (jnumID != null) {
+				jnum = Integer.parseInt(jnumID.substring(2));
+			}
 
-				if (miToValidation.containsKey(miKey)) {
-					for (String s : miToValidation.get(miKey)) {
-						doc.addField(IndexConstants.VALIDATION, s);
-						validationToSort = s;	// keep the last one
-					}
+			// build a new Solr doc & add it to the collection of docs
+
+			SolrInputDocument doc = new SolrInputDocument();
+
+			doc.addField(IndexConstants.REG_KEY, miKey);
+			doc.addField(IndexConstants.ORGANIZER_ID, oMarkerID);
+			doc.addField(IndexConstants.ORGANIZER_SYMBOL, oMarkerSymbol);
+			doc.addField(IndexConstants.PARTICIPANT_ID, pMarkerID);
+			doc.addField(IndexConstants.PARTICIPANT_SYMBOL, pMarkerSymbol);
+			doc.addField(IndexConstants.RELATIONSHIP_TERM, term);
+			doc.addField(IndexConstants.VOC_QUALIFIER, qualifier);
+			doc.addField(IndexConstants.EVIDENCE_CODE, evidenceCode);
+			doc.addField(IndexConstants.JNUM_ID, jnumID);
+			doc.addField(IndexConstants.BY_JNUM_ID, jnum);
+			doc.addField(IndexConstants.BY_MARKER_SYMBOL, seqNum);
+			doc.addField(IndexConstants.BY_ORGANIZER_SYMBOL, oSeqNum);
+			doc.addField(IndexConstants.BY_PARTICIPANT_SYMBOL, pSeqNum);
+
+			String scoreToFilter = null;
+			String scoreToSort = null;
+			String validationToSort = null;
+
+			if (miToScore.containsKey(miKey)) {
+				for (String s : miToScore.get(miKey)) {
+					doc.addField(IndexConstants.SCORE_VALUE, s);
+					scoreToFilter = s;		// keep the last one
 				}
+			}
 
-				if (miToTranscript.containsKey(miKey)) {
-					for (String s : miToTranscript.get(miKey)) {
-						doc.addField(IndexConstants.MATURE_TRANSCRIPT, s);
-					}
+			if (miToSource.containsKey(miKey)) {
+				for (String s : miToSource.get(miKey)) {
+					doc.addField(IndexConstants.SCORE_SOURCE, s);
 				}
+			}
 
-				if (miToParticipantProductID.containsKey(miKey)) {
-					for (String s : miToParticipantProductID.get(miKey)) {
-						doc.addField(IndexConstants.PARTICIPANT_PRODUCT_ID, s);
-					}
+			if (miToValidation.containsKey(miKey)) {
+				for (String s : miToValidation.get(miKey)) {
+					doc.addField(IndexConstants.VALIDATION, s);
+					validationToSort = s;	// keep the last one
 				}
+			}
 
-				if (miToOrganizerProductID.containsKey(miKey)) {
-					for (String s : miToOrganizerProductID.get(miKey)) {
-						doc.addField(IndexConstants.ORGANIZER_PRODUCT_ID, s);
-					}
+			if (miToTranscript.containsKey(miKey)) {
+				for (String s : miToTranscript.get(miKey)) {
+					doc.addField(IndexConstants.MATURE_TRANSCRIPT, s);
 				}
+			}
 
-				if (miToAlgorithm.containsKey(miKey)) {
-					for (String s : miToAlgorithm.get(miKey)) {
-						doc.addField(IndexConstants.ALGORITHM, s);
-					}
+			if (miToParticipantProductID.containsKey(miKey)) {
+				for (String s : miToParticipantProductID.get(miKey)) {
+					doc.addField(IndexConstants.PARTICIPANT_PRODUCT_ID, s);
 				}
+			}
 
-				if (miToOtherReferences.containsKey(miKey)) {
-					for (String s : miToOtherReferences.get(miKey)) {
-						doc.addField(IndexConstants.OTHER_REFERENCES, s);
-					}
+			if (miToOrganizerProductID.containsKey(miKey)) {
+				for (String s : miToOrganizerProductID.get(miKey)) {
+					doc.addField(IndexConstants.ORGANIZER_PRODUCT_ID, s);
 				}
+			}
 
-				if (miToNotes.containsKey(miKey)) {
-					for (String s : miToNotes.get(miKey)) {
-						doc.addField(IndexConstants.NOTES, s);
-					}
+			if (miToAlgorithm.containsKey(miKey)) {
+				for (String s : miToAlgorithm.get(miKey)) {
+					doc.addField(IndexConstants.ALGORITHM, s);
 				}
+			}
 
-				scoreToSort = scoreToFilter;
-
-				// special cases to enable special behavior...
-				// 1. include validated and inferred relationships when
-				//    filtering by score (so give them a high fake score)
-				// 2. when sorting by validation, prefer validated before
-				//    inferred before predicted before everything else
-				//    (which sorts alphabetically)
-				// 3. when sorting by score, ensure that rows without a
-				//    score (validated or inferred rows) sort below any
-				//    rows with a score
-
-				if ("validated".equals(validationToSort)) {
-					validationToSort = "0";
-					scoreToFilter = "2.0";
-					scoreToSort = "-3";
-				} else if ("inferred".equals(validationToSort)) {
-					validationToSort = "1";
-					scoreToFilter = "2.0";
-					scoreToSort = "-2";
-				} else if ("predicted".equals(validationToSort)) {
-					validationToSort = "2";
-				} 
-
-				if (scoreToSort == null) {
-					// should not happen
-					scoreToSort = "0";
+			if (miToOtherReferences.containsKey(miKey)) {
+				for (String s : miToOtherReferences.get(miKey)) {
+					doc.addField(IndexConstants.OTHER_REFERENCES, s);
 				}
+			}
 
-				if (validationToSort != null) {
-					doc.addField(IndexConstants.VALIDATION_SORTABLE, validationToSort);
-				}
-				if (scoreToFilter != null) {
-					doc.addField(IndexConstants.SCORE_FILTERABLE, scoreToFilter);
-				}
-				if (scoreToSort != null) {
-					doc.addField(IndexConstants.SCORE_SORTABLE, scoreToSort);
+			if (miToNotes.containsKey(miKey)) {
+				for (String s : miToNotes.get(miKey)) {
+					doc.addField(IndexConstants.NOTES, s);
 				}
+			}
 
-				// add to list of documents to be indexed
+			scoreToSort = scoreToFilter;
+
+			// special cases to enable special behavior...
+			// 1. include validated and inferred relationships when
+			//    filtering by score (so give them a high fake score)
+			// 2. when sorting by validation, prefer validated before
+			//    inferred before predicted before everything else
+			//    (which sorts alphabetically)
+			// 3. when sorting by score, ensure that rows without a
+			//    score (validated or inferred rows) sort below any
+			//    rows with a score
+
+			if ("validated".equals(validationToSort)) {
+				validationToSort = "0";
+				scoreToFilter = "2.0";
+				scoreToSort = "-3";
+			} else if ("inferred".equals(validationToSort)) {
+				validationToSort = "1";
+				scoreToFilter = "2.0";
+				scoreToSort = "-2";
+			} else if ("predicted".equals(validationToSort)) {
+				validationToSort = "2";
+			} 
+
+			if (scoreToSort == null) {
+				// should not happen
+				scoreToSort = "0";
+			}
 
-				docs.add(doc);
+			if (validationToSort != null) {
+				doc.addField(IndexConstants.VALIDATION_SORTABLE, validationToSort);
+			}
+			if (scoreToFilter != null) {
+				doc.addField(IndexConstants.SCORE_FILTERABLE, scoreToFilter);
+			}
+			if (scoreToSort != null) {
+				doc.addField(IndexConstants.SCORE_SORTABLE, scoreToSort);
+			}
 
-				// keep memory requirements down by writing to Solr every
-				// 15k documents
+			// add to list of documents to be indexed
 
-				if (docs.size() > 15000) {
-					writeDocs(docs);
-					docs = new ArrayList<SolrInputDocument>();
-				}
+			docs.add(doc);
 
-			} // end while loop - walking through this result set
+			// keep memory requirements down by writing to Solr every
+			// 15k documents
 
-			startKey = endKey;
-			endKey = startKey + chunkSize;
+			if (docs.size() > 15000) {
+				writeDocs(docs);
+				docs = new ArrayList<SolrInputDocument>();
+			}
 
-		} // end while loop - processing chunks of mi_key values
+		} // end while loop - walking through this result set
+		rs.close();
 
 		// very likely, we'll have some extra docs left to write
 
 		writeDocs(docs);
-		commit();
-		logger.info("Done");
 	}
 
 	private HashMap<String, List<String>> getHash(HashMap<String, HashMap<String, List<String>>> allHashes, String key) {
@@ -271,15 +265,13 @@ public class InteractionIndexerSQL extends Indexer {
 		return allHashes.get(key);
 	}
 
-	private HashMap<String, HashMap<String, List<String>>> makeHashes(String sql, String hashKeyString, String keyString, String valueString) {
+	private HashMap<String, HashMap<String, List<String>>> makeHashes(ResultSet rs, String hashKeyString, String keyString, String valueString) {
 		HashMap<String, String> allValues = new HashMap<String, String>();
 		
 		HashMap<String, HashMap<String, List<String>>> tempHashMap = new HashMap<String, HashMap<String, List<String>>> ();
 		HashMap<String, List<String>> tempMap;
 		
 		try {
-			ResultSet rs = ex.executeProto(sql);
-			
 			String hashKey = null;
 			String key = null;
 			String value = null;
@@ -310,6 +302,7 @@ public class InteractionIndexerSQL extends Indexer {
 					tempMap.put(key, temp);
 				}
 			}
+			rs.close();
 			allValues.clear();
 		} catch (Exception e) {e.printStackTrace();}
 		return tempHashMap;
@@ -6,12 +6,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.apache.solr.common.SolrInputDocument;
+import org.jax.mgi.shr.LongIntMap;
+import org.jax.mgi.shr.LongTripleSet;
 import org.jax.mgi.shr.fe.IndexConstants;
 import org.jax.mgi.shr.fe.sort.SmartAlphaComparator;
 
@@ -26,96 +26,28 @@ public class MPCorrelationMatrixIndexerSQL extends Indexer {
 	/***--- inner classes ---***/
 	
 	// Is: a log of which annotations we've already seen and handled (to ensure distinctness)
-	private class AnnotationLog {
-		// handled[marker key][genotype key][mp term key][structure key][qualifier] = set of reference keys
-		private	Map<Integer,Map<Integer,Map<Integer,Map<Integer,Map<String,Set<Integer>>>>>> handled = 
-				new HashMap<Integer,Map<Integer,Map<Integer,Map<Integer,Map<String,Set<Integer>>>>>>();
+	// (package-private so feindexer-benchmarks can measure it)
+	class AnnotationLog {
+		// each (marker, genotype, mp term, structure, qualifier, reference) handled, packed into
+		// three longs:  (marker, genotype), (mp term, structure), (reference, qualifier code)
+		private LongTripleSet handled = new LongTripleSet(1 << 16);
+
+		// qualifier -> small integer code (null is 0)
+		private Map<String,Integer> qualifierCodes = new HashMap<String,Integer>();
 		
 		public boolean seenIt (int markerKey, int genotypeKey, int mpTermKey, int structureKey, String qualifier, int referenceKey) {
-			if (!handled.containsKey(markerKey)) {
-				handled.put(markerKey, new HashMap<Integer,Map<Integer,Map<Integer,Map<String,Set<Integer>>>>>());
-			}
-			if (!handled.get(markerKey).containsKey(genotypeKey)) {
-				handled.get(markerKey).put(genotypeKey, new HashMap<Integer,Map<Integer,Map<String,Set<Integer>>>>());
-			}
-			if (!handled.get(markerKey).get(genotypeKey).containsKey(mpTermKey)) {
-				handled.get(markerKey).get(genotypeKey).put(mpTermKey, new HashMap<Integer,Map<String,Set<Integer>>>());
-			}
-			if (!handled.get(markerKey).get(genotypeKey).get(mpTermKey).containsKey(structureKey)) {
-				handled.get(markerKey).get(genotypeKey).get(mpTermKey).put(structureKey, new HashMap<String,Set<Integer>>());
-			}
-			if (!handled.get(markerKey).get(genotypeKey).get(mpTermKey).get(structureKey).containsKey(qualifier)) {
-				handled.get(markerKey).get(genotypeKey).get(mpTermKey).get(structureKey).put(qualifier, new HashSet<Integer>());
-			}
-			if (!handled.get(markerKey).get(genotypeKey).get(mpTermKey).get(structureKey).get(qualifier).contains(referenceKey)) {
-				handled.get(markerKey).get(genotypeKey).get(mpTermKey).get(structureKey).get(qualifier).add(referenceKey);
-				return false;
-			}
-			return true;
-		}
-	}
-	
-	// Is: the contents of a cell in the anatomy x genocluster grid
-	private class Cell {
-		public int abnormals = 0;				// count of non-normal annotations
-		public int normals = 0;					// count of normal annotations
-		public int backgroundSensitive = 0;		// background sensitive (1) or not (0)?
-		public int children = 0;				// count of non-normal annotations in children
-		
-		public void addChildren() {
-			this.children++;
-		}
-		
-		public void addAbnormal() {
-			this.abnormals++;
-		}
-		
-		public void addNormal() {
-			this.normals++;
-		}
-		
-		public void applySensitivity(int backgroundSensitive) {
-			if (this.backgroundSensitive == 0 && backgroundSensitive == 1) {
-				this.backgroundSensitive = 1;
-			}
+			return !handled.add(LongIntMap.pack(markerKey, genotypeKey), LongIntMap.pack(mpTermKey, structureKey),
+				LongIntMap.pack(referenceKey, qualifierCode(qualifier)));
 		}
 
-		public int isOnlyNormal() {
-			if (this.normals > 0 && this.abnormals == 0) {
-				return 1;
+		private int qualifierCode (String qualifier) {
+			if (qualifier == null) { return 0; }
+			Integer code = qualifierCodes.get(qualifier);
+			if (code == null) {
+				code = qualifierCodes.size() + 1;
+				qualifierCodes.put(qualifier, code);
 			}
-			return 0;
-		}
-	}
-
-	// Is: a collection of Cells, for easy retrieval of a particular Cell given marker, genocluster, structure
-	private class CellBlock {
-		// cells[marker key][genocluster key][structure key] = Cell
-		Map<Integer,Map<Integer,Map<Integer,Cell>>> cells = new HashMap<Integer,Map<Integer,Map<Integer,Cell>>>();
-
-		public Cell getCell(int markerKey, int genoclusterKey, int structureKey) {
-			if (!cells.containsKey(markerKey)) {
-				cells.put(markerKey, new HashMap<Integer,Map<Integer,Cell>>());
-			}
-			if (!cells.get(markerKey).containsKey(genoclusterKey)) {
-				cells.get(markerKey).put(genoclusterKey, new HashMap<Integer,Cell>());
-			}
-			if (!cells.get(markerKey).get(genoclusterKey).containsKey(structureKey)) {
-				cells.get(markerKey).get(genoclusterKey).put(structureKey, new Cell());
-			}
-			return cells.get(markerKey).get(genoclusterKey).get(structureKey);
-		}
-
-		public Set<Integer> getMarkerKeys() {
-			return cells.keySet();
-		}
-		
-		public Set<Integer> getGenoclusterKeys(int markerKey) {
-			return cells.get(markerKey).keySet();
-		}
-
-		public Set<Integer> getStructureKeys(int markerKey, int genoclusterKey) {
-			return cells.get(markerKey).get(genoclusterKey).keySet();
+			return code;
 		}
 	}
 	
@@ -165,6 +97,13 @@ public class MPCorrelationMatrixIndexerSQL extends Indexer {
 	/***--- class variables ---***/
 	
 	public static final String NORMAL = "normal";	// text of the normal qualifier
+
+	// counters kept for each cell in the anatomy x genocluster grid (see MatrixCellStore)
+	private static final int ABNORMALS = 0;				// count of non-normal annotations
+	private static final int NORMALS = 1;				// count of normal annotations
+	private static final int BACKGROUND_SENSITIVE = 2;	// background sensitive (1) or not (0)?
+	private static final int CHILDREN = 3;				// count of non-normal annotations in children
+	private static final int COUNTERS = 4;
 	private static SmartAlphaComparator smartAlphaComparator = new SmartAlphaComparator();
 		
 	
@@ -179,6 +118,8 @@ public class MPCorrelationMatrixIndexerSQL extends Indexer {
 	public Map<Integer,String> anatomyID;				// maps from anatomical structure key to structure term
 	public Map<Integer,List<Integer>> anatomyAncestors;	// maps from anatomical structure key to ancestor term IDs
 	public Map<Integer,List<String>> anatomyParents;	// maps from anatomical structure key to ancestor structure keys
+	private MatrixCellStore.Structures structures;		// dense ordinals for anatomical structure keys
+	private Map<Integer,int[]> ancestorOrdinals;		// maps from anatomical structure key to ordinals of its ancestors
 
 	// caches of data for this batch of markers
 
@@ -194,6 +135,11 @@ public class MPCorrelationMatrixIndexerSQL extends Indexer {
 		super("mpCorrelationMatrix");
 	}
 
+	@Override
+	protected boolean hasStableKeys() {
+		return false;		// documents are numbered as they are built
+	}
+
 	// populate the indexer's caches of anatomy term data (IDs, terms, parents, ancestors)
 	public void buildAnatomyCaches() throws SQLException {
 		this.anatomyTerm = new HashMap<Integer,String>(); 
@@ -249,6 +195,12 @@ public class MPCorrelationMatrixIndexerSQL extends Indexer {
 			anatomyAncestors.get(termKey).add(rs3.getInt("ancestor_term_key"));
 		}
 		rs3.close();
+
+		this.structures = new MatrixCellStore.Structures();
+		this.ancestorOrdinals = new HashMap<Integer,int[]>();
+		for (Integer termKey : anatomyAncestors.keySet()) {
+			ancestorOrdinals.put(termKey, structures.ordinals(anatomyAncestors.get(termKey)));
+		}
 		logger.info(" - cached data for " + anatomyTerm.size() + " anatomy terms");
 	}
 	
@@ -314,16 +266,18 @@ public class MPCorrelationMatrixIndexerSQL extends Indexer {
 		logger.info(" - cached alleles for " + allelePairs.size() + " genoclusters");
 	}
 	
-	private void updateCell (Cell cell, String qualifier, Integer backgroundSensitive, boolean isAncestor) {
+	private void updateCell (MatrixCellStore cells, int cell, String qualifier, int backgroundSensitive, boolean isAncestor) {
 		if (NORMAL.equals(qualifier)) {
-			cell.addNormal();
+			cells.add(cell, NORMALS);
 		} else {
-			cell.addAbnormal();
+			cells.add(cell, ABNORMALS);
 			if (isAncestor) {
-				cell.addChildren();
+				cells.add(cell, CHILDREN);
 			}
 		}
-		cell.applySensitivity(backgroundSensitive);
+		if (backgroundSensitive == 1) {
+			cells.flag(cell, BACKGROUND_SENSITIVE);
+		}
 	}
 	
 	// main method for the indexer
@@ -397,7 +351,7 @@ public class MPCorrelationMatrixIndexerSQL extends Indexer {
 			AnnotationLog annotLog = new AnnotationLog();
 			
 			// retrieves cells (creating them when needed) for a given (marker, genocluster, structure) triple
-			CellBlock cellBlock = new CellBlock();
+			MatrixCellStore cells = new MatrixCellStore(structures, COUNTERS);
 			
 			while (rs.next()) {
 				int markerKey = rs.getInt("marker_key");
@@ -415,65 +369,64 @@ public class MPCorrelationMatrixIndexerSQL extends Indexer {
 				}
 
 				// Otherwise, update data for the corresponding cell.
-				Cell cell = cellBlock.getCell(markerKey, genoclusterKey, structureKey);
-				updateCell(cell, qualifier, backgroundSensitive, false);
+				int row = cells.row(markerKey, genoclusterKey);
+				updateCell(cells, cells.cell(row, structures.ordinal(structureKey)), qualifier, backgroundSensitive, false);
 				
 				// And also add the annotation to any of its ancestor cells.  Each annotation is only
 				// counted once in each ancestor cell, regardless of how many paths there are to the root.
-				if (this.anatomyAncestors.containsKey(structureKey)) {
-					for (Integer ancestorKey : this.anatomyAncestors.get(structureKey)) {
-						Cell ancestorCell = cellBlock.getCell(markerKey, genoclusterKey, ancestorKey);
-						updateCell(ancestorCell, qualifier, backgroundSensitive, true);
+				int[] ancestors = this.ancestorOrdinals.get(structureKey);
+				if (ancestors != null) {
+					for (int ancestor : ancestors) {
+						updateCell(cells, cells.cell(row, ancestor), qualifier, backgroundSensitive, true);
 					}
 				}
 			}
 
 			rs.close();
-			logger.info(" - collated data into cells");
+			logger.info(" - collated data into " + cells.size() + " cells");
 
-			// Then go through the data for each marker, build a Solr document for each cell, and send
-			// them to the server in batches.
+			// Then go through the cells in order of marker, genocluster, and structure, build a Solr
+			// document for each, and send them to the server in batches.
 			
-			for (Integer markerKey : cellBlock.getMarkerKeys()) {
+			for (int cell : cells.cellsInOrder()) {
+				int markerKey = cells.markerKey(cell);
+				int genoclusterKey = cells.columnKey(cell);
+				int structureKey = cells.structureKey(cell);
+
 				String geneSymbol = this.markerSymbol.get(markerKey);
 				String geneID = this.markerID.get(markerKey);
-				
-				for (Integer genoclusterKey : cellBlock.getGenoclusterKeys(markerKey)) {
-					String alleles = this.allelePairs.get(genoclusterKey);
-
-					for (Integer structureKey : cellBlock.getStructureKeys(markerKey, genoclusterKey)) {
-						String emapaTerm = this.anatomyTerm.get(structureKey);
-						String emapaID = this.anatomyID.get(structureKey);
-						List<String> emapaParents = this.anatomyParents.get(structureKey);
-						List<Integer> emapaAncestors = this.anatomyAncestors.get(structureKey);
-						Cell cell = cellBlock.getCell(markerKey, genoclusterKey, structureKey);
+				String alleles = this.allelePairs.get(genoclusterKey);
+				String emapaTerm = this.anatomyTerm.get(structureKey);
+				String emapaID = this.anatomyID.get(structureKey);
+				List<String> emapaParents = this.anatomyParents.get(structureKey);
+				List<Integer> emapaAncestors = this.anatomyAncestors.get(structureKey);
+				int normals = cells.get(cell, NORMALS);
+				int abnormals = cells.get(cell, ABNORMALS);
 
-						SolrInputDocument doc = new SolrInputDocument();
-						doc.addField(IndexConstants.UNIQUE_KEY, uniqueKey++);
-						doc.addField(IndexConstants.PARENT_ANATOMY_ID, emapaParents);
-						doc.addField(IndexConstants.ANCESTOR_ANATOMY_KEY, emapaAncestors);
-						doc.addField(IndexConstants.ANATOMY_TERM, emapaTerm);
-						doc.addField(IndexConstants.ANATOMY_ID, emapaID);
-						doc.addField(IndexConstants.MRK_ID, geneID);
-						doc.addField(IndexConstants.MRK_SYMBOL, geneSymbol);
-						doc.addField(IndexConstants.GENOCLUSTER_KEY, genoclusterKey);
-						doc.addField(IndexConstants.ALLELE_PAIRS, alleles);
-						doc.addField(IndexConstants.ANNOTATION_COUNT, cell.normals + cell.abnormals);
-						doc.addField(IndexConstants.IS_NORMAL, cell.isOnlyNormal());
-						doc.addField(IndexConstants.CHILDREN, cell.children);
-						doc.addField(IndexConstants.HAS_BACKGROUND_SENSITIVITY, cell.backgroundSensitive);
-						if (this.genoclusterSeqNum.containsKey(genoclusterKey)) {
-							doc.addField(IndexConstants.BY_GENOCLUSTER, genoclusterSeqNum.get(genoclusterKey));
-						} else {
-							doc.addField(IndexConstants.BY_GENOCLUSTER, 0);
-						}
-						
-						docs.add(doc);
-						if (docs.size() > this.documentCacheSize) {
-							writeDocs(docs);
-							docs = new ArrayList<SolrInputDocument>();
-						}
-					}
+				SolrInputDocument doc = new SolrInputDocument();
+				doc.addField(IndexConstants.UNIQUE_KEY, uniqueKey++);
+				doc.addField(IndexConstants.PARENT_ANATOMY_ID, emapaParents);
+				doc.addField(IndexConstants.ANCESTOR_ANATOMY_KEY, emapaAncestors);
+				doc.addField(IndexConstants.ANATOMY_TERM, emapaTerm);
+				doc.addField(IndexConstants.ANATOMY_ID, emapaID);
+				doc.addField(IndexConstants.MRK_ID, geneID);
+				doc.addField(IndexConstants.MRK_SYMBOL, geneSymbol);
+				doc.addField(IndexConstants.GENOCLUSTER_KEY, genoclusterKey);
+				doc.addField(IndexConstants.ALLELE_PAIRS, alleles);
+				doc.addField(IndexConstants.ANNOTATION_COUNT, normals + abnormals);
+				doc.addField(IndexConstants.IS_NORMAL, ((normals > 0) && (abnormals == 0)) ? 1 : 0);
+				doc.addField(IndexConstants.CHILDREN, cells.get(cell, CHILDREN));
+				doc.addField(IndexConstants.HAS_BACKGROUND_SENSITIVITY, cells.get(cell, BACKGROUND_SENSITIVE));
+				if (this.genoclusterSeqNum.containsKey(genoclusterKey)) {
+					doc.addField(IndexConstants.BY_GENOCLUSTER, genoclusterSeqNum.get(genoclusterKey));
+				} else {
+					doc.addField(IndexConstants.BY_GENOCLUSTER, 0);
+				}
+				
+				docs.add(doc);
+				if (docs.size() > this.documentCacheSize) {
+					writeDocs(docs);
+					docs = new ArrayList<SolrInputDocument>();
 				}
 			}
 			startMarker = endMarker;
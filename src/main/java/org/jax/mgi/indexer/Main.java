@@ -1,16 +1,19 @@
 package org.jax.mgi.indexer;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
+import org.jax.mgi.reporting.MetricsRegistry;
+import org.jax.mgi.shr.SQLExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,6 +22,8 @@ public class Main {
 	public static List<String> SPECIFIED_INDEXERS = new ArrayList<String>();
 	public static HashMap<String,Indexer> indexerMap = new HashMap<String,Indexer>();
 	public static boolean RUN_ALL_INDEXERS=false;
+	public static Map<String,List<String>> groupMap = new LinkedHashMap<String,List<String>>();
+	public static Map<String,List<String>> dependencyMap = new HashMap<String,List<String>>();
 
 	static {
 		/*
@@ -64,10 +69,36 @@ public class Main {
 		indexerMap.put("gxdHtSample", new GXDHtSampleIndexerSQL());
 		indexerMap.put("gxdHtExperiment", new GXDHtExperimentIndexerSQL());
 		indexerMap.put("mpHpPopup", new MpHpPopupIndexerSQL());
+
+		/*
+		 * Groups of related indexers, which can be requested by group name and which
+		 * the scheduler keeps together (they share data loaded from the database)
+		 * */
+		groupMap.put("hdp", Arrays.asList("hdpCoord", "hdpGene", "hdpDisease", "hdpGrid", "hdpGridAnnotation"));
+		groupMap.put("gxd", Arrays.asList("gxdLitIndex", "gxdEmapaAC"));
+		groupMap.put("gxdht", Arrays.asList("gxdHtSample", "gxdHtExperiment"));
+		groupMap.put("qs", Arrays.asList("qsAlleleBucket", "qsFeatureBucket", "qsStrainBucket", "qsVocabBucket", "qsOtherBucket"));
+
+		/*
+		 * Indexers that must wait for others to finish (and pass), when both are in the same
+		 * run.  None has such a constraint today (each writes its own core); declare one as:
+		 * dependencyMap.put("indexer", Arrays.asList("must finish first", ...));
+		 * */
 	}
 
 	public static int maxThreads = 1;
 
+	// where the metrics report (metrics.json, metrics.prom) is written at the end of a run
+	public static String metricsDir = "metrics";
+
+	// where the scheduler keeps indexer runtimes and heap footprints between runs; by
+	// default in /tmp, next to the timing files bin/buildIndexes keeps, so it does not
+	// depend on the directory feindexer is started from
+	public static String historyFile = new File("/tmp", "feindexer.history").getPath();
+
+	// heap (in MB) the scheduler may fill with concurrently running indexers; 0 means 85% of -Xmx
+	public static long heapBudgetMB = 0;
+
 	private static List<String> getIndexers() {
 		List<String> indexes = new ArrayList<String>();
 
@@ -90,28 +121,31 @@ public class Main {
 				if(arg.contains("maxThreads=")) {
 					String argValue = arg.replace("maxThreads=", "");
 					maxThreads = Integer.parseInt(argValue);
+				} else if(arg.startsWith("historyFile=")) {
+					historyFile = arg.replace("historyFile=", "");
+				} else if(arg.startsWith("heapBudgetMB=")) {
+					heapBudgetMB = Long.parseLong(arg.replace("heapBudgetMB=", ""));
+				} else if(arg.startsWith("metricsDir=")) {
+					metricsDir = arg.replace("metricsDir=", "");
+				} else if(arg.startsWith("embeddedSolrHome=")) {
+					// offline build: write into local cores under this Solr home, not over HTTP
+					EmbeddedCores.setSolrHome(arg.replace("embeddedSolrHome=", ""));
+					logger.info("building indexes offline in embedded Solr home: " + arg.replace("embeddedSolrHome=", ""));
+				} else if(arg.startsWith("exportDir=")) {
+					// export: write each index's documents to files under this directory, not to Solr
+					DocumentExport.setExportDir(arg.replace("exportDir=", ""));
+					logger.info("exporting documents to: " + arg.replace("exportDir=", ""));
+				} else if(arg.startsWith("importDir=")) {
+					// import: send Solr the documents exported under this directory, not from the database
+					DocumentExport.setImportDir(arg.replace("importDir=", ""));
+					logger.info("importing documents from: " + arg.replace("importDir=", ""));
 				} else if(indexerMap.containsKey(arg)) {
 					SPECIFIED_INDEXERS.add(arg);
 					logger.info("adding user specified index: " + arg + " to list of indexers to run.");
-				} else if("hmdc".equalsIgnoreCase(arg) || "hdp".equalsIgnoreCase(arg)) {
-					SPECIFIED_INDEXERS.add("hdpCoord");
-					SPECIFIED_INDEXERS.add("hdpGene");
-					SPECIFIED_INDEXERS.add("hdpDisease");
-					SPECIFIED_INDEXERS.add("hdpGrid");
-					SPECIFIED_INDEXERS.add("hdpGridAnnotation");
-				} else if("gxd".equalsIgnoreCase(arg)) {
-					SPECIFIED_INDEXERS.add("gxdLitIndex");
-					SPECIFIED_INDEXERS.add("gxdEmapaAC");
-				} else if ("gxdht".equalsIgnoreCase(arg)) {
-					SPECIFIED_INDEXERS.add("gxdHtSample");
-					SPECIFIED_INDEXERS.add("gxdHtExperiment");
-				} else if ("qs".equalsIgnoreCase(arg)) {
-					SPECIFIED_INDEXERS.add("qsAlleleBucket");
-					SPECIFIED_INDEXERS.add("qsFeatureBucket");
-					SPECIFIED_INDEXERS.add("qsStrainBucket");
-					SPECIFIED_INDEXERS.add("qsVocabBucket");
-					SPECIFIED_INDEXERS.add("qsOtherBucket");
-					SPECIFIED_INDEXERS.add("qsLocation");
+				} else if("hmdc".equalsIgnoreCase(arg)) {
+					SPECIFIED_INDEXERS.addAll(groupMap.get("hdp"));
+				} else if(groupMap.containsKey(arg.toLowerCase())) {
+					SPECIFIED_INDEXERS.addAll(groupMap.get(arg.toLowerCase()));
 				} else if ("list".equalsIgnoreCase(arg)) {
 					for (String s : getIndexers()) {
 						System.out.println(s);
@@ -124,6 +158,31 @@ public class Main {
 		}
 	}
 
+	/* Each running indexer may hold up to indexer.chunkWorkers pooled connections at once (its
+	 * own, and one per chunk helper) for as long as a processKeyRanges() call lasts.  If
+	 * db.pool.size cannot cover that for maxThreads indexers, an indexer starting up could wait
+	 * out db.pool.borrowTimeoutMs for its first connection and fail.  The pool size is a hard
+	 * cap on connections to the database, so give each indexer fewer chunk workers instead.
+	 */
+	private static void limitChunkWorkers() {
+		SQLExecutor ex = indexerMap.get(SPECIFIED_INDEXERS.get(0)).ex;
+		if (!ex.isPooled()) {
+			return;
+		}
+		int indexers = Math.min(Math.max(1, maxThreads), SPECIFIED_INDEXERS.size());
+		int perIndexer = Math.max(1, ex.getPoolSize() / indexers);
+		int chunkWorkers = Integer.parseInt(ex.props.getProperty("indexer.chunkWorkers", "4").trim());
+		if (ex.getPoolSize() < indexers) {
+			logger.info("db.pool.size=" + ex.getPoolSize() + " is less than maxThreads=" + maxThreads
+				+ "; indexers will wait for each other's connections");
+		}
+		if (chunkWorkers > perIndexer) {
+			logger.info("db.pool.size=" + ex.getPoolSize() + " leaves " + perIndexer + " connection(s) for each of "
+				+ indexers + " indexers; limiting them to " + perIndexer + " chunk worker(s)");
+			Indexer.limitChunkWorkers(perIndexer);
+		}
+	}
+
 	public static void main(String[] args) {
 		parseCommandInput(args);
 
@@ -139,23 +198,32 @@ public class Main {
 			exitWithMessage("There are no specified indexers to run. Exiting.");
 		}
 
+		if(DocumentExport.isExporting() && (DocumentExport.isImporting() || EmbeddedCores.isEnabled())) {
+			exitWithMessage("exportDir cannot be combined with importDir or embeddedSolrHome. Exiting.");
+		}
+
 		// track failed indexers for later reporting
 		List<String> failedIndexers = new ArrayList<String>();
 
-		ExecutorService executorPool = Executors.newFixedThreadPool(maxThreads);
-		
-		for(String idxKey: SPECIFIED_INDEXERS) {
-			executorPool.submit(indexerMap.get(idxKey));
-		}
-		
+		limitChunkWorkers();
+
+		// longest first, honoring dependencies, groups and the heap budget
+		long heapBudget = (heapBudgetMB > 0) ? heapBudgetMB * 1024 * 1024 : (long) (Runtime.getRuntime().maxMemory() * 0.85);
+		IndexerScheduler scheduler = new IndexerScheduler(maxThreads, heapBudget, new File(historyFile));
 		try {
-			executorPool.shutdown();
-			while(!executorPool.awaitTermination(30, TimeUnit.SECONDS)) {
-				logger.info("Waiting for Threads to finish");
-			}
+			scheduler.run(SPECIFIED_INDEXERS, indexerMap, dependencyMap, groupMap);
+		} catch (IllegalArgumentException e) {
+			exitWithMessage(e.getMessage() + ". Exiting.");
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
+
+		// flush and close any local cores from an offline build
+		EmbeddedCores.shutdown();
+		// and the HTTP client the indexers shared
+		SolrTransport.shutdown();
+
+		MetricsRegistry.writeReports(new File(metricsDir));
 		
 		for(String idxKey: SPECIFIED_INDEXERS) {
 			if(!indexerMap.get(idxKey).indexPassed) {
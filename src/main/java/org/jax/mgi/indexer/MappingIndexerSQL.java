@@ -9,12 +9,11 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.solr.common.SolrInputDocument;
+import org.jax.mgi.shr.JsonEncoder;
 import org.jax.mgi.shr.fe.IndexConstants;
 import org.jax.mgi.shr.fe.sort.SmartAlphaComparator;
 import org.jax.mgi.shr.jsonmodel.MappingExperimentSummary;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /* Is: an indexer that builds the index supporting the genetic mapping experiment summary page (reachable from the
  * 		marker detail page and the reference summary/detail page).  Each document in the index represents
  * 		data for a single mapping experiment, and each experiment is represented in only one document.
@@ -34,7 +33,7 @@ public class MappingIndexerSQL extends Indexer {
 	private Map<Integer,List<String>> referenceIDs = null;	// searchable reference IDs per experiment key
 	private Map<Integer,List<String>> detailsCache = null;	// detail snippets per experiment key
 
-	private ObjectMapper mapper = new ObjectMapper();				// converts objects to JSON
+	private JsonEncoder json = new JsonEncoder();				// converts objects to JSON
 
 	/*--------------------*/
 	/*--- constructors ---*/
@@ -240,7 +239,7 @@ public class MappingIndexerSQL extends Indexer {
 				}
 			}
 
-			doc.addField(IndexConstants.MLD_EXPERIMENT, mapper.writeValueAsString(experiment));
+			doc.addField(IndexConstants.MLD_EXPERIMENT, json.toJson(experiment));
 			
 			// Add this doc to the batch we're collecting.  If the stack hits our
 			// threshold, send it to the server and reset it.
@@ -266,9 +265,11 @@ public class MappingIndexerSQL extends Indexer {
 	@Override
 	public void index() throws Exception {
 		// collect various mappings needed for data lookup
-		cacheDetails();
-		cacheMarkers();
-		cacheReferences();
+		cacheWarmer()
+			.add("details", this::cacheDetails)
+			.add("markers", this::cacheMarkers)
+			.add("references", this::cacheReferences)
+			.run();
 		processExperiments();
 	}
 }
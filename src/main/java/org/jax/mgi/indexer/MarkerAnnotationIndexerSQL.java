@@ -114,122 +114,128 @@ public class MarkerAnnotationIndexerSQL extends Indexer {
 		Map<String,Set<String>> termToHeaders = this.getHeaderTerms();
 
 		int chunkSize = 50000;
-		int startKey = minMarkerKey;
-		int endKey = startKey + chunkSize;
+
+		// build several chunks of markers at once
+		processKeyRanges(minMarkerKey, maxMarkerKey, chunkSize, (startKey, endKey) -> processMarkers(startKey, endKey,
+			ancestorIds, slimTermSequenceNumbers, referenceSequenceNumbers, termToHeaders));
+
+		commit();
+		logger.info("Done adding to solr; completed markerAnnotation index.");
+	}
+
+	/* build and send the annotation documents for markers >= startKey and < endKey
+	 */
+	private void processMarkers(int startKey, int endKey, Map<String,Set<String>> ancestorIds,
+			Map<String, Integer> slimTermSequenceNumbers, Map<String,Integer> referenceSequenceNumbers,
+			Map<String,Set<String>> termToHeaders) throws Exception {
+		logger.info("Building documents for markers " + startKey + " to " + (endKey - 1));
 
 		Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
 
-		while (startKey <= maxMarkerKey) {
-			logger.info("Building documents for markers " + startKey + " to " + (endKey - 1));
-
-			// get the references for each annotation
-			logger.info(" - Finding references for annotations");
-			String annotToRefSQL = "select ar.annotation_key, ar.reference_key "
-					+ "from marker_to_annotation a "
-					+ "inner join annotation_reference ar on (a.annotation_key = ar.annotation_key)"
-					+ "where a.marker_key >= " + startKey
-					+ " and a.marker_key < " + endKey;
-
-			logger.info(annotToRefSQL);
-			Map<String, Set<String>> annotToRefs = this.populateLookup(annotToRefSQL, "annotation_key", "reference_key",
-					"annotation_key to reference_keys");
-
-			logger.info(" - Found refs for " + annotToRefs.size() + " annotations");
-
-			// Setup the main query here
-			// A unique annotation is here defined as: (annotation key, vocab name, term, evidence code,
-			//	evidence term, term ID, qualifier, marker key, DAG name, evidence category, term key)
-
-			logger.info(" - Getting all marker annotations.");
-			rs = ex.executeProto("select a.annotation_key, a.vocab_name, a.term, a.evidence_code, a.evidence_term, " +
-					"a.term_id, a.qualifier, mta.marker_key, a.dag_name, asn.by_dag_structure, asn.by_vocab_dag_term, " +
-					"asn.by_object_dag_term, gec.evidence_category, a.term_key, " +
-					"asn.by_isoform, msn.by_symbol " +
-					"from annotation as a " +
-					"join marker_to_annotation as mta on a.annotation_key = mta.annotation_key " +
-					"join annotation_sequence_num as asn on a.annotation_key = asn.annotation_key " +
-					"join go_evidence_category as gec on a.evidence_code = gec.evidence_code " +
-					"join marker_sequence_num msn on msn.marker_Key = mta.marker_key " +
-					"where mta.marker_key >= " + startKey + " and mta.marker_key < " + endKey);
-
-			// Parse the main query results here.
-
-			while (rs.next()) {
-				String annotKey = rs.getString("annotation_key");
-				String termKey = rs.getString("term_key");
-				String qualifier = rs.getString("qualifier");
-				String category = rs.getString("evidence_category");
-				String byEvidenceTerm = rs.getString("evidence_code") + " - " + rs.getString("evidence_term");
-
-				if (qualifier == null) {
-					qualifier = "";
-				}
-				qualifier = qualifier.toLowerCase();
+		// get the references for each annotation
+		logger.info(" - Finding references for annotations");
+		String annotToRefSQL = "select ar.annotation_key, ar.reference_key "
+				+ "from marker_to_annotation a "
+				+ "inner join annotation_reference ar on (a.annotation_key = ar.annotation_key)"
+				+ "where a.marker_key >= ?"
+				+ " and a.marker_key < ?";
+
+		logger.info(annotToRefSQL);
+		Map<String, Set<String>> annotToRefs = this.populateLookup(ex.executePrepared(annotToRefSQL, startKey, endKey),
+				"annotation_key", "reference_key", "annotation_key to reference_keys");
+
+		logger.info(" - Found refs for " + annotToRefs.size() + " annotations");
+
+		// Setup the main query here
+		// A unique annotation is here defined as: (annotation key, vocab name, term, evidence code,
+		//	evidence term, term ID, qualifier, marker key, DAG name, evidence category, term key)
+
+		logger.info(" - Getting all marker annotations.");
+		ResultSet rs = ex.executePrepared("select a.annotation_key, a.vocab_name, a.term, a.evidence_code, a.evidence_term, " +
+				"a.term_id, a.qualifier, mta.marker_key, a.dag_name, asn.by_dag_structure, asn.by_vocab_dag_term, " +
+				"asn.by_object_dag_term, gec.evidence_category, a.term_key, " +
+				"asn.by_isoform, msn.by_symbol " +
+				"from annotation as a " +
+				"join marker_to_annotation as mta on a.annotation_key = mta.annotation_key " +
+				"join annotation_sequence_num as asn on a.annotation_key = asn.annotation_key " +
+				"join go_evidence_category as gec on a.evidence_code = gec.evidence_code " +
+				"join marker_sequence_num msn on msn.marker_Key = mta.marker_key " +
+				"where mta.marker_key >= ? and mta.marker_key < ?", startKey, endKey);
+
+		// Parse the main query results here.
+
+		while (rs.next()) {
+			String annotKey = rs.getString("annotation_key");
+			String termKey = rs.getString("term_key");
+			String qualifier = rs.getString("qualifier");
+			String category = rs.getString("evidence_category");
+			String byEvidenceTerm = rs.getString("evidence_code") + " - " + rs.getString("evidence_term");
 
-				SolrInputDocument doc = new SolrInputDocument();
-				doc.addField(IndexConstants.MRK_KEY, rs.getString("marker_key"));
-				doc.addField(IndexConstants.ANNOTATION_KEY, annotKey);
-				doc.addField(IndexConstants.VOC_TERM, rs.getString("term"));
-				doc.addField(IndexConstants.VOC_ID, rs.getString("term_id"));
-				doc.addField(IndexConstants.VOC_VOCAB, rs.getString("vocab_name"));
-				doc.addField(IndexConstants.VOC_DAG_NAME, rs.getString("dag_name"));
+			if (qualifier == null) {
+				qualifier = "";
+			}
+			qualifier = qualifier.toLowerCase();
 
-				// Sort fields
+			SolrInputDocument doc = new SolrInputDocument();
+			doc.addField(IndexConstants.MRK_KEY, rs.getString("marker_key"));
+			doc.addField(IndexConstants.ANNOTATION_KEY, annotKey);
+			doc.addField(IndexConstants.VOC_TERM, rs.getString("term"));
+			doc.addField(IndexConstants.VOC_ID, rs.getString("term_id"));
+			doc.addField(IndexConstants.VOC_VOCAB, rs.getString("vocab_name"));
+			doc.addField(IndexConstants.VOC_DAG_NAME, rs.getString("dag_name"));
 
-				doc.addField(IndexConstants.BY_EVIDENCE_CODE, rs.getString("evidence_code"));
-				doc.addField(IndexConstants.BY_EVIDENCE_TERM, byEvidenceTerm);
-				doc.addField(IndexConstants.VOC_BY_DAG_STRUCT, rs.getString("by_dag_structure"));
-				doc.addField(IndexConstants.VOC_BY_DAG_TERM, rs.getString("by_vocab_dag_term"));
-				doc.addField(IndexConstants.BY_MRK_DAG_TERM, rs.getString("by_object_dag_term"));
-				doc.addField(IndexConstants.BY_ISOFORM, rs.getString("by_isoform"));
-				doc.addField(IndexConstants.MRK_BY_SYMBOL, rs.getString("by_symbol"));
+			// Sort fields
 
+			doc.addField(IndexConstants.BY_EVIDENCE_CODE, rs.getString("evidence_code"));
+			doc.addField(IndexConstants.BY_EVIDENCE_TERM, byEvidenceTerm);
+			doc.addField(IndexConstants.VOC_BY_DAG_STRUCT, rs.getString("by_dag_structure"));
+			doc.addField(IndexConstants.VOC_BY_DAG_TERM, rs.getString("by_vocab_dag_term"));
+			doc.addField(IndexConstants.BY_MRK_DAG_TERM, rs.getString("by_object_dag_term"));
+			doc.addField(IndexConstants.BY_ISOFORM, rs.getString("by_isoform"));
+			doc.addField(IndexConstants.MRK_BY_SYMBOL, rs.getString("by_symbol"));
 
-				doc.addField(IndexConstants.EVIDENCE_CATEGORY, category);
-				doc.addField(IndexConstants.VOC_QUALIFIER, qualifier);
 
-				// include references for each annotation
+			doc.addField(IndexConstants.EVIDENCE_CATEGORY, category);
+			doc.addField(IndexConstants.VOC_QUALIFIER, qualifier);
 
-				int byRefs = 9999999;
-				if (annotToRefs.containsKey(annotKey)) {
-					for (String refsKey : annotToRefs.get(annotKey)) {
-						doc.addField(IndexConstants.REF_KEY, refsKey);
-						byRefs = Math.min(byRefs, referenceSequenceNumbers.get(refsKey));
-					}
+			// include references for each annotation
+
+			int byRefs = 9999999;
+			if (annotToRefs.containsKey(annotKey)) {
+				for (String refsKey : annotToRefs.get(annotKey)) {
+					doc.addField(IndexConstants.REF_KEY, refsKey);
+					byRefs = Math.min(byRefs, referenceSequenceNumbers.get(refsKey));
 				}
-				doc.addField(IndexConstants.BY_REFERENCE, byRefs);
-
-				// include header terms where available
-				int byHeaders = 9999999;
-				if (termToHeaders.containsKey(termKey)) {
-					for (String header : termToHeaders.get(termKey)) {
-						doc.addField(IndexConstants.SLIM_TERM, header);
-						if (slimTermSequenceNumbers.containsKey(header)) {
-							byHeaders = Math.min(byHeaders, slimTermSequenceNumbers.get(header));
-						}
+			}
+			doc.addField(IndexConstants.BY_REFERENCE, byRefs);
+
+			// include header terms where available
+			int byHeaders = 9999999;
+			if (termToHeaders.containsKey(termKey)) {
+				for (String header : termToHeaders.get(termKey)) {
+					doc.addField(IndexConstants.SLIM_TERM, header);
+					if (slimTermSequenceNumbers.containsKey(header)) {
+						byHeaders = Math.min(byHeaders, slimTermSequenceNumbers.get(header));
 					}
 				}
-				doc.addField(IndexConstants.BY_CATEGORY, byHeaders);
+			}
+			doc.addField(IndexConstants.BY_CATEGORY, byHeaders);
 
-				// include GO IDs of ancestors
-				if (ancestorIds.containsKey(termKey)) {
-					for (String ancestorId : ancestorIds.get(termKey)) {
-						doc.addField(IndexConstants.VOC_ID, ancestorId);
-					}
+			// include GO IDs of ancestors
+			if (ancestorIds.containsKey(termKey)) {
+				for (String ancestorId : ancestorIds.get(termKey)) {
+					doc.addField(IndexConstants.VOC_ID, ancestorId);
 				}
+			}
 
-				docs.add(doc);
+			docs.add(doc);
 
-				if (docs.size() > 5000) {
-					writeDocs(docs);
-					docs = new ArrayList<SolrInputDocument>();
-				}
-			} // end -- while rs.next()
-			startKey = endKey;
-			endKey = endKey + chunkSize;
-		}
+			if (docs.size() > 5000) {
+				writeDocs(docs);
+				docs = new ArrayList<SolrInputDocument>();
+			}
+		} // end -- while rs.next()
+		rs.close();
 		writeDocs(docs);
-		commit();
-		logger.info("Done adding to solr; completed markerAnnotation index.");
 	}
 }
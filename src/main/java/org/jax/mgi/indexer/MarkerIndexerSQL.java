@@ -57,25 +57,12 @@ public class MarkerIndexerSQL extends Indexer
 				"where t.vocab_name in ('GO','InterPro Domains') ";
 		this.termSynonyms = this.populateLookup(synonymQuery,"term_id","synonym","term ID -> synonyms");
 
-		// How many markers are there total?
-		ResultSet rs = ex.executeProto("select max(marker_key) as maxMarkerKey from marker");
-		rs.next();
-
-		Integer start = 0;
-		Integer end = rs.getInt("maxMarkerKey");
+		// Perform the chunking (several chunks at once), splitting the markers into even chunks
 		int chunkSize = 10000;
+		List<int[]> chunks = planKeyRanges("select marker_key from marker", chunkSize, KeyBounds.END_INCLUSIVE);
 
-		int modValue = end.intValue() / chunkSize;
-
-		// Perform the chunking
-		logger.info("Loading markers up to marker_key="+end);
-		for (int i = 0; i <= modValue; i++) 
-		{
-			start = i * chunkSize;
-			end = start + chunkSize;
-
-			processMarkers(start,end);
-		}
+		logger.info("Loading markers");
+		processKeyRanges(chunks, (start, end) -> processMarkers(start, end));
 
 		logger.info("Done loading markers");
 
@@ -90,18 +77,18 @@ public class MarkerIndexerSQL extends Indexer
 		logger.info("Processing marker keys "+start+" to "+end);
 
 		// Get marker id -> marker relationships
-		String markerToIDSQL = "select distinct marker_key, acc_id from marker_id where marker_key > " + start + " and marker_key <= "+ end + " and private = 0";
-		Map<String,Set<String>> idToMarkers = this.populateLookup(markerToIDSQL, "marker_key", "acc_id","marker to IDs");
+		String markerToIDSQL = "select distinct marker_key, acc_id from marker_id where marker_key > ? and marker_key <= ? and private = 0";
+		Map<String,Set<String>> idToMarkers = this.populateLookup(ex.executePrepared(markerToIDSQL, start, end), "marker_key", "acc_id","marker to IDs");
 
 		// Get marker -> reference relationships, by marker key
-		String markerToReferenceSQL = "select distinct marker_key, reference_key from marker_to_reference where marker_key > " + start + " and marker_key <= "+ end;
-		Map<String,Set<String>> referenceToMarkers = this.populateLookup(markerToReferenceSQL, "marker_key", "reference_key","marker to ref keys");
+		String markerToReferenceSQL = "select distinct marker_key, reference_key from marker_to_reference where marker_key > ? and marker_key <= ?";
+		Map<String,Set<String>> referenceToMarkers = this.populateLookup(ex.executePrepared(markerToReferenceSQL, start, end), "marker_key", "reference_key","marker to ref keys");
 
 		Map<String,List<MarkerTerm>> termToMarkers = this.getMarkerTerms(start,end);
 
 		// Get marker terms and their IDs
-		String markerToTermIDSQL = "select distinct m.marker_key, a.term_id from marker_to_annotation m, annotation a where m.marker_key > " + start + " and m.marker_key <= "+ end + " and m.annotation_key = a.annotation_key";
-		Map<String,Set <String>> termToMarkersID = this.populateLookup(markerToTermIDSQL, "marker_key", "term_id","marker to Terms/IDs");
+		String markerToTermIDSQL = "select distinct m.marker_key, a.term_id from marker_to_annotation m, annotation a where m.marker_key > ? and m.marker_key <= ? and m.annotation_key = a.annotation_key";
+		Map<String,Set <String>> termToMarkersID = this.populateLookup(ex.executePrepared(markerToTermIDSQL, start, end), "marker_key", "term_id","marker to Terms/IDs");
 
 		// Get marker location information
 		Map<Integer,MarkerLocation> locationMap = getMarkerLocations(start,end);
@@ -128,8 +115,8 @@ public class MarkerIndexerSQL extends Indexer
 				"marker_sequence_num msn on msn.marker_key=m.marker_key " +
 				"where m.organism = 'mouse' " +
 				"	and m_sub_type.vocab_name='Marker Category' " +
-				"	and m.marker_key > "+start+" and m.marker_key <= "+end;
-		ResultSet rs = ex.executeProto(markerSQL);
+				"	and m.marker_key > ? and m.marker_key <= ?";
+		ResultSet rs = ex.executePrepared(markerSQL, start, end);
 
 		Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
 
@@ -259,10 +246,10 @@ public class MarkerIndexerSQL extends Indexer
 		logger.info("building map of marker_keys -> marker locations");
 		String locationQuery="select ml.* " +
 				"from marker_location ml " +
-				"where ml.marker_key > "+start+" and ml.marker_key <= "+end+" " +
+				"where ml.marker_key > ? and ml.marker_key <= ? " +
 				"order by sequence_num ";
 		Map<Integer,MarkerLocation> locationMap = new HashMap<Integer,MarkerLocation>();
-		ResultSet rs = ex.executeProto(locationQuery);
+		ResultSet rs = ex.executePrepared(locationQuery, start, end);
 		while(rs.next())
 		{
 			Integer mrkKey = rs.getInt("marker_key");
@@ -297,17 +284,16 @@ public class MarkerIndexerSQL extends Indexer
 		return locationMap;
 	}
 
-	/* execute the given 'sqlCmd', taking data from 'keyField' (marker key),
-	 * 'termField' (nomen value), and 'termTypeField' (type of nomen value),
-	 * and adding it to the given 'nomenMap'.  'dataSet' identifies the data
-	 * set for reporting.
+	/* read the results 'rs' of a nomen query, taking data from 'keyField'
+	 * (marker key), 'termField' (nomen value), and 'termTypeField' (type of
+	 * nomen value), and adding it to the given 'nomenMap'.  'dataSet'
+	 * identifies the data set for reporting.  Closes 'rs'.
 	 */
-	private void populateNomenMap (String sqlCmd, String keyField,
+	private void populateNomenMap (ResultSet rs, String keyField,
 			String termField, String termTypeField, String dataSet,
 			Map<Integer,List<MarkerNomen>> nomenMap)
 					throws Exception
 	{
-		ResultSet rs = ex.executeProto(sqlCmd);
 		while(rs.next())
 		{
 			Integer mrkKey = rs.getInt(keyField);
@@ -323,6 +309,7 @@ public class MarkerIndexerSQL extends Indexer
 				nomenMap.get(mrkKey).add(mn);
 			}
 		}
+		rs.close();
 		logger.info("added " + dataSet + " to nomenMap");
 	}
 
@@ -351,10 +338,10 @@ public class MarkerIndexerSQL extends Indexer
 				+ "    'cattle symbol', 'chicken symbol', 'dog symbol', "
 				+ "    'rhesus macaque symbol', 'western clawed frog symbol', "
 				+ "    'zebrafish symbol') "
-				+ " and marker_key > " + start
-				+ " and marker_key <= " + end;
+				+ " and marker_key > ?"
+				+ " and marker_key <= ?";
 
-		populateNomenMap (markerNomenSQL, "marker_key", "term", "term_type",
+		populateNomenMap (ex.executePrepared(markerNomenSQL, start, end), "marker_key", "term", "term_type",
 				"marker symbols, names, synonyms", nomenMap);
 
 		// add allele symbols
@@ -363,11 +350,11 @@ public class MarkerIndexerSQL extends Indexer
 				+ "from marker_to_allele m, "
 				+ "    allele a "
 				+ "where m.allele_key = a.allele_key "
-				+ "    and m.marker_key > " + start
-				+ "    and m.marker_key <= " + end
+				+ "    and m.marker_key > ?"
+				+ "    and m.marker_key <= ?"
 				+ " order by m.marker_key, a.symbol";
 
-		populateNomenMap (alleleSymbolSQL, "marker_key", "symbol", "term_type",
+		populateNomenMap (ex.executePrepared(alleleSymbolSQL, start, end), "marker_key", "symbol", "term_type",
 				"allele symbols", nomenMap);
 
 		// add allele names
@@ -376,10 +363,10 @@ public class MarkerIndexerSQL extends Indexer
 				+ "from marker_to_allele m, "
 				+ "    allele a "
 				+ "where m.allele_key = a.allele_key "
-				+ "    and m.marker_key > " + start
-				+ "    and m.marker_key <= " + end;
+				+ "    and m.marker_key > ?"
+				+ "    and m.marker_key <= ?";
 
-		populateNomenMap (alleleNameSQL, "marker_key", "name", "term_type",
+		populateNomenMap (ex.executePrepared(alleleNameSQL, start, end), "marker_key", "name", "term_type",
 				"allele names", nomenMap);
 
 		// return the completed mapping
@@ -396,12 +383,12 @@ public class MarkerIndexerSQL extends Indexer
 				+ "    replace(n.note, 'Background Sensitivity: ', '') as note "
 				+ "from marker_to_allele mta, "
 				+ "    allele_note n "
-				+ "where mta.marker_key > " + start
-				+ "    and mta.marker_key <= " + end
+				+ "where mta.marker_key > ?"
+				+ "    and mta.marker_key <= ?"
 				+ "    and mta.allele_key = n.allele_key "
 				+ "    and n.note_type = 'General' ";
 
-		Map<String,Set<String>> notes = this.populateLookup (generalNotesSQL,
+		Map<String,Set<String>> notes = this.populateLookup (ex.executePrepared(generalNotesSQL, start, end),
 				"marker_key", "note", "marker_key->general notes");
 
 		// add QTL notes for the marker
@@ -411,20 +398,20 @@ public class MarkerIndexerSQL extends Indexer
 				+ "where m.marker_key = q.marker_key "
 				+ "    and q.note_type = 'TEXT-QTL' "
 				+ "    and m.marker_type = 'QTL' "
-				+ "    and m.marker_key > " + start
-				+ "    and m.marker_key <= " + end;
+				+ "    and m.marker_key > ?"
+				+ "    and m.marker_key <= ?";
 
-		notes = this.populateLookup (qtlNotesSQL, "marker_key", "note",
+		notes = this.populateLookup (ex.executePrepared(qtlNotesSQL, start, end), "marker_key", "note",
 				"marker_key->QTL notes", notes);
 
 		// add annotation notes rolled up to the marker level
 		String annotationNotesSQL = "select marker_key, note "
 				+ "from marker_note "
-				+ "where marker_key > " + start
-				+ "    and marker_key <= " + end
+				+ "where marker_key > ?"
+				+ "    and marker_key <= ?"
 				+ "    and note_type = 'rolled up annotation notes' ";
 
-		notes = this.populateLookup (annotationNotesSQL, "marker_key", "note",
+		notes = this.populateLookup (ex.executePrepared(annotationNotesSQL, start, end), "marker_key", "note",
 				"marker_key->annotation notes", notes);
 
 		return notes;
@@ -443,11 +430,11 @@ public class MarkerIndexerSQL extends Indexer
 				+ "where mta.annotation_key = a.annotation_key "
 				+ "    and a.annotation_type in ('Mammalian Phenotype/Marker', "
 				+ "        'DO/Marker') "
-				+ "    and mta.marker_key > " + start
-				+ "    and mta.marker_key <= " + end;
+				+ "    and mta.marker_key > ?"
+				+ "    and mta.marker_key <= ?";
 
 		Map<String,Set<String>> allelePhenoIdMap = this.populateLookup(
-				mpIdsSQL, "marker_key", "term_id",
+				ex.executePrepared(mpIdsSQL, start, end), "marker_key", "term_id",
 				"marker key->direct DO/MP IDs");
 
 		// add the alternate IDs for the annotated MP and DO terms
@@ -462,10 +449,10 @@ public class MarkerIndexerSQL extends Indexer
 				+ "    and a.term_id = t.primary_id "
 				+ "    and a.term_id != i.acc_id "
 				+ "    and t.term_key = i.term_key "
-				+ "    and mta.marker_key > " + start
-				+ "    and mta.marker_key <= " + end;
+				+ "    and mta.marker_key > ?"
+				+ "    and mta.marker_key <= ?";
 
-		allelePhenoIdMap = this.populateLookup(altIdSQL, "marker_key",
+		allelePhenoIdMap = this.populateLookup(ex.executePrepared(altIdSQL, start, end), "marker_key",
 				"acc_id", "marker_key->direct alternate DO/MP IDs",
 				allelePhenoIdMap);
 
@@ -485,10 +472,10 @@ public class MarkerIndexerSQL extends Indexer
 				+ "    and t.term_key = tas.term_key "
 				+ "    and tas.ancestor_primary_id = anc.primary_id "
 				+ "    and anc.term_key = i.term_key "
-				+ "    and mta.marker_key > " + start
-				+ "    and mta.marker_key <= " + end;
+				+ "    and mta.marker_key > ?"
+				+ "    and mta.marker_key <= ?";
 
-		allelePhenoIdMap = this.populateLookup(ancestorIdsSQL, "marker_key",
+		allelePhenoIdMap = this.populateLookup(ex.executePrepared(ancestorIdsSQL, start, end), "marker_key",
 				"acc_id", "marker_key->ancestor DO/MP IDs",
 				allelePhenoIdMap);
 
@@ -508,11 +495,11 @@ public class MarkerIndexerSQL extends Indexer
 				+ "where mta.annotation_key = a.annotation_key "
 				+ "    and a.annotation_type in ('Mammalian Phenotype/Marker', "
 				+ "        'DO/Marker') "
-				+ "    and mta.marker_key > " + start
-				+ "    and mta.marker_key <= " + end;
+				+ "    and mta.marker_key > ?"
+				+ "    and mta.marker_key <= ?";
 
 		Map<String,Set<String>> allelePhenoTermMap = this.populateLookup(
-				directTermsSQL, "marker_key", "term",
+				ex.executePrepared(directTermsSQL, start, end), "marker_key", "term",
 				"marker_key->direct MP/DO terms");
 
 		// add synonyms for the annotated MP and DO terms
@@ -524,12 +511,12 @@ public class MarkerIndexerSQL extends Indexer
 				+ "where mta.annotation_key = a.annotation_key "
 				+ "    and a.annotation_type in ('Mammalian Phenotype/Marker', "
 				+ "        'DO/Marker') "
-				+ "    and mta.marker_key > " + start
-				+ "    and mta.marker_key <= " + end
+				+ "    and mta.marker_key > ?"
+				+ "    and mta.marker_key <= ?"
 				+ "    and a.term_id = t.primary_id "
 				+ "    and t.term_key = s.term_key ";
 
-		allelePhenoTermMap = this.populateLookup(synonymSQL, "marker_key",
+		allelePhenoTermMap = this.populateLookup(ex.executePrepared(synonymSQL, start, end), "marker_key",
 				"synonym", "marker_key->MP/DO synonyms", allelePhenoTermMap);
 
 		// add ancestor terms for the annotated MP and DO terms
@@ -542,12 +529,12 @@ public class MarkerIndexerSQL extends Indexer
 				+ "where mta.annotation_key = a.annotation_key "
 				+ "    and a.annotation_type in ('Mammalian Phenotype/Marker', "
 				+ "        'DO/Marker') "
-				+ "    and mta.marker_key > " + start
-				+ "    and mta.marker_key <= " + end
+				+ "    and mta.marker_key > ?"
+				+ "    and mta.marker_key <= ?"
 				+ "    and a.term_id = t.primary_id "
 				+ "    and t.term_key = tas.term_key ";
 
-		allelePhenoTermMap = this.populateLookup(ancestorTermsSQL,
+		allelePhenoTermMap = this.populateLookup(ex.executePrepared(ancestorTermsSQL, start, end),
 				"marker_key", "ancestor_term",
 				"marker_key->ancestor MP/DO terms", allelePhenoTermMap);
 
@@ -563,14 +550,14 @@ public class MarkerIndexerSQL extends Indexer
 				+ "where mta.annotation_key = a.annotation_key "
 				+ "    and a.annotation_type in ('Mammalian Phenotype/Marker', "
 				+ "        'DO/Marker') "
-				+ "    and mta.marker_key > " + start
-				+ "    and mta.marker_key <= " + end
+				+ "    and mta.marker_key > ?"
+				+ "    and mta.marker_key <= ?"
 				+ "    and a.term_id = t.primary_id "
 				+ "    and t.term_key = tas.term_key "
 				+ "    and tas.ancestor_primary_id = anc.primary_id "
 				+ "    and anc.term_key = s.term_key";
 
-		allelePhenoTermMap = this.populateLookup(ancestorSynonymSQL,
+		allelePhenoTermMap = this.populateLookup(ex.executePrepared(ancestorSynonymSQL, start, end),
 				"marker_key", "synonym", "marker_key->ancestor MP/DO synonyms",
 				allelePhenoTermMap);
 
@@ -585,13 +572,13 @@ public class MarkerIndexerSQL extends Indexer
 				"from marker_to_annotation m, " +
 				"	annotation a join " +
 				"	term t on t.primary_id=a.term_id " +
-				"where m.marker_key > " + start + " and m.marker_key <= "+ end +" "+
+				"where m.marker_key > ? and m.marker_key <= ? "+
 				"and m.annotation_key = a.annotation_key " +
 				"and a.annotation_type in ('GO/Marker','InterPro/Marker') " +
 				"and a.term not in ('cellular_component','biological_process','molecular_function') ";
 		Map <String,List<MarkerTerm>> tempMap = new HashMap<String,List<MarkerTerm>>();
 
-		ResultSet rs = ex.executeProto(markerToTermSQL); 
+		ResultSet rs = ex.executePrepared(markerToTermSQL, start, end); 
 		while (rs.next()) 
 		{
 			String key = rs.getString("marker_key");
@@ -0,0 +1,179 @@
+package org.jax.mgi.indexer;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jax.mgi.shr.IntIntMap;
+import org.jax.mgi.shr.LongIntMap;
+
+/* Is: the cells of one batch of an anatomy matrix (for MPCorrelationMatrixIndexerSQL and
+ * 	RecombinaseMatrixIndexerSQL), kept as columns rather than as one object per cell.
+ * Has: a row for each (marker, column) pair -- the column being a genocluster or an allele --
+ * 	and a cell for each (row, structure) pair that has data.  Each cell has a fixed number of
+ * 	int counters, chosen by the indexer (annotation counts, flags, and such); counter c of
+ * 	every cell is in counts[c], indexed by cell number.
+ * Does: hands out cell numbers (creating cells as needed) so the indexer can update the cell
+ * 	for an annotation and then those for the annotation's ancestors, and lists the cells in
+ * 	(marker, column, structure) order for writing them out.
+ */
+class MatrixCellStore {
+
+	// Is: dense ordinals (0, 1, 2...) for anatomy structure keys, so cells can refer to
+	// structures by small ints.  Shared by all the batches of one indexer.
+	static class Structures {
+		private IntIntMap ordinalOf = new IntIntMap();
+		private int[] keys = new int[1024];
+
+		/* get the ordinal for 'structureKey', assigning the next one if it has none yet */
+		int ordinal(int structureKey) {
+			int ordinal = ordinalOf.get(structureKey, -1);
+			if (ordinal < 0) {
+				ordinal = ordinalOf.size();
+				if (ordinal == keys.length) {
+					keys = Arrays.copyOf(keys, ordinal * 2);
+				}
+				keys[ordinal] = structureKey;
+				ordinalOf.put(structureKey, ordinal);
+			}
+			return ordinal;
+		}
+
+		/* get the ordinals for the given structure keys, in the same order (keeping any
+		 * repeats, skipping nulls); empty if 'structureKeys' is null
+		 */
+		int[] ordinals(List<Integer> structureKeys) {
+			if (structureKeys == null) { return new int[0]; }
+			int[] ordinals = new int[structureKeys.size()];
+			int count = 0;
+			for (Integer structureKey : structureKeys) {
+				if (structureKey != null) {
+					ordinals[count++] = ordinal(structureKey);
+				}
+			}
+			return Arrays.copyOf(ordinals, count);
+		}
+
+		int key(int ordinal) {
+			return keys[ordinal];
+		}
+	}
+
+	private Structures structures;
+
+	// rows:  (marker key, column key) for each row number
+	private LongIntMap rowOf = new LongIntMap();
+	private int[] rowMarker = new int[1024];
+	private int[] rowColumn = new int[1024];
+
+	// cells:  row number and structure ordinal for each cell number, plus the counters
+	private LongIntMap cellOf = new LongIntMap(1 << 14);
+	private int[] cellRow = new int[1 << 14];
+	private int[] cellStructure = new int[1 << 14];
+	private int[][] counts;
+	private int cellCount = 0;
+
+	MatrixCellStore(Structures structures, int counterCount) {
+		this.structures = structures;
+		this.counts = new int[counterCount][cellRow.length];
+	}
+
+	/* get the row number for the given marker and column, creating the row if needed */
+	int row(int markerKey, int columnKey) {
+		long pair = LongIntMap.pack(markerKey, columnKey);
+		int row = rowOf.get(pair, -1);
+		if (row < 0) {
+			row = rowOf.size();
+			if (row == rowMarker.length) {
+				rowMarker = Arrays.copyOf(rowMarker, row * 2);
+				rowColumn = Arrays.copyOf(rowColumn, row * 2);
+			}
+			rowMarker[row] = markerKey;
+			rowColumn[row] = columnKey;
+			rowOf.put(pair, row);
+		}
+		return row;
+	}
+
+	/* get the cell number for the given row and structure ordinal, creating the cell (with
+	 * all counters at zero) if needed
+	 */
+	int cell(int row, int structureOrdinal) {
+		long pair = LongIntMap.pack(row, structureOrdinal);
+		int cell = cellOf.get(pair, -1);
+		if (cell < 0) {
+			cell = cellCount++;
+			if (cell == cellRow.length) {
+				int capacity = cell * 2;
+				cellRow = Arrays.copyOf(cellRow, capacity);
+				cellStructure = Arrays.copyOf(cellStructure, capacity);
+				for (int c = 0; c < counts.length; c++) {
+					counts[c] = Arrays.copyOf(counts[c], capacity);
+				}
+			}
+			cellRow[cell] = row;
+			cellStructure[cell] = structureOrdinal;
+			cellOf.put(pair, cell);
+		}
+		return cell;
+	}
+
+	/* add one to 'counter' of 'cell' */
+	void add(int cell, int counter) {
+		counts[counter][cell]++;
+	}
+
+	/* set 'counter' of 'cell' to 1, for counters used as flags */
+	void flag(int cell, int counter) {
+		counts[counter][cell] = 1;
+	}
+
+	int get(int cell, int counter) {
+		return counts[counter][cell];
+	}
+
+	int size() {
+		return cellCount;
+	}
+
+	int markerKey(int cell) {
+		return rowMarker[cellRow[cell]];
+	}
+
+	int columnKey(int cell) {
+		return rowColumn[cellRow[cell]];
+	}
+
+	int structureKey(int cell) {
+		return structures.key(cellStructure[cell]);
+	}
+
+	/* list the cell numbers, ordered by marker key, then column key, then structure ordinal */
+	int[] cellsInOrder() {
+		// rank the rows by (marker, column)...
+		int rowCount = rowOf.size();
+		long[] rows = new long[rowCount];
+		for (int r = 0; r < rowCount; r++) {
+			rows[r] = LongIntMap.pack(rowMarker[r], rowColumn[r]);
+		}
+		Arrays.sort(rows);
+		int[] rowByRank = new int[rowCount];
+		int[] rank = new int[rowCount];
+		for (int i = 0; i < rowCount; i++) {
+			rowByRank[i] = rowOf.get(rows[i], -1);
+			rank[rowByRank[i]] = i;
+		}
+
+		// ...then sort the cells by (row rank, structure) and look each one up again
+		long[] order = new long[cellCount];
+		for (int cell = 0; cell < cellCount; cell++) {
+			order[cell] = LongIntMap.pack(rank[cellRow[cell]], cellStructure[cell]);
+		}
+		Arrays.sort(order);
+		int[] cells = new int[cellCount];
+		for (int i = 0; i < cellCount; i++) {
+			int row = rowByRank[(int) (order[i] >>> 32)];
+			cells[i] = cellOf.get(LongIntMap.pack(row, (int) order[i]), -1);
+		}
+		return cells;
+	}
+}
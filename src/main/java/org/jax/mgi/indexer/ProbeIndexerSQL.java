@@ -12,13 +12,12 @@ import java.util.Locale;
 import java.util.Map;
 
 import org.apache.solr.common.SolrInputDocument;
+import org.jax.mgi.shr.JsonEncoder;
 import org.jax.mgi.shr.fe.IndexConstants;
 import org.jax.mgi.shr.fe.sort.SmartAlphaComparator;
 import org.jax.mgi.shr.jsonmodel.MolecularProbe;
 import org.jax.mgi.shr.jsonmodel.MolecularProbeMarker;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /* Is: an indexer that builds the index supporting the molecular probe summary page (reachable from the
  * 		marker detail page and the reference summary/detail page).  Each document in the index represents
  * 		data for a single molecular probe, and each probe is represented in only one document.
@@ -39,7 +38,7 @@ public class ProbeIndexerSQL extends Indexer {
 	private Map<Integer,List<String>> searchableReferences = null;	// searchable reference IDs per probe key
 	private Map<Integer,List<String>> collectionCache = null;		// collections per probe key
 
-	private ObjectMapper mapper = new ObjectMapper();				// converts objects to JSON
+	private JsonEncoder json = new JsonEncoder();				// converts objects to JSON
 
 	/*--------------------*/
 	/*--- constructors ---*/
@@ -313,7 +312,7 @@ public class ProbeIndexerSQL extends Indexer {
 				probe.setCollections(collections);
 			}
 
-			doc.addField(IndexConstants.PRB_PROBE, mapper.writeValueAsString(probe));
+			doc.addField(IndexConstants.PRB_PROBE, json.toJson(probe));
 			
 			// Add this doc to the batch we're collecting.  If the stack hits our
 			// threshold, send it to the server and reset it.
@@ -339,9 +338,11 @@ public class ProbeIndexerSQL extends Indexer {
 	@Override
 	public void index() throws Exception {
 		// collect various mappings needed for data lookup
-		cacheCollections();
-		cacheMarkers();
-		cacheReferences();
+		cacheWarmer()
+			.add("collections", this::cacheCollections)
+			.add("markers", this::cacheMarkers)
+			.add("references", this::cacheReferences)
+			.run();
 		processProbes();
 	}
 }
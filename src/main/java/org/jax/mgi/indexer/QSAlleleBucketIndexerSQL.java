@@ -80,8 +80,6 @@ public class QSAlleleBucketIndexerSQL extends Indexer {
 	private long uniqueKey = 0;						// ascending counter of documents created
 	private int cursorLimit = 10000;				// number of records to retrieve at once
 	protected int solrBatchSize = 5000;				// number of docs to send to solr in each batch
-	protected int uncommittedBatchLimit = 1000;		// number of batches to allow before doing a Solr commit
-	private int uncommittedBatches = 0;				// number of batches sent to Solr and not yet committed
 
 	private VocabTermCache diseaseOntologyCache;	// cache of data for DO DAG
 	private VocabTermCache mpOntologyCache;			// cache of data for MP DAG
@@ -100,6 +98,11 @@ public class QSAlleleBucketIndexerSQL extends Indexer {
 		super("qsAlleleBucket");
 	}
 
+	@Override
+	protected boolean hasStableKeys() {
+		return false;		// documents are numbered as they are built
+	}
+
 	/*-----------------------*/
 	/*--- private methods ---*/
 	/*-----------------------*/
@@ -142,11 +145,6 @@ public class QSAlleleBucketIndexerSQL extends Indexer {
 			if (docs.size() >= solrBatchSize)  {
 				writeDocs(docs);
 				docs = new ArrayList<SolrInputDocument>();
-				uncommittedBatches++;
-				if (uncommittedBatches >= uncommittedBatchLimit) {
-					commit();
-					uncommittedBatches = 0;
-				}
 			}
 			indexedTerms.get(primaryID).add(term);
 		}
@@ -159,11 +157,6 @@ public class QSAlleleBucketIndexerSQL extends Indexer {
 		if (docs.size() >= solrBatchSize)  {
 			writeDocs(docs);
 			docs = new ArrayList<SolrInputDocument>();
-			uncommittedBatches++;
-			if (uncommittedBatches >= uncommittedBatchLimit) {
-				commit();
-				uncommittedBatches = 0;
-			}
 		}
 	}
 	
@@ -1183,8 +1176,9 @@ public class QSAlleleBucketIndexerSQL extends Indexer {
 	@Override
 	public void index() throws Exception {
 		// cache vocabulary term data
-		diseaseOntologyCache = new VocabTermCache("Disease Ontology", ex);
-		mpOntologyCache = new VocabTermCache("Mammalian Phenotype", ex);
+		// (shared with the other qs indexers running alongside, through the registry)
+		diseaseOntologyCache = getVocabCache("Disease Ontology");
+		mpOntologyCache = getVocabCache("Mammalian Phenotype");
 		this.cacheHighLevelTerms();
 
 		logger.info("beginning alleles");
@@ -76,8 +76,6 @@ public class QSFeatureBucketIndexerSQL extends Indexer {
 	private long uniqueKey = 0;						// ascending counter of documents created
 	private int cursorLimit = 10000;				// number of records to retrieve at once
 	protected int solrBatchSize = 5000;				// number of docs to send to solr in each batch
-	protected int uncommittedBatchLimit = 500;		// number of batches to allow before doing a Solr commit
-	private int uncommittedBatches = 0;				// number of batches sent to Solr and not yet committed
 
 	private Map<Integer,Set<Integer>> highLevelTerms;		// maps from a term key to the keys of its high-level ancestors
 	
@@ -95,6 +93,11 @@ public class QSFeatureBucketIndexerSQL extends Indexer {
 		super("qsFeatureBucket");
 	}
 
+	@Override
+	protected boolean hasStableKeys() {
+		return false;		// documents are numbered as they are built
+	}
+
 	/*-----------------------*/
 	/*--- private methods ---*/
 	/*-----------------------*/
@@ -137,11 +140,6 @@ public class QSFeatureBucketIndexerSQL extends Indexer {
 			if (docs.size() >= solrBatchSize)  {
 				writeDocs(docs);
 				docs = new ArrayList<SolrInputDocument>();
-				uncommittedBatches++;
-				if (uncommittedBatches >= uncommittedBatchLimit) {
-					commit();
-					uncommittedBatches = 0;
-				}
 			}
 			indexedTerms.get(primaryID).add(term);
 		}
@@ -154,11 +152,6 @@ public class QSFeatureBucketIndexerSQL extends Indexer {
 		if (docs.size() >= solrBatchSize)  {
 			writeDocs(docs);
 			docs = new ArrayList<SolrInputDocument>();
-			uncommittedBatches++;
-			if (uncommittedBatches >= uncommittedBatchLimit) {
-				commit();
-				uncommittedBatches = 0;
-			}
 		}
 	}
 	
@@ -366,7 +359,7 @@ public class QSFeatureBucketIndexerSQL extends Indexer {
 
 	// Index human ortholog DO (Disease Ontology) annotations.
 	private void indexHumanDiseaseAnnotations () throws Exception {
-		VocabTermCache diseaseOntologyCache = new VocabTermCache("Disease Ontology", ex);
+		VocabTermCache diseaseOntologyCache = getVocabCache("Disease Ontology");
 
 		// from mouse marker through orthology tables to human marker, then to human DO annotations.
 		// Lower part of union is to pick up mouse markers where the human ortholog is an expressed
@@ -1078,8 +1071,8 @@ public class QSFeatureBucketIndexerSQL extends Indexer {
 	private void indexExpression() throws SQLException {
 		logger.info(" - indexing Expression data");
 
-		VocabTermCache emapsCache = new VocabTermCache("EMAPS", ex);
-		VocabTermCache emapaCache = new VocabTermCache("EMAPA", ex);
+		VocabTermCache emapsCache = getVocabCache("EMAPS");
+		VocabTermCache emapaCache = getVocabCache("EMAPA");
 
 		int minKey = 0;
 		int maxKey = 0;
@@ -1102,15 +1095,15 @@ public class QSFeatureBucketIndexerSQL extends Indexer {
 				"and cs.theiler_stage = e.stage::text " + 
 				"and e.term_key = t.term_key " + 
 				"and csm.level != 'Below Cutoff' " + 
-				"and csm.marker_key >= <<start key>> " +
-				"and csm.marker_key < <<end key>> " +
+				"and csm.marker_key >= ? " +
+				"and csm.marker_key < ? " +
 				"union " + 
 				"select ers.marker_key, s.primary_id " + 
 				"from expression_result_summary ers, term s " + 
 				"where ers.is_expressed = 'Yes' " + 
 				"and ers.structure_key = s.term_key " + 
-				"and ers.marker_key >= <<start key>> " +
-				"and ers.marker_key < <<end key>> " +
+				"and ers.marker_key >= ? " +
+				"and ers.marker_key < ? " +
 				"order by 1";
 
 		int start = minKey;
@@ -1124,9 +1117,8 @@ public class QSFeatureBucketIndexerSQL extends Indexer {
 		while (start < maxKey) {
 			int end = start + chunk;
 			logger.info("Looking up Expression data for markers " + start + " to " + end);
-			String cmd = dataCmd.replaceAll("<<start key>>", "" + start).replaceAll("<<end key>>", "" + end);
-
-			ResultSet rs = ex.executeProto(cmd, cursorLimit);
+			// same statement for each chunk (planned once); just rebind the key bounds
+			ResultSet rs = ex.executePrepared(cursorLimit, dataCmd, start, end, start, end);
 			while (rs.next())  {  
 				Integer markerKey = rs.getInt("marker_key");
 			
@@ -1159,6 +1151,9 @@ public class QSFeatureBucketIndexerSQL extends Indexer {
 			emapsIDs.clear();
 		}
 
+		releaseVocabCache("EMAPS");
+		releaseVocabCache("EMAPA");
+
 		logger.info(" - processed " + rows + " Expression rows, indexed " + emapsIndexed + " unique marker/EMAPS pairs");
 	}
 
@@ -1170,8 +1165,9 @@ public class QSFeatureBucketIndexerSQL extends Indexer {
 				"and rs.is_expressed = 'Yes' " +
 				"order by rs.marker_key " +
 				"";
-		indexAnnotations("Expression (Cell Type)", cmd, new VocabTermCache("Cell Ontology", ex),
+		indexAnnotations("Expression (Cell Type)", cmd, getVocabCache("Cell Ontology"),
 			CELL_NAME_WEIGHT, CELL_ID_WEIGHT, CELL_SYNONYM_WEIGHT);
+		releaseVocabCache("Cell Ontology");
 	}
 
 	// Index the GO term annotations.  Assumes caches are loaded.
@@ -1186,12 +1182,15 @@ public class QSFeatureBucketIndexerSQL extends Indexer {
 				"and a.dag_name = '<DAG>' " +
 				"order by m.marker_key";
 
-		indexAnnotations("Function", cmd.replaceAll("<DAG>", "Molecular Function"), new VocabTermCache("Function", ex),
+		indexAnnotations("Function", cmd.replaceAll("<DAG>", "Molecular Function"), getVocabCache("Function"),
 			GO_NAME_WEIGHT, GO_ID_WEIGHT, GO_SYNONYM_WEIGHT);
-		indexAnnotations("Component", cmd.replaceAll("<DAG>", "Cellular Component"), new VocabTermCache("Component", ex),
+		releaseVocabCache("Function");
+		indexAnnotations("Component", cmd.replaceAll("<DAG>", "Cellular Component"), getVocabCache("Component"),
 			GO_NAME_WEIGHT, GO_ID_WEIGHT, GO_SYNONYM_WEIGHT);
-		indexAnnotations("Process", cmd.replaceAll("<DAG>", "Biological Process"), new VocabTermCache("Process", ex),
+		releaseVocabCache("Component");
+		indexAnnotations("Process", cmd.replaceAll("<DAG>", "Biological Process"), getVocabCache("Process"),
 			GO_NAME_WEIGHT, GO_ID_WEIGHT, GO_SYNONYM_WEIGHT);
+		releaseVocabCache("Process");
 	}
 	
 	/* Split symbol or synonym s into individual parts that should be indexed for matching in an exact manner.
@@ -31,9 +31,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 	/*--- instance variables ---*/
 	/*--------------------------*/
 
-	private int gcLimit = 250000;					// number of data objects to process before collecting garbage
-	private int gcCount = 0;						// data objects processed since last garbage collection
-	
 	private int cursorLimit = 10000;				// number of records to retrieve at once
 	protected int solrBatchSize = 5000;				// number of docs to send to solr in each batch
 
@@ -50,6 +47,11 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 		super("qsOtherBucket");
 	}
 
+	@Override
+	protected boolean hasStableKeys() {
+		return false;		// documents are numbered as they are built
+	}
+
 	/*-----------------------*/
 	/*--- private methods ---*/
 	/*-----------------------*/
@@ -87,17 +89,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 			searchTermWeight, primaryID, sequenceNum));
 	}
 	
-	/* Run garbage collection if we've hit the limit since the last time we did.
-	 */
-	private void gc() {
-		this.gcCount++;
-		if (this.gcCount >= this.gcLimit) {
-			System.gc();
-			this.gcCount = 0;
-			this.commit();		// do explicit commits here to let Solr catch up
-		}
-	}
-	
 	/* Tweak any logical database values as needed for display.
 	 */
 	private String cleanLogicalDB (String logicalDB) {
@@ -147,7 +138,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 					PRIMARY_ID_WEIGHT, primaryID, seqNum++);
 
 				lastPrimaryID = primaryID;
-				gc();
 			}
 
 			// Also index the other ID if it differs from the primary.
@@ -195,7 +185,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 				seq = new DocBuilder(primaryID, rs.getString("description"), "Sequence",
 					rs.getString("sequence_type"), "/sequence/" + primaryID);
 				lastPrimaryID = primaryID;
-				gc();
 			}
 
 			// Index the associated probe ID.
@@ -247,7 +236,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 					PRIMARY_ID_WEIGHT, primaryID, seqNum++);
 
 				lastPrimaryID = primaryID;
-				gc();
 			}
 
 			// Also index the other ID if it differs from the primary.
@@ -299,7 +287,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 					PRIMARY_ID_WEIGHT, primaryID, seqNum++);
 
 				lastPrimaryID = primaryID;
-				gc();
 			}
 
 			// Also index the other ID if it differs from the primary.
@@ -349,7 +336,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 				
 				lastPrimaryID = primaryID;
 				seqNum++;
-				gc();
 			}
 
 			// Now index the sequence IDs for the sequence.
@@ -549,7 +535,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 				
 				seqNum++;
 				lastPrimaryID = primaryID;
-				gc();
 			}
 
 			// Index the organism's ID.
@@ -606,7 +591,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 					PRIMARY_ID_WEIGHT, primaryID, seqNum++);
 
 				lastPrimaryID = primaryID;
-				gc();
 			}
 
 			// Also index the other ID if it differs from the primary.
@@ -658,7 +642,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 				this.buildAndAddDocument(ref, primaryID, idf.getMatchDisplay(), idf.getMatchType(), PRIMARY_ID_WEIGHT, primaryID, seqNum++);
 
 				lastPrimaryID = primaryID;
-				gc();
 			}
 
 			// Also index the other ID if it differs from the primary.
@@ -699,7 +682,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 				
 			idf = idFactory.getFormatter("Genotype", "MGI", primaryID);
 			this.buildAndAddDocument(term, primaryID, idf.getMatchDisplay(), idf.getMatchType(), PRIMARY_ID_WEIGHT, primaryID, seqNum++);
-			gc();
 		}
 
 		rs.close();
@@ -730,8 +712,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 				
 			idf = idFactory.getFormatter("Antibody", "MGI", primaryID);
 			this.buildAndAddDocument(antibody, primaryID, idf.getMatchDisplay(), idf.getMatchType(), PRIMARY_ID_WEIGHT, primaryID, seqNum++);
-
-			gc();
 		}
 
 		rs.close();
@@ -784,7 +764,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 					PRIMARY_ID_WEIGHT, mgiID, seqNum++);
 
 				lastPrimaryID = mgiID;
-				gc();
 			}
 
 			// Also index the other ID if non-null.
@@ -833,8 +812,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 			// Index the primary ID.
 			idf = idFactory.getFormatter("Expression Assay", "MGI", primaryID);
 			this.buildAndAddDocument(assay, primaryID, idf.getMatchDisplay(), idf.getMatchType(), PRIMARY_ID_WEIGHT, primaryID, seqNum++);
-
-			gc();
 		}
 
 		rs.close();
@@ -870,7 +847,6 @@ public class QSOtherBucketIndexerSQL extends Indexer {
 					"/gxd/htexp_index/summary?arrayExpressID=" + primaryID);
 				
 				lastPrimaryID = primaryID;
-				gc();
 			}
 
 			String otherID = rs.getString("acc_id");
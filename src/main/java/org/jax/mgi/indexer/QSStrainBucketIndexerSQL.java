@@ -65,6 +65,11 @@ public class QSStrainBucketIndexerSQL extends Indexer {
 		super("qsStrainBucket");
 	}
 
+	@Override
+	protected boolean hasStableKeys() {
+		return false;		// documents are numbered as they are built
+	}
+
 	/*-----------------------*/
 	/*--- private methods ---*/
 	/*-----------------------*/
@@ -486,9 +491,9 @@ public class QSStrainBucketIndexerSQL extends Indexer {
 
 	/* Split string s (either a strain name or synonym) into parts that should be added to the
 	 * exact match index.  Needs to intelligently handle grouping characters:  parentheses,
-	 * square brackets, and angle brackets.
+	 * square brackets, and angle brackets.  (package-private for feindexer-benchmarks)
 	 */
-	private Set<String> splitIntoIndexablePieces(String s) {
+	Set<String> splitIntoIndexablePieces(String s) {
 		// pieces of s that should be matchable by an exact comparison
 		Set<String> pieces = new HashSet<String>();
 		
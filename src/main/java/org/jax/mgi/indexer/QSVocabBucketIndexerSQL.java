@@ -143,6 +143,11 @@ public class QSVocabBucketIndexerSQL extends Indexer {
 		super("qsVocabBucket");
 	}
 
+	@Override
+	protected boolean hasStableKeys() {
+		return false;		// documents are numbered as they are built
+	}
+
 	/*-----------------------*/
 	/*--- private methods ---*/
 	/*-----------------------*/
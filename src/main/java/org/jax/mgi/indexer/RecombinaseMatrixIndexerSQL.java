@@ -8,7 +8,6 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.apache.solr.common.SolrInputDocument;
 import org.jax.mgi.shr.fe.IndexConstants;
@@ -27,84 +26,6 @@ public class RecombinaseMatrixIndexerSQL extends Indexer {
 
 	/*** --- inner classes --- ***/
 
-	// Is: the contents of a cell in the anatomy x allele grid
-	private class Cell {
-		public int detected = 0; // count of detected results
-		public int notDetected = 0; // count of not detected results
-		public int ambiguous = 0; // count of ambiguous results
-		public int children = 0; // results from children cells
-		public int questionableDescendants = 0; // flag (0/1) for descendants with ambiguous or not detected results
-
-		public void addDetected() {
-			this.detected++;
-		}
-
-		public void addNotDetected() {
-			this.notDetected++;
-		}
-
-		public void addAmbiguous() {
-			this.ambiguous++;
-		}
-
-		public int allResults() {
-			return this.detected + this.notDetected + this.ambiguous;
-		}
-
-		public int anyAmbiguous() {
-			if (ambiguous > 0) {
-				return 1;
-			}
-			return 0;
-		}
-
-		public void addChildren() {
-			this.children++;
-		}
-
-		public void flagQuestionableDescendants() {
-			this.questionableDescendants = 1;
-		}
-	}
-
-	// Is: a collection of Cells, for easy retrieval of a particular Cell given
-	// marker key, object type, object key, structure.
-	// (object type, object key) allows us to store either wild-type expression data
-	// for the same marker or recombinase
-	// data for alleles driven by the marker.
-	private class CellBlock {
-		// cells[marker key][object type][object key][structure key] = Cell
-		Map<Integer, Map<String, Map<Integer, Map<Integer, Cell>>>> cells = new HashMap<Integer, Map<String, Map<Integer, Map<Integer, Cell>>>>();
-
-		public Cell getCell(int markerKey, String objectType, int objectKey, int structureKey) {
-			if (!cells.containsKey(markerKey)) {
-				cells.put(markerKey, new HashMap<String, Map<Integer, Map<Integer, Cell>>>());
-			}
-			if (!cells.get(markerKey).containsKey(objectType)) {
-				cells.get(markerKey).put(objectType, new HashMap<Integer, Map<Integer, Cell>>());
-			}
-			if (!cells.get(markerKey).get(objectType).containsKey(objectKey)) {
-				cells.get(markerKey).get(objectType).put(objectKey, new HashMap<Integer, Cell>());
-			}
-			if (!cells.get(markerKey).get(objectType).get(objectKey).containsKey(structureKey)) {
-				cells.get(markerKey).get(objectType).get(objectKey).put(structureKey, new Cell());
-			}
-			return cells.get(markerKey).get(objectType).get(objectKey).get(structureKey);
-		}
-
-		public Set<Integer> getMarkerKeys() {
-			return cells.keySet();
-		}
-
-		public Set<Integer> getObjectKeys(int markerKey, String objectType) {
-			return cells.get(markerKey).get(objectType).keySet();
-		}
-
-		public Set<Integer> getStructureKeys(int markerKey, String objectType, int objectKey) {
-			return cells.get(markerKey).get(objectType).get(objectKey).keySet();
-		}
-	}
-
 	// Is: a minimal set of column header data, for use in sorting
 	private class SortableColumnHeader {
 		public String objectType;
@@ -208,6 +129,14 @@ public class RecombinaseMatrixIndexerSQL extends Indexer {
 
 	public static final String MARKER = "marker"; // object type for markers
 	public static final String ALLELE = "allele"; // object type for alleles
+
+	// counters kept for each cell in the anatomy x allele grid (see MatrixCellStore)
+	private static final int DETECTED = 0; // count of detected results
+	private static final int NOT_DETECTED = 1; // count of not detected results
+	private static final int AMBIGUOUS = 2; // count of ambiguous results
+	private static final int CHILDREN = 3; // results from children cells
+	private static final int QUESTIONABLE_DESCENDANTS = 4; // flag (0/1) for descendants with ambiguous or not detected results
+	private static final int COUNTERS = 5;
 	private static SmartAlphaComparator smartAlphaComparator = new SmartAlphaComparator();
 
 	/*** --- instance variables --- ***/
@@ -232,6 +161,8 @@ public class RecombinaseMatrixIndexerSQL extends Indexer {
 	public Map<Integer, List<Integer>> emapsParents; // maps from EMAPS term key to its parent EMAPS term keys
 	public Map<Integer, List<Integer>> emapsAncestors; // maps from EMAPS term key to all of its ancestor EMAPS term keys
 	public Map<Integer, String> nonMouse2Mouse; // maps from non-mouse marker key to ID of its 1:1 mouse ortholog (if any)
+	private MatrixCellStore.Structures structures; // dense ordinals for EMAPA structure keys
+	private Map<Integer, int[]> emapsAncestorOrdinals; // maps from EMAPS term key to ordinals of the EMAPA equivalents of its ancestors
 
 	// caches of data for this batch of markers
 
@@ -252,6 +183,11 @@ public class RecombinaseMatrixIndexerSQL extends Indexer {
 		super("recombinaseMatrix");
 	}
 
+	@Override
+	protected boolean hasStableKeys() {
+		return false;		// documents are numbered as they are built
+	}
+
 	// populate the indexer's caches of anatomy term data (IDs, terms, parents,
 	// ancestors)
 	public void buildAnatomyCaches() throws SQLException {
@@ -343,6 +279,12 @@ public class RecombinaseMatrixIndexerSQL extends Indexer {
 			anatomyAncestors.get(termKey).add(rs3.getInt("ancestor_term_key"));
 		}
 		rs3.close();
+
+		this.structures = new MatrixCellStore.Structures();
+		this.emapsAncestorOrdinals = new HashMap<Integer, int[]>();
+		for (Integer emapsKey : emapsAncestors.keySet()) {
+			emapsAncestorOrdinals.put(emapsKey, structures.ordinals(translateEmapsToEmapa(emapsAncestors.get(emapsKey))));
+		}
 		logger.info(" - cached data for " + anatomyTerm.size() + " anatomy terms");
 	}
 
@@ -413,7 +355,7 @@ public class RecombinaseMatrixIndexerSQL extends Indexer {
 
 	// only would want to expand a cell to see children if there are non-absent
 	// expression results
-	private void updateCell(Cell cell, String isExpressed, boolean isAncestor) {
+	private void updateCell(MatrixCellStore cells, int cell, String isExpressed, boolean isAncestor) {
 		// rules:
 		// 1. Yes : always add to detected count; also add to count of children, if this
 		// is an ancestor cell
@@ -428,20 +370,20 @@ public class RecombinaseMatrixIndexerSQL extends Indexer {
 		// b. If not an ancestor term, add to the Ambiguous count.
 
 		if ("Yes".equals(isExpressed)) {
-			cell.addDetected();
+			cells.add(cell, DETECTED);
 			if (isAncestor) {
-				cell.addChildren();
+				cells.add(cell, CHILDREN);
 			}
 		} else if (isAncestor) {
 			// do not propagate "not detected" or "ambiguous" up to ancestors, but flag
 			// their presence and
 			// note that we'd like to be able to expand the rows to see the children
-			cell.flagQuestionableDescendants();
-			cell.addChildren();
+			cells.flag(cell, QUESTIONABLE_DESCENDANTS);
+			cells.add(cell, CHILDREN);
 		} else if ("Ambiguous".equals(isExpressed)) {
-			cell.addAmbiguous();
+			cells.add(cell, AMBIGUOUS);
 		} else {
-			cell.addNotDetected();
+			cells.add(cell, NOT_DETECTED);
 		}
 	}
 
@@ -517,9 +459,9 @@ public class RecombinaseMatrixIndexerSQL extends Indexer {
 
 			ResultSet rs = ex.executeProto(cmd);
 
-			// retrieves cells (creating them when needed) for a given (driver, object type,
-			// object, structure) tuple
-			CellBlock cellBlock = new CellBlock();
+			// retrieves cells (creating them when needed) for a given (driver, allele,
+			// structure) triple
+			MatrixCellStore cells = new MatrixCellStore(structures, COUNTERS);
 
 			while (rs.next()) {
 				int alleleKey = rs.getInt("allele_key");
@@ -530,29 +472,32 @@ public class RecombinaseMatrixIndexerSQL extends Indexer {
 				String isDetected = rs.getString("is_detected");
 
 				// Otherwise, update data for the corresponding EMAPA cell.
-				Cell cell = cellBlock.getCell(driverKey, ALLELE, alleleKey, emapaKey);
-				updateCell(cell, isDetected, false);
+				int row = cells.row(driverKey, alleleKey);
+				updateCell(cells, cells.cell(row, structures.ordinal(emapaKey)), isDetected, false);
 
 				// And also add the annotation to any of its ancestor cells. Each annotation is
 				// only
 				// counted once in each ancestor cell, regardless of how many paths there are to
 				// the root.
-				if (this.emapsAncestors.containsKey(emapsKey)) {
-					for (Integer ancestorEmapaKey : translateEmapsToEmapa(emapsAncestors.get(emapsKey))) {
-						Cell ancestorCell = cellBlock.getCell(driverKey, ALLELE, alleleKey, ancestorEmapaKey);
-						updateCell(ancestorCell, isDetected, true);
+				int[] ancestors = this.emapsAncestorOrdinals.get(emapsKey);
+				if (ancestors != null) {
+					for (int ancestor : ancestors) {
+						updateCell(cells, cells.cell(row, ancestor), isDetected, true);
 					}
 				}
 			}
 
 			rs.close();
-			logger.info(" - collated data into cells");
+			logger.info(" - collated data into " + cells.size() + " cells");
 
-			// Then go through the data for each marker, build a Solr document for each
-			// cell, and send
-			// them to the server in batches.
+			// Then go through the cells in order of driver, allele, and structure, build a
+			// Solr document for each, and send them to the server in batches.
+
+			for (int cell : cells.cellsInOrder()) {
+				int driverKey = cells.markerKey(cell);
+				int alleleKey = cells.columnKey(cell);
+				int structureKey = cells.structureKey(cell);
 
-			for (Integer driverKey : cellBlock.getMarkerKeys()) {
 				String driverID = this.markerID.get(driverKey);
 				String driverOrg = this.markerOrganism.get(driverKey);
 				if (!"mouse".equals(driverOrg)) {
@@ -563,49 +508,47 @@ public class RecombinaseMatrixIndexerSQL extends Indexer {
 					// logger.info("Mapped " + driverKey + " to " + driverID);
 				}
 
-				for (Integer alleleKey : cellBlock.getObjectKeys(driverKey, ALLELE)) {
-					for (Integer structureKey : cellBlock.getStructureKeys(driverKey, ALLELE, alleleKey)) {
-						String emapaTerm = this.anatomyTerm.get(structureKey);
-						String emapaID = this.anatomyID.get(structureKey);
-						if (emapaID == null) {
-							logger.info("ID null for structure " + structureKey);
-						} else if (emapaID.trim().equals("")) {
-							logger.info("ID empty string for structure " + structureKey);
-						}
-						List<String> emapaParents = this.anatomyParents.get(structureKey);
-						List<Integer> emapaAncestors = this.anatomyAncestors.get(structureKey);
-						Cell cell = cellBlock.getCell(driverKey, ALLELE, alleleKey, structureKey);
-
-						if (!this.driverOrganism.get(alleleKey).equals("mouse")) {
-							nonMouseCount += 1;
-							// logger.info(" -> nonmouse ID " + driverID);
-						}
-
-						SolrInputDocument doc = new SolrInputDocument();
-						doc.addField(IndexConstants.CELL_TYPE, "recombinase");
-						doc.addField(IndexConstants.UNIQUE_KEY, uniqueKey++);
-						doc.addField(IndexConstants.PARENT_ANATOMY_ID, emapaParents);
-						doc.addField(IndexConstants.ANCESTOR_ANATOMY_KEY, emapaAncestors);
-						doc.addField(IndexConstants.ANATOMY_TERM, emapaTerm);
-						doc.addField(IndexConstants.ANATOMY_ID, emapaID);
-						doc.addField(IndexConstants.MRK_ID, driverID);
-						doc.addField(IndexConstants.SYMBOL, this.alleleSymbol.get(alleleKey));
-						doc.addField(IndexConstants.ORGANISM, this.driverOrganism.get(alleleKey));
-						doc.addField(IndexConstants.COLUMN_ID, this.alleleID.get(alleleKey));
-						doc.addField(IndexConstants.ALL_RESULTS, cell.allResults());
-						doc.addField(IndexConstants.DETECTED_RESULTS, cell.detected);
-						doc.addField(IndexConstants.NOT_DETECTED_RESULTS, cell.notDetected);
-						doc.addField(IndexConstants.ANY_AMBIGUOUS, cell.anyAmbiguous());
-						doc.addField(IndexConstants.CHILDREN, cell.children);
-						doc.addField(IndexConstants.AMBIGUOUS_OR_NOT_DETECTED_DESCENDANTS, cell.questionableDescendants);
-						doc.addField(IndexConstants.BY_COLUMN, this.alleleSeqNum.get(alleleKey));
-
-						docs.add(doc);
-						if (docs.size() > this.documentCacheSize) {
-							writeDocs(docs);
-							docs = new ArrayList<SolrInputDocument>();
-						}
-					}
+				String emapaTerm = this.anatomyTerm.get(structureKey);
+				String emapaID = this.anatomyID.get(structureKey);
+				if (emapaID == null) {
+					logger.info("ID null for structure " + structureKey);
+				} else if (emapaID.trim().equals("")) {
+					logger.info("ID empty string for structure " + structureKey);
+				}
+				List<String> emapaParents = this.anatomyParents.get(structureKey);
+				List<Integer> emapaAncestors = this.anatomyAncestors.get(structureKey);
+				int detected = cells.get(cell, DETECTED);
+				int notDetected = cells.get(cell, NOT_DETECTED);
+				int ambiguous = cells.get(cell, AMBIGUOUS);
+
+				if (!this.driverOrganism.get(alleleKey).equals("mouse")) {
+					nonMouseCount += 1;
+					// logger.info(" -> nonmouse ID " + driverID);
+				}
+
+				SolrInputDocument doc = new SolrInputDocument();
+				doc.addField(IndexConstants.CELL_TYPE, "recombinase");
+				doc.addField(IndexConstants.UNIQUE_KEY, uniqueKey++);
+				doc.addField(IndexConstants.PARENT_ANATOMY_ID, emapaParents);
+				doc.addField(IndexConstants.ANCESTOR_ANATOMY_KEY, emapaAncestors);
+				doc.addField(IndexConstants.ANATOMY_TERM, emapaTerm);
+				doc.addField(IndexConstants.ANATOMY_ID, emapaID);
+				doc.addField(IndexConstants.MRK_ID, driverID);
+				doc.addField(IndexConstants.SYMBOL, this.alleleSymbol.get(alleleKey));
+				doc.addField(IndexConstants.ORGANISM, this.driverOrganism.get(alleleKey));
+				doc.addField(IndexConstants.COLUMN_ID, this.alleleID.get(alleleKey));
+				doc.addField(IndexConstants.ALL_RESULTS, detected + notDetected + ambiguous);
+				doc.addField(IndexConstants.DETECTED_RESULTS, detected);
+				doc.addField(IndexConstants.NOT_DETECTED_RESULTS, notDetected);
+				doc.addField(IndexConstants.ANY_AMBIGUOUS, (ambiguous > 0) ? 1 : 0);
+				doc.addField(IndexConstants.CHILDREN, cells.get(cell, CHILDREN));
+				doc.addField(IndexConstants.AMBIGUOUS_OR_NOT_DETECTED_DESCENDANTS, cells.get(cell, QUESTIONABLE_DESCENDANTS));
+				doc.addField(IndexConstants.BY_COLUMN, this.alleleSeqNum.get(alleleKey));
+
+				docs.add(doc);
+				if (docs.size() > this.documentCacheSize) {
+					writeDocs(docs);
+					docs = new ArrayList<SolrInputDocument>();
 				}
 			}
 			startMarker = endMarker;
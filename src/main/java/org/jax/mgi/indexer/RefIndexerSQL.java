@@ -64,9 +64,9 @@ public class RefIndexerSQL extends Indexer {
 		String cmd = "select r.reference_key, s.primary_id "
 			+ "from strain_to_reference r, strain s "
 			+ "where s.strain_key = r.strain_key "
-			+ "  and r.reference_key >= " + startKey
-			+ "  and r.reference_key < " + endKey;
-		return populateLookup(cmd, "reference_key", "primary_id", "strain IDs");
+			+ "  and r.reference_key >= ?"
+			+ "  and r.reference_key < ?";
+		return populateLookup(ex.executePrepared(cmd, startKey, endKey), "reference_key", "primary_id", "strain IDs");
 	}
 
 	// get a mapping from reference key to IDs for its associated disease-relevant markers
@@ -74,10 +74,10 @@ public class RefIndexerSQL extends Indexer {
 		String diseaseRelevantMarkerQuery = "select mtr.reference_key, m.primary_id marker_id "
 			+ "from hdp_marker_to_reference mtr,marker m "
 			+ "where m.marker_key = mtr.marker_key "
-			+ " and mtr.reference_key >= " + startKey
-			+ " and mtr.reference_key < " + endKey;
+			+ " and mtr.reference_key >= ?"
+			+ " and mtr.reference_key < ?";
 
-		return populateLookup(diseaseRelevantMarkerQuery,"reference_key","marker_id",
+		return populateLookup(ex.executePrepared(diseaseRelevantMarkerQuery, startKey, endKey),"reference_key","marker_id",
 				"disease relevant marker IDs (for linking from disease portal)");
 	}
 
@@ -87,11 +87,11 @@ public class RefIndexerSQL extends Indexer {
 			+ "from hdp_term_to_reference trt, term ha, closure c "
 			+ "where ha.term_key = c.term_key "
 			+ " and c.term_key = trt.term_key "
-			+ " and trt.reference_key >= " + startKey
-			+ " and trt.reference_key < " + endKey
+			+ " and trt.reference_key >= ? "
+			+ " and trt.reference_key < ? "
 			+ " and ha.vocab_name = 'Disease Ontology' ";
 
-		return populateLookup(diseaseRelevantRefQuery,"reference_key","disease_id",
+		return populateLookup(ex.executePrepared(diseaseRelevantRefQuery, startKey, endKey),"reference_key","disease_id",
 				"disease IDs to references (for linking from disease portal)");
 	}
 
@@ -105,13 +105,13 @@ public class RefIndexerSQL extends Indexer {
 			+ "where mta.annotation_key = a.annotation_key "
 			+ "    and a.annotation_key = r.annotation_key "
 			+ "    and mta.marker_key = m.marker_key "
-			+ "    and r.reference_key >= " + startKey
-			+ "    and r.reference_key < " + endKey
+			+ "    and r.reference_key >= ? "
+			+ "    and r.reference_key < ? "
 			+ "    and a.evidence_code != 'ND' "
 			+ "    and m.organism = 'mouse' "
 			+ "    and a.vocab_name = 'GO' ";		
 
-		return populateLookup(goMarkerSQL, "reference_key", "primary_id", "GO/Marker annotations");
+		return populateLookup(ex.executePrepared(goMarkerSQL, startKey, endKey), "reference_key", "primary_id", "GO/Marker annotations");
 	}
 
 	// get a mapping from reference keys to the marker IDs associated with them via phenotype data
@@ -123,53 +123,53 @@ public class RefIndexerSQL extends Indexer {
 			+ "  and mta.allele_key = a.allele_key "
 			+ "  and a.is_wild_type = 0 "
 			+ "  and a.allele_key = atr.allele_key "
-			+ "  and atr.reference_key >= " + startKey
-			+ "  and atr.reference_key < " + endKey
+			+ "  and atr.reference_key >= ? "
+			+ "  and atr.reference_key < ? "
 			+ "  and atr.reference_key = r.reference_key ";
 
-		return populateLookup(phenoMarkerSQL, "reference_key", "primary_id", "MP/Marker associations");
+		return populateLookup(ex.executePrepared(phenoMarkerSQL, startKey, endKey), "reference_key", "primary_id", "MP/Marker associations");
 	}
 	
 	// get a mapping from reference keys to the marker keys associated with them
 	public Map<String,Set<String>> getMarkerMap (int startKey, int endKey) throws Exception {
-		String markerToRefSQL = "select reference_key, marker_key from marker_to_reference where reference_key >= " + startKey + " and reference_key < "+ endKey;
-		return populateLookup(markerToRefSQL, "reference_key", "marker_key", "associated markers");
+		String markerToRefSQL = "select reference_key, marker_key from marker_to_reference where reference_key >= ? and reference_key < ?";
+		return populateLookup(ex.executePrepared(markerToRefSQL, startKey, endKey), "reference_key", "marker_key", "associated markers");
 	}
 
 	// Get all reference -> book publisher relationships (for books)
 	public Map<String,Set<String>> getPublisherMap (int startKey, int endKey) throws Exception {
-		String pubToRefSQL = "select reference_key, publisher from reference_book where reference_key >= " + startKey + " and reference_key < "+ endKey;
-		return populateLookup(pubToRefSQL, "reference_key", "publisher", "book publishers");            
+		String pubToRefSQL = "select reference_key, publisher from reference_book where reference_key >= ? and reference_key < ?";
+		return populateLookup(ex.executePrepared(pubToRefSQL, startKey, endKey), "reference_key", "publisher", "book publishers");            
 	}
 
 	// get a mapping from reference key to the allele keys associated with it
 	public Map<String,Set<String>> getAlleleMap (int startKey, int endKey) throws Exception {
-		String alleleToRefSQL = "select reference_key, allele_key from allele_to_reference where reference_key >= " + startKey + " and reference_key < "+ endKey;
-		return populateLookup(alleleToRefSQL, "reference_key", "allele_key", "allele keys");
+		String alleleToRefSQL = "select reference_key, allele_key from allele_to_reference where reference_key >= ? and reference_key < ?";
+		return populateLookup(ex.executePrepared(alleleToRefSQL, startKey, endKey), "reference_key", "allele_key", "allele keys");
 	}
 
 	// get a mapping from reference key to the authors associated with it
 	public Map<String,Set<String>> getAuthorMap (int startKey, int endKey) throws Exception {
-		String referenceAuthorSQL = "select reference_key, author from reference_individual_authors where reference_key >= " + startKey + " and reference_key < "+ endKey;
-		return populateLookup(referenceAuthorSQL, "reference_key", "author", "authors");
+		String referenceAuthorSQL = "select reference_key, author from reference_individual_authors where reference_key >= ? and reference_key < ?";
+		return populateLookup(ex.executePrepared(referenceAuthorSQL, startKey, endKey), "reference_key", "author", "authors");
 	}
 
 	// get a mapping from reference key to the last author associated with it
 	public Map<String,Set<String>> getLastAuthorMap (int startKey, int endKey) throws Exception {
-		String referenceAuthorLastSQL = "select reference_key, author from reference_individual_authors where is_last = 1 and reference_key >= " + startKey + " and reference_key < "+ endKey;
-		return populateLookup(referenceAuthorLastSQL, "reference_key", "author", "last authors");
+		String referenceAuthorLastSQL = "select reference_key, author from reference_individual_authors where is_last = 1 and reference_key >= ? and reference_key < ?";
+		return populateLookup(ex.executePrepared(referenceAuthorLastSQL, startKey, endKey), "reference_key", "author", "last authors");
 	}
 
 	// get a mapping from reference key to the first author associated with it
 	public Map<String,Set<String>> getFirstAuthorMap (int startKey, int endKey) throws Exception {
-		String referenceAuthorFirstSQL = "select reference_key, author from reference_individual_authors where sequence_num = 1 and reference_key >= " + startKey + " and reference_key < "+ endKey;
-		return populateLookup(referenceAuthorFirstSQL, "reference_key", "author", "first authors");
+		String referenceAuthorFirstSQL = "select reference_key, author from reference_individual_authors where sequence_num = 1 and reference_key >= ? and reference_key < ?";
+		return populateLookup(ex.executePrepared(referenceAuthorFirstSQL, startKey, endKey), "reference_key", "author", "first authors");
 	}
 
 	// get a mapping from reference key to the IDs associated with it
 	public Map<String,Set<String>> getReferenceIDMap (int startKey, int endKey) throws Exception {
-		String referenceIDsSQL = "select reference_key, acc_id from reference_id where reference_key >= " + startKey + " and reference_key < " + endKey;
-		return populateLookup(referenceIDsSQL, "reference_key", "acc_id", "reference IDs");
+		String referenceIDsSQL = "select reference_key, acc_id from reference_id where reference_key >= ? and reference_key < ?";
+		return populateLookup(ex.executePrepared(referenceIDsSQL, startKey, endKey), "reference_key", "acc_id", "reference IDs");
 	}
 
 	// add the count for the given solrField to the document, add the has-data flag if the count is
@@ -242,155 +242,166 @@ public class RefIndexerSQL extends Indexer {
 		int batchSize = 50000;						// number of reference keys per batch
 		logger.info("Processing references " + minKey + " to " + maxKey);
 		
+		// iterate through batches of references (inclusive of startKey, exclusive of endKey in each batch)
+		processKeyRanges(minKey, maxKey, batchSize, (startKey, endKey) -> processReferences(startKey, endKey));
+		
+		// final commit in case anything's hanging around
+		commit();
+	}
+
+	@Override
+	protected void setupChunkWorker() throws Exception {
 		createTempTables();
+	}
+
+	/* every worker needs its own closure and pairs tables first, so two at once is plenty
+	 */
+	@Override
+	protected int maxChunkWorkers() {
+		return 2;
+	}
+
+	/* build and send the documents for references >= startKey and < endKey
+	 */
+	private void processReferences(int startKey, int endKey) throws Exception {
+		logger.info("Starting batch >= " + startKey + " and < " + endKey);
 		
 		// collection of solr documents waiting to be sent to the server
 		Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
 
-		// iterate through batches of references (inclusive of startKey, exclusive of endKey in each batch)
-		int startKey = minKey;
-		while (startKey <= maxKey) {
-			int endKey = startKey + batchSize;
-			logger.info("Starting batch >= " + startKey + " and < " + endKey);
-			
-			// populate caches of data for this batch
-			Map<String,Set<String>> strainIDs = getStrainIDs(startKey, endKey);
-			Map<String,Set<String>> diseaseRelevantMarkerMap = getDiseaseRelevantMarkerMap(startKey, endKey);
-			Map<String,Set<String>> diseaseRelevantRefMap = getDiseaseRelevantReferenceMap(startKey, endKey);
-			Map<String,Set<String>> goMarkerMap = getGoMarkerMap(startKey, endKey);
-			Map<String,Set<String>> phenoMarkerMap = getPhenoMarkerMap(startKey, endKey);
-			Map<String,Set<String>> markerMap = getMarkerMap(startKey, endKey);
-			Map<String,Set<String>> publisherMap = getPublisherMap(startKey, endKey);
-			Map<String,Set<String>> alleleMap = getAlleleMap(startKey, endKey);
-			Map<String,Set<String>> authorMap = getAuthorMap(startKey, endKey);
-			Map<String,Set<String>> lastAuthorMap = getLastAuthorMap(startKey, endKey);
-			Map<String,Set<String>> firstAuthorMap = getFirstAuthorMap(startKey, endKey);
-			Map<String,Set<String>> referenceIDMap = getReferenceIDMap(startKey, endKey);
+		// populate caches of data for this batch
+		Map<String,Set<String>> strainIDs = getStrainIDs(startKey, endKey);
+		Map<String,Set<String>> diseaseRelevantMarkerMap = getDiseaseRelevantMarkerMap(startKey, endKey);
+		Map<String,Set<String>> diseaseRelevantRefMap = getDiseaseRelevantReferenceMap(startKey, endKey);
+		Map<String,Set<String>> goMarkerMap = getGoMarkerMap(startKey, endKey);
+		Map<String,Set<String>> phenoMarkerMap = getPhenoMarkerMap(startKey, endKey);
+		Map<String,Set<String>> markerMap = getMarkerMap(startKey, endKey);
+		Map<String,Set<String>> publisherMap = getPublisherMap(startKey, endKey);
+		Map<String,Set<String>> alleleMap = getAlleleMap(startKey, endKey);
+		Map<String,Set<String>> authorMap = getAuthorMap(startKey, endKey);
+		Map<String,Set<String>> lastAuthorMap = getLastAuthorMap(startKey, endKey);
+		Map<String,Set<String>> firstAuthorMap = getFirstAuthorMap(startKey, endKey);
+		Map<String,Set<String>> referenceIDMap = getReferenceIDMap(startKey, endKey);
 		
-			logger.info("Getting basic references data");
-			String referenceSQL = "select r.reference_key, r.year, r.jnum_id, r.jnum_numeric, r.pubmed_id, r.authors, r.title,"
-				+ " r.journal, r.vol, r.issue, ra.abstract, rc.marker_count, rc.disease_model_count, rc.probe_count, rc.antibody_count, rc.mapping_expt_count, "
-				+ " rc.gxd_index_count, rc.gxd_result_count, rc.gxd_structure_count, rc.gxd_assay_count, rc.gxd_htexp_count, "
-				+ " rc.allele_count, rc.sequence_count, rc.go_annotation_count, r.reference_group "
-				+ "from reference as r "
-				+ "inner join reference_abstract ra on r.reference_key = ra.reference_key "
-				+ "inner join reference_counts as rc on r.reference_key = rc.reference_key "
-				+ "where r.reference_key >= " + startKey
-				+ "  and r.reference_key < " + endKey;
-
-			ResultSet rs_overall = ex.executeProto(referenceSQL);
-			while (rs_overall.next()) {
-				SolrInputDocument doc = new SolrInputDocument();
-				
-				String refKey = rs_overall.getString("reference_key");
-
-				// add simple data from the query
-				
-				doc.addField(IndexConstants.REF_KEY, refKey);
-				doc.addField(IndexConstants.REF_AUTHOR, rs_overall.getString("authors"));
-				doc.addField(IndexConstants.REF_JOURNAL, rs_overall.getString("journal"));
-				doc.addField(IndexConstants.REF_JOURNAL_FACET, rs_overall.getString("journal"));
-				doc.addField(IndexConstants.REF_GROUPING, rs_overall.getString("reference_group"));
-				doc.addField(IndexConstants.REF_TITLE, rs_overall.getString("title"));
-				doc.addField(IndexConstants.REF_YEAR, rs_overall.getString("year"));
-				doc.addField(IndexConstants.REF_ISSUE, rs_overall.getString("issue"));
-				doc.addField(IndexConstants.REF_VOLUME, rs_overall.getString("vol"));
-				doc.addField(IndexConstants.REF_ABSTRACT, rs_overall.getString("abstract"));
-
-				// add data from the various mappings we collected for this batch
-				
-				addAllFromLookup(doc, IndexConstants.STRAIN_ID, refKey, strainIDs);
-				addAllFromLookup(doc, IndexConstants.REF_DISEASE_RELEVANT_MARKER_ID, refKey, diseaseRelevantMarkerMap);
-				addAllFromLookup(doc, IndexConstants.REF_DISEASE_ID, refKey, diseaseRelevantRefMap);
-				addAllFromLookup(doc, IndexConstants.REF_GO_MARKER_ID, refKey, goMarkerMap); 
-				addAllFromLookup(doc, IndexConstants.REF_PHENO_MARKER_ID, refKey, phenoMarkerMap); 
-				addAllFromLookup(doc, IndexConstants.MRK_KEY, refKey, markerMap);
-				addAllFromLookup(doc, IndexConstants.REF_JOURNAL_FACET, refKey, publisherMap);
-				addAllFromLookup(doc, IndexConstants.ALL_KEY, refKey, alleleMap);
-				addAllFromLookup(doc, IndexConstants.REF_ID, refKey, referenceIDMap);
-				addAuthorData(doc, IndexConstants.REF_AUTHOR_FORMATTED, authorMap, refKey, true);
-				addAuthorData(doc, IndexConstants.REF_FIRST_AUTHOR, firstAuthorMap, refKey, false);
-				addAuthorData(doc, IndexConstants.REF_LAST_AUTHOR, lastAuthorMap, refKey, false);
-				
-				// special handling for title and abstract in joined fields
-
-				String titleAndAbstract = "";	// overall joined together title + abstract fields
-				
-				if (rs_overall.getString("title") != null) {
-					String tempTitle = rs_overall.getString("title").replaceAll("\\p{Punct}", " ");
-
-					doc.addField(IndexConstants.REF_TITLE_STEMMED, tempTitle);
-					doc.addField(IndexConstants.REF_TITLE_UNSTEMMED, tempTitle);
-					titleAndAbstract = tempTitle;
-				}
+		logger.info("Getting basic references data");
+		String referenceSQL = "select r.reference_key, r.year, r.jnum_id, r.jnum_numeric, r.pubmed_id, r.authors, r.title,"
+			+ " r.journal, r.vol, r.issue, ra.abstract, rc.marker_count, rc.disease_model_count, rc.probe_count, rc.antibody_count, rc.mapping_expt_count, "
+			+ " rc.gxd_index_count, rc.gxd_result_count, rc.gxd_structure_count, rc.gxd_assay_count, rc.gxd_htexp_count, "
+			+ " rc.allele_count, rc.sequence_count, rc.go_annotation_count, r.reference_group "
+			+ "from reference as r "
+			+ "inner join reference_abstract ra on r.reference_key = ra.reference_key "
+			+ "inner join reference_counts as rc on r.reference_key = rc.reference_key "
+			+ "where r.reference_key >= ?"
+			+ "  and r.reference_key < ?";
+
+		ResultSet rs_overall = ex.executePrepared(referenceSQL, startKey, endKey);
+		while (rs_overall.next()) {
+			SolrInputDocument doc = new SolrInputDocument();
+			
+			String refKey = rs_overall.getString("reference_key");
 
-				if (rs_overall.getString("abstract") != null) {                
-					String tempAbstract = rs_overall.getString("abstract").replaceAll("\\p{Punct}", " ");
+			// add simple data from the query
+			
+			doc.addField(IndexConstants.REF_KEY, refKey);
+			doc.addField(IndexConstants.REF_AUTHOR, rs_overall.getString("authors"));
+			doc.addField(IndexConstants.REF_JOURNAL, rs_overall.getString("journal"));
+			doc.addField(IndexConstants.REF_JOURNAL_FACET, rs_overall.getString("journal"));
+			doc.addField(IndexConstants.REF_GROUPING, rs_overall.getString("reference_group"));
+			doc.addField(IndexConstants.REF_TITLE, rs_overall.getString("title"));
+			doc.addField(IndexConstants.REF_YEAR, rs_overall.getString("year"));
+			doc.addField(IndexConstants.REF_ISSUE, rs_overall.getString("issue"));
+			doc.addField(IndexConstants.REF_VOLUME, rs_overall.getString("vol"));
+			doc.addField(IndexConstants.REF_ABSTRACT, rs_overall.getString("abstract"));
+
+			// add data from the various mappings we collected for this batch
+			
+			addAllFromLookup(doc, IndexConstants.STRAIN_ID, refKey, strainIDs);
+			addAllFromLookup(doc, IndexConstants.REF_DISEASE_RELEVANT_MARKER_ID, refKey, diseaseRelevantMarkerMap);
+			addAllFromLookup(doc, IndexConstants.REF_DISEASE_ID, refKey, diseaseRelevantRefMap);
+			addAllFromLookup(doc, IndexConstants.REF_GO_MARKER_ID, refKey, goMarkerMap); 
+			addAllFromLookup(doc, IndexConstants.REF_PHENO_MARKER_ID, refKey, phenoMarkerMap); 
+			addAllFromLookup(doc, IndexConstants.MRK_KEY, refKey, markerMap);
+			addAllFromLookup(doc, IndexConstants.REF_JOURNAL_FACET, refKey, publisherMap);
+			addAllFromLookup(doc, IndexConstants.ALL_KEY, refKey, alleleMap);
+			addAllFromLookup(doc, IndexConstants.REF_ID, refKey, referenceIDMap);
+			addAuthorData(doc, IndexConstants.REF_AUTHOR_FORMATTED, authorMap, refKey, true);
+			addAuthorData(doc, IndexConstants.REF_FIRST_AUTHOR, firstAuthorMap, refKey, false);
+			addAuthorData(doc, IndexConstants.REF_LAST_AUTHOR, lastAuthorMap, refKey, false);
+			
+			// special handling for title and abstract in joined fields
 
-					doc.addField(IndexConstants.REF_ABSTRACT_STEMMED, tempAbstract);
-					doc.addField(IndexConstants.REF_ABSTRACT_UNSTEMMED, tempAbstract);
+			String titleAndAbstract = "";	// overall joined together title + abstract fields
+			
+			if (rs_overall.getString("title") != null) {
+				String tempTitle = rs_overall.getString("title").replaceAll("\\p{Punct}", " ");
 
-					// Put together the second part of the smushed title and abstract
+				doc.addField(IndexConstants.REF_TITLE_STEMMED, tempTitle);
+				doc.addField(IndexConstants.REF_TITLE_UNSTEMMED, tempTitle);
+				titleAndAbstract = tempTitle;
+			}
 
-					if (titleAndAbstract.equals("")) {
-						titleAndAbstract = tempAbstract;
-					} else {
-						titleAndAbstract = titleAndAbstract + " WORDTHATCANTEXIST " + tempAbstract;
-					}
-				}
+			if (rs_overall.getString("abstract") != null) {                
+				String tempAbstract = rs_overall.getString("abstract").replaceAll("\\p{Punct}", " ");
 
-				doc.addField(IndexConstants.REF_TITLE_ABSTRACT_STEMMED, titleAndAbstract);
-				doc.addField(IndexConstants.REF_TITLE_ABSTRACT_UNSTEMMED, titleAndAbstract);
-				
-				// add just the numeric part of the J: number
-				
-				if (rs_overall.getString("jnum_id") != null) {
-					String jnumID [] = rs_overall.getString("jnum_id").split(":");
-					doc.addField(IndexConstants.REF_ID, jnumID[1]); 
-					doc.addField(IndexConstants.REF_JNUM, rs_overall.getInt("jnum_numeric"));
-				}
-				
-				// now deal with all the counts, tracking if we've found a non-zero one
-				
-				boolean foundACount = handleCount(doc, IndexConstants.MRK_COUNT, rs_overall.getInt("marker_count"), "Genome features");
-				foundACount = handleCount(doc, IndexConstants.DO_MODEL_COUNT, rs_overall.getInt("disease_model_count"), "Disease models") || foundACount;
-				foundACount = handleCount(doc, IndexConstants.PRB_COUNT, rs_overall.getInt("probe_count"), "Molecular probes and clones") || foundACount;
-				foundACount = handleCount(doc, IndexConstants.ANTIBODY_COUNT, rs_overall.getInt("antibody_count"), "Antibodies") || foundACount;
-				foundACount = handleCount(doc, IndexConstants.MAP_EXPT_COUNT, rs_overall.getInt("mapping_expt_count"), "Mapping data") || foundACount;
-				foundACount = handleCount(doc, IndexConstants.GXD_INDEX_COUNT, rs_overall.getInt("gxd_index_count"), "Expression literature records") || foundACount;
-				foundACount = handleCount(doc, IndexConstants.GXD_RESULT_COUNT, rs_overall.getInt("gxd_result_count"), "Expression: assays results") || foundACount;
-				foundACount = handleCount(doc, IndexConstants.GXD_STRUCT_COUNT, rs_overall.getInt("gxd_structure_count"), "Expression: assays results") || foundACount;
-				foundACount = handleCount(doc, IndexConstants.GXD_ASSAY_COUNT, rs_overall.getInt("gxd_assay_count"), "Expression: assays results") || foundACount;
-				foundACount = handleCount(doc, IndexConstants.GXD_HTEXP_COUNT, rs_overall.getInt("gxd_htexp_count"), "RNA-Seq/microarray assays") || foundACount;
-				foundACount = handleCount(doc, IndexConstants.ALL_COUNT, rs_overall.getInt("allele_count"), "Phenotypic alleles") || foundACount;
-				foundACount = handleCount(doc, IndexConstants.SEQ_COUNT, rs_overall.getInt("sequence_count"), "Sequences") || foundACount;
-				foundACount = handleCount(doc, IndexConstants.GO_ANNOT_COUNT, rs_overall.getInt("go_annotation_count"), "Functional annotations (GO)") || foundACount;
-
-				if (!foundACount) {
-					doc.addField(IndexConstants.REF_HAS_DATA, "No curated data");
-				}
-				
-				// Count of orthologs isn't implemented yet.
-				doc.addField(IndexConstants.ORTHO_COUNT, 0);
-
-				docs.add(doc);
-				if (docs.size() > 1000) {
-					writeDocs(docs);
-					docs = new ArrayList<SolrInputDocument>();
+				doc.addField(IndexConstants.REF_ABSTRACT_STEMMED, tempAbstract);
+				doc.addField(IndexConstants.REF_ABSTRACT_UNSTEMMED, tempAbstract);
+
+				// Put together the second part of the smushed title and abstract
+
+				if (titleAndAbstract.equals("")) {
+					titleAndAbstract = tempAbstract;
+				} else {
+					titleAndAbstract = titleAndAbstract + " WORDTHATCANTEXIST " + tempAbstract;
 				}
 			}
-			rs_overall.close();
+
+			doc.addField(IndexConstants.REF_TITLE_ABSTRACT_STEMMED, titleAndAbstract);
+			doc.addField(IndexConstants.REF_TITLE_ABSTRACT_UNSTEMMED, titleAndAbstract);
+			
+			// add just the numeric part of the J: number
+			
+			if (rs_overall.getString("jnum_id") != null) {
+				String jnumID [] = rs_overall.getString("jnum_id").split(":");
+				doc.addField(IndexConstants.REF_ID, jnumID[1]); 
+				doc.addField(IndexConstants.REF_JNUM, rs_overall.getInt("jnum_numeric"));
+			}
+			
+			// now deal with all the counts, tracking if we've found a non-zero one
+			
+			boolean foundACount = handleCount(doc, IndexConstants.MRK_COUNT, rs_overall.getInt("marker_count"), "Genome features");
+			foundACount = handleCount(doc, IndexConstants.DO_MODEL_COUNT, rs_overall.getInt("disease_model_count"), "Disease models") || foundACount;
+			foundACount = handleCount(doc, IndexConstants.PRB_COUNT, rs_overall.getInt("probe_count"), "Molecular probes and clones") || foundACount;
+			foundACount = handleCount(doc, IndexConstants.ANTIBODY_COUNT, rs_overall.getInt("antibody_count"), "Antibodies") || foundACount;
+			foundACount = handleCount(doc, IndexConstants.MAP_EXPT_COUNT, rs_overall.getInt("mapping_expt_count"), "Mapping data") || foundACount;
+			foundACount = handleCount(doc, IndexConstants.GXD_INDEX_COUNT, rs_overall.getInt("gxd_index_count"), "Expression literature records") || foundACount;
+			foundACount = handleCount(doc, IndexConstants.GXD_RESULT_COUNT, rs_overall.getInt("gxd_result_count"), "Expression: assays results") || foundACount;
+			foundACount = handleCount(doc, IndexConstants.GXD_STRUCT_COUNT, rs_overall.getInt("gxd_structure_count"), "Expression: assays results") || foundACount;
+			foundACount = handleCount(doc, IndexConstants.GXD_ASSAY_COUNT, rs_overall.getInt("gxd_assay_count"), "Expression: assays results") || foundACount;
+			foundACount = handleCount(doc, IndexConstants.GXD_HTEXP_COUNT, rs_overall.getInt("gxd_htexp_count"), "RNA-Seq/microarray assays") || foundACount;
+			foundACount = handleCount(doc, IndexConstants.ALL_COUNT, rs_overall.getInt("allele_count"), "Phenotypic alleles") || foundACount;
+			foundACount = handleCount(doc, IndexConstants.SEQ_COUNT, rs_overall.getInt("sequence_count"), "Sequences") || foundACount;
+			foundACount = handleCount(doc, IndexConstants.GO_ANNOT_COUNT, rs_overall.getInt("go_annotation_count"), "Functional annotations (GO)") || foundACount;
+
+			if (!foundACount) {
+				doc.addField(IndexConstants.REF_HAS_DATA, "No curated data");
+			}
 			
-			// commit with each batch to help Solr's memory usage
-			logger.info("Committing docs >= " + startKey + " and < " + endKey);
-			commit();
+			// Count of orthologs isn't implemented yet.
+			doc.addField(IndexConstants.ORTHO_COUNT, 0);
 
-			logger.info("Finished batch >= " + startKey + " and < " + endKey);
-			startKey = endKey;
+			docs.add(doc);
+			if (docs.size() > 1000) {
+				writeDocs(docs);
+				docs = new ArrayList<SolrInputDocument>();
+			}
 		}
-		
-		// final push & commit in case anything's hanging around
+		rs_overall.close();
 		writeDocs(docs);
+		
+		// commit with each batch to help Solr's memory usage
+		logger.info("Committing docs >= " + startKey + " and < " + endKey);
 		commit();
+
+		logger.info("Finished batch >= " + startKey + " and < " + endKey);
 	}
 }
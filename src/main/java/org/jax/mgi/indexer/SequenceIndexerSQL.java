@@ -7,8 +7,15 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.solr.common.SolrInputDocument;
+import org.jax.mgi.shr.JsonEncoder;
+import org.jax.mgi.shr.SQLExecutor;
 import org.jax.mgi.shr.fe.IndexConstants;
 import org.jax.mgi.shr.fe.sort.SmartAlphaComparator;
 import org.jax.mgi.shr.jsonmodel.AccessionID;
@@ -16,8 +23,6 @@ import org.jax.mgi.shr.jsonmodel.GenomicLocation;
 import org.jax.mgi.shr.jsonmodel.SimpleMarker;
 import org.jax.mgi.shr.jsonmodel.SimpleSequence;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /* Is: an indexer that builds the index supporting the sequence summary page (reachable from the
  * 		marker and reference detail pages).  Each document in the index represents data for a single
  * 		sequence, and each sequence is represented in only one document.
@@ -36,16 +41,13 @@ public class SequenceIndexerSQL extends Indexer {
 	
 	private List<String> emptyList = new ArrayList<String>();	// shared empty string for simpler code
 	
-	private Map<Integer,List<SimpleMarker>> markers;		// sequence key to list of basic marker data
-	private Map<Integer,List<String>> markerKeys;			// sequence key to list of marker keys
-	private Map<Integer,List<String>> referenceKeys;		// sequence key to list of reference keys
-	private Map<Integer,List<String>> collections;			// sequence key to list of clone collection names
-	private Map<Integer,List<String>> strains;				// sequence key to list of strain names
+	private Map<Integer,SimpleMarker> markersByKey = new ConcurrentHashMap<Integer,SimpleMarker>();	// one SimpleMarker per marker key, across chunks
 	private Map<Integer,Integer> sequenceNum;				// sequence key to sequence num for ordering
-	private Map<Integer,GenomicLocation> locations;			// sequence key to primary genomic location
-	private Map<Integer,List<AccessionID>> otherIDs;		// sequence key to list of non-preferred IDs
+	private ChunkCaches caches;								// caches for the chunk of sequences being processed
+
+	private ExecutorService cachePool;						// loads a chunk's caches, cacheLoaders at a time
 	
-	private ObjectMapper mapper = new ObjectMapper();			// converts objects to JSON
+	private JsonEncoder json = new JsonEncoder(SimpleMarker.class);	// converts objects to JSON, caching the markers' JSON
 
 	/*--------------------*/
 	/*--- constructors ---*/
@@ -55,6 +57,90 @@ public class SequenceIndexerSQL extends Indexer {
 		super("sequence");
 	}
 
+	/*---------------------*/
+	/*--- inner classes ---*/
+	/*---------------------*/
+
+	/* Is: the in-memory caches for one chunk of sequences, filled by the cache*() methods.
+	 * 	Two of these exist at once at most:  the chunk being processed, and the next one,
+	 * 	being loaded in the background.
+	 */
+	private static class ChunkCaches {
+		Map<Integer,List<SimpleMarker>> markers;		// sequence key to list of basic marker data
+		Map<Integer,List<String>> markerKeys;			// sequence key to list of marker keys
+		Map<Integer,List<String>> referenceKeys;		// sequence key to list of reference keys
+		Map<Integer,List<String>> collections;			// sequence key to list of clone collection names
+		Map<Integer,List<String>> strains;				// sequence key to list of strain names
+		Map<Integer,GenomicLocation> locations;			// sequence key to primary genomic location
+		Map<Integer,List<AccessionID>> otherIDs;		// sequence key to list of non-preferred IDs
+	}
+
+	/* one of the cache*() methods, for a chunk's ChunkCaches */
+	private interface CacheLoader {
+		void load(ChunkCaches target, int startKey, int endKey) throws Exception;
+	}
+
+	/* Is: the loading of one chunk's caches, each cache on its own thread and database
+	 * 	connection.  A loader that cannot get a connection in time is left for await() to
+	 * 	run on the calling thread's connection instead.
+	 */
+	private class ChunkLoad {
+		private ChunkCaches target = new ChunkCaches();
+		private int startKey;
+		private int endKey;
+		private List<CacheLoader> loaders = new ArrayList<CacheLoader>();
+		private List<Future<Boolean>> loaded = new ArrayList<Future<Boolean>>();
+
+		ChunkLoad(int startKey, int endKey) {
+			this.startKey = startKey;
+			this.endKey = endKey;
+			loaders.add(SequenceIndexerSQL.this::cacheMarkers);
+			loaders.add(SequenceIndexerSQL.this::cacheReferences);
+			loaders.add(SequenceIndexerSQL.this::cacheCollections);
+			loaders.add(SequenceIndexerSQL.this::cacheStrains);
+			loaders.add(SequenceIndexerSQL.this::cacheIDs);
+			loaders.add(SequenceIndexerSQL.this::cacheLocations);
+			for (final CacheLoader loader : loaders) {
+				loaded.add(cachePool.submit(() -> {
+					SQLExecutor.Lease lease = ex.tryLease(chunkLeaseWaitMs);
+					if (lease == null) {
+						return false;
+					}
+					try {
+						loader.load(target, startKey, endKey);
+					} finally {
+						lease.close();
+					}
+					return true;
+				}));
+			}
+		}
+
+		/* wait for the caches to finish loading, and return them */
+		ChunkCaches await() throws Exception {
+			try {
+				for (int i = 0; i < loaders.size(); i++) {
+					if (!loaded.get(i).get()) {
+						loaders.get(i).load(target, startKey, endKey);
+					}
+				}
+			} catch (ExecutionException e) {
+				cancel();
+				if (e.getCause() instanceof Exception) {
+					throw (Exception) e.getCause();
+				}
+				throw e;
+			}
+			return target;
+		}
+
+		void cancel() {
+			for (Future<Boolean> f : loaded) {
+				f.cancel(true);
+			}
+		}
+	}
+
 	/*-----------------------*/
 	/*--- private methods ---*/
 	/*-----------------------*/
@@ -116,7 +202,7 @@ public class SequenceIndexerSQL extends Indexer {
 	
 	/* gather genomic locations for each sequence and arbitrarily choose one for each (in case of multiples)
 	 */
-	private void cacheLocations(int startKey, int endKey) throws Exception {
+	private void cacheLocations(ChunkCaches target, int startKey, int endKey) throws Exception {
 		logger.debug("caching locations");
 		String cmd = "select sequence_key, chromosome, start_coordinate, end_coordinate, strand "
 			+ "from sequence_location "
@@ -127,28 +213,29 @@ public class SequenceIndexerSQL extends Indexer {
 		ResultSet rs = ex.executeProto(cmd, cursorLimit);
 		logger.debug("  - finished location query in " + ex.getTimestamp());
 
-		locations = new HashMap<Integer,GenomicLocation>();
+		Map<Integer,GenomicLocation> locations = new HashMap<Integer,GenomicLocation>();
 		
 		while (rs.next()) {
 			locations.put(rs.getInt("sequence_key"), new GenomicLocation(rs.getString("chromosome"),
 				rs.getString("start_coordinate"), rs.getString("end_coordinate"), rs.getString("strand")) );
 		}
 		rs.close();
-		logger.debug("  - done locations for " + collections.size() + " sequences");
+		target.locations = locations;
+		logger.debug("  - done locations for " + locations.size() + " sequences");
 	}
 	
 	/* retrieve the location for the given sequence key.  Assumes cacheLocation() has been called.
 	 */
 	private GenomicLocation getLocation(int sequenceKey) throws Exception {
-		if (locations.containsKey(sequenceKey)) {
-			return locations.get(sequenceKey);
+		if (caches.locations.containsKey(sequenceKey)) {
+			return caches.locations.get(sequenceKey);
 		}
 		return null;
 	}
 	
 	/* gather the clone collections from the database and cache them in a global cache (collections)
 	 */
-	private void cacheCollections(int startKey, int endKey) throws Exception {
+	private void cacheCollections(ChunkCaches target, int startKey, int endKey) throws Exception {
 		logger.debug("caching collections");
 		String cmd = "select sequence_key, collection "
 			+ "from sequence_clone_collection "
@@ -158,7 +245,7 @@ public class SequenceIndexerSQL extends Indexer {
 		ResultSet rs = ex.executeProto(cmd, cursorLimit);
 		logger.debug("  - finished clone collection query in " + ex.getTimestamp());
 
-		collections = new HashMap<Integer,List<String>>();
+		Map<Integer,List<String>> collections = new HashMap<Integer,List<String>>();
 		SmartAlphaComparator smComparator = new SmartAlphaComparator();
 		
 		while (rs.next()) {
@@ -173,6 +260,7 @@ public class SequenceIndexerSQL extends Indexer {
 			}
 		}
 		rs.close();
+		target.collections = collections;
 		logger.debug("  - done caching collections for " + collections.size() + " sequences");
 	}
 	
@@ -180,15 +268,15 @@ public class SequenceIndexerSQL extends Indexer {
 	 * has been called.
 	 */
 	private List<String> getCollections(int sequenceKey) throws Exception {
-		if (collections.containsKey(sequenceKey)) {
-			return collections.get(sequenceKey);
+		if (caches.collections.containsKey(sequenceKey)) {
+			return caches.collections.get(sequenceKey);
 		}
 		return null;
 	}
 	
 	/* gather the mouse strains from the database and cache them in a global cache (strains)
 	 */
-	private void cacheStrains(int startKey, int endKey) throws Exception {
+	private void cacheStrains(ChunkCaches target, int startKey, int endKey) throws Exception {
 		logger.debug("caching strains");
 		String cmd = "select s.sequence_key, o.strain "
 			+ "from sequence s, sequence_source o "
@@ -199,7 +287,7 @@ public class SequenceIndexerSQL extends Indexer {
 		ResultSet rs = ex.executeProto(cmd, cursorLimit);
 		logger.debug("  - finished strains query in " + ex.getTimestamp());
 
-		strains = new HashMap<Integer,List<String>>();
+		Map<Integer,List<String>> strains = new HashMap<Integer,List<String>>();
 		SmartAlphaComparator smComparator = new SmartAlphaComparator();
 		
 		while (rs.next()) {
@@ -214,21 +302,22 @@ public class SequenceIndexerSQL extends Indexer {
 			}
 		}
 		rs.close();
+		target.strains = strains;
 		logger.debug("  - done caching strains for " + strains.size() + " sequences");
 	}
 	
 	/* retrieve the strains for the given sequence key.  Assumes cacheStrains() has been called.
 	 */
 	private List<String> getStrains(int sequenceKey) throws Exception {
-		if (strains.containsKey(sequenceKey)) {
-			return strains.get(sequenceKey);
+		if (caches.strains.containsKey(sequenceKey)) {
+			return caches.strains.get(sequenceKey);
 		}
 		return emptyList;
 	}
 	
 	/* retrieve the references associated with each sequence and store their keys in a cache
 	 */
-	private void cacheReferences(int startKey, int endKey) throws Exception {
+	private void cacheReferences(ChunkCaches target, int startKey, int endKey) throws Exception {
 		logger.debug("caching references");
 		String cmd = "select sequence_key, reference_key "
 			+ "from reference_to_sequence "
@@ -238,7 +327,7 @@ public class SequenceIndexerSQL extends Indexer {
 		ResultSet rs = ex.executeProto(cmd, cursorLimit);
 		logger.debug("  - finished reference query in " + ex.getTimestamp());
 
-		referenceKeys = new HashMap<Integer,List<String>>();
+		Map<Integer,List<String>> referenceKeys = new HashMap<Integer,List<String>>();
 		
 		while (rs.next()) {
 			Integer sequenceKey = rs.getInt("sequence_key");
@@ -250,22 +339,23 @@ public class SequenceIndexerSQL extends Indexer {
 			referenceKeys.get(sequenceKey).add(rs.getString("reference_key"));
 		}
 		rs.close();
-		logger.debug("  - found reference keys for " + markers.size() + " sequences");
+		target.referenceKeys = referenceKeys;
+		logger.debug("  - found reference keys for " + referenceKeys.size() + " sequences");
 	}
 
 	/* retrieve the reference keys that can be used to retrieve a given sequence.  Assumes cacheReferences() has
 	 * been called.
 	 */
 	private List<String> getReferenceKeys(int sequenceKey) throws Exception {
-		if (referenceKeys.containsKey(sequenceKey)) {
-			return referenceKeys.get(sequenceKey);
+		if (caches.referenceKeys.containsKey(sequenceKey)) {
+			return caches.referenceKeys.get(sequenceKey);
 		}
 		return emptyList;
 	}
 	
 	/* retrieve the other (non-preferred) IDs associated with each sequence
 	 */
-	private void cacheIDs(int startKey, int endKey) throws Exception {
+	private void cacheIDs(ChunkCaches target, int startKey, int endKey) throws Exception {
 		logger.debug("caching other IDs");
 		String cmd = "select i.sequence_key, i.acc_id, i.logical_db "
 			+ "from sequence_id i, sequence s "
@@ -278,7 +368,7 @@ public class SequenceIndexerSQL extends Indexer {
 		ResultSet rs = ex.executeProto(cmd, cursorLimit);
 		logger.debug("  - finished other ID query in " + ex.getTimestamp());
 
-		otherIDs = new HashMap<Integer,List<AccessionID>>();
+		Map<Integer,List<AccessionID>> otherIDs = new HashMap<Integer,List<AccessionID>>();
 		
 		while (rs.next()) {
 			Integer sequenceKey = rs.getInt("sequence_key");
@@ -290,15 +380,16 @@ public class SequenceIndexerSQL extends Indexer {
 			otherIDs.get(sequenceKey).add(new AccessionID(rs.getString("acc_id"), rs.getString("logical_db")));
 		}
 		rs.close();
-		logger.debug("  - found other IDs keys for " + markers.size() + " sequences");
+		target.otherIDs = otherIDs;
+		logger.debug("  - found other IDs keys for " + otherIDs.size() + " sequences");
 	}
 
 	/* retrieve the other (non-preferred) accession IDs for the given sequence.  Assumes cacheIDs() has
 	 * been called.
 	 */
 	private List<AccessionID> getOtherIDs(int sequenceKey) throws Exception {
-		if (otherIDs.containsKey(sequenceKey)) {
-			return otherIDs.get(sequenceKey);
+		if (caches.otherIDs.containsKey(sequenceKey)) {
+			return caches.otherIDs.get(sequenceKey);
 		}
 		return null;
 	}
@@ -306,7 +397,7 @@ public class SequenceIndexerSQL extends Indexer {
 	/* retrieve the markers associated with each sequence and store them in the cache of markers and 
 	 * in the cache of marker keys
 	 */
-	private void cacheMarkers(int startKey, int endKey) throws Exception {
+	private void cacheMarkers(ChunkCaches target, int startKey, int endKey) throws Exception {
 		logger.debug("caching markers");
 		String cmd = "select s.sequence_key, m.symbol, m.primary_id, n.by_symbol, s.marker_key "
 			+ "from marker_to_sequence s, marker m, marker_sequence_num n "
@@ -319,12 +410,19 @@ public class SequenceIndexerSQL extends Indexer {
 		ResultSet rs = ex.executeProto(cmd, cursorLimit);
 		logger.debug("  - finished marker query in " + ex.getTimestamp());
 
-		markers = new HashMap<Integer,List<SimpleMarker>>();
-		markerKeys = new HashMap<Integer,List<String>>();
+		Map<Integer,List<SimpleMarker>> markers = new HashMap<Integer,List<SimpleMarker>>();
+		Map<Integer,List<String>> markerKeys = new HashMap<Integer,List<String>>();
 		
 		while (rs.next()) {
 			Integer sequenceKey = rs.getInt("sequence_key");
-			SimpleMarker marker = new SimpleMarker(rs.getString("symbol"), rs.getString("primary_id"));
+
+			// reuse the same SimpleMarker for every sequence of a marker, so its JSON is only built once
+			Integer markerKey = rs.getInt("marker_key");
+			SimpleMarker marker = markersByKey.get(markerKey);
+			if (marker == null) {
+				marker = new SimpleMarker(rs.getString("symbol"), rs.getString("primary_id"));
+				markersByKey.put(markerKey, marker);
+			}
 			
 			// any markers associated with the sequence go into the cache of markers for display
 			if (!markers.containsKey(sequenceKey)) {
@@ -335,6 +433,8 @@ public class SequenceIndexerSQL extends Indexer {
 			markerKeys.get(sequenceKey).add(rs.getString("marker_key"));
 		}
 		rs.close();
+		target.markers = markers;
+		target.markerKeys = markerKeys;
 		logger.debug("  - found markers and keys for " + markers.size() + " sequences");
 	}
 	
@@ -342,8 +442,8 @@ public class SequenceIndexerSQL extends Indexer {
 	 * been called.
 	 */
 	private List<SimpleMarker> getMarkers(int sequenceKey) throws Exception {
-		if (markers.containsKey(sequenceKey)) {
-			return markers.get(sequenceKey);
+		if (caches.markers.containsKey(sequenceKey)) {
+			return caches.markers.get(sequenceKey);
 		}
 		return null;
 	}
@@ -352,8 +452,8 @@ public class SequenceIndexerSQL extends Indexer {
 	 * been called.
 	 */
 	private List<String> getMarkerKeys(int sequenceKey) throws Exception {
-		if (markerKeys.containsKey(sequenceKey)) {
-			return markerKeys.get(sequenceKey);
+		if (caches.markerKeys.containsKey(sequenceKey)) {
+			return caches.markerKeys.get(sequenceKey);
 		}
 		return emptyList;
 	}
@@ -454,12 +554,12 @@ public class SequenceIndexerSQL extends Indexer {
 				seq.setStrain(strain);
 			}
 
-			doc.addField(IndexConstants.SEQ_SEQUENCE, mapper.writeValueAsString(seq));
+			doc.addField(IndexConstants.SEQ_SEQUENCE, json.toJson(seq));
 			
 			// Add this doc to the batch we're collecting.  If the stack hits our
 			// threshold, send it to the server and reset it.
 			docs.add(doc);
-			if (docs.size() >= solrBatchSize)  {
+			if (docs.size() >= adaptiveSize(solrBatchSize))  {
 				writeDocs(docs);
 				docs = new ArrayList<SolrInputDocument>();
 			}
@@ -479,35 +579,50 @@ public class SequenceIndexerSQL extends Indexer {
 	public void index() throws Exception {
 		int maxSeqKey = getMaxSequenceKey();
 		int startKeyInclusive = 1;
-		int endKeyExclusive = startKeyInclusive + sequenceChunkSize;
+		int endKeyExclusive = startKeyInclusive + adaptiveSize(sequenceChunkSize);
 		
-		logger.info("Preparing for " + (1 + (maxSeqKey / sequenceChunkSize)) + " batches");
+		logger.info("Preparing for about " + (1 + (maxSeqKey / sequenceChunkSize)) + " batches");
 
 		/* need to cache the sequence numbers for all the sequences, so we can get the proper
 		 * order for the whole set, rather than just ordering the batches (retrieved below) internally.
 		 */
 		cacheSequenceNum();
 		
-		/* walk through the full set of sequences in blocks of 'sequenceChunkSize' to help keep
-		 * memory requirements down.  (In-memory caches are flushed and rebuilt for each chunk.)
+		/* walk through the full set of sequences in blocks of about 'sequenceChunkSize' (scaled to
+		 * the free heap) to help keep memory requirements down.  (In-memory caches are rebuilt for
+		 * each chunk.)  While one chunk's sequences are processed, the caches for the next chunk
+		 * load in the background, up to cacheLoaders (indexer.cacheLoaders) of them at once.
 		 */
-		int batch = 1;
-		while (startKeyInclusive < maxSeqKey) {
-			// refresh the caches for this slice of sequences
-			cacheMarkers(startKeyInclusive, endKeyExclusive);
-			cacheReferences(startKeyInclusive, endKeyExclusive);
-			cacheCollections(startKeyInclusive, endKeyExclusive);
-			cacheStrains(startKeyInclusive, endKeyExclusive);
-			cacheIDs(startKeyInclusive, endKeyExclusive);
-			cacheLocations(startKeyInclusive, endKeyExclusive);
-			
-			// caches are filled, so now process this slice of sequences
-			processSequences(startKeyInclusive, endKeyExclusive); 
-			
-			// get ready for the next slice
-			startKeyInclusive = endKeyExclusive;
-			endKeyExclusive = endKeyExclusive + sequenceChunkSize;
-			logger.info("finished batch " + batch++ + " (sequences through key " + (endKeyExclusive - 1) + ")");
+		cachePool = Executors.newFixedThreadPool(Math.max(1, cacheLoaders));
+		ChunkLoad nextLoad = null;
+		try {
+			int batch = 1;
+			if (startKeyInclusive < maxSeqKey) {
+				nextLoad = new ChunkLoad(startKeyInclusive, endKeyExclusive);
+			}
+			while (startKeyInclusive < maxSeqKey) {
+				// wait for this slice's caches, then start on the next slice's
+				caches = nextLoad.await();
+				nextLoad = null;
+				int nextEndKey = endKeyExclusive + adaptiveSize(sequenceChunkSize);
+				if (endKeyExclusive < maxSeqKey) {
+					nextLoad = new ChunkLoad(endKeyExclusive, nextEndKey);
+				}
+
+				// caches are filled, so now process this slice of sequences
+				processSequences(startKeyInclusive, endKeyExclusive);
+				caches = null;
+
+				// get ready for the next slice
+				startKeyInclusive = endKeyExclusive;
+				endKeyExclusive = nextEndKey;
+				logger.info("finished batch " + batch++ + " (sequences through key " + (startKeyInclusive - 1) + ")");
+			}
+		} finally {
+			if (nextLoad != null) {
+				nextLoad.cancel();
+			}
+			cachePool.shutdown();
 		}
 		commit();
 	}
@@ -0,0 +1,159 @@
+package org.jax.mgi.indexer;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.impl.BinaryRequestWriter;
+import org.apache.solr.client.solrj.impl.BinaryResponseParser;
+import org.apache.solr.client.solrj.impl.Http2SolrClient;
+import org.apache.solr.client.solrj.impl.HttpClientUtil;
+import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SolrTransport
+ *
+ * Builds the update clients the indexers send their documents through.  Every
+ * indexer gets its own client, which its SolrWriter sends batches through from its
+ * own threads, but they all sit on one pooled HTTP client for the JVM, which Main
+ * closes at the end.
+ * Chosen in config.properties:
+ * 	index.transport - http1 (default; HttpSolrClient over Apache HttpClient) or
+ * 		http2 (Http2SolrClient over Jetty's client, which multiplexes all of the
+ * 		indexers' updates over a few connections)
+ * 	index.javabin - send updates and read responses as javabin rather than XML
+ * 		(default true)
+ * 	index.gzip - gzip the bodies of javabin update requests (http1 only; Solr's
+ * 		Jetty must accept compressed requests, i.e. GzipHandler with a non-zero
+ * 		inflateBufferSize, so this is off by default)
+ * 	index.threads - per-indexer sender threads (see SolrWriter for the rest of
+ * 		its settings)
+ * 	index.maxConnections - size of the shared connection pool
+ */
+public class SolrTransport {
+
+	public static final String HTTP1 = "http1";
+	public static final String HTTP2 = "http2";
+
+	private static Logger logger = LoggerFactory.getLogger(SolrTransport.class);
+
+	private static final int TIMEOUT_MS = 3 * 60000;
+
+	// the shared HTTP client (only one of these is ever set, depending on index.transport)
+	private static CloseableHttpClient httpClient = null;
+	private static Http2SolrClient http2Client = null;
+
+	/* get an update client for the core at 'coreUrl', built on the shared HTTP client
+	 */
+	public static synchronized SolrClient getUpdateClient(Properties props, String coreUrl) {
+		String transport = props.getProperty("index.transport", HTTP1).trim().toLowerCase();
+		boolean javabin = Boolean.parseBoolean(props.getProperty("index.javabin", "true").trim());
+
+		if (HTTP2.equals(transport)) {
+			if (http2Client == null) {
+				http2Client = new Http2SolrClient.Builder()
+					.connectionTimeout(TIMEOUT_MS)
+					.idleTimeout(TIMEOUT_MS)
+					.maxConnectionsPerHost(maxConnections(props))
+					.build();
+				if (javabin) {
+					http2Client.setRequestWriter(new BinaryRequestWriter());
+					http2Client.setParser(new BinaryResponseParser());
+				}
+				if (Boolean.parseBoolean(props.getProperty("index.gzip", "false").trim())) {
+					logger.info("index.gzip is only supported with index.transport=http1; sending uncompressed updates");
+				}
+				logger.info("Created shared HTTP/2 Solr client (javabin=" + javabin + ")");
+			}
+			// borrows the shared client's connections; closing it leaves the shared one open
+			Http2SolrClient client = new Http2SolrClient.Builder(coreUrl)
+				.withHttpClient(http2Client)
+				.build();
+			if (javabin) {
+				client.setRequestWriter(new BinaryRequestWriter());
+				client.setParser(new BinaryResponseParser());
+			}
+			return client;
+		}
+
+		if (httpClient == null) {
+			boolean gzip = Boolean.parseBoolean(props.getProperty("index.gzip", "false").trim());
+			ModifiableSolrParams params = new ModifiableSolrParams();
+			params.set(HttpClientUtil.PROP_MAX_CONNECTIONS, maxConnections(props));
+			params.set(HttpClientUtil.PROP_MAX_CONNECTIONS_PER_HOST, maxConnections(props));
+			params.set(HttpClientUtil.PROP_CONNECTION_TIMEOUT, TIMEOUT_MS);
+			params.set(HttpClientUtil.PROP_SO_TIMEOUT, TIMEOUT_MS);
+			// compression goes into this client's own request executor, leaving any other
+			// clients in the JVM (embedded, admin, schema requests) as they are
+			httpClient = HttpClientUtil.createClient(params, HttpClientUtil.createPoolingConnectionManager(), false,
+				gzip ? new GzipUpdateExecutor() : new HttpRequestExecutor());
+			logger.info("Created shared HTTP/1.1 Solr client (javabin=" + javabin + ", gzip=" + gzip + ")");
+		}
+		HttpSolrClient client = new HttpSolrClient.Builder(coreUrl)
+			.withHttpClient(httpClient)
+			.withConnectionTimeout(TIMEOUT_MS)
+			.withSocketTimeout(TIMEOUT_MS)
+			.build();
+		if (javabin) {
+			client.setRequestWriter(new BinaryRequestWriter());
+			client.setParser(new BinaryResponseParser());
+		}
+		return client;
+	}
+
+	/* close the shared HTTP client; call once every indexer has closed its update client
+	 */
+	public static synchronized void shutdown() {
+		if (http2Client != null) {
+			http2Client.close();
+			http2Client = null;
+		}
+		if (httpClient != null) {
+			HttpClientUtil.close(httpClient);
+			httpClient = null;
+		}
+	}
+
+	// each indexer runs up to index.threads senders, so by default leave room for 8 indexers
+	private static int maxConnections(Properties props) {
+		int threads = Integer.parseInt(props.getProperty("index.threads", "4").trim());
+		return Integer.parseInt(props.getProperty("index.maxConnections", "" + (8 * threads)).trim());
+	}
+
+	/* compresses the body of each javabin update request (the documents), once the client's
+	 * own interceptors have run; other requests, such as commits sent as form parameters,
+	 * go out as they are
+	 */
+	private static class GzipUpdateExecutor extends HttpRequestExecutor {
+		@Override
+		public void preProcess(HttpRequest request, HttpProcessor processor, HttpContext context) throws HttpException, IOException {
+			super.preProcess(request, processor, context);
+			if (!(request instanceof HttpEntityEnclosingRequest) || request.containsHeader("Content-Encoding")) {
+				return;
+			}
+			HttpEntityEnclosingRequest withBody = (HttpEntityEnclosingRequest) request;
+			Header contentType = request.getFirstHeader("Content-Type");
+			if ((withBody.getEntity() == null) || (contentType == null)
+					|| !contentType.getValue().startsWith("application/javabin")) {
+				return;
+			}
+			withBody.setEntity(new GzipCompressingEntity(withBody.getEntity()));
+			// the compressed length is unknown up front, so the body is always chunked
+			request.removeHeaders("Content-Length");
+			request.setHeader("Transfer-Encoding", "chunked");
+			request.setHeader("Content-Encoding", "gzip");
+		}
+	}
+}
@@ -0,0 +1,302 @@
+package org.jax.mgi.indexer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.jax.mgi.reporting.IndexerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SolrWriter
+ *
+ * Sends one indexer's documents to Solr in the background, in place of the queue in
+ * ConcurrentUpdateSolrClient (which holds a fixed number of requests of any size, and
+ * only logs the ones that fail).  add() hands a batch to one of index.threads sender
+ * threads and returns; the batches waiting or in flight are bounded by their size
+ * (index.maxQueuedBytes), so add() waits while that many bytes are outstanding.
+ *
+ * A batch that fails for a reason that may pass (an I/O error, Solr busy or down) is
+ * retried up to index.retries times, waiting index.retryBackoffMs and twice as long
+ * each time after.  A batch that Solr rejects (a 4xx response) is split in half and
+ * each half sent again, down to the single documents at fault; those are logged and
+ * skipped, and more than index.maxRejectedDocs of them counts as a failure.  Deletes
+ * (from delta builds) are queued and retried the same way, but not split.  After a
+ * failure, add() and flush() throw, so the indexer stops instead of carrying on with
+ * documents that are not being indexed.
+ */
+public class SolrWriter implements DocumentSink {
+
+	private static Logger logger = LoggerFactory.getLogger(SolrWriter.class);
+
+	private String name;
+	private SolrClient client;
+	private IndexerMetrics metrics;
+	private ExecutorService senders;
+
+	private long maxQueuedBytes;
+	private int retries;
+	private long retryBackoffMs;
+	private int maxRejectedDocs;
+
+	// bytes and batches handed to add() but not yet sent (guarded by 'this'); each batch
+	// is numbered as it is queued, so flush() can wait for just those queued before it
+	private long queuedBytes = 0;
+	private int queuedBatches = 0;
+	private long nextBatch = 0;
+	private TreeSet<Long> pendingBatches = new TreeSet<Long>();
+
+	/* one request to Solr, run on a sender thread */
+	private interface Request {
+		void send() throws Exception;
+	}
+
+	private AtomicInteger rejectedDocs = new AtomicInteger(0);
+	private AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+	public SolrWriter(String name, SolrClient client, Properties props, IndexerMetrics metrics) {
+		this.name = name;
+		this.client = client;
+		this.metrics = metrics;
+		this.maxQueuedBytes = Long.parseLong(props.getProperty("index.maxQueuedBytes", "" + (64L * 1024 * 1024)).trim());
+		this.retries = Integer.parseInt(props.getProperty("index.retries", "5").trim());
+		this.retryBackoffMs = Long.parseLong(props.getProperty("index.retryBackoffMs", "1000").trim());
+		this.maxRejectedDocs = Integer.parseInt(props.getProperty("index.maxRejectedDocs", "0").trim());
+		int threads = Integer.parseInt(props.getProperty("index.threads", "4").trim());
+		this.senders = Executors.newFixedThreadPool(Math.max(1, threads));
+	}
+
+	/* queue 'docs' to be sent, waiting first if too many bytes are queued already
+	 */
+	@Override
+	public void add(Collection<SolrInputDocument> docs, final int commitWithinMs) throws IOException {
+		final List<SolrInputDocument> batch = new ArrayList<SolrInputDocument>(docs);
+		final long bytes = approximateBytes(batch);
+		queue(bytes, () -> {
+			long startNanos = System.nanoTime();
+			send(batch, commitWithinMs);
+			metrics.solrAdd(batch.size(), bytes, System.nanoTime() - startNanos);
+		});
+	}
+
+	/* queue a delete of these keys, retried like an add
+	 */
+	@Override
+	public void delete(List<String> ids) throws IOException {
+		final List<String> keys = new ArrayList<String>(ids);
+		long bytes = 0;
+		for (String key : keys) {
+			bytes = bytes + key.length();
+		}
+		queue(bytes, () -> withRetries("a delete of " + keys.size() + " documents", () -> client.deleteById(keys)));
+	}
+
+	/* hand 'request' (of about 'bytes') to a sender thread, once there is room for it
+	 */
+	private void queue(final long bytes, final Request request) throws IOException {
+		final long batchNumber;
+		synchronized (this) {
+			// a batch bigger than the whole budget still goes, once nothing else is queued
+			while ((failure.get() == null) && (queuedBatches > 0) && (queuedBytes + bytes > maxQueuedBytes)) {
+				waitForSenders();
+			}
+			checkFailure();
+			queuedBytes = queuedBytes + bytes;
+			queuedBatches++;
+			batchNumber = nextBatch++;
+			pendingBatches.add(batchNumber);
+		}
+		senders.execute(() -> {
+			try {
+				if (failure.get() == null) {
+					request.send();
+				}
+			} catch (Exception e) {
+				if (failure.compareAndSet(null, e)) {
+					logger.error("Giving up on sending documents to " + name, e);
+				}
+			} finally {
+				synchronized (SolrWriter.this) {
+					queuedBytes = queuedBytes - bytes;
+					queuedBatches--;
+					pendingBatches.remove(batchNumber);
+					SolrWriter.this.notifyAll();
+				}
+			}
+		});
+	}
+
+	/* wait for the batches queued before this call; other threads adding meanwhile (chunk
+	 * workers on the same indexer) do not keep it waiting
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		long upTo = nextBatch;
+		while ((failure.get() == null) && !pendingBatches.isEmpty() && (pendingBatches.first() < upTo)) {
+			waitForSenders();
+		}
+		checkFailure();
+	}
+
+	/* stops the sender threads, but leaves the Solr client open
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			shutdown();
+		}
+	}
+
+	/* stop the sender threads once they have finished what they have, without waiting
+	 */
+	@Override
+	public void shutdown() {
+		senders.shutdown();
+	}
+
+	/* number of documents Solr rejected, which were skipped
+	 */
+	public int getRejectedDocs() {
+		return rejectedDocs.get();
+	}
+
+	private void waitForSenders() throws IOException {
+		try {
+			wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting to send documents to " + name, e);
+		}
+	}
+
+	private void checkFailure() throws IOException {
+		Exception e = failure.get();
+		if (e != null) {
+			throw new IOException("Sending documents to " + name + " failed", e);
+		}
+	}
+
+	/* send 'batch', retrying passing failures and splitting up rejected batches
+	 */
+	private void send(final List<SolrInputDocument> batch, final int commitWithinMs) throws Exception {
+		try {
+			withRetries(batch.size() + " documents", () -> {
+				if (commitWithinMs > 0) {
+					client.add(batch, commitWithinMs);
+				} else {
+					client.add(batch);
+				}
+			});
+		} catch (Exception e) {
+			SolrException solrError = solrError(e);
+			if (isRejection(solrError)) {
+				reject(batch, commitWithinMs, solrError);
+			} else {
+				throw e;
+			}
+		}
+	}
+
+	/* send 'request', retrying failures that may pass; a rejection is thrown right away
+	 */
+	private void withRetries(String what, Request request) throws Exception {
+		long backoffMs = retryBackoffMs;
+		for (int attempt = 0; ; attempt++) {
+			try {
+				request.send();
+				return;
+			} catch (Exception e) {
+				if (isRejection(solrError(e)) || (attempt >= retries)) {
+					throw e;
+				}
+				logger.info("Sending " + what + " to " + name + " failed (" + e.getMessage()
+					+ "); retrying in " + backoffMs + " ms");
+				Thread.sleep(backoffMs);
+				backoffMs = Math.min(backoffMs * 2, 60000);
+			}
+		}
+	}
+
+	/* true for a 4xx response other than 429 (too many requests):  resending will not help
+	 */
+	private static boolean isRejection(SolrException e) {
+		return (e != null) && (e.code() >= 400) && (e.code() < 500) && (e.code() != 429);
+	}
+
+	/* Solr rejected 'batch':  send each half on its own, to find the documents at fault
+	 */
+	private void reject(List<SolrInputDocument> batch, int commitWithinMs, SolrException e) throws Exception {
+		if (batch.size() > 1) {
+			int half = batch.size() / 2;
+			send(new ArrayList<SolrInputDocument>(batch.subList(0, half)), commitWithinMs);
+			send(new ArrayList<SolrInputDocument>(batch.subList(half, batch.size())), commitWithinMs);
+			return;
+		}
+		int rejected = rejectedDocs.incrementAndGet();
+		logger.error("Solr rejected a document for " + name + ": " + e.getMessage() + "; document: " + describe(batch.get(0)));
+		if (rejected > maxRejectedDocs) {
+			throw new IOException(rejected + " document(s) rejected by " + name + " (index.maxRejectedDocs is " + maxRejectedDocs + ")", e);
+		}
+	}
+
+	/* the SolrException behind 'e', if any (the embedded server wraps them) */
+	private static SolrException solrError(Throwable e) {
+		while (e != null) {
+			if (e instanceof SolrException) {
+				return (SolrException) e;
+			}
+			e = e.getCause();
+		}
+		return null;
+	}
+
+	/* the first few fields of 'doc', to find it by in the log */
+	private static String describe(SolrInputDocument doc) {
+		StringBuilder sb = new StringBuilder();
+		int fields = 0;
+		for (String field : doc.getFieldNames()) {
+			if (fields++ == 3) {
+				sb.append(", ...");
+				break;
+			}
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			String value = String.valueOf(doc.getFieldValue(field));
+			sb.append(field).append('=').append(value.length() > 80 ? value.substring(0, 80) + "..." : value);
+		}
+		return sb.toString();
+	}
+
+	/* a rough size of 'docs' on the wire:  the length of every field name and value
+	 * (numbers and dates count 8), ignoring the encoding's own overhead
+	 */
+	static long approximateBytes(Collection<SolrInputDocument> docs) {
+		long bytes = 0;
+		for (SolrInputDocument doc : docs) {
+			for (String name : doc.getFieldNames()) {
+				Collection<Object> values = doc.getFieldValues(name);
+				if (values == null) {
+					continue;
+				}
+				for (Object value : values) {
+					bytes += name.length() + ((value instanceof CharSequence) ? ((CharSequence) value).length() : 8);
+				}
+			}
+		}
+		return bytes;
+	}
+}
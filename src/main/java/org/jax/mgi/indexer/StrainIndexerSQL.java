@@ -8,12 +8,11 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.solr.common.SolrInputDocument;
+import org.jax.mgi.shr.JsonEncoder;
 import org.jax.mgi.shr.fe.IndexConstants;
 import org.jax.mgi.shr.jsonmodel.AccessionID;
 import org.jax.mgi.shr.jsonmodel.SimpleStrain;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /* Is: an indexer that builds the index supporting the strain summary page (reachable from the strains/SNPs
  * 		minihome page).  Each document in the index represents data for a single mouse strain, and each strain
  * 		is represented in only one document.
@@ -29,7 +28,7 @@ public class StrainIndexerSQL extends Indexer {
 	private int cursorLimit = 10000;				// number of records to retrieve at once
 	protected int solrBatchSize = 5000;				// number of docs to send to solr in each batch
 
-	private ObjectMapper mapper = new ObjectMapper();				// converts objects to JSON
+	private JsonEncoder json = new JsonEncoder();				// converts objects to JSON
 	
 	private Map<String,List<AccessionID>> accessionIDs = null;		// maps from strain key to list of IDs
 	private Map<String,List<String>> synonyms = null;				// maps from strain key to synonyms
@@ -344,7 +343,7 @@ public class StrainIndexerSQL extends Indexer {
 			doc.addField(IndexConstants.ACC_ID, getSearchableIDs(strainKey));
 			doc.addField(IndexConstants.BY_DEFAULT, rs.getInt("by_strain"));
 			doc.addField(IndexConstants.STRAIN_IS_SEQUENCED, rs.getInt("is_sequenced"));
-			doc.addField(IndexConstants.STRAIN, mapper.writeValueAsString(strain));
+			doc.addField(IndexConstants.STRAIN, json.toJson(strain));
 			doc.addField(IndexConstants.STRAIN_ATTRIBUTE, strain.getAttributes());
 			doc.addField(IndexConstants.STRAIN_GROUPS, getCollections(strainKey));
 			doc.addField(IndexConstants.STRAIN_TAGS, getTags(strainKey));
@@ -372,13 +371,15 @@ public class StrainIndexerSQL extends Indexer {
 
 	@Override
 	public void index() throws Exception {
-		// collect various mappings needed for data lookup
-		cacheTags();
-		cacheCollections();
-		cacheAttributes();
-		cacheReferences();
-		cacheIDs();
-		cacheSynonyms();
+		// collect various mappings needed for data lookup (all at once)
+		cacheWarmer()
+			.add("tags", this::cacheTags)
+			.add("collections", this::cacheCollections)
+			.add("attributes", this::cacheAttributes)
+			.add("references", this::cacheReferences)
+			.add("IDs", this::cacheIDs)
+			.add("synonyms", this::cacheSynonyms)
+			.run();
 		processStrains();
 	}
 }
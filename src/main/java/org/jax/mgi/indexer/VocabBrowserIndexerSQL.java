@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.solr.common.SolrInputDocument;
+import org.jax.mgi.shr.JsonEncoder;
 import org.jax.mgi.shr.fe.IndexConstants;
 import org.jax.mgi.shr.jsonmodel.BrowserChild;
 import org.jax.mgi.shr.jsonmodel.BrowserID;
@@ -15,8 +16,6 @@ import org.jax.mgi.shr.jsonmodel.BrowserParent;
 import org.jax.mgi.shr.jsonmodel.BrowserSynonym;
 import org.jax.mgi.shr.jsonmodel.BrowserTerm;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /* Is: an indexer that builds the index supporting the shared vocabulary browser (beginning with the 
  * 		[Adult] Mouse Anatomy vocabulary, now extended to the Mammalian Phenotype Ontology, and hopefully
  * 		being extended to others).  Each document in the index represents data for a single vocabulary term.
@@ -56,7 +55,7 @@ public class VocabBrowserIndexerSQL extends Indexer {
 	private Map<Integer,List<String>> crossRefs;			// term key : list of IDs cited as cross-references
 	//private Set<Integer> relatedToAnatomy;					// contains keys of terms with related anatomy terms
 	
-	private ObjectMapper mapper = new ObjectMapper();				// converts objects to JSON
+	private JsonEncoder json = new JsonEncoder();				// converts objects to JSON
 
 	/*--------------------*/
 	/*--- constructors ---*/
@@ -513,7 +512,7 @@ public class VocabBrowserIndexerSQL extends Indexer {
 			doc.addField(IndexConstants.VB_PRIMARY_ID, rs.getString("primary_id"));
 			doc.addField(IndexConstants.VB_TERM, rs.getString("term"));
 			doc.addField(IndexConstants.VB_SEQUENCE_NUM, rs.getInt("by_default"));
-			doc.addField(IndexConstants.VB_BROWSER_TERM, mapper.writeValueAsString(browserTerm));
+			doc.addField(IndexConstants.VB_BROWSER_TERM, json.toJson(browserTerm));
 			doc.addField(IndexConstants.VB_VOCAB_NAME, rs.getString("vocab_name"));
 
 			if (allIDs.containsKey(termKey)) {
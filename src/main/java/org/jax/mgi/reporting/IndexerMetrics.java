@@ -0,0 +1,143 @@
+package org.jax.mgi.reporting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timings for one indexer, broken down by phase.  The indexer names
+ * its phases as it goes (see startPhase); everything recorded is charged to the
+ * phase that is current at the time, so the report shows whether, say, building
+ * lookups was database-bound or the main loop was waiting on Solr.
+ *
+ * Indexers that build documents in their own loop don't time that work themselves:
+ * each thread keeps a clock, and batchBuilt() charges the time since the thread's
+ * last batch, less its time in the database, to building the batch.
+ */
+
+public class IndexerMetrics {
+	private String name;
+
+	// phases in the order they were started; the last is the current one
+	private List<Phase> phases = new ArrayList<Phase>();
+	private volatile Phase current;
+
+	// per thread:  { when its clock was last reset, database nanos since then }
+	private ThreadLocal<long[]> threadClock = ThreadLocal.withInitial(() -> new long[] { System.nanoTime(), 0 });
+
+	public IndexerMetrics(String name) {
+		this.name = name;
+		this.current = new Phase("setup");
+		phases.add(current);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/* end the current phase and start a new one called 'phaseName'
+	 */
+	public synchronized void startPhase(String phaseName) {
+		current.finish();
+		current = new Phase(phaseName);
+		phases.add(current);
+		resetThreadClock();
+	}
+
+	/* end the last phase (call once the indexer is done)
+	 */
+	public synchronized void finish() {
+		current.finish();
+	}
+
+	public synchronized List<Phase> getPhases() {
+		return new ArrayList<Phase>(phases);
+	}
+
+	/* rows read from the database, and the time spent fetching them
+	 */
+	public void rowsRead(long rows, long fetchNanos) {
+		current.rowsRead.add(rows);
+		current.fetchNanos.add(fetchNanos);
+		threadClock.get()[1] += fetchNanos;
+	}
+
+	/* time to execute a query (up to its first rows being ready)
+	 */
+	public void dbQuery(long nanos) {
+		current.dbQuery.record(nanos);
+		threadClock.get()[1] += nanos;
+	}
+
+	/* documents built, and the time spent building them
+	 */
+	public void docsBuilt(long docs, long transformNanos) {
+		current.docsBuilt.add(docs);
+		current.transformNanos.add(transformNanos);
+	}
+
+	/* 'docs' documents built by the calling thread since its clock was last reset;
+	 * the time spent on them is the time since then, less its time in the database
+	 */
+	public void batchBuilt(long docs) {
+		long[] clock = threadClock.get();
+		docsBuilt(docs, Math.max(0, System.nanoTime() - clock[0] - clock[1]));
+		resetThreadClock();
+	}
+
+	/* start the calling thread's clock over (eg. after it has waited on something
+	 * other than the database)
+	 */
+	public void resetThreadClock() {
+		long[] clock = threadClock.get();
+		clock[0] = System.nanoTime();
+		clock[1] = 0;
+	}
+
+	/* a batch handed to Solr:  its size, approximate payload bytes and the time the add took
+	 */
+	public void solrAdd(long docs, long bytes, long nanos) {
+		current.docsSent.add(docs);
+		current.bytesSent.add(bytes);
+		current.solrAdd.record(nanos);
+	}
+
+	public void solrCommit(long nanos) {
+		current.solrCommit.record(nanos);
+	}
+
+	/**
+	 * One named stretch of an indexer's run.
+	 */
+	public static class Phase {
+		public final String name;
+		public final long startMillis = System.currentTimeMillis();
+		private volatile long endMillis = 0;
+
+		public final LongAdder rowsRead = new LongAdder();
+		public final LongAdder fetchNanos = new LongAdder();
+		public final LongAdder transformNanos = new LongAdder();
+		public final LongAdder docsBuilt = new LongAdder();
+		public final LongAdder docsSent = new LongAdder();
+		public final LongAdder bytesSent = new LongAdder();
+		public final LatencyHistogram dbQuery = new LatencyHistogram();
+		public final LatencyHistogram solrAdd = new LatencyHistogram();
+		public final LatencyHistogram solrCommit = new LatencyHistogram();
+
+		Phase(String name) {
+			this.name = name;
+		}
+
+		void finish() {
+			if (endMillis == 0) {
+				endMillis = System.currentTimeMillis();
+			}
+		}
+
+		/* wall-clock time of the phase so far, in ms
+		 */
+		public long getElapsedMillis() {
+			return (endMillis == 0 ? System.currentTimeMillis() : endMillis) - startMillis;
+		}
+	}
+}
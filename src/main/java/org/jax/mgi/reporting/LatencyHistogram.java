@@ -0,0 +1,54 @@
+package org.jax.mgi.reporting;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-bucket histogram of operation latencies, cheap enough to update from
+ * many threads at once.  Bucket bounds are in milliseconds and cumulative in the
+ * reports (as Prometheus expects), with a final +Inf bucket.
+ */
+
+public class LatencyHistogram {
+	public static final long[] BOUNDS_MS = { 1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000 };
+
+	private LongAdder[] buckets = new LongAdder[BOUNDS_MS.length + 1];
+	private LongAdder count = new LongAdder();
+	private LongAdder sumNanos = new LongAdder();
+
+	public LatencyHistogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public void record(long nanos) {
+		long ms = nanos / 1000000;
+		int i = 0;
+		while ((i < BOUNDS_MS.length) && (ms > BOUNDS_MS[i])) {
+			i++;
+		}
+		buckets[i].increment();
+		count.increment();
+		sumNanos.add(nanos);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public double getSumSeconds() {
+		return sumNanos.sum() / 1e9;
+	}
+
+	/* number of operations that took at most BOUNDS_MS[i] ms (or, for the last index, any time)
+	 */
+	public long[] getCumulativeCounts() {
+		long[] cumulative = new long[buckets.length];
+		long total = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			total += buckets[i].sum();
+			cumulative[i] = total;
+		}
+		return cumulative;
+	}
+}
@@ -0,0 +1,177 @@
+package org.jax.mgi.reporting;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the metrics of every indexer in the run, and writes them out at the end
+ * as JSON (metrics.json) and in the Prometheus text format (metrics.prom, ready for
+ * a node_exporter textfile collector or a push gateway).
+ *
+ * Only indexers that have started running are reported.  Per indexer and phase it
+ * reports:  wall-clock time, rows read and the time spent fetching them (timed by
+ * SQLExecutor on every ResultSet it hands out), documents built and the time spent
+ * building them (timed by the DocumentPipeline transformers, or per batch passed to
+ * Indexer.writeDocs), documents and approximate bytes sent to Solr, and histograms
+ * of query, Solr add and Solr commit latency.  Comparing fetch, transform and Solr
+ * time shows which one an indexer is waiting on.
+ */
+
+public class MetricsRegistry {
+	private static Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+
+	private static Map<String,IndexerMetrics> indexers = new TreeMap<String,IndexerMetrics>();
+
+	/* the metrics for the named indexer, created on first use
+	 */
+	public static synchronized IndexerMetrics forIndexer(String name) {
+		IndexerMetrics metrics = indexers.get(name);
+		if (metrics == null) {
+			metrics = new IndexerMetrics(name);
+			indexers.put(name, metrics);
+		}
+		return metrics;
+	}
+
+	private static synchronized List<IndexerMetrics> getAll() {
+		return new ArrayList<IndexerMetrics>(indexers.values());
+	}
+
+	/* write metrics.json and metrics.prom into 'dir'
+	 */
+	public static void writeReports(File dir) {
+		dir.mkdirs();
+		try (PrintWriter out = new PrintWriter(new File(dir, "metrics.json"), "UTF-8")) {
+			out.print(toJson());
+		} catch (IOException e) {
+			logger.error("Failed to write metrics.json", e);
+		}
+		try (PrintWriter out = new PrintWriter(new File(dir, "metrics.prom"), "UTF-8")) {
+			out.print(toPrometheus());
+		} catch (IOException e) {
+			logger.error("Failed to write metrics.prom", e);
+		}
+		logger.info("Wrote indexer metrics to " + dir.getAbsolutePath());
+	}
+
+	public static String toJson() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"generated\":").append(System.currentTimeMillis()).append(",\"indexers\":[");
+		String indexerSep = "";
+		for (IndexerMetrics indexer : getAll()) {
+			sb.append(indexerSep).append("{\"name\":").append(quote(indexer.getName())).append(",\"phases\":[");
+			String phaseSep = "";
+			for (IndexerMetrics.Phase phase : indexer.getPhases()) {
+				sb.append(phaseSep).append("{\"name\":").append(quote(phase.name));
+				sb.append(",\"elapsedMs\":").append(phase.getElapsedMillis());
+				sb.append(",\"rowsRead\":").append(phase.rowsRead.sum());
+				sb.append(",\"fetchMs\":").append(phase.fetchNanos.sum() / 1000000);
+				sb.append(",\"docsBuilt\":").append(phase.docsBuilt.sum());
+				sb.append(",\"transformMs\":").append(phase.transformNanos.sum() / 1000000);
+				sb.append(",\"docsSent\":").append(phase.docsSent.sum());
+				sb.append(",\"bytesSent\":").append(phase.bytesSent.sum());
+				sb.append(",\"dbQuery\":");
+				appendJson(sb, phase.dbQuery);
+				sb.append(",\"solrAdd\":");
+				appendJson(sb, phase.solrAdd);
+				sb.append(",\"solrCommit\":");
+				appendJson(sb, phase.solrCommit);
+				sb.append("}");
+				phaseSep = ",";
+			}
+			sb.append("]}");
+			indexerSep = ",";
+		}
+		sb.append("]}\n");
+		return sb.toString();
+	}
+
+	private static void appendJson(StringBuilder sb, LatencyHistogram histogram) {
+		sb.append("{\"count\":").append(histogram.getCount());
+		sb.append(",\"sumSeconds\":").append(histogram.getSumSeconds());
+		sb.append(",\"buckets\":{");
+		long[] counts = histogram.getCumulativeCounts();
+		for (int i = 0; i < counts.length; i++) {
+			sb.append(i == 0 ? "" : ",").append(quote(bound(i))).append(":").append(counts[i]);
+		}
+		sb.append("}}");
+	}
+
+	public static String toPrometheus() {
+		List<IndexerMetrics> all = getAll();
+		StringBuilder sb = new StringBuilder();
+		counterFamily(sb, all, "feindexer_phase_seconds", "gauge", "Wall-clock time of the phase", 0);
+		counterFamily(sb, all, "feindexer_rows_read_total", "counter", "Rows read from the database", 1);
+		counterFamily(sb, all, "feindexer_fetch_seconds_total", "counter", "Time spent fetching rows", 2);
+		counterFamily(sb, all, "feindexer_docs_built_total", "counter", "Solr documents built", 3);
+		counterFamily(sb, all, "feindexer_transform_seconds_total", "counter", "Time spent building documents", 4);
+		counterFamily(sb, all, "feindexer_docs_sent_total", "counter", "Documents sent to Solr", 5);
+		counterFamily(sb, all, "feindexer_bytes_sent_total", "counter", "Approximate bytes of documents sent to Solr", 6);
+		histogramFamily(sb, all, "feindexer_db_query_seconds", "Database query latency", 0);
+		histogramFamily(sb, all, "feindexer_solr_add_seconds", "Solr add latency", 1);
+		histogramFamily(sb, all, "feindexer_solr_commit_seconds", "Solr commit latency", 2);
+		return sb.toString();
+	}
+
+	private static void counterFamily(StringBuilder sb, List<IndexerMetrics> all, String metric, String type, String help, int which) {
+		sb.append("# HELP ").append(metric).append(" ").append(help).append("\n");
+		sb.append("# TYPE ").append(metric).append(" ").append(type).append("\n");
+		for (IndexerMetrics indexer : all) {
+			for (IndexerMetrics.Phase phase : indexer.getPhases()) {
+				double value;
+				switch (which) {
+					case 0: value = phase.getElapsedMillis() / 1e3; break;
+					case 1: value = phase.rowsRead.sum(); break;
+					case 2: value = phase.fetchNanos.sum() / 1e9; break;
+					case 3: value = phase.docsBuilt.sum(); break;
+					case 4: value = phase.transformNanos.sum() / 1e9; break;
+					case 5: value = phase.docsSent.sum(); break;
+					default: value = phase.bytesSent.sum(); break;
+				}
+				sb.append(metric).append(labels(indexer, phase, null)).append(" ").append(value).append("\n");
+			}
+		}
+	}
+
+	private static void histogramFamily(StringBuilder sb, List<IndexerMetrics> all, String metric, String help, int which) {
+		sb.append("# HELP ").append(metric).append(" ").append(help).append("\n");
+		sb.append("# TYPE ").append(metric).append(" histogram\n");
+		for (IndexerMetrics indexer : all) {
+			for (IndexerMetrics.Phase phase : indexer.getPhases()) {
+				LatencyHistogram histogram = (which == 0) ? phase.dbQuery : (which == 1) ? phase.solrAdd : phase.solrCommit;
+				long[] counts = histogram.getCumulativeCounts();
+				for (int i = 0; i < counts.length; i++) {
+					String le = (i < LatencyHistogram.BOUNDS_MS.length) ? "" + (LatencyHistogram.BOUNDS_MS[i] / 1e3) : "+Inf";
+					sb.append(metric).append("_bucket").append(labels(indexer, phase, le)).append(" ").append(counts[i]).append("\n");
+				}
+				sb.append(metric).append("_sum").append(labels(indexer, phase, null)).append(" ").append(histogram.getSumSeconds()).append("\n");
+				sb.append(metric).append("_count").append(labels(indexer, phase, null)).append(" ").append(histogram.getCount()).append("\n");
+			}
+		}
+	}
+
+	private static String labels(IndexerMetrics indexer, IndexerMetrics.Phase phase, String le) {
+		String labels = "{indexer=" + quote(indexer.getName()) + ",phase=" + quote(phase.name);
+		if (le != null) {
+			labels = labels + ",le=" + quote(le);
+		}
+		return labels + "}";
+	}
+
+	private static String bound(int i) {
+		return (i < LatencyHistogram.BOUNDS_MS.length) ? "le" + LatencyHistogram.BOUNDS_MS[i] + "ms" : "inf";
+	}
+
+	// quoted and escaped, which suits both JSON strings and Prometheus label values
+	private static String quote(String s) {
+		return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+	}
+}
@@ -0,0 +1,166 @@
+package org.jax.mgi.shr;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ConnectionPool class holds a fixed number of connections to MGD, shared
+ * by every SQLExecutor in the JVM that runs in pooled mode (db.pool.size > 0 in
+ * config.properties).  Connections are opened lazily, up to the pool size, and
+ * reused after they are released, so concurrent indexers and their chunk
+ * workers never hold more than that many connections at once.
+ *
+ * @does Lends out and takes back connections to the MGD database.
+ */
+
+public class ConnectionPool {
+
+	private static ConnectionPool pool = null;
+
+	private String user;
+	private String password;
+	private String mgdJDBCUrl;
+	private int size;
+
+	// how long borrow() waits for a connection before giving up (0 = for ever)
+	private long borrowTimeoutMs;
+
+	// connections that are open and not lent out (most recently used at the front)
+	private LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<Connection>();
+
+	// one permit per connection that may still be lent out
+	private Semaphore available;
+
+	private ConnectionPool (String mgdJDBCUrl, String user, String password, int size, long borrowTimeoutMs) {
+		this.mgdJDBCUrl = mgdJDBCUrl;
+		this.user = user;
+		this.password = password;
+		this.size = size;
+		this.borrowTimeoutMs = borrowTimeoutMs;
+		this.available = new Semaphore(size, true);
+	}
+
+	/**
+	 * Returns the JVM-wide pool, creating it with the given settings on the
+	 * first call.  (Later calls share the existing pool.)
+	 */
+	public static synchronized ConnectionPool getPool (String mgdJDBCUrl, String user, String password, int size, long borrowTimeoutMs) {
+		if (pool == null) {
+			pool = new ConnectionPool(mgdJDBCUrl, user, password, size, borrowTimeoutMs);
+		}
+		return pool;
+	}
+
+	/**
+	 * Borrow a connection, waiting up to the pool's borrow timeout (or as long as
+	 * needed, if that is 0) for one to be released.  Throws an SQLException if the
+	 * wait times out, as every connection is still lent out:  a lease was leaked, or
+	 * more indexers and chunk workers hold connections at once than the pool allows.
+	 * @throws SQLException
+	 */
+	public Connection borrow() throws SQLException {
+		try {
+			if (borrowTimeoutMs <= 0) {
+				available.acquire();
+			} else if (!available.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+				throw new SQLException("No pooled connection free after " + borrowTimeoutMs + " ms: all " + size
+					+ " are lent out (raise db.pool.size, or look for a connection that is never released)");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a pooled connection", e);
+		}
+		return takeConnection();
+	}
+
+	/**
+	 * Borrow a connection, waiting up to 'timeoutMs' for one to be released.
+	 * Returns null if none became available in time.
+	 * @throws SQLException
+	 */
+	public Connection tryBorrow(long timeoutMs) throws SQLException {
+		try {
+			if (!available.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+				return null;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a pooled connection", e);
+		}
+		return takeConnection();
+	}
+
+	/* reuse an idle connection that is still good, or open a new one; caller holds a permit
+	 */
+	private Connection takeConnection() throws SQLException {
+		try {
+			Connection con = idle.pollFirst();
+			while (con != null) {
+				if (con.isValid(5)) {
+					return con;
+				}
+				closeQuietly(con);
+				con = idle.pollFirst();
+			}
+			con = DriverManager.getConnection(mgdJDBCUrl, user, password);
+			con.setAutoCommit(false);
+			return con;
+		} catch (SQLException e) {
+			available.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Give back a borrowed connection.  Its open transaction is rolled back,
+	 * which also drops any temp tables created in it (indexers never commit),
+	 * so the next borrower starts with a clean session.
+	 */
+	public void release(Connection con) {
+		if (con == null) {
+			return;
+		}
+		try {
+			if (!con.isClosed()) {
+				con.rollback();
+				idle.offerFirst(con);
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			closeQuietly(con);
+		} finally {
+			available.release();
+		}
+	}
+
+	private void closeQuietly(Connection con) {
+		try {
+			con.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Maximum number of connections this pool will have open at once.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Number of connections currently lent out.
+	 */
+	public int getLeasedCount() {
+		return size - available.availablePermits();
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPool[size=" + size + ",leased=" + getLeasedCount() + ",idle=" + idle.size() + "]";
+	}
+}
@@ -0,0 +1,116 @@
+package org.jax.mgi.shr;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/* Is: a map from int keys to int values, kept in two parallel arrays (open addressing with
+ * 	linear probing) rather than as boxed Integers in a HashMap.  For the large key-to-key
+ * 	lookups (genotype to genocluster, annotation to term, etc.) this takes about a sixth of
+ * 	the memory.
+ * Notes: Integer.MIN_VALUE cannot be used as a key (it marks an empty slot); database keys
+ * 	never are.  There is no remove().
+ */
+public class IntIntMap {
+	private static final int FREE = Integer.MIN_VALUE;
+
+	private int[] keys;
+	private int[] values;
+	private int size = 0;
+
+	/* constructors */
+	public IntIntMap() { this(16); }
+
+	public IntIntMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	/* build a copy of the given boxed map */
+	public static IntIntMap of(Map<Integer,Integer> map) {
+		IntIntMap copy = new IntIntMap(map.size());
+		for (Map.Entry<Integer,Integer> entry : map.entrySet()) {
+			copy.put(entry.getKey(), entry.getValue());
+		}
+		return copy;
+	}
+
+	/* associate 'value' with 'key', replacing any value it had before */
+	public void put(int key, int value) {
+		if (key == FREE) {
+			throw new IllegalArgumentException("IntIntMap cannot hold key " + key);
+		}
+		int slot = slotOf(key);
+		if (keys[slot] == FREE) {
+			if (2 * (size + 1) > keys.length) {
+				grow();
+				slot = slotOf(key);
+			}
+			keys[slot] = key;
+			size++;
+		}
+		values[slot] = value;
+	}
+
+	/* get the value for 'key', or 'missing' if it has none */
+	public int get(int key, int missing) {
+		int slot = slotOf(key);
+		return (keys[slot] == FREE) ? missing : values[slot];
+	}
+
+	/* get the value for 'key', or null if it has none (for callers still using Integer) */
+	public Integer get(int key) {
+		int slot = slotOf(key);
+		return (keys[slot] == FREE) ? null : values[slot];
+	}
+
+	public boolean containsKey(int key) {
+		return (key != FREE) && (keys[slotOf(key)] != FREE);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/* the slot holding 'key', or the empty slot where it would go */
+	private int slotOf(int key) {
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while ((keys[slot] != FREE) && (keys[slot] != key)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/* spread sequential keys across the table */
+	static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/* smallest power of two at least twice 'expectedSize' (so the table stays at most half full) */
+	static int capacityFor(int expectedSize) {
+		int capacity = 16;
+		while (capacity < 2L * expectedSize) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, FREE);
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				int slot = slotOf(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package org.jax.mgi.shr;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/* Is: a read-only map from int keys to sets of int values, for the one-to-many lookups
+ * 	(term to ancestors, marker to orthologs, and the like) that would otherwise be a
+ * 	Map<Integer,Set<Integer>>.
+ * Has: one int array (row) per key, holding that key's values sorted and distinct, and an
+ * 	IntIntMap from key to row.
+ * Does: built once, through a Builder or from a boxed map with of().  get() hands back
+ * 	the key's own row rather than a copy (it is called from the HMDC indexers' innermost
+ * 	loops), so callers must treat the array it returns as read-only.
+ */
+public class IntSetMap {
+	private IntIntMap rowOf;
+	private int[][] rows;
+	private int valueCount;
+
+	private IntSetMap(IntIntMap rowOf, int[][] rows, int valueCount) {
+		this.rowOf = rowOf;
+		this.rows = rows;
+		this.valueCount = valueCount;
+	}
+
+	/* build a copy of the given boxed map */
+	public static IntSetMap of(Map<Integer,? extends Collection<Integer>> map) {
+		Builder builder = new Builder();
+		for (Map.Entry<Integer,? extends Collection<Integer>> entry : map.entrySet()) {
+			for (Integer value : entry.getValue()) {
+				builder.add(entry.getKey(), value);
+			}
+		}
+		return builder.build();
+	}
+
+	/* get the (sorted) values for 'key', or null if it has none.  The array is shared by
+	 * every caller, so it must not be modified.
+	 */
+	public int[] get(int key) {
+		int row = rowOf.get(key, -1);
+		if (row < 0) { return null; }
+		return rows[row];
+	}
+
+	public boolean containsKey(int key) {
+		return rowOf.containsKey(key);
+	}
+
+	/* true if 'value' is one of the values for 'key' */
+	public boolean contains(int key, int value) {
+		int row = rowOf.get(key, -1);
+		if (row < 0) { return false; }
+		return Arrays.binarySearch(rows[row], value) >= 0;
+	}
+
+	/* number of keys */
+	public int size() {
+		return rowOf.size();
+	}
+
+	/* number of values, across all keys */
+	public int valueCount() {
+		return valueCount;
+	}
+
+	/* Is: collects key/value pairs for an IntSetMap.  Pairs may come in any order and may
+	 * 	repeat; each is packed into a long so sorting them groups and orders them at once.
+	 */
+	public static class Builder {
+		private long[] pairs = new long[1024];
+		private int count = 0;
+
+		public Builder add(int key, int value) {
+			if (count == pairs.length) {
+				pairs = Arrays.copyOf(pairs, count * 2);
+			}
+			// flip the sign bit of 'value' so the packed pairs sort by (signed) value within a key
+			pairs[count++] = LongIntMap.pack(key, value ^ Integer.MIN_VALUE);
+			return this;
+		}
+
+		public IntSetMap build() {
+			Arrays.sort(pairs, 0, count);
+
+			int distinct = 0;
+			int rows = 0;
+			for (int i = 0; i < count; i++) {
+				if ((i == 0) || (pairs[i] != pairs[i - 1])) {
+					if ((i == 0) || ((int) (pairs[i] >> 32) != (int) (pairs[i - 1] >> 32))) {
+						rows++;
+					}
+					pairs[distinct++] = pairs[i];
+				}
+			}
+
+			IntIntMap rowOf = new IntIntMap(rows);
+			int[][] rowValues = new int[rows][];
+			int row = 0;
+			int i = 0;
+			while (i < distinct) {
+				int key = (int) (pairs[i] >> 32);
+				int end = i + 1;
+				while ((end < distinct) && ((int) (pairs[end] >> 32) == key)) {
+					end++;
+				}
+				int[] values = new int[end - i];
+				for (int j = i; j < end; j++) {
+					values[j - i] = ((int) pairs[j]) ^ Integer.MIN_VALUE;
+				}
+				rowOf.put(key, row);
+				rowValues[row++] = values;
+				i = end;
+			}
+
+			pairs = null;
+			return new IntSetMap(rowOf, rowValues, distinct);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package org.jax.mgi.shr;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+
+/* Is: the JSON serializer for objects stored in Solr fields (SimpleSequence, BrowserTerm,
+ * 	GridMarker lists, and the like), in place of an ObjectMapper per indexer.
+ * Has: one ObjectMapper for the JVM (or one per set of fragment types, below), and an
+ * 	ObjectWriter for each class this encoder has been asked to write, resolved on first use.
+ * 	Jackson recycles its own output buffers per thread, so writers can be used from any
+ * 	number of chunk workers at once.
+ * Does: optionally caches the JSON for "fragment" types -- sub-objects that the indexer
+ * 	shares across many documents, like one SimpleMarker on thousands of sequences.  Each
+ * 	such object (by identity) is written once, and its JSON copied into every document
+ * 	after that.  The cache lives as long as the encoder; give each indexer its own.
+ */
+public class JsonEncoder {
+
+	// attribute under which a writer carries its encoder's fragment cache
+	private static final String FRAGMENTS = "org.jax.mgi.shr.JsonEncoder.fragments";
+
+	// cached fragments per encoder, at most
+	private static final int MAX_FRAGMENTS = 200000;
+
+	// mappers shared by all encoders, keyed by their set of fragment types
+	private static Map<Set<Class<?>>,ObjectMapper> mappers = new ConcurrentHashMap<Set<Class<?>>,ObjectMapper>();
+
+	private ObjectMapper mapper;
+	private Map<Object,String> fragments = null;
+	private Map<Class<?>,ObjectWriter> writers = new ConcurrentHashMap<Class<?>,ObjectWriter>();
+
+	/* constructor: an encoder caching the JSON of objects of the given types, if any */
+	public JsonEncoder(Class<?>... fragmentTypes) {
+		Set<Class<?>> types = Collections.unmodifiableSet(new HashSet<Class<?>>(Arrays.asList(fragmentTypes)));
+		this.mapper = mappers.computeIfAbsent(types, JsonEncoder::buildMapper);
+		if (!types.isEmpty()) {
+			this.fragments = Collections.synchronizedMap(new IdentityHashMap<Object,String>());
+		}
+	}
+
+	/* get the JSON for the given object */
+	public String toJson(Object value) throws JsonProcessingException {
+		if (value == null) {
+			return "null";
+		}
+		return writers.computeIfAbsent(value.getClass(), this::buildWriter).writeValueAsString(value);
+	}
+
+	/* number of distinct fragments written so far */
+	public int getFragmentCount() {
+		return (fragments == null) ? 0 : fragments.size();
+	}
+
+	private ObjectWriter buildWriter(Class<?> type) {
+		ObjectWriter writer = mapper.writerFor(type);
+		if (fragments != null) {
+			writer = writer.withAttribute(FRAGMENTS, fragments);
+		}
+		return writer;
+	}
+
+	/* a mapper whose serializers for 'fragmentTypes' check the fragment cache first */
+	private static ObjectMapper buildMapper(final Set<Class<?>> fragmentTypes) {
+		final ObjectMapper mapper = new ObjectMapper();
+		if (!fragmentTypes.isEmpty()) {
+			SimpleModule module = new SimpleModule("JsonEncoderFragments");
+			module.setSerializerModifier(new BeanSerializerModifier() {
+				@SuppressWarnings("unchecked")
+				@Override
+				public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+					if (fragmentTypes.contains(beanDesc.getBeanClass())) {
+						return new FragmentSerializer(mapper, (JsonSerializer<Object>) serializer);
+					}
+					return serializer;
+				}
+			});
+			mapper.registerModule(module);
+		}
+		return mapper;
+	}
+
+	// Is: a serializer for a fragment type, wrapping Jackson's own.  Looks for the object's
+	// JSON in the fragment cache of the writer in use; if it is not there, writes it with
+	// Jackson's serializer and remembers it.
+	private static class FragmentSerializer extends JsonSerializer<Object> implements ContextualSerializer, ResolvableSerializer {
+		private ObjectMapper mapper;
+		private JsonSerializer<Object> delegate;
+
+		FragmentSerializer(ObjectMapper mapper, JsonSerializer<Object> delegate) {
+			this.mapper = mapper;
+			this.delegate = delegate;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+			Map<Object,String> cache = (Map<Object,String>) provider.getAttribute(FRAGMENTS);
+			if (cache == null) {
+				delegate.serialize(value, gen, provider);
+				return;
+			}
+			String json = cache.get(value);
+			if (json == null) {
+				// a writer without the cache attribute, so this writes the object itself
+				json = mapper.writerFor(value.getClass()).writeValueAsString(value);
+				if (cache.size() < MAX_FRAGMENTS) {
+					cache.put(value, json);
+				}
+			}
+			gen.writeRawValue(json);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+			if (delegate instanceof ContextualSerializer) {
+				return new FragmentSerializer(mapper, (JsonSerializer<Object>) ((ContextualSerializer) delegate).createContextual(provider, property));
+			}
+			return this;
+		}
+
+		@Override
+		public void resolve(SerializerProvider provider) throws JsonMappingException {
+			if (delegate instanceof ResolvableSerializer) {
+				((ResolvableSerializer) delegate).resolve(provider);
+			}
+		}
+	}
+}
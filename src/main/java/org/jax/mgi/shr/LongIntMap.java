@@ -0,0 +1,89 @@
+package org.jax.mgi.shr;
+
+import java.util.Arrays;
+
+/* Is: a map from long keys to int values, in parallel arrays like IntIntMap.  Its main use
+ * 	is for lookups by a pair of int keys, packed into one long with pack(), in place of a
+ * 	Map<Integer,Map<Integer,Integer>> (and its thousands of small inner maps).
+ * Notes: Long.MIN_VALUE cannot be used as a key (it marks an empty slot), so pack() never
+ * 	produces it for non-negative database keys.  There is no remove().
+ */
+public class LongIntMap {
+	private static final long FREE = Long.MIN_VALUE;
+
+	private long[] keys;
+	private int[] values;
+	private int size = 0;
+
+	/* constructors */
+	public LongIntMap() { this(16); }
+
+	public LongIntMap(int expectedSize) {
+		allocate(IntIntMap.capacityFor(expectedSize));
+	}
+
+	/* combine two int keys into a single long key */
+	public static long pack(int high, int low) {
+		return ((long) high << 32) | (low & 0xFFFFFFFFL);
+	}
+
+	/* associate 'value' with 'key', replacing any value it had before */
+	public void put(long key, int value) {
+		if (key == FREE) {
+			throw new IllegalArgumentException("LongIntMap cannot hold key " + key);
+		}
+		int slot = slotOf(key);
+		if (keys[slot] == FREE) {
+			if (2 * (size + 1) > keys.length) {
+				grow();
+				slot = slotOf(key);
+			}
+			keys[slot] = key;
+			size++;
+		}
+		values[slot] = value;
+	}
+
+	/* get the value for 'key', or 'missing' if it has none */
+	public int get(long key, int missing) {
+		int slot = slotOf(key);
+		return (keys[slot] == FREE) ? missing : values[slot];
+	}
+
+	public boolean containsKey(long key) {
+		return (key != FREE) && (keys[slotOf(key)] != FREE);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/* the slot holding 'key', or the empty slot where it would go */
+	private int slotOf(long key) {
+		int mask = keys.length - 1;
+		int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+		while ((keys[slot] != FREE) && (keys[slot] != key)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, FREE);
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				int slot = slotOf(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
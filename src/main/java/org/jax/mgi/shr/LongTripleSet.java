@@ -0,0 +1,88 @@
+package org.jax.mgi.shr;
+
+/* Is: a set of fixed-width keys, each three longs, for telling whether a tuple of database
+ * 	keys has been seen before.  Callers pack their tuple into the three longs (two ints to a
+ * 	long with LongIntMap.pack(), small codes in place of strings).  All keys sit in one
+ * 	long array (open addressing with linear probing), so adding one allocates nothing.
+ * Notes: a key whose first long is Long.MIN_VALUE cannot be added (it marks an empty slot);
+ * 	pack() never produces it for non-negative database keys.  There is no remove().
+ */
+public class LongTripleSet {
+	private static final long FREE = Long.MIN_VALUE;
+
+	private long[] table;		// slot i holds table[3i], table[3i+1], table[3i+2]
+	private int capacity;
+	private int size = 0;
+
+	/* constructors */
+	public LongTripleSet() { this(1024); }
+
+	public LongTripleSet(int expectedSize) {
+		allocate(IntIntMap.capacityFor(expectedSize));
+	}
+
+	/* add the key (a, b, c); returns true if it was not already in the set */
+	public boolean add(long a, long b, long c) {
+		if (a == FREE) {
+			throw new IllegalArgumentException("LongTripleSet cannot hold a key starting with " + a);
+		}
+		int slot = slotOf(a, b, c);
+		if (table[3 * slot] != FREE) {
+			return false;
+		}
+		if (2 * (size + 1) > capacity) {
+			grow();
+			slot = slotOf(a, b, c);
+		}
+		put(slot, a, b, c);
+		size++;
+		return true;
+	}
+
+	public boolean contains(long a, long b, long c) {
+		return (a != FREE) && (table[3 * slotOf(a, b, c)] != FREE);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/* the slot holding (a, b, c), or the empty slot where it would go */
+	private int slotOf(long a, long b, long c) {
+		int mask = capacity - 1;
+		long h = (a * 0x9E3779B97F4A7C15L) ^ (b * 0xC2B2AE3D27D4EB4FL) ^ (c * 0x165667B19E3779F9L);
+		int slot = (int) (h ^ (h >>> 32)) & mask;
+		while (true) {
+			int i = 3 * slot;
+			if ((table[i] == FREE) || ((table[i] == a) && (table[i + 1] == b) && (table[i + 2] == c))) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private void put(int slot, long a, long b, long c) {
+		int i = 3 * slot;
+		table[i] = a;
+		table[i + 1] = b;
+		table[i + 2] = c;
+	}
+
+	private void allocate(int newCapacity) {
+		capacity = newCapacity;
+		table = new long[3 * newCapacity];
+		for (int i = 0; i < table.length; i += 3) {
+			table[i] = FREE;
+		}
+	}
+
+	private void grow() {
+		long[] old = table;
+		allocate(capacity * 2);
+		for (int i = 0; i < old.length; i += 3) {
+			if (old[i] != FREE) {
+				put(slotOf(old[i], old[i + 1], old[i + 2]), old[i], old[i + 1], old[i + 2]);
+			}
+		}
+	}
+}
@@ -4,12 +4,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import org.jax.mgi.indexer.Indexer;
+import org.jax.mgi.reporting.IndexerMetrics;
+import org.postgresql.PGStatement;
 
 
 
@@ -32,12 +38,33 @@ public class SQLExecutor {
 	//private Logger logger = LoggerFactory.getLogger(this.getClass());
 	public Properties props = new Properties();
 	protected Connection conMGD = null;
+
+	// connections bound to a thread by lease(); a thread that has one uses it in
+	// place of conMGD, so parallel workers do not share a single connection
+	private ThreadLocal<Lease> threadLease = new ThreadLocal<Lease>();
 	private String user;
 	private String password;
 	private String mgdJDBCUrl;
 
-	private Date start;
-	private Date end;
+	// shared pool of connections, if db.pool.size in config.properties is > 0;
+	// null means each SQLExecutor opens its own connections
+	private ConnectionPool pool = null;
+
+	// statements prepared by executePrepared(), per connection and then by SQL text
+	private Map<Connection,Map<String,PreparedStatement>> preparedStatements = new IdentityHashMap<Connection,Map<String,PreparedStatement>>();
+
+	// number of executions of a cached prepared statement before the driver switches
+	// to a named server-side statement, which Postgres parses and plans only once
+	// (db.prepareThreshold in config.properties)
+	private int prepareThreshold = 1;
+
+	// when the current thread's last query started and ended (per thread, as leased
+	// workers run queries through one SQLExecutor at the same time)
+	private ThreadLocal<Date> start = new ThreadLocal<Date>();
+	private ThreadLocal<Date> end = new ThreadLocal<Date>();
+
+	// where query latencies are recorded (set by the owning indexer); may be null
+	private IndexerMetrics metrics = null;
 
 
 	/**
@@ -49,7 +76,7 @@ public class SQLExecutor {
 	public SQLExecutor () {
 		try {
 
-			InputStream in = Indexer.class.getClassLoader().getResourceAsStream("config.properties");
+			InputStream in = Indexer.openConfig();
 			try {
 				props.load(in);
 			} catch (IOException e1) {
@@ -60,6 +87,14 @@ public class SQLExecutor {
 			user = props.getProperty("mgd.user");
 			password = props.getProperty("mgd.password");
 			mgdJDBCUrl = props.getProperty("mgd.JDBC.url");
+
+			prepareThreshold = Integer.parseInt(props.getProperty("db.prepareThreshold", "" + prepareThreshold).trim());
+
+			int poolSize = Integer.parseInt(props.getProperty("db.pool.size", "0").trim());
+			if (poolSize > 0) {
+				long borrowTimeoutMs = Long.parseLong(props.getProperty("db.pool.borrowTimeoutMs", "600000").trim());
+				pool = ConnectionPool.getPool(mgdJDBCUrl, user, password, poolSize, borrowTimeoutMs);
+			}
 		}
 		catch (Exception e) {e.printStackTrace();}
 	}
@@ -69,19 +104,137 @@ public class SQLExecutor {
 	 * @throws SQLException
 	 */
 
-	private void getMGDConnection() throws SQLException {
-		conMGD = DriverManager.getConnection(mgdJDBCUrl, user, password);
-		conMGD.setAutoCommit(false);
+	private synchronized void getMGDConnection() throws SQLException {
+		if (conMGD == null) {
+			conMGD = openConnection();
+		}
+	}
+
+	/* get a connection from the pool (waiting up to db.pool.borrowTimeoutMs), or open a new one if unpooled
+	 */
+	private Connection openConnection() throws SQLException {
+		if (pool != null) {
+			return pool.borrow();
+		}
+		Connection con = DriverManager.getConnection(mgdJDBCUrl, user, password);
+		con.setAutoCommit(false);
+		return con;
+	}
+
+	/* give back a connection from openConnection()
+	 */
+	private void releaseConnection(Connection con) throws SQLException {
+		closePreparedStatements(con);
+		if (pool != null) {
+			pool.release(con);
+		} else {
+			con.close();
+		}
+	}
+
+	/**
+	 * Returns the connection for the current thread:  its leased one if it holds
+	 * a lease, otherwise the shared one (opened if needed).
+	 * @throws SQLException
+	 */
+	private Connection getConnection() throws SQLException {
+		Lease lease = threadLease.get();
+		if (lease != null) {
+			return lease.con;
+		}
+		if (conMGD == null) {
+			getMGDConnection();
+		}
+		return conMGD;
+	}
+
+	/**
+	 * Is: a connection bound to the thread that called lease() or tryLease().
+	 * Until it is closed, every statement that thread executes through this
+	 * SQLExecutor uses the leased connection.  Closing the lease unbinds it and
+	 * returns the connection to the pool (or closes it, if unpooled).  Note that
+	 * temp tables created on one connection are not visible on another.
+	 */
+	public class Lease implements AutoCloseable {
+		private Connection con;
+
+		private Lease (Connection con) {
+			this.con = con;
+		}
+
+		@Override
+		public void close() throws SQLException {
+			if (con != null) {
+				threadLease.remove();
+				Connection c = con;
+				con = null;
+				releaseConnection(c);
+			}
+		}
+	}
+
+	/**
+	 * Lease a connection of its own for the current thread, waiting for a pooled
+	 * connection to be free if needed.  Use with try-with-resources.
+	 * @throws SQLException
+	 */
+	public Lease lease() throws SQLException {
+		return bindLease(openConnection());
+	}
+
+	/**
+	 * Like lease(), but waits at most 'timeoutMs' for a pooled connection.
+	 * Returns null if none became free in time.  (Unpooled, never returns null.)
+	 * @throws SQLException
+	 */
+	public Lease tryLease(long timeoutMs) throws SQLException {
+		Connection con;
+		if (pool != null) {
+			con = pool.tryBorrow(timeoutMs);
+			if (con == null) {
+				return null;
+			}
+		} else {
+			con = openConnection();
+		}
+		return bindLease(con);
+	}
+
+	private Lease bindLease(Connection con) throws SQLException {
+		if (threadLease.get() != null) {
+			releaseConnection(con);
+			throw new SQLException("Thread " + Thread.currentThread().getName() + " already holds a connection lease");
+		}
+		Lease lease = new Lease(con);
+		threadLease.set(lease);
+		return lease;
+	}
+
+	/**
+	 * Returns true if connections come from the shared connection pool.
+	 */
+	public boolean isPooled() {
+		return pool != null;
+	}
+
+	/**
+	 * Size of the shared connection pool (0 if unpooled).
+	 */
+	public int getPoolSize() {
+		return (pool == null) ? 0 : pool.getSize();
 	}
 
 	/**
 	 * Clean up the connections to the database, if they have been initialized.
+	 * (A pooled connection is returned to the pool instead of being closed.)
 	 * @throws SQLException
 	 */
 
-	public void cleanup() throws SQLException {
+	public synchronized void cleanup() throws SQLException {
 		if (conMGD != null) {
-			conMGD.close();
+			Connection c = conMGD;
+			conMGD = null;
+			releaseConnection(c);
 		}
 	}
 
@@ -93,14 +246,10 @@ public class SQLExecutor {
 	public void executeUpdate (String cmd) {
 
 		try {
-			if (conMGD == null) {
-				getMGDConnection();
-			}
-
-			java.sql.Statement stmt = conMGD.createStatement();
-			start = new Date();
+			java.sql.Statement stmt = getConnection().createStatement();
+			start.set(new Date());
 			stmt.executeUpdate(cmd);
-			end = new Date();
+			end.set(new Date());
 			return;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -113,11 +262,10 @@ public class SQLExecutor {
 	 */
 	public void executeVoid(String sql) {
 		try {
-			if (conMGD == null)  getMGDConnection();
-			java.sql.Statement stmt = conMGD.createStatement();
-			start = new Date();
+			java.sql.Statement stmt = getConnection().createStatement();
+			start.set(new Date());
 			stmt.execute(sql);
-			end = new Date();
+			end.set(new Date());
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
@@ -144,18 +292,62 @@ public class SQLExecutor {
 		ResultSet set;
 
 		try {
-			if (conMGD == null) {
-				getMGDConnection();
-			}
-
-			java.sql.Statement stmt = conMGD.createStatement();
+			java.sql.Statement stmt = getConnection().createStatement();
 			if (cursorLimit > 0) {
 				stmt.setFetchSize(cursorLimit);
 			}
-			start = new Date();
+			start.set(new Date());
+			long startNanos = System.nanoTime();
 			set = stmt.executeQuery(query);
-			end = new Date();
-			return set;
+			recordQuery(startNanos);
+			end.set(new Date());
+			return timeFetches(set);
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+			return null;
+		}
+	}
+
+	/**
+	 * Execute a query with bind parameters against MGD, setting up the connection if
+	 * needed.  Each '?' in the SQL is bound to the next value in 'params'.  The
+	 * statement is prepared once per connection and reused for later calls with the
+	 * same SQL text, so loops over chunks of keys can rebind their key bounds
+	 * instead of building new SQL for every chunk.  Note: calling this again with
+	 * the same SQL (on the same thread) closes the previous ResultSet for it.
+	 * @param sql
+	 * @param params
+	 * @return
+	 */
+	public ResultSet executePrepared (String sql, Object... params) {
+		return executePrepared(10000, sql, params);
+	}
+
+	/**
+	 * Like executePrepared(sql, params), but uses a cursor to return 'cursorLimit'
+	 * results at a time.
+	 * @param cursorLimit
+	 * @param sql
+	 * @param params
+	 * @return
+	 */
+	public ResultSet executePrepared (int cursorLimit, String sql, Object... params) {
+
+		ResultSet set;
+
+		try {
+			PreparedStatement stmt = getPreparedStatement(getConnection(), sql);
+			stmt.setFetchSize(cursorLimit > 0 ? cursorLimit : 0);
+			for (int i = 0; i < params.length; i++) {
+				stmt.setObject(i + 1, params[i]);
+			}
+			start.set(new Date());
+			long startNanos = System.nanoTime();
+			set = stmt.executeQuery();
+			recordQuery(startNanos);
+			end.set(new Date());
+			return timeFetches(set);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
@@ -163,17 +355,82 @@ public class SQLExecutor {
 		}
 	}
 
+	/* get the cached statement for 'sql' on 'con', preparing it if needed
+	 */
+	private PreparedStatement getPreparedStatement(Connection con, String sql) throws SQLException {
+		Map<String,PreparedStatement> statements;
+		synchronized (preparedStatements) {
+			statements = preparedStatements.get(con);
+			if (statements == null) {
+				statements = new HashMap<String,PreparedStatement>();
+				preparedStatements.put(con, statements);
+			}
+		}
+		synchronized (statements) {
+			PreparedStatement stmt = statements.get(sql);
+			if ((stmt == null) || stmt.isClosed()) {
+				stmt = con.prepareStatement(sql);
+				if (stmt.isWrapperFor(PGStatement.class)) {
+					stmt.unwrap(PGStatement.class).setPrepareThreshold(prepareThreshold);
+				}
+				statements.put(sql, stmt);
+			}
+			return stmt;
+		}
+	}
+
+	/* close any statements cached for 'con' (before it is closed or goes back to the pool)
+	 */
+	private void closePreparedStatements(Connection con) {
+		Map<String,PreparedStatement> statements;
+		synchronized (preparedStatements) {
+			statements = preparedStatements.remove(con);
+		}
+		if (statements != null) {
+			for (PreparedStatement stmt : statements.values()) {
+				try {
+					stmt.close();
+				} catch (SQLException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	public void setMetrics(IndexerMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	private void recordQuery(long startNanos) {
+		if (metrics != null) {
+			metrics.dbQuery(System.nanoTime() - startNanos);
+		}
+	}
+
+	/* wrap 'set' so the rows read from it, and the time spent in next(), are
+	 * recorded in the metrics (see TimedResultSet)
+	 */
+	private ResultSet timeFetches(ResultSet set) {
+		if ((metrics == null) || (set == null)) {
+			return set;
+		}
+		return new TimedResultSet(set, metrics);
+	}
+
 	/**
-	 * Return the timing of the last query.
+	 * Return the timing of the last query run by the current thread.
 	 * @return
 	 */
 
 	public long getTiming() {
-		return end.getTime() - start.getTime();
+		if ((start.get() == null) || (end.get() == null)) {
+			return 0;
+		}
+		return end.get().getTime() - start.get().getTime();
 	}
 
-	/* returns a formatted timestamp as a string, showing the last query's
-	 * execution time in ms.  format:  "(n ms)"
+	/* returns a formatted timestamp as a string, showing the current thread's last
+	 * query's execution time in ms.  format:  "(n ms)"
 	 */
 	public String getTimestamp() {
 		return getTiming() + " ms";
@@ -181,7 +438,7 @@ public class SQLExecutor {
 
 	@Override
 	public String toString() {
-		return "SQLExecutor[user="+user+",password="+password+",url="+mgdJDBCUrl+"]";
+		return "SQLExecutor[user="+user+",password="+password+",url="+mgdJDBCUrl+",pool="+pool+"]";
 	}
 
 }
@@ -0,0 +1,62 @@
+package org.jax.mgi.shr;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/* Is: a read-only set of ints, kept as a sorted array without duplicates and searched
+ * 	with a binary search.  Takes four bytes per member where a HashSet<Integer> takes
+ * 	around fifty.
+ * Does: built once, through a Builder or from a boxed collection with of().
+ */
+public class SortedIntSet {
+	private int[] members;
+
+	private SortedIntSet(int[] members) {
+		this.members = members;
+	}
+
+	/* build a copy of the given boxed collection */
+	public static SortedIntSet of(Collection<Integer> collection) {
+		Builder builder = new Builder();
+		for (Integer member : collection) {
+			builder.add(member);
+		}
+		return builder.build();
+	}
+
+	public boolean contains(int member) {
+		return Arrays.binarySearch(members, member) >= 0;
+	}
+
+	public int size() {
+		return members.length;
+	}
+
+	/* Is: collects the members for a SortedIntSet, in any order and with any repeats
+	 */
+	public static class Builder {
+		private int[] members = new int[1024];
+		private int count = 0;
+
+		public Builder add(int member) {
+			if (count == members.length) {
+				members = Arrays.copyOf(members, count * 2);
+			}
+			members[count++] = member;
+			return this;
+		}
+
+		public SortedIntSet build() {
+			Arrays.sort(members, 0, count);
+			int distinct = 0;
+			for (int i = 0; i < count; i++) {
+				if ((i == 0) || (members[i] != members[i - 1])) {
+					members[distinct++] = members[i];
+				}
+			}
+			SortedIntSet set = new SortedIntSet(Arrays.copyOf(members, distinct));
+			members = null;
+			return set;
+		}
+	}
+}
@@ -0,0 +1,853 @@
+package org.jax.mgi.shr;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+
+import org.jax.mgi.reporting.IndexerMetrics;
+
+/**
+ * A ResultSet from SQLExecutor that records, in the indexer's metrics, the rows read
+ * from it and the time spent in next().  The counts go to the metrics a thousand rows
+ * at a time, and whatever is left when the rows run out or the set is closed.  Every
+ * other method simply calls the wrapped ResultSet.
+ */
+class TimedResultSet implements ResultSet {
+	private static final int FLUSH_ROWS = 1000;
+
+	private ResultSet set;
+	private IndexerMetrics metrics;
+	private long rows = 0;
+	private long nanos = 0;
+
+	TimedResultSet(ResultSet set, IndexerMetrics metrics) {
+		this.set = set;
+		this.metrics = metrics;
+	}
+
+	public boolean next() throws SQLException {
+		long startNanos = System.nanoTime();
+		boolean hasRow = set.next();
+		nanos += System.nanoTime() - startNanos;
+		if (hasRow) {
+			rows++;
+		}
+		if (!hasRow || (rows >= FLUSH_ROWS)) {
+			flush();
+		}
+		return hasRow;
+	}
+
+	public void close() throws SQLException {
+		flush();
+		set.close();
+	}
+
+	private void flush() {
+		if ((rows > 0) || (nanos > 0)) {
+			metrics.rowsRead(rows, nanos);
+			rows = 0;
+			nanos = 0;
+		}
+	}
+
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return set.unwrap(iface);
+	}
+
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || set.isWrapperFor(iface);
+	}
+
+	/*--- everything else is passed straight through ---*/
+
+	public boolean absolute(int row) throws SQLException {
+		return set.absolute(row);
+	}
+
+	public void afterLast() throws SQLException {
+		set.afterLast();
+	}
+
+	public void beforeFirst() throws SQLException {
+		set.beforeFirst();
+	}
+
+	public void cancelRowUpdates() throws SQLException {
+		set.cancelRowUpdates();
+	}
+
+	public void clearWarnings() throws SQLException {
+		set.clearWarnings();
+	}
+
+	public void deleteRow() throws SQLException {
+		set.deleteRow();
+	}
+
+	public int findColumn(String columnLabel) throws SQLException {
+		return set.findColumn(columnLabel);
+	}
+
+	public boolean first() throws SQLException {
+		return set.first();
+	}
+
+	public Array getArray(String columnLabel) throws SQLException {
+		return set.getArray(columnLabel);
+	}
+
+	public Array getArray(int columnIndex) throws SQLException {
+		return set.getArray(columnIndex);
+	}
+
+	public InputStream getAsciiStream(String columnLabel) throws SQLException {
+		return set.getAsciiStream(columnLabel);
+	}
+
+	public InputStream getAsciiStream(int columnIndex) throws SQLException {
+		return set.getAsciiStream(columnIndex);
+	}
+
+	@Deprecated
+	public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+		return set.getBigDecimal(columnLabel, scale);
+	}
+
+	public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+		return set.getBigDecimal(columnLabel);
+	}
+
+	@Deprecated
+	public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+		return set.getBigDecimal(columnIndex, scale);
+	}
+
+	public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+		return set.getBigDecimal(columnIndex);
+	}
+
+	public InputStream getBinaryStream(String columnLabel) throws SQLException {
+		return set.getBinaryStream(columnLabel);
+	}
+
+	public InputStream getBinaryStream(int columnIndex) throws SQLException {
+		return set.getBinaryStream(columnIndex);
+	}
+
+	public Blob getBlob(String columnLabel) throws SQLException {
+		return set.getBlob(columnLabel);
+	}
+
+	public Blob getBlob(int columnIndex) throws SQLException {
+		return set.getBlob(columnIndex);
+	}
+
+	public boolean getBoolean(String columnLabel) throws SQLException {
+		return set.getBoolean(columnLabel);
+	}
+
+	public boolean getBoolean(int columnIndex) throws SQLException {
+		return set.getBoolean(columnIndex);
+	}
+
+	public byte getByte(String columnLabel) throws SQLException {
+		return set.getByte(columnLabel);
+	}
+
+	public byte getByte(int columnIndex) throws SQLException {
+		return set.getByte(columnIndex);
+	}
+
+	public byte[] getBytes(String columnLabel) throws SQLException {
+		return set.getBytes(columnLabel);
+	}
+
+	public byte[] getBytes(int columnIndex) throws SQLException {
+		return set.getBytes(columnIndex);
+	}
+
+	public Reader getCharacterStream(String columnLabel) throws SQLException {
+		return set.getCharacterStream(columnLabel);
+	}
+
+	public Reader getCharacterStream(int columnIndex) throws SQLException {
+		return set.getCharacterStream(columnIndex);
+	}
+
+	public Clob getClob(String columnLabel) throws SQLException {
+		return set.getClob(columnLabel);
+	}
+
+	public Clob getClob(int columnIndex) throws SQLException {
+		return set.getClob(columnIndex);
+	}
+
+	public int getConcurrency() throws SQLException {
+		return set.getConcurrency();
+	}
+
+	public String getCursorName() throws SQLException {
+		return set.getCursorName();
+	}
+
+	public Date getDate(String columnLabel, Calendar cal) throws SQLException {
+		return set.getDate(columnLabel, cal);
+	}
+
+	public Date getDate(String columnLabel) throws SQLException {
+		return set.getDate(columnLabel);
+	}
+
+	public Date getDate(int columnIndex, Calendar cal) throws SQLException {
+		return set.getDate(columnIndex, cal);
+	}
+
+	public Date getDate(int columnIndex) throws SQLException {
+		return set.getDate(columnIndex);
+	}
+
+	public double getDouble(String columnLabel) throws SQLException {
+		return set.getDouble(columnLabel);
+	}
+
+	public double getDouble(int columnIndex) throws SQLException {
+		return set.getDouble(columnIndex);
+	}
+
+	public int getFetchDirection() throws SQLException {
+		return set.getFetchDirection();
+	}
+
+	public int getFetchSize() throws SQLException {
+		return set.getFetchSize();
+	}
+
+	public float getFloat(String columnLabel) throws SQLException {
+		return set.getFloat(columnLabel);
+	}
+
+	public float getFloat(int columnIndex) throws SQLException {
+		return set.getFloat(columnIndex);
+	}
+
+	public int getHoldability() throws SQLException {
+		return set.getHoldability();
+	}
+
+	public int getInt(String columnLabel) throws SQLException {
+		return set.getInt(columnLabel);
+	}
+
+	public int getInt(int columnIndex) throws SQLException {
+		return set.getInt(columnIndex);
+	}
+
+	public long getLong(String columnLabel) throws SQLException {
+		return set.getLong(columnLabel);
+	}
+
+	public long getLong(int columnIndex) throws SQLException {
+		return set.getLong(columnIndex);
+	}
+
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return set.getMetaData();
+	}
+
+	public Reader getNCharacterStream(String columnLabel) throws SQLException {
+		return set.getNCharacterStream(columnLabel);
+	}
+
+	public Reader getNCharacterStream(int columnIndex) throws SQLException {
+		return set.getNCharacterStream(columnIndex);
+	}
+
+	public NClob getNClob(String columnLabel) throws SQLException {
+		return set.getNClob(columnLabel);
+	}
+
+	public NClob getNClob(int columnIndex) throws SQLException {
+		return set.getNClob(columnIndex);
+	}
+
+	public String getNString(String columnLabel) throws SQLException {
+		return set.getNString(columnLabel);
+	}
+
+	public String getNString(int columnIndex) throws SQLException {
+		return set.getNString(columnIndex);
+	}
+
+	public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+		return set.getObject(columnLabel, type);
+	}
+
+	public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+		return set.getObject(columnLabel, map);
+	}
+
+	public Object getObject(String columnLabel) throws SQLException {
+		return set.getObject(columnLabel);
+	}
+
+	public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+		return set.getObject(columnIndex, type);
+	}
+
+	public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+		return set.getObject(columnIndex, map);
+	}
+
+	public Object getObject(int columnIndex) throws SQLException {
+		return set.getObject(columnIndex);
+	}
+
+	public Ref getRef(String columnLabel) throws SQLException {
+		return set.getRef(columnLabel);
+	}
+
+	public Ref getRef(int columnIndex) throws SQLException {
+		return set.getRef(columnIndex);
+	}
+
+	public int getRow() throws SQLException {
+		return set.getRow();
+	}
+
+	public RowId getRowId(String columnLabel) throws SQLException {
+		return set.getRowId(columnLabel);
+	}
+
+	public RowId getRowId(int columnIndex) throws SQLException {
+		return set.getRowId(columnIndex);
+	}
+
+	public SQLXML getSQLXML(String columnLabel) throws SQLException {
+		return set.getSQLXML(columnLabel);
+	}
+
+	public SQLXML getSQLXML(int columnIndex) throws SQLException {
+		return set.getSQLXML(columnIndex);
+	}
+
+	public short getShort(String columnLabel) throws SQLException {
+		return set.getShort(columnLabel);
+	}
+
+	public short getShort(int columnIndex) throws SQLException {
+		return set.getShort(columnIndex);
+	}
+
+	public Statement getStatement() throws SQLException {
+		return set.getStatement();
+	}
+
+	public String getString(String columnLabel) throws SQLException {
+		return set.getString(columnLabel);
+	}
+
+	public String getString(int columnIndex) throws SQLException {
+		return set.getString(columnIndex);
+	}
+
+	public Time getTime(String columnLabel, Calendar cal) throws SQLException {
+		return set.getTime(columnLabel, cal);
+	}
+
+	public Time getTime(String columnLabel) throws SQLException {
+		return set.getTime(columnLabel);
+	}
+
+	public Time getTime(int columnIndex, Calendar cal) throws SQLException {
+		return set.getTime(columnIndex, cal);
+	}
+
+	public Time getTime(int columnIndex) throws SQLException {
+		return set.getTime(columnIndex);
+	}
+
+	public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+		return set.getTimestamp(columnLabel, cal);
+	}
+
+	public Timestamp getTimestamp(String columnLabel) throws SQLException {
+		return set.getTimestamp(columnLabel);
+	}
+
+	public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+		return set.getTimestamp(columnIndex, cal);
+	}
+
+	public Timestamp getTimestamp(int columnIndex) throws SQLException {
+		return set.getTimestamp(columnIndex);
+	}
+
+	public int getType() throws SQLException {
+		return set.getType();
+	}
+
+	public URL getURL(String columnLabel) throws SQLException {
+		return set.getURL(columnLabel);
+	}
+
+	public URL getURL(int columnIndex) throws SQLException {
+		return set.getURL(columnIndex);
+	}
+
+	@Deprecated
+	public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+		return set.getUnicodeStream(columnLabel);
+	}
+
+	@Deprecated
+	public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+		return set.getUnicodeStream(columnIndex);
+	}
+
+	public SQLWarning getWarnings() throws SQLException {
+		return set.getWarnings();
+	}
+
+	public void insertRow() throws SQLException {
+		set.insertRow();
+	}
+
+	public boolean isAfterLast() throws SQLException {
+		return set.isAfterLast();
+	}
+
+	public boolean isBeforeFirst() throws SQLException {
+		return set.isBeforeFirst();
+	}
+
+	public boolean isClosed() throws SQLException {
+		return set.isClosed();
+	}
+
+	public boolean isFirst() throws SQLException {
+		return set.isFirst();
+	}
+
+	public boolean isLast() throws SQLException {
+		return set.isLast();
+	}
+
+	public boolean last() throws SQLException {
+		return set.last();
+	}
+
+	public void moveToCurrentRow() throws SQLException {
+		set.moveToCurrentRow();
+	}
+
+	public void moveToInsertRow() throws SQLException {
+		set.moveToInsertRow();
+	}
+
+	public boolean previous() throws SQLException {
+		return set.previous();
+	}
+
+	public void refreshRow() throws SQLException {
+		set.refreshRow();
+	}
+
+	public boolean relative(int rows) throws SQLException {
+		return set.relative(rows);
+	}
+
+	public boolean rowDeleted() throws SQLException {
+		return set.rowDeleted();
+	}
+
+	public boolean rowInserted() throws SQLException {
+		return set.rowInserted();
+	}
+
+	public boolean rowUpdated() throws SQLException {
+		return set.rowUpdated();
+	}
+
+	public void setFetchDirection(int direction) throws SQLException {
+		set.setFetchDirection(direction);
+	}
+
+	public void setFetchSize(int rows) throws SQLException {
+		set.setFetchSize(rows);
+	}
+
+	public void updateArray(String columnLabel, Array x) throws SQLException {
+		set.updateArray(columnLabel, x);
+	}
+
+	public void updateArray(int columnIndex, Array x) throws SQLException {
+		set.updateArray(columnIndex, x);
+	}
+
+	public void updateAsciiStream(String columnLabel, InputStream x, int length) throws SQLException {
+		set.updateAsciiStream(columnLabel, x, length);
+	}
+
+	public void updateAsciiStream(String columnLabel, InputStream x, long length) throws SQLException {
+		set.updateAsciiStream(columnLabel, x, length);
+	}
+
+	public void updateAsciiStream(String columnLabel, InputStream x) throws SQLException {
+		set.updateAsciiStream(columnLabel, x);
+	}
+
+	public void updateAsciiStream(int columnIndex, InputStream x, int length) throws SQLException {
+		set.updateAsciiStream(columnIndex, x, length);
+	}
+
+	public void updateAsciiStream(int columnIndex, InputStream x, long length) throws SQLException {
+		set.updateAsciiStream(columnIndex, x, length);
+	}
+
+	public void updateAsciiStream(int columnIndex, InputStream x) throws SQLException {
+		set.updateAsciiStream(columnIndex, x);
+	}
+
+	public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException {
+		set.updateBigDecimal(columnLabel, x);
+	}
+
+	public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException {
+		set.updateBigDecimal(columnIndex, x);
+	}
+
+	public void updateBinaryStream(String columnLabel, InputStream x, int length) throws SQLException {
+		set.updateBinaryStream(columnLabel, x, length);
+	}
+
+	public void updateBinaryStream(String columnLabel, InputStream x, long length) throws SQLException {
+		set.updateBinaryStream(columnLabel, x, length);
+	}
+
+	public void updateBinaryStream(String columnLabel, InputStream x) throws SQLException {
+		set.updateBinaryStream(columnLabel, x);
+	}
+
+	public void updateBinaryStream(int columnIndex, InputStream x, int length) throws SQLException {
+		set.updateBinaryStream(columnIndex, x, length);
+	}
+
+	public void updateBinaryStream(int columnIndex, InputStream x, long length) throws SQLException {
+		set.updateBinaryStream(columnIndex, x, length);
+	}
+
+	public void updateBinaryStream(int columnIndex, InputStream x) throws SQLException {
+		set.updateBinaryStream(columnIndex, x);
+	}
+
+	public void updateBlob(String columnLabel, InputStream x, long length) throws SQLException {
+		set.updateBlob(columnLabel, x, length);
+	}
+
+	public void updateBlob(String columnLabel, InputStream x) throws SQLException {
+		set.updateBlob(columnLabel, x);
+	}
+
+	public void updateBlob(String columnLabel, Blob x) throws SQLException {
+		set.updateBlob(columnLabel, x);
+	}
+
+	public void updateBlob(int columnIndex, InputStream x, long length) throws SQLException {
+		set.updateBlob(columnIndex, x, length);
+	}
+
+	public void updateBlob(int columnIndex, InputStream x) throws SQLException {
+		set.updateBlob(columnIndex, x);
+	}
+
+	public void updateBlob(int columnIndex, Blob x) throws SQLException {
+		set.updateBlob(columnIndex, x);
+	}
+
+	public void updateBoolean(String columnLabel, boolean x) throws SQLException {
+		set.updateBoolean(columnLabel, x);
+	}
+
+	public void updateBoolean(int columnIndex, boolean x) throws SQLException {
+		set.updateBoolean(columnIndex, x);
+	}
+
+	public void updateByte(String columnLabel, byte x) throws SQLException {
+		set.updateByte(columnLabel, x);
+	}
+
+	public void updateByte(int columnIndex, byte x) throws SQLException {
+		set.updateByte(columnIndex, x);
+	}
+
+	public void updateBytes(String columnLabel, byte[] x) throws SQLException {
+		set.updateBytes(columnLabel, x);
+	}
+
+	public void updateBytes(int columnIndex, byte[] x) throws SQLException {
+		set.updateBytes(columnIndex, x);
+	}
+
+	public void updateCharacterStream(String columnLabel, Reader x, int length) throws SQLException {
+		set.updateCharacterStream(columnLabel, x, length);
+	}
+
+	public void updateCharacterStream(String columnLabel, Reader x, long length) throws SQLException {
+		set.updateCharacterStream(columnLabel, x, length);
+	}
+
+	public void updateCharacterStream(String columnLabel, Reader x) throws SQLException {
+		set.updateCharacterStream(columnLabel, x);
+	}
+
+	public void updateCharacterStream(int columnIndex, Reader x, int length) throws SQLException {
+		set.updateCharacterStream(columnIndex, x, length);
+	}
+
+	public void updateCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+		set.updateCharacterStream(columnIndex, x, length);
+	}
+
+	public void updateCharacterStream(int columnIndex, Reader x) throws SQLException {
+		set.updateCharacterStream(columnIndex, x);
+	}
+
+	public void updateClob(String columnLabel, Reader x, long length) throws SQLException {
+		set.updateClob(columnLabel, x, length);
+	}
+
+	public void updateClob(String columnLabel, Reader x) throws SQLException {
+		set.updateClob(columnLabel, x);
+	}
+
+	public void updateClob(String columnLabel, Clob x) throws SQLException {
+		set.updateClob(columnLabel, x);
+	}
+
+	public void updateClob(int columnIndex, Reader x, long length) throws SQLException {
+		set.updateClob(columnIndex, x, length);
+	}
+
+	public void updateClob(int columnIndex, Reader x) throws SQLException {
+		set.updateClob(columnIndex, x);
+	}
+
+	public void updateClob(int columnIndex, Clob x) throws SQLException {
+		set.updateClob(columnIndex, x);
+	}
+
+	public void updateDate(String columnLabel, Date x) throws SQLException {
+		set.updateDate(columnLabel, x);
+	}
+
+	public void updateDate(int columnIndex, Date x) throws SQLException {
+		set.updateDate(columnIndex, x);
+	}
+
+	public void updateDouble(String columnLabel, double x) throws SQLException {
+		set.updateDouble(columnLabel, x);
+	}
+
+	public void updateDouble(int columnIndex, double x) throws SQLException {
+		set.updateDouble(columnIndex, x);
+	}
+
+	public void updateFloat(String columnLabel, float x) throws SQLException {
+		set.updateFloat(columnLabel, x);
+	}
+
+	public void updateFloat(int columnIndex, float x) throws SQLException {
+		set.updateFloat(columnIndex, x);
+	}
+
+	public void updateInt(String columnLabel, int x) throws SQLException {
+		set.updateInt(columnLabel, x);
+	}
+
+	public void updateInt(int columnIndex, int x) throws SQLException {
+		set.updateInt(columnIndex, x);
+	}
+
+	public void updateLong(String columnLabel, long x) throws SQLException {
+		set.updateLong(columnLabel, x);
+	}
+
+	public void updateLong(int columnIndex, long x) throws SQLException {
+		set.updateLong(columnIndex, x);
+	}
+
+	public void updateNCharacterStream(String columnLabel, Reader x, long length) throws SQLException {
+		set.updateNCharacterStream(columnLabel, x, length);
+	}
+
+	public void updateNCharacterStream(String columnLabel, Reader x) throws SQLException {
+		set.updateNCharacterStream(columnLabel, x);
+	}
+
+	public void updateNCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+		set.updateNCharacterStream(columnIndex, x, length);
+	}
+
+	public void updateNCharacterStream(int columnIndex, Reader x) throws SQLException {
+		set.updateNCharacterStream(columnIndex, x);
+	}
+
+	public void updateNClob(String columnLabel, Reader x, long length) throws SQLException {
+		set.updateNClob(columnLabel, x, length);
+	}
+
+	public void updateNClob(String columnLabel, Reader x) throws SQLException {
+		set.updateNClob(columnLabel, x);
+	}
+
+	public void updateNClob(String columnLabel, NClob x) throws SQLException {
+		set.updateNClob(columnLabel, x);
+	}
+
+	public void updateNClob(int columnIndex, Reader x, long length) throws SQLException {
+		set.updateNClob(columnIndex, x, length);
+	}
+
+	public void updateNClob(int columnIndex, Reader x) throws SQLException {
+		set.updateNClob(columnIndex, x);
+	}
+
+	public void updateNClob(int columnIndex, NClob x) throws SQLException {
+		set.updateNClob(columnIndex, x);
+	}
+
+	public void updateNString(String columnLabel, String x) throws SQLException {
+		set.updateNString(columnLabel, x);
+	}
+
+	public void updateNString(int columnIndex, String x) throws SQLException {
+		set.updateNString(columnIndex, x);
+	}
+
+	public void updateNull(String columnLabel) throws SQLException {
+		set.updateNull(columnLabel);
+	}
+
+	public void updateNull(int columnIndex) throws SQLException {
+		set.updateNull(columnIndex);
+	}
+
+	public void updateObject(String columnLabel, Object x, int scaleOrLength) throws SQLException {
+		set.updateObject(columnLabel, x, scaleOrLength);
+	}
+
+	public void updateObject(String columnLabel, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+		set.updateObject(columnLabel, x, targetSqlType, scaleOrLength);
+	}
+
+	public void updateObject(String columnLabel, Object x, SQLType targetSqlType) throws SQLException {
+		set.updateObject(columnLabel, x, targetSqlType);
+	}
+
+	public void updateObject(String columnLabel, Object x) throws SQLException {
+		set.updateObject(columnLabel, x);
+	}
+
+	public void updateObject(int columnIndex, Object x, int scaleOrLength) throws SQLException {
+		set.updateObject(columnIndex, x, scaleOrLength);
+	}
+
+	public void updateObject(int columnIndex, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+		set.updateObject(columnIndex, x, targetSqlType, scaleOrLength);
+	}
+
+	public void updateObject(int columnIndex, Object x, SQLType targetSqlType) throws SQLException {
+		set.updateObject(columnIndex, x, targetSqlType);
+	}
+
+	public void updateObject(int columnIndex, Object x) throws SQLException {
+		set.updateObject(columnIndex, x);
+	}
+
+	public void updateRef(String columnLabel, Ref x) throws SQLException {
+		set.updateRef(columnLabel, x);
+	}
+
+	public void updateRef(int columnIndex, Ref x) throws SQLException {
+		set.updateRef(columnIndex, x);
+	}
+
+	public void updateRow() throws SQLException {
+		set.updateRow();
+	}
+
+	public void updateRowId(String columnLabel, RowId x) throws SQLException {
+		set.updateRowId(columnLabel, x);
+	}
+
+	public void updateRowId(int columnIndex, RowId x) throws SQLException {
+		set.updateRowId(columnIndex, x);
+	}
+
+	public void updateSQLXML(String columnLabel, SQLXML x) throws SQLException {
+		set.updateSQLXML(columnLabel, x);
+	}
+
+	public void updateSQLXML(int columnIndex, SQLXML x) throws SQLException {
+		set.updateSQLXML(columnIndex, x);
+	}
+
+	public void updateShort(String columnLabel, short x) throws SQLException {
+		set.updateShort(columnLabel, x);
+	}
+
+	public void updateShort(int columnIndex, short x) throws SQLException {
+		set.updateShort(columnIndex, x);
+	}
+
+	public void updateString(String columnLabel, String x) throws SQLException {
+		set.updateString(columnLabel, x);
+	}
+
+	public void updateString(int columnIndex, String x) throws SQLException {
+		set.updateString(columnIndex, x);
+	}
+
+	public void updateTime(String columnLabel, Time x) throws SQLException {
+		set.updateTime(columnLabel, x);
+	}
+
+	public void updateTime(int columnIndex, Time x) throws SQLException {
+		set.updateTime(columnIndex, x);
+	}
+
+	public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException {
+		set.updateTimestamp(columnLabel, x);
+	}
+
+	public void updateTimestamp(int columnIndex, Timestamp x) throws SQLException {
+		set.updateTimestamp(columnIndex, x);
+	}
+
+	public boolean wasNull() throws SQLException {
+		return set.wasNull();
+	}
+}
@@ -33,6 +33,10 @@ public class VocabTermCache {
 		this.fillIDs(vocabName, ex);
 		this.fillSynonyms(vocabName, ex);
 		this.fillAncestors(vocabName, ex);
+
+		// read-only from here on, as one cache may be shared by several indexers (see VocabTermCacheRegistry)
+		this.terms = Collections.unmodifiableMap(this.terms);
+		this.idToKey = Collections.unmodifiableMap(this.idToKey);
 		logger.info(" - Finished caching " + vocabName);
 	}
 	
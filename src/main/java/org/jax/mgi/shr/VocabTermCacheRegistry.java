@@ -0,0 +1,72 @@
+package org.jax.mgi.shr;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Is: the VocabTermCache objects in use across all indexers running in this JVM.
+// Each vocabulary is loaded once, by whichever indexer asks for it first, and then shared
+// (read-only) with every other indexer that asks while it is held.  Each acquire() must be
+// matched by a release(); when the last holder releases a vocabulary, it is let go.
+public class VocabTermCacheRegistry {
+
+	// maps from vocab name to its (shared) cache and count of holders
+	private static Map<String,Entry> entries = new HashMap<String,Entry>();
+
+	private static Logger logger = LoggerFactory.getLogger(VocabTermCacheRegistry.class);
+
+	private static class Entry {
+		VocabTermCache cache = null;
+		int holders = 0;
+	}
+
+	// get the cache for 'vocabName', loading it with 'ex' if no one else holds it.  Threads
+	// asking for the same vocab while it loads wait for it; other vocabs are not held up.
+	public static VocabTermCache acquire(String vocabName, SQLExecutor ex) throws SQLException {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(vocabName);
+			if (entry == null) {
+				entry = new Entry();
+				entries.put(vocabName, entry);
+			}
+			entry.holders++;
+		}
+
+		synchronized (entry) {
+			if (entry.cache == null) {
+				// give back our hold if the load fails in any way, or the entry would never be let go
+				boolean loaded = false;
+				try {
+					entry.cache = new VocabTermCache(vocabName, ex);
+					loaded = true;
+				} finally {
+					if (!loaded) {
+						release(vocabName);
+					}
+				}
+			} else {
+				logger.info("Sharing cached data for " + vocabName);
+			}
+			return entry.cache;
+		}
+	}
+
+	// give up one hold on the cache for 'vocabName'; the last one lets it go
+	public static void release(String vocabName) {
+		synchronized (entries) {
+			Entry entry = entries.get(vocabName);
+			if (entry == null) {
+				return;
+			}
+			entry.holders--;
+			if (entry.holders <= 0) {
+				entries.remove(vocabName);
+				logger.info("Released cached data for " + vocabName);
+			}
+		}
+	}
+}